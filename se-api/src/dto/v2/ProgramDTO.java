@@ -11,7 +11,6 @@ public class ProgramDTO {
     private final List<String> workVariables;
     private final InstructionsDTO instructions;
     private final List<List<InstructionDTO>> expandedProgram;
-    private final long averageCreditCost;
     private final int miniminRequireRank;
 
     public ProgramDTO(
@@ -23,7 +22,7 @@ public class ProgramDTO {
             List<String> workVariables,
             InstructionsDTO instructions,
             List<List<InstructionDTO>> expandedProgram,
-            long averageCreditCost, int miniminRequireRank
+            int miniminRequireRank
     ) {
         this.programName = programName;
         this.userString = userString;
@@ -33,7 +32,6 @@ public class ProgramDTO {
         this.workVariables = workVariables;
         this.instructions = instructions;
         this.expandedProgram = expandedProgram;
-        this.averageCreditCost = averageCreditCost;
         this.miniminRequireRank = miniminRequireRank;
     }
 
@@ -73,10 +71,6 @@ public class ProgramDTO {
         return "y";
     }
 
-    public long getAverageCreditCost() {
-        return averageCreditCost;
-    }
-
     public int getMiniminRequireRank() {
         return miniminRequireRank;
     }
@@ -0,0 +1,29 @@
+package dto.v3;
+
+import java.util.List;
+
+// A page of a user's history, as returned by /user-history-list.
+// The next page is requested with 'nextCursor' (while 'hasMore' is true)
+public class HistoryPageDTO {
+    private final List<HistoryRowV3DTO> rows;
+    private final int nextCursor;
+    private final boolean hasMore;
+
+    public HistoryPageDTO(List<HistoryRowV3DTO> rows, int nextCursor, boolean hasMore) {
+        this.rows = rows;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<HistoryRowV3DTO> getRows() {
+        return rows;
+    }
+
+    public int getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
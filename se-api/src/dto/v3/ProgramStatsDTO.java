@@ -0,0 +1,26 @@
+package dto.v3;
+
+// The stats of a program, that change with every run (ProgramDTO has only what never changes)
+public class ProgramStatsDTO {
+    private final String programName;
+    private final int executionsCount;
+    private final long averageCreditCost;
+
+    public ProgramStatsDTO(String programName, int executionsCount, long averageCreditCost) {
+        this.programName = programName;
+        this.executionsCount = executionsCount;
+        this.averageCreditCost = averageCreditCost;
+    }
+
+    public String getProgramName() {
+        return programName;
+    }
+
+    public int getExecutionsCount() {
+        return executionsCount;
+    }
+
+    public long getAverageCreditCost() {
+        return averageCreditCost;
+    }
+}
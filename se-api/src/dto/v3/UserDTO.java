@@ -7,9 +7,10 @@ public class UserDTO {
     private final String userName;
     private int mainProgramsCount;
     private int subFunctionsCount;
-    private long currentCredits;
-    private int usedCredits;
-    private int executionsCount;
+    private volatile long currentCredits;      // Changed under the user's lock by the engine, read without it
+    private volatile long usedCredits;
+    private volatile int executionsCount;
+    private transient long reservedCredits;     // Taken by the user's running runs and not settled yet (not sent to clients)
 
 
     public UserDTO(String userName) {
@@ -37,7 +38,7 @@ public class UserDTO {
         return currentCredits;
     }
 
-    public int getUsedCredits() {
+    public long getUsedCredits() {
         return usedCredits;
     }
 
@@ -45,6 +46,10 @@ public class UserDTO {
         return executionsCount;
     }
 
+    public long getReservedCredits() {
+        return reservedCredits;
+    }
+
 
     public void setMainProgramsCount(int mainProgramsCount) {
         this.mainProgramsCount = mainProgramsCount;
@@ -58,11 +63,15 @@ public class UserDTO {
         this.currentCredits = currentCredits;
     }
 
-    public void setUsedCredits(int usedCredits) {
+    public void setUsedCredits(long usedCredits) {
         this.usedCredits = usedCredits;
     }
 
     public void setExecutionsCount(int executionsCount) {
         this.executionsCount = executionsCount;
     }
+
+    public void setReservedCredits(long reservedCredits) {
+        this.reservedCredits = reservedCredits;
+    }
 }
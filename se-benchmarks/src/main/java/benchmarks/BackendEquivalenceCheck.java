@@ -0,0 +1,262 @@
+package benchmarks;
+
+import dto.v3.UserDTO;
+import engine.EngineImpl;
+import engine.logic.exceptions.EngineLoadException;
+import engine.logic.execution.compiledMode.CompiledProgram;
+import engine.logic.execution.compiledMode.CompiledProgramExecutor;
+import engine.logic.execution.compiledMode.ExecutionBackend;
+import engine.logic.execution.compiledMode.ProgramCompiler;
+import engine.logic.execution.runMode.ProgramExecutor;
+import engine.logic.execution.runMode.ProgramExecutorImpl;
+import engine.logic.programData.architecture.ArchitectureType;
+import engine.logic.programData.program.Program;
+import engine.logic.programData.program.ProgramsHolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+// Runs every sample program in xml-samples at every degree on every backend, and checks each run against the same run
+// of ProgramExecutorImpl (the reference): the variables, the cycles, the credits charged and how the run ended. The
+// backends: the compiled program and its optimized form (PeepholeOptimizer, with the counting loops run at once -
+// LoopIdiom), each instruction by instruction and as a generated class (BytecodeCompiler).
+// Every input vector also runs on budgets the run doesn't fit in, so the runs that stop for lack of credits are checked
+// too. Not a JMH benchmark - exits with status 1 if any run differs. BenchmarkRunner runs it before the benchmarks.
+// Usage: BackendEquivalenceCheck
+public class BackendEquivalenceCheck {
+
+    private static final String SAMPLES_DIRECTORY = "/xml-samples";
+    private static final ArchitectureType ARCHITECTURE = ArchitectureType.A_4;
+    private static final int INPUT_VECTORS = 6;
+    private static final int INPUTS_PER_VECTOR = 4;        // Programs ignore the inputs they don't have
+    private static final long UNLIMITED_CREDITS = Long.MAX_VALUE / 2;
+    private static final long RUN_TIME_LIMIT_MILLIS = 5_000;   // A reference run that takes longer is skipped
+    private static final long SEED = 23;
+
+    private record Backend(String name, Function<Program, ProgramExecutor> executorFactory) { }
+
+    // How a run ended ('outcome': "completed" or the exception class), its variables and what it cost
+    private record RunResult(String outcome, Map<String, Long> variables, int cycles, long chargedCredits, long usedCredits) { }
+
+    private static final ExecutorService runExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "backend-equivalence-run");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static void main(String[] args) throws IOException {
+        int differencesCount = check();
+
+        if (differencesCount > 0) {
+            System.out.println(differencesCount + " runs differ from the same runs of ProgramExecutorImpl");
+            System.exit(1);
+        }
+        System.out.println("All the backends run the same as ProgramExecutorImpl");
+    }
+
+    // Returns how many runs differ from the reference
+    public static int check() throws IOException {
+        int differencesCount = 0;
+
+        for (Map.Entry<String, Program> sampleEntry : loadSamples().entrySet()) {
+            String sample = sampleEntry.getKey();
+            Program program = sampleEntry.getValue();
+            if (program == null) {
+                System.out.printf("%-40s skipped (not a loadable program)%n", sample);
+                continue;
+            }
+
+            for (Map.Entry<Integer, Program> entry : program.calculateDegreeToProgram().entrySet()) {
+                int runsCount = 0;
+                int differences = 0;
+
+                for (Long[] inputs : inputVectors(entry.getKey())) {
+                    int[] checked = checkInputs(sample, entry.getValue(), entry.getKey(), inputs);
+                    runsCount += checked[0];
+                    differences += checked[1];
+                }
+
+                System.out.printf("%-40s degree %2d: %4d runs, %d different%n", sample, entry.getKey(), runsCount, differences);
+                differencesCount += differences;
+            }
+        }
+
+        return differencesCount;
+    }
+
+    // Returns {runs, differences}
+    private static int[] checkInputs(String sample, Program program, int degree, Long[] inputs) {
+        CompiledProgram compiledProgram = ProgramCompiler.compile(program);
+        List<Backend> backends = List.of(
+                new Backend("compiled", p -> new CompiledProgramExecutor(compiledProgram, ARCHITECTURE)),
+                new Backend("compiled bytecode", p -> new CompiledProgramExecutor(compiledProgram, ARCHITECTURE, ExecutionBackend.BYTECODE)),
+                new Backend("optimized", p -> new CompiledProgramExecutor(compiledProgram.getOptimizedProgram(), ARCHITECTURE)),
+                new Backend("optimized bytecode", p -> new CompiledProgramExecutor(compiledProgram.getOptimizedProgram(), ARCHITECTURE, ExecutionBackend.BYTECODE)));
+        Function<Program, ProgramExecutor> reference = p -> new ProgramExecutorImpl(p, ARCHITECTURE);
+
+        RunResult unlimitedRun = run(reference, program, degree, inputs, UNLIMITED_CREDITS);
+        if (unlimitedRun == null) {
+            return new int[]{0, 0};        // Doesn't end (soon) on these inputs
+        }
+
+        int runsCount = 0;
+        int differences = 0;
+        for (long credits : creditBudgets(unlimitedRun.chargedCredits())) {
+            RunResult expected = (credits == UNLIMITED_CREDITS) ? unlimitedRun : run(reference, program, degree, inputs, credits);
+
+            for (Backend backend : backends) {
+                RunResult actual = run(backend.executorFactory(), program, degree, inputs, credits);
+                runsCount++;
+
+                if (!expected.equals(actual)) {
+                    differences++;
+                    System.out.printf("  DIFFERENT %s degree %d, %s, inputs %s, credits %d:%n    expected %s%n    actual   %s%n",
+                            sample, degree, backend.name(), Arrays.toString(inputs), credits, expected, actual);
+                }
+            }
+        }
+
+        return new int[]{runsCount, differences};
+    }
+
+    // Enough for the whole run, and budgets it runs out of: on the last instruction, half way and on the first
+    private static long[] creditBudgets(long runCredits) {
+        return LongStream.of(UNLIMITED_CREDITS, runCredits, runCredits - 1, runCredits / 2, 1)
+                .filter(credits -> credits > 0)
+                .distinct()
+                .toArray();
+    }
+
+    // Null if the run didn't end in time (it's interrupted)
+    private static RunResult run(Function<Program, ProgramExecutor> executorFactory, Program program, int degree,
+                                 Long[] inputs, long credits) {
+        program.getProgramsHolder().getFunctionCallCache().clear();     // Every run calls its functions for real
+        UserDTO userDTO = new UserDTO(UserDTO.DEFAULT_NAME);
+        userDTO.setCurrentCredits(credits);
+        ProgramExecutor programExecutor = executorFactory.apply(program);
+
+        Future<RunResult> runFuture = runExecutor.submit(() -> {
+            String outcome = "completed";
+            try {
+                programExecutor.run(userDTO, degree, inputs);
+            } catch (RuntimeException e) {
+                outcome = e.getClass().getSimpleName();
+            }
+            return new RunResult(outcome, programExecutor.getVariablesToValuesSorted(), programExecutor.getTotalCycles(),
+                    credits - userDTO.getCurrentCredits(), userDTO.getUsedCredits());
+        });
+
+        try {
+            return runFuture.get(RUN_TIME_LIMIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            runFuture.cancel(true);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Backend equivalence check was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Backend equivalence run failed", e.getCause());
+        }
+    }
+
+    // Small inputs (the loops of the samples run up to the inputs), the same ones on every run of the check
+    private static List<Long[]> inputVectors(int degree) {
+        Random random = new Random(SEED + degree);
+        List<Long[]> inputVectors = new ArrayList<>();
+
+        for (int i = 0; i < INPUT_VECTORS; i++) {
+            Long[] inputs = new Long[INPUTS_PER_VECTOR];
+            for (int j = 0; j < inputs.length; j++) {
+                inputs[j] = (long) random.nextInt((i < INPUT_VECTORS / 2) ? 4 : 10);
+            }
+            inputVectors.add(inputs);
+        }
+        return inputVectors;
+    }
+
+    // By "directory/file" name, null for the samples that aren't valid programs (the samples include files that must
+    // fail). The samples of a directory are uploaded together, so a sample may call the functions of another one (in
+    // any order - until no more load); a sample that defines the same functions as another is uploaded alone
+    private static Map<String, Program> loadSamples() throws IOException {
+        Map<String, Program> sampleToProgram = new TreeMap<>();
+        Map<Path, List<Path>> directoryToSamples = new LinkedHashMap<>();
+        for (Path sample : findSamples()) {
+            directoryToSamples.computeIfAbsent(sample.getParent(), k -> new ArrayList<>()).add(sample);
+        }
+
+        for (List<Path> samples : directoryToSamples.values()) {
+            ProgramsHolder directoryPrograms = new ProgramsHolder();
+            List<Path> notLoaded = new ArrayList<>(samples);
+            boolean loadedAny = true;
+
+            while (loadedAny) {
+                loadedAny = false;
+                for (Iterator<Path> iterator = notLoaded.iterator(); iterator.hasNext(); ) {
+                    Path sample = iterator.next();
+                    Program program = load(sample, directoryPrograms);
+
+                    if (program != null) {
+                        sampleToProgram.put(nameOf(sample), program);
+                        iterator.remove();
+                        loadedAny = true;
+                    }
+                }
+            }
+
+            for (Path sample : notLoaded) {
+                sampleToProgram.put(nameOf(sample), null);
+            }
+        }
+
+        return sampleToProgram;
+    }
+
+    private static Program load(Path sample, ProgramsHolder directoryPrograms) throws IOException {
+        byte[] xml = Files.readAllBytes(sample);
+
+        for (ProgramsHolder programsHolder : List.of(directoryPrograms, new ProgramsHolder())) {
+            try {
+                return BenchmarkPrograms.loadXml(xml, sample.getFileName().toString(), programsHolder);
+            } catch (EngineLoadException | RuntimeException e) {
+                // Not valid with these functions
+            }
+        }
+        return null;
+    }
+
+    private static String nameOf(Path sample) {
+        return sample.getParent().getFileName() + "/" + sample.getFileName();
+    }
+
+    // The sample XML files on the classpath (a directory, or in the se-engine jar)
+    private static List<Path> findSamples() throws IOException {
+        URL samplesUrl = EngineImpl.class.getResource(SAMPLES_DIRECTORY);
+        if (samplesUrl == null) {
+            throw new IllegalStateException("Sample programs not found on the classpath: " + SAMPLES_DIRECTORY);
+        }
+
+        try {
+            URI samplesUri = samplesUrl.toURI();
+            Path samplesDirectory = samplesUri.getScheme().equals("jar")
+                    ? FileSystems.newFileSystem(samplesUri, Map.of()).getPath(SAMPLES_DIRECTORY)
+                    : Paths.get(samplesUri);
+
+            try (Stream<Path> paths = Files.walk(samplesDirectory)) {
+                return paths.filter(path -> path.toString().endsWith(".xml")).sorted().toList();
+            }
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Invalid sample programs location: " + samplesUrl, e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
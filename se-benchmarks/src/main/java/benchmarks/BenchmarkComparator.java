@@ -0,0 +1,91 @@
+package benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compares two JMH JSON result files (baseline and current) benchmark by benchmark.
+// A change is reported as a regression / improvement only when it is bigger than both score errors together.
+// Usage: BenchmarkComparator <baseline.json> <current.json>
+public class BenchmarkComparator {
+
+    private record Score(double score, double error, String unit) { }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: BenchmarkComparator <baseline.json> <current.json>");
+            return;
+        }
+
+        Map<String, Score> baseline = readScores(Path.of(args[0]));
+        Map<String, Score> current = readScores(Path.of(args[1]));
+
+        System.out.printf("%-90s %15s %15s %9s  %s%n", "Benchmark", "Baseline", "Current", "Change", "");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score currentScore = entry.getValue();
+            Score baselineScore = baseline.get(entry.getKey());
+
+            if (baselineScore == null) {
+                System.out.printf("%-90s %15s %15.3f %9s  %s%n", entry.getKey(), "-", currentScore.score(), "-", "NEW");
+                continue;
+            }
+
+            double changePercent = (currentScore.score() - baselineScore.score()) / baselineScore.score() * 100;
+            boolean significant = Math.abs(currentScore.score() - baselineScore.score()) > currentScore.error() + baselineScore.error();
+            System.out.printf("%-90s %15.3f %15.3f %8.1f%%  %s%n", entry.getKey(), baselineScore.score(), currentScore.score(),
+                    changePercent, significant ? verdict(changePercent, currentScore.unit()) : "");
+        }
+
+        for (String benchmark : baseline.keySet()) {
+            if (!current.containsKey(benchmark)) {
+                System.out.printf("%-90s %15.3f %15s %9s  %s%n", benchmark, baseline.get(benchmark).score(), "-", "-", "REMOVED");
+            }
+        }
+    }
+
+    // Lower is better for time per operation, higher is better for operations per time
+    private static String verdict(double changePercent, String unit) {
+        boolean lowerIsBetter = unit.endsWith("/op");
+        return ((changePercent < 0) == lowerIsBetter) ? "IMPROVED" : "REGRESSED";
+    }
+
+    // Benchmark name with its params : score
+    private static Map<String, Score> readScores(Path resultsFile) throws IOException {
+        Map<String, Score> benchmarkToScore = new TreeMap<>();
+
+        try (Reader reader = Files.newBufferedReader(resultsFile)) {
+            JsonArray results = JsonParser.parseReader(reader).getAsJsonArray();
+
+            for (JsonElement element : results) {
+                JsonObject result = element.getAsJsonObject();
+                StringBuilder benchmark = new StringBuilder(result.get("benchmark").getAsString());
+
+                if (result.has("params")) {
+                    Map<String, String> params = new TreeMap<>();
+                    result.getAsJsonObject("params").entrySet()
+                            .forEach(param -> params.put(param.getKey(), param.getValue().getAsString()));
+                    benchmark.append(params);
+                }
+
+                JsonObject primaryMetric = result.getAsJsonObject("primaryMetric");
+                double error = primaryMetric.get("scoreError").getAsDouble();   // NaN when there was a single iteration
+                if (Double.isNaN(error)) {
+                    error = 0;
+                }
+
+                benchmarkToScore.put(benchmark.toString(), new Score(
+                        primaryMetric.get("score").getAsDouble(), error, primaryMetric.get("scoreUnit").getAsString()));
+            }
+        }
+
+        return benchmarkToScore;
+    }
+}
@@ -0,0 +1,119 @@
+package benchmarks;
+
+import dto.v3.UserDTO;
+import engine.EngineImpl;
+import engine.logic.exceptions.EngineLoadException;
+import engine.logic.loadFromXml.XmlProgramLoader;
+import engine.logic.programData.program.Program;
+import engine.logic.programData.program.ProgramsHolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// The programs the benchmarks run on, by name (used as a JMH @Param value)
+public class BenchmarkPrograms {
+
+    public static final String DIVIDE = "DIVIDE";                   // Sample program with nested QUOTE / JUMP_EQUAL_FUNCTION
+    public static final String MULTIPLY = "MULTIPLY";               // Sample program with loops over functions
+    public static final String QUOTE_NESTING = "QUOTE_NESTING";     // Generated, deep QUOTE nesting
+    public static final String LONG_LOOP = "LONG_LOOP";             // Generated, many executed instructions
+    public static final String MANY_LABELS = "MANY_LABELS";         // Generated, many labels and jumps
+
+    private static final int QUOTE_NESTING_DEPTH = 8;
+    private static final int LONG_LOOP_ITERATIONS = 100_000;
+    private static final int MANY_LABELS_COUNT = 500;
+
+    private BenchmarkPrograms() {
+    }
+
+    public static byte[] getXml(String programName) {
+        return switch (programName) {
+            case DIVIDE -> readSample("/xml-samples/files-part2/divide.xml");
+            case MULTIPLY -> readSample("/xml-samples/files-part2/multiply.xml");
+            case QUOTE_NESTING -> SyntheticProgramGenerator.deepQuoteNesting(QUOTE_NESTING_DEPTH).getBytes();
+            case LONG_LOOP -> SyntheticProgramGenerator.longLoop(LONG_LOOP_ITERATIONS).getBytes();
+            case MANY_LABELS -> SyntheticProgramGenerator.manyLabels(MANY_LABELS_COUNT).getBytes();
+            default -> throw new IllegalArgumentException("Unknown benchmark program: " + programName);
+        };
+    }
+
+    // Inputs the program is run with in the execution benchmarks
+    public static Long[] getInputs(String programName) {
+        return switch (programName) {
+            case DIVIDE -> new Long[]{17L, 3L};
+            case MULTIPLY -> new Long[]{12L, 9L};
+            default -> new Long[]{5L};
+        };
+    }
+
+    // Loads the program (and its functions) into a new holder, like EngineImpl does on upload
+    public static Program load(String programName) {
+        return load(programName, new ProgramsHolder());
+    }
+
+    public static Program load(String programName, ProgramsHolder programsHolder) {
+        try {
+            return loadXml(getXml(programName), programName, programsHolder);
+        } catch (EngineLoadException e) {
+            throw new IllegalStateException("Failed loading benchmark program " + programName + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Loads any program XML (e.g. an uploaded sample) the same way
+    public static Program loadXml(byte[] xml, String sourceName, ProgramsHolder programsHolder) throws EngineLoadException {
+        List<Program> functionsInProgram = new ArrayList<>();
+        UserDTO userDTO = createUser();
+
+        Program program = new XmlProgramLoader().loadFromStream(new ByteArrayInputStream(xml),
+                sourceName, programsHolder, functionsInProgram, userDTO, userDTO.getUserName());
+        program.validateProgram();
+        validateCalledFunctionsExist(program, functionsInProgram, programsHolder);
+        program.initialize();
+
+        for (Program function : functionsInProgram) {
+            programsHolder.addFunction(function.getName(), function.getUserString(), function);
+        }
+        programsHolder.addMainProgram(program.getName(), program.getUserString(), program);
+
+        return program;
+    }
+
+    // Like on upload: the functions the program (and its functions) call are in the file or in the holder already
+    private static void validateCalledFunctionsExist(Program program, List<Program> functionsInProgram, ProgramsHolder programsHolder) {
+        List<Program> callingPrograms = new ArrayList<>(functionsInProgram);
+        callingPrograms.add(program);
+
+        for (Program callingProgram : callingPrograms) {
+            for (String functionName : callingProgram.getCalledFunctionNames()) {
+                boolean exists = programsHolder.getFunctionByName(functionName) != null
+                        || functionsInProgram.stream().anyMatch(function -> function.getName().equals(functionName));
+
+                if (!exists) {
+                    throw new IllegalArgumentException("The function '" + functionName + "' called in " + program.getName() + " is not defined");
+                }
+            }
+        }
+    }
+
+    // A user that never runs out of credits during a benchmark
+    public static UserDTO createUser() {
+        UserDTO userDTO = new UserDTO(UserDTO.DEFAULT_NAME);
+        userDTO.setCurrentCredits(Long.MAX_VALUE / 2);
+        return userDTO;
+    }
+
+    private static byte[] readSample(String resourcePath) {
+        try (InputStream in = EngineImpl.class.getResourceAsStream(resourcePath)) {
+            if (in == null) {
+                throw new IllegalStateException("Sample program not found on the classpath: " + resourcePath);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Runs the benchmarks and writes the results as JSON to results/<date>_<time>.json (see README.md). First checks that
+// every backend runs the samples the same as ProgramExecutorImpl (BackendEquivalenceCheck) - a faster backend that
+// runs differently isn't measured.
+// Usage: BenchmarkRunner [benchmarks regex] [results file]
+public class BenchmarkRunner {
+
+    private static final String RESULTS_DIRECTORY = "results";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        int differencesCount = BackendEquivalenceCheck.check();
+        if (differencesCount > 0) {
+            System.out.println(differencesCount + " runs differ from the same runs of ProgramExecutorImpl - not running the benchmarks");
+            System.exit(1);
+        }
+
+        String include = (args.length > 0) ? args[0] : ".*Benchmark.*";
+        String resultsFile = (args.length > 1) ? args[1] : defaultResultsFile();
+
+        File resultsDirectory = new File(resultsFile).getAbsoluteFile().getParentFile();
+        if (resultsDirectory != null && !resultsDirectory.exists() && !resultsDirectory.mkdirs()) {
+            throw new IllegalStateException("Failed creating the results directory: " + resultsDirectory);
+        }
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultsFile)
+                .build();
+
+        new Runner(options).run();
+        System.out.println("Results written to " + resultsFile);
+    }
+
+    private static String defaultResultsFile() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        return RESULTS_DIRECTORY + File.separator + timestamp + ".json";
+    }
+}
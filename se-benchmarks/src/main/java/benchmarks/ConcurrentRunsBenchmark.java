@@ -0,0 +1,44 @@
+package benchmarks;
+
+import dto.v3.UserDTO;
+import engine.logic.execution.compiledMode.CompiledProgram;
+import engine.logic.execution.compiledMode.CompiledProgramExecutor;
+import engine.logic.execution.compiledMode.ProgramCompiler;
+import engine.logic.execution.runMode.ProgramExecutor;
+import engine.logic.programData.architecture.ArchitectureType;
+import engine.logic.programData.variable.Variable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Compiled runs of one user from 4 threads at once - all the runs charge the same UserDTO (through the credit ledger)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ConcurrentRunsBenchmark {
+
+    @Param({BenchmarkPrograms.DIVIDE, BenchmarkPrograms.LONG_LOOP})
+    public String programName;
+
+    private CompiledProgram compiledProgram;
+    private Long[] inputs;
+    private UserDTO sharedUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compiledProgram = ProgramCompiler.compile(BenchmarkPrograms.load(programName).calculateDegreeToProgram().get(0));
+        inputs = BenchmarkPrograms.getInputs(programName);
+        sharedUser = BenchmarkPrograms.createUser();
+    }
+
+    @Benchmark
+    public long sameUserCompiledRun() {
+        ProgramExecutor programExecutor = new CompiledProgramExecutor(compiledProgram, ArchitectureType.A_4);
+        programExecutor.run(sharedUser, 0, inputs);
+        return programExecutor.getVariableValue(Variable.RESULT);
+    }
+}
@@ -0,0 +1,100 @@
+package benchmarks;
+
+import dto.v3.UserDTO;
+import engine.logic.execution.runMode.ProgramExecutor;
+import engine.logic.execution.runMode.ProgramExecutorImpl;
+import engine.logic.programData.architecture.ArchitectureType;
+import engine.logic.programData.program.Program;
+import engine.logic.programData.variable.Variable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+// Runs the same Program objects (every degree of the programs with QUOTE / JUMP_EQUAL_FUNCTION) from many threads at
+// once, each run with its own inputs and user, and checks every run against the same run done alone: result, cycles and
+// the credits charged. The instructions are shared by all the runs, so any per-run state kept on them shows up here.
+// Not a JMH benchmark - exits with status 1 if any run differs.
+// Usage: ConcurrentRunsStress [threads] [runs per program and degree]
+public class ConcurrentRunsStress {
+
+    private static final int DEFAULT_THREADS = 8;
+    private static final int DEFAULT_RUNS = 2_000;
+    private static final int INPUT_VARIANTS = 16;      // Different inputs: different function call cycles
+
+    private record RunResult(long result, int cycles, long chargedCredits) { }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int threads = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+        int runs = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int mismatchesCount = 0;
+
+        try {
+            for (String programName : List.of(BenchmarkPrograms.DIVIDE, BenchmarkPrograms.MULTIPLY, BenchmarkPrograms.QUOTE_NESTING)) {
+                Map<Integer, Program> degreeToProgram = BenchmarkPrograms.load(programName).calculateDegreeToProgram();
+
+                for (Map.Entry<Integer, Program> entry : degreeToProgram.entrySet()) {
+                    int mismatches = stress(executor, entry.getValue(), entry.getKey(), BenchmarkPrograms.getInputs(programName), runs);
+                    System.out.printf("%-15s degree %2d: %d runs on %d threads, %d different%n",
+                            programName, entry.getKey(), runs, threads, mismatches);
+                    mismatchesCount += mismatches;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (mismatchesCount > 0) {
+            System.out.println(mismatchesCount + " concurrent runs differ from the same runs done alone");
+            System.exit(1);
+        }
+        System.out.println("All the concurrent runs are the same as the runs done alone");
+    }
+
+    private static int stress(ExecutorService executor, Program program, int degree, Long[] baseInputs, int runs)
+            throws InterruptedException, ExecutionException {
+        RunResult[] expected = new RunResult[INPUT_VARIANTS];
+        for (int variant = 0; variant < INPUT_VARIANTS; variant++) {
+            expected[variant] = run(program, degree, inputsOf(baseInputs, variant));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);      // All the runs start together
+        List<Future<Boolean>> sameAsExpected = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            int variant = i % INPUT_VARIANTS;
+            sameAsExpected.add(executor.submit(() -> {
+                start.await();
+                return run(program, degree, inputsOf(baseInputs, variant)).equals(expected[variant]);
+            }));
+        }
+        start.countDown();
+
+        int mismatches = 0;
+        for (Future<Boolean> future : sameAsExpected) {
+            if (!future.get()) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    private static RunResult run(Program program, int degree, Long[] inputs) {
+        UserDTO userDTO = BenchmarkPrograms.createUser();
+        long creditsBefore = userDTO.getCurrentCredits();
+
+        ProgramExecutor programExecutor = new ProgramExecutorImpl(program, ArchitectureType.A_4);
+        programExecutor.run(userDTO, degree, inputs);
+        return new RunResult(programExecutor.getVariableValue(Variable.RESULT), programExecutor.getTotalCycles(),
+                creditsBefore - userDTO.getCurrentCredits());
+    }
+
+    private static Long[] inputsOf(Long[] baseInputs, int variant) {
+        Long[] inputs = new Long[baseInputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = baseInputs[i] + variant;
+        }
+        return inputs;
+    }
+}
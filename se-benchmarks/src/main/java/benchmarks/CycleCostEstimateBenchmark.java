@@ -0,0 +1,53 @@
+package benchmarks;
+
+import engine.logic.execution.compiledMode.CompiledProgram;
+import engine.logic.execution.compiledMode.ProgramCompiler;
+import engine.logic.programData.program.Program;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// CompiledProgram.getCycleCostEstimate at the max degree: the first call (the static analysis) and the later calls with
+// the inputs of a run (what the credit check and the run admission do)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CycleCostEstimateBenchmark {
+
+    @Param({BenchmarkPrograms.DIVIDE, BenchmarkPrograms.LONG_LOOP})
+    public String programName;
+
+    private Program maxDegreeProgram;
+    private Long[] inputs;
+    private CompiledProgram estimatedProgram;
+    private CompiledProgram freshProgram;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<Integer, Program> degreeToProgram = BenchmarkPrograms.load(programName).calculateDegreeToProgram();
+        maxDegreeProgram = degreeToProgram.get(Collections.max(degreeToProgram.keySet()));
+        inputs = BenchmarkPrograms.getInputs(programName);
+        estimatedProgram = ProgramCompiler.compile(maxDegreeProgram);
+        estimatedProgram.getCycleCostEstimate();
+    }
+
+    @Setup(Level.Invocation)
+    public void compileFreshProgram() {
+        freshProgram = ProgramCompiler.compile(maxDegreeProgram);
+    }
+
+    @Benchmark
+    public long firstEstimate() {
+        return freshProgram.getCycleCostEstimate().getMinCycles(inputs);
+    }
+
+    @Benchmark
+    public long cachedEstimate() {
+        return estimatedProgram.getCycleCostEstimate().getMinCycles(inputs);
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import dto.v2.DebugDTO;
+import dto.v3.UserDTO;
+import engine.logic.execution.debugMode.DebugImpl;
+import engine.logic.programData.architecture.ArchitectureType;
+import engine.logic.programData.program.Program;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// DebugImpl.resume from the first instruction to the end of the program, with no breakpoints
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DebugResumeBenchmark {
+
+    @Param({BenchmarkPrograms.DIVIDE, BenchmarkPrograms.QUOTE_NESTING, BenchmarkPrograms.LONG_LOOP})
+    public String programName;
+
+    @Param({"0", "MAX"})
+    public String degree;
+
+    private Program expandedProgram;
+    private List<Long> inputs;
+    private List<Boolean> breakPoints;
+    private UserDTO userDTO;
+    private int debugDegree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<Integer, Program> degreeToProgram = BenchmarkPrograms.load(programName).calculateDegreeToProgram();
+        debugDegree = degree.equals("MAX") ? Collections.max(degreeToProgram.keySet()) : Integer.parseInt(degree);
+        expandedProgram = degreeToProgram.get(debugDegree);
+        inputs = Arrays.asList(BenchmarkPrograms.getInputs(programName));
+        breakPoints = Collections.nCopies(expandedProgram.getInstructionsList().size(), false);
+        userDTO = BenchmarkPrograms.createUser();
+    }
+
+    @Benchmark
+    public DebugDTO resume() throws InterruptedException {
+        DebugImpl debug = new DebugImpl(expandedProgram, ArchitectureType.A_4, debugDegree, inputs, userDTO);
+        return debug.resume(breakPoints);
+    }
+}
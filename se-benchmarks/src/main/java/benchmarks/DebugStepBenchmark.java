@@ -0,0 +1,55 @@
+package benchmarks;
+
+import dto.v2.DebugDTO;
+import dto.v3.UserDTO;
+import engine.logic.execution.debugMode.DebugImpl;
+import engine.logic.programData.architecture.ArchitectureType;
+import engine.logic.programData.program.Program;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// DebugImpl.stepOver for 'steps' steps and then stepBack all the way to the start (the step history is built and read)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DebugStepBenchmark {
+
+    @Param({BenchmarkPrograms.DIVIDE, BenchmarkPrograms.LONG_LOOP})
+    public String programName;
+
+    @Param({"1000", "50000"})
+    public int steps;
+
+    private Program expandedProgram;
+    private List<Long> inputs;
+    private UserDTO userDTO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expandedProgram = BenchmarkPrograms.load(programName).calculateDegreeToProgram().get(0);
+        inputs = Arrays.asList(BenchmarkPrograms.getInputs(programName));
+        userDTO = BenchmarkPrograms.createUser();
+    }
+
+    @Benchmark
+    public DebugDTO stepOverAndBack() {
+        DebugImpl debug = new DebugImpl(expandedProgram, ArchitectureType.A_4, 0, inputs, userDTO);
+        DebugDTO debugDTO = null;
+        int stepsDone = 0;
+
+        while (stepsDone < steps && debug.hasMoreInstructions()) {
+            debugDTO = debug.stepOver();
+            stepsDone++;
+        }
+        for (int i = 0; i < stepsDone; i++) {
+            debugDTO = debug.stepBack();
+        }
+
+        return debugDTO;
+    }
+}
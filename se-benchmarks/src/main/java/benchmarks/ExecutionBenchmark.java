@@ -0,0 +1,94 @@
+package benchmarks;
+
+import dto.v3.UserDTO;
+import engine.logic.execution.compiledMode.CompiledProgram;
+import engine.logic.execution.compiledMode.CompiledProgramExecutor;
+import engine.logic.execution.compiledMode.ExecutionBackend;
+import engine.logic.execution.compiledMode.ProgramCompiler;
+import engine.logic.execution.runMode.ProgramExecutor;
+import engine.logic.execution.runMode.ProgramExecutorImpl;
+import engine.logic.programData.architecture.ArchitectureType;
+import engine.logic.programData.program.Program;
+import engine.logic.programData.variable.Variable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// A full run of a program at degree 0 and at its max degree, by the interpreter (ProgramExecutorImpl) and by the
+// compiled executor, on the compiled program and on the optimized one (what EngineImpl.runProgram uses), and by the
+// generated class of the optimized program (ExecutionBackend.BYTECODE)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmark {
+
+    @Param({BenchmarkPrograms.DIVIDE, BenchmarkPrograms.MULTIPLY, BenchmarkPrograms.QUOTE_NESTING,
+            BenchmarkPrograms.LONG_LOOP, BenchmarkPrograms.MANY_LABELS})
+    public String programName;
+
+    @Param({"0", "MAX"})
+    public String degree;
+
+    @Param({"warm", "cold"})        // cold: the function call cache is cleared before every run
+    public String functionCallCache;
+
+    private Program expandedProgram;
+    private CompiledProgram compiledProgram;
+    private CompiledProgram optimizedProgram;
+    private Long[] inputs;
+    private UserDTO userDTO;
+    private int runDegree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Program program = BenchmarkPrograms.load(programName);
+        Map<Integer, Program> degreeToProgram = program.calculateDegreeToProgram();
+
+        runDegree = degree.equals("MAX") ? Collections.max(degreeToProgram.keySet()) : Integer.parseInt(degree);
+        expandedProgram = degreeToProgram.get(runDegree);
+        compiledProgram = ProgramCompiler.compile(expandedProgram);
+        optimizedProgram = compiledProgram.getOptimizedProgram();
+        inputs = BenchmarkPrograms.getInputs(programName);
+        userDTO = BenchmarkPrograms.createUser();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearFunctionCallCache() {
+        if (functionCallCache.equals("cold")) {
+            expandedProgram.getProgramsHolder().getFunctionCallCache().clear();
+        }
+    }
+
+    @Benchmark
+    public long interpreterRun() {
+        ProgramExecutor programExecutor = new ProgramExecutorImpl(expandedProgram, ArchitectureType.A_4);
+        programExecutor.run(userDTO, runDegree, inputs);
+        return programExecutor.getVariableValue(Variable.RESULT);
+    }
+
+    @Benchmark
+    public long compiledRun() {
+        ProgramExecutor programExecutor = new CompiledProgramExecutor(compiledProgram, ArchitectureType.A_4);
+        programExecutor.run(userDTO, runDegree, inputs);
+        return programExecutor.getVariableValue(Variable.RESULT);
+    }
+
+    @Benchmark
+    public long optimizedRun() {
+        ProgramExecutor programExecutor = new CompiledProgramExecutor(optimizedProgram, ArchitectureType.A_4);
+        programExecutor.run(userDTO, runDegree, inputs);
+        return programExecutor.getVariableValue(Variable.RESULT);
+    }
+
+    @Benchmark
+    public long bytecodeRun() {
+        ProgramExecutor programExecutor = new CompiledProgramExecutor(optimizedProgram, ArchitectureType.A_4, ExecutionBackend.BYTECODE);
+        programExecutor.run(userDTO, runDegree, inputs);
+        return programExecutor.getVariableValue(Variable.RESULT);
+    }
+}
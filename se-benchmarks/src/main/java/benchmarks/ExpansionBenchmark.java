@@ -0,0 +1,46 @@
+package benchmarks;
+
+import engine.logic.programData.program.Program;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Expansion of a program to all of its degrees, and the two ways a program is cloned (serialization / structural copy)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpansionBenchmark {
+
+    @Param({BenchmarkPrograms.DIVIDE, BenchmarkPrograms.MULTIPLY, BenchmarkPrograms.QUOTE_NESTING, BenchmarkPrograms.MANY_LABELS})
+    public String programName;
+
+    private Program program;
+    private Program maxDegreeProgram;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        program = BenchmarkPrograms.load(programName);
+        Map<Integer, Program> degreeToProgram = program.calculateDegreeToProgram();
+        maxDegreeProgram = degreeToProgram.get(Collections.max(degreeToProgram.keySet()));
+    }
+
+    @Benchmark
+    public Map<Integer, Program> calculateDegreeToProgram() {
+        return program.calculateDegreeToProgram();
+    }
+
+    @Benchmark
+    public Program deepCloneMaxDegree() {
+        return maxDegreeProgram.deepClone();
+    }
+
+    @Benchmark
+    public Program copyMaxDegree() {
+        return maxDegreeProgram.copy();
+    }
+}
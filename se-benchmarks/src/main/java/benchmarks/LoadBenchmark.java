@@ -0,0 +1,40 @@
+package benchmarks;
+
+import dto.v3.UserDTO;
+import engine.logic.exceptions.EngineLoadException;
+import engine.logic.loadFromXml.XmlProgramLoader;
+import engine.logic.programData.program.Program;
+import engine.logic.programData.program.ProgramsHolder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// XmlProgramLoader.loadFromStream: XML parsing (JAXB) and mapping to a Program, into an empty holder every time
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({BenchmarkPrograms.DIVIDE, BenchmarkPrograms.QUOTE_NESTING, BenchmarkPrograms.MANY_LABELS})
+    public String programName;
+
+    private final XmlProgramLoader loader = new XmlProgramLoader();
+    private byte[] xml;
+    private UserDTO userDTO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        xml = BenchmarkPrograms.getXml(programName);
+        userDTO = BenchmarkPrograms.createUser();
+    }
+
+    @Benchmark
+    public Program loadFromStream() throws EngineLoadException {
+        return loader.loadFromStream(new ByteArrayInputStream(xml), programName, new ProgramsHolder(), new ArrayList<>(), userDTO, userDTO.getUserName());
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import dto.v2.ProgramDTO;
+import engine.EngineImpl;
+import engine.logic.programData.program.Program;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// EngineImpl.buildProgramDTO at degree 0 and at the max degree (the DTO the client gets for every expansion view)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProgramDTOBenchmark {
+
+    @Param({BenchmarkPrograms.DIVIDE, BenchmarkPrograms.QUOTE_NESTING, BenchmarkPrograms.MANY_LABELS})
+    public String programName;
+
+    @Param({"0", "MAX"})
+    public String degree;
+
+    private Program expandedProgram;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<Integer, Program> degreeToProgram = BenchmarkPrograms.load(programName).calculateDegreeToProgram();
+        int buildDegree = degree.equals("MAX") ? Collections.max(degreeToProgram.keySet()) : Integer.parseInt(degree);
+        expandedProgram = degreeToProgram.get(buildDegree);
+    }
+
+    @Benchmark
+    public ProgramDTO buildProgramDTO() {
+        return EngineImpl.buildProgramDTO(expandedProgram);
+    }
+}
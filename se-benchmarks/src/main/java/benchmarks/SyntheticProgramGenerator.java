@@ -0,0 +1,125 @@
+package benchmarks;
+
+// Generates S-Emulator v2 XML programs of a chosen size, for benchmarks that need more than the sample files:
+// deep QUOTE nesting (many degrees), long loops (many executed instructions) and many labels (large jump tables)
+public class SyntheticProgramGenerator {
+
+    private SyntheticProgramGenerator() {
+    }
+
+    // Main program: y <- (F<depth>, (F1,x1)). F1 = x1 + 1, and every F<i> quotes F<i-1> and adds 1
+    public static String deepQuoteNesting(int depth) {
+        StringBuilder instructions = new StringBuilder();
+        appendQuote(instructions, "y", null, "F" + depth, "(F1,x1)");
+
+        StringBuilder functions = new StringBuilder();
+        for (int i = 1; i <= depth; i++) {
+            StringBuilder functionInstructions = new StringBuilder();
+
+            if (i == 1) {
+                appendAssignment(functionInstructions, "y", null, "x1");
+            } else {
+                appendQuote(functionInstructions, "y", null, "F" + (i - 1), "x1");
+            }
+            appendBasic(functionInstructions, "INCREASE", "y", null);
+
+            appendFunction(functions, "F" + i, "F" + i, functionInstructions);
+        }
+
+        return buildProgram("QUOTE_NESTING_" + depth, instructions, functions);
+    }
+
+    // Main program: counts 'iterations' times down to 0 and increases y on each iteration
+    public static String longLoop(int iterations) {
+        StringBuilder instructions = new StringBuilder();
+        appendConstantAssignment(instructions, "z1", null, iterations);
+        appendBasic(instructions, "INCREASE", "y", "L1");
+        appendBasic(instructions, "DECREASE", "z1", null);
+        appendJumpNotZero(instructions, "z1", null, "L1");
+
+        return buildProgram("LONG_LOOP_" + iterations, instructions, new StringBuilder());
+    }
+
+    // Main program: 'labelsCount' labeled blocks, each jumps to the next one (the last one to EXIT)
+    public static String manyLabels(int labelsCount) {
+        StringBuilder instructions = new StringBuilder();
+
+        for (int i = 1; i <= labelsCount; i++) {
+            String nextLabel = (i == labelsCount) ? "EXIT" : "L" + (i + 1);
+            appendBasic(instructions, "INCREASE", "y", "L" + i);
+            appendJumpEqualVariable(instructions, "z1", null, "x1", nextLabel);
+            appendGotoLabel(instructions, nextLabel);
+        }
+
+        return buildProgram("MANY_LABELS_" + labelsCount, instructions, new StringBuilder());
+    }
+
+    private static String buildProgram(String name, StringBuilder instructions, StringBuilder functions) {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<S-Program name=\"").append(name).append("\">\n");
+        xml.append("<S-Instructions>\n").append(instructions).append("</S-Instructions>\n");
+
+        if (!functions.isEmpty()) {
+            xml.append("<S-Functions>\n").append(functions).append("</S-Functions>\n");
+        }
+
+        xml.append("</S-Program>\n");
+        return xml.toString();
+    }
+
+    private static void appendFunction(StringBuilder functions, String name, String userString, StringBuilder instructions) {
+        functions.append("<S-Function name=\"").append(name).append("\" user-string=\"").append(userString).append("\">\n");
+        functions.append("<S-Instructions>\n").append(instructions).append("</S-Instructions>\n");
+        functions.append("</S-Function>\n");
+    }
+
+    private static void appendBasic(StringBuilder instructions, String instructionName, String variable, String label) {
+        appendInstruction(instructions, "basic", instructionName, variable, label, "");
+    }
+
+    private static void appendJumpNotZero(StringBuilder instructions, String variable, String label, String jumpLabel) {
+        appendInstruction(instructions, "basic", "JUMP_NOT_ZERO", variable, label, argument("JNZLabel", jumpLabel));
+    }
+
+    private static void appendAssignment(StringBuilder instructions, String variable, String label, String assignedVariable) {
+        appendInstruction(instructions, "synthetic", "ASSIGNMENT", variable, label, argument("assignedVariable", assignedVariable));
+    }
+
+    private static void appendConstantAssignment(StringBuilder instructions, String variable, String label, long constant) {
+        appendInstruction(instructions, "synthetic", "CONSTANT_ASSIGNMENT", variable, label, argument("constantValue", String.valueOf(constant)));
+    }
+
+    private static void appendGotoLabel(StringBuilder instructions, String gotoLabel) {
+        appendInstruction(instructions, "synthetic", "GOTO_LABEL", "y", null, argument("gotoLabel", gotoLabel));
+    }
+
+    private static void appendJumpEqualVariable(StringBuilder instructions, String variable, String label, String otherVariable, String jumpLabel) {
+        appendInstruction(instructions, "synthetic", "JUMP_EQUAL_VARIABLE", variable, label,
+                argument("variableName", otherVariable) + argument("JEVariableLabel", jumpLabel));
+    }
+
+    private static void appendQuote(StringBuilder instructions, String variable, String label, String functionName, String functionArguments) {
+        appendInstruction(instructions, "synthetic", "QUOTE", variable, label,
+                argument("functionName", functionName) + argument("functionArguments", functionArguments));
+    }
+
+    private static String argument(String name, String value) {
+        return "<S-Instruction-Argument name=\"" + name + "\" value=\"" + value + "\"/>\n";
+    }
+
+    private static void appendInstruction(StringBuilder instructions, String type, String instructionName, String variable, String label, String arguments) {
+        instructions.append("<S-Instruction type=\"").append(type).append("\" name=\"").append(instructionName).append("\">\n");
+        instructions.append("<S-Variable>").append(variable).append("</S-Variable>\n");
+
+        if (label != null) {
+            instructions.append("<S-Label>").append(label).append("</S-Label>\n");
+        }
+
+        if (!arguments.isEmpty()) {
+            instructions.append("<S-Instruction-Arguments>\n").append(arguments).append("</S-Instruction-Arguments>\n");
+        }
+
+        instructions.append("</S-Instruction>\n");
+    }
+}
@@ -12,6 +12,7 @@ import components.dashboard.usersHistory.UsersHistoryController;
 import components.mainAppV3.MainAppController;
 import utils.ui.ToastUtil;
 import dto.v2.ProgramDTO;
+import dto.v3.HistoryPageDTO;
 import dto.v3.UserDTO;
 import javafx.application.Platform;
 import javafx.beans.property.*;
@@ -28,6 +29,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 import static utils.Constants.*;
 
@@ -215,23 +217,19 @@ public class DashboardController implements Closeable {
         availableFunctionsListController.close();
     }
 
-    public void loadHistoryForUser(String username) {
+    public void loadHistoryPage(String username, int cursor, int limit, Consumer<HistoryPageDTO> onPage) {
         String finalUrl = Objects.requireNonNull(HttpUrl
                 .parse(USER_HISTORY_LIST_PAGE))
                 .newBuilder()
-                .addQueryParameter("username", username)
+                .addQueryParameter(USERNAME_QUERY_PARAM, username)
+                .addQueryParameter(CURSOR_QUERY_PARAM, String.valueOf(cursor))
+                .addQueryParameter(LIMIT_QUERY_PARAM, String.valueOf(limit))
                 .build()
                 .toString();
 
-        appService.fetchUserHistoryAsync(
+        appService.fetchUserHistoryPageAsync(
                 finalUrl,
-                historyRowV3DTOList -> Platform.runLater(() -> {
-                    if (historyRowV3DTOList == null || historyRowV3DTOList.isEmpty()) {
-                        userHistoryListController.clearHistoryTable();
-                    } else {
-                        userHistoryListController.setItemsInTable(historyRowV3DTOList);
-                    }
-                }),
+                historyPageDTO -> Platform.runLater(() -> onPage.accept(historyPageDTO)),
                 errorMsg -> Platform.runLater(() ->
                         AlertUtils.showError("Get User History Failed", errorMsg)
                 )
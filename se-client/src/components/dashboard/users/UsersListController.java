@@ -45,7 +45,7 @@ public class UsersListController implements Closeable {
         colMainProgramsCount.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().getMainProgramsCount()));
         colSubFunctionsCount.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().getSubFunctionsCount()));
         colCurrentCredits.setCellValueFactory(data -> new SimpleLongProperty(data.getValue().getCurrentCredits()));
-        colUsedCredits.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().getUsedCredits()));
+        colUsedCredits.setCellValueFactory(data -> new SimpleLongProperty(data.getValue().getUsedCredits()));
         colExecutionsCount.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().getExecutionsCount()));
 
         usersTableView.getSelectionModel().selectedItemProperty().addListener((obs, oldUser, newUserSelected) -> selectedUserProperty.set(newUserSelected));
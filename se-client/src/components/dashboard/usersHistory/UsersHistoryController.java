@@ -5,7 +5,6 @@ import components.dashboard.usersHistory.historyRowPopUp.HistoryRowPopUpControll
 import dto.v3.HistoryRowV3DTO;
 import dto.v3.UserDTO;
 import javafx.beans.property.ObjectProperty;
-import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.StringProperty;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -23,6 +22,8 @@ import static utils.Constants.*;
 
 public class UsersHistoryController {
 
+    private static final int HISTORY_PAGE_SIZE = 500;
+
     private DashboardController dashboardController;
     private ObjectProperty<UserDTO> selectedUserProperty;
     private StringProperty currentUserLoginProperty;
@@ -30,6 +31,7 @@ public class UsersHistoryController {
     private HistoryRowV3DTO selectedHistoryRow;
     private int selectedRowIndex;
     private final boolean lockHistoryButton = false;
+    private int historyLoadId = 0;      // Incremented on every load, so pages of a previous load are ignored
 
     @FXML private Label userHistoryLabel;
     @FXML private TableView<HistoryRowV3DTO> historyTable;
@@ -49,8 +51,15 @@ public class UsersHistoryController {
         reRunButton.setDisable(true);
         showStatusButton.setDisable(true);
 
-        colRunNumber.setCellValueFactory(cellData ->
-                new ReadOnlyObjectWrapper<>(historyTable.getItems().indexOf(cellData.getValue()) + 1));
+        // The run number is the row index (the rows are in run order)
+        colRunNumber.setSortable(false);
+        colRunNumber.setCellFactory(column -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty ? null : String.valueOf(getIndex() + 1));
+            }
+        });
         colMainProgramOrFunction.setCellValueFactory(new PropertyValueFactory<>("programType"));
         colProgramName.setCellValueFactory(new PropertyValueFactory<>("programUserString"));
         colArchitectureType.setCellValueFactory(new PropertyValueFactory<>("architectureChoice"));
@@ -119,8 +128,27 @@ public class UsersHistoryController {
         });
     }
 
+    // The history is fetched page by page - each page is shown as soon as it arrives
     private void loadHistoryForUser(String username) {
-        dashboardController.loadHistoryForUser(username);
+        loadHistoryPage(username, 0, ++historyLoadId);
+    }
+
+    private void loadHistoryPage(String username, int cursor, int loadId) {
+        dashboardController.loadHistoryPage(username, cursor, HISTORY_PAGE_SIZE, historyPageDTO -> {
+            if (loadId != historyLoadId) {
+                return;     // Another user's history was asked for meanwhile
+            }
+
+            if (cursor == 0) {
+                setItemsInTable(historyPageDTO.getRows());
+            } else {
+                addItemsToTable(historyPageDTO.getRows());
+            }
+
+            if (historyPageDTO.hasMore()) {
+                loadHistoryPage(username, historyPageDTO.getNextCursor(), loadId);
+            }
+        });
     }
 
     @FXML
@@ -167,4 +195,8 @@ public class UsersHistoryController {
     public void setItemsInTable(List<HistoryRowV3DTO> historyRowV3DTOList) {
         historyTable.getItems().setAll(historyRowV3DTOList);
     }
+
+    public void addItemsToTable(List<HistoryRowV3DTO> historyRowV3DTOList) {
+        historyTable.getItems().addAll(historyRowV3DTOList);
+    }
 }
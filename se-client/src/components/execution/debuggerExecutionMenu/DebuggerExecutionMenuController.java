@@ -393,18 +393,18 @@ public class DebuggerExecutionMenuController {
 
     @FXML
     private void onPlay() {
-        boolean isEnoughCredits = executionController.checkIfHasEnoughCreditsToPlay();
+        List<Long> inputValues = inputsTable.getItems()
+                .stream()
+                .map(VariableRowV3::getVariableValue) // take the user input values
+                .toList();
+
+        boolean isEnoughCredits = executionController.checkIfHasEnoughCreditsToPlay(inputValues);
         if (!isEnoughCredits) {
             return;
         }
 
         inputsEditableMode = false; // disable blinking only now
 
-        List<Long> inputValues = inputsTable.getItems()
-                .stream()
-                .map(VariableRowV3::getVariableValue) // take the user input values
-                .toList();
-
         inputsTable.refresh(); // force refresh so placeholders return to 0
         executionController.setArchitectureColoring(false);
 
@@ -47,6 +47,7 @@ public class MainExecutionController {
     private final IntegerProperty architectureRankProperty = new SimpleIntegerProperty();
     private final ExpansionCollapseModelV3 degreeModel = new ExpansionCollapseModelV3();
     private final HighlightSelectionModelV3 highlightSelectionModel = new HighlightSelectionModelV3();
+    private List<Boolean> debuggerBreakPoints = null;     // The breakpoints the server's debugger session has (sent when changed)
 
     @FXML private HBox topToolBar;
     @FXML private TopToolBarController topToolBarController;    // must: field name = fx:id + "Controller"
@@ -268,15 +269,9 @@ public class MainExecutionController {
         );
     }
 
-    public boolean checkIfHasEnoughCreditsToPlay() {
-        String programName = requireCurrentProgramName();
-        String architecture = chosenArchitectureProperty.get();
-
-        // Build JSON body
-        JsonObject jsonBody = new JsonObject();
-        jsonBody.addProperty(PROGRAM_NAME_QUERY_PARAM, programName);
-        jsonBody.addProperty(CHOSEN_ARCHITECTURE_STR_QUERY_PARAM, architecture);
-        RequestBody requestBody = RequestBody.create(GSON_INSTANCE.toJson(jsonBody), MEDIA_TYPE_JSON);
+    // The server estimates the cost of the run on these inputs (same body as the run request)
+    public boolean checkIfHasEnoughCreditsToPlay(List<Long> inputValues) {
+        RequestBody requestBody = buildRunProgramRequestBody(inputValues);
 
         CompletableFuture<Boolean> future = new CompletableFuture<>();
 
@@ -400,6 +395,7 @@ public class MainExecutionController {
 
     public void initializeDebugger(List<Long> inputValues) {
         RequestBody requestBody = buildRunProgramRequestBody(inputValues);
+        debuggerBreakPoints = null;     // A new session has no breakpoints
 
         appService.initializeDebugger(
             INITIALIZE_DEBUGGER_PATH,
@@ -417,11 +413,14 @@ public class MainExecutionController {
 
     public void debugResume(Consumer<DebugDTO> onComplete) {
         List<Boolean> breakPoints = mainInstructionsTableController.getBreakPoints();
+        List<Boolean> changedBreakPoints = breakPoints.equals(debuggerBreakPoints) ? null : breakPoints;
 
         appService.debugResumeAsync(
                 RESUME_DEBUGGER_PATH,
-                breakPoints,
+                changedBreakPoints,
                 debugStep -> Platform.runLater(() -> {
+                    debuggerBreakPoints = breakPoints;
+
                     if (debugStep == null) {
                         AlertUtils.showError("Debug Resume", "Server returned no data.");
                         return;
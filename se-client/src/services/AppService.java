@@ -6,7 +6,7 @@ import dto.v2.DebugDTO;
 import dto.v2.ProgramDTO;
 import dto.v2.ProgramExecutorDTO;
 import dto.v3.ArchitectureDTO;
-import dto.v3.HistoryRowV3DTO;
+import dto.v3.HistoryPageDTO;
 import javafx.application.Platform;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
@@ -17,6 +17,9 @@ import utils.ui.AlertUtils;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static utils.Constants.*;
@@ -30,9 +33,9 @@ import static utils.http.HttpResponseHandler.handleErrorResponse;
  */
 public class AppService {
 
-    public void fetchUserHistoryAsync(String finalUrl,
-                                      Consumer<List<HistoryRowV3DTO>> onSuccess,
-                                      Consumer<String> onError) {
+    public void fetchUserHistoryPageAsync(String finalUrl,
+                                          Consumer<HistoryPageDTO> onSuccess,
+                                          Consumer<String> onError) {
 
         HttpClientUtil.runAsync(finalUrl, null, new Callback() {
             @Override
@@ -50,18 +53,15 @@ public class AppService {
                     return;
                 }
 
-                // Handle cases where response isn't a JSON array
-                if (!responseBody.trim().startsWith("[")) {
+                // Handle cases where response isn't a JSON object
+                if (!responseBody.trim().startsWith("{")) {
                     Platform.runLater(() -> AlertUtils.showError("Error", "Unexpected response format: " + responseBody));
                     return;
                 }
 
-                // Define the generic list type for deserialization
-                Type listType = new TypeToken<List<HistoryRowV3DTO>>() {}.getType();
-                List<HistoryRowV3DTO> historyRowV3DTOList = GSON_INSTANCE.fromJson(responseBody, listType);
-
-                onSuccess.accept(historyRowV3DTOList);
+                HistoryPageDTO historyPageDTO = GSON_INSTANCE.fromJson(responseBody, HistoryPageDTO.class);
 
+                onSuccess.accept(historyPageDTO);
             }
         });
     }
@@ -334,7 +334,7 @@ public class AppService {
 
                 String state = json.get(STATE).getAsString();
 
-                if ("FAILED".equals(state)) {
+                if ("FAILED".equals(state) || "CANCELLED".equals(state) || "TIMED_OUT".equals(state)) {
                     String err = json.has(ERROR)
                             ? json.get(ERROR).getAsString()
                             : "Program execution failed on server.";
@@ -446,13 +446,16 @@ public class AppService {
         });
     }
 
+    // The server runs a resume as a job: submits it, then polls the job status until it finishes
     public void debugResumeAsync(String finalUrl,
                                  List<Boolean> breakPoints,
                                  Consumer<DebugDTO> onSuccess,
                                  Consumer<String> onError) {
 
         JsonObject json = new JsonObject();
-        json.add("breakPoints", GSON_INSTANCE.toJsonTree(breakPoints));
+        if (breakPoints != null) {      // null - the server keeps the breakpoints it has
+            json.add(BREAK_POINTS_QUERY_PARAM, GSON_INSTANCE.toJsonTree(breakPoints));
+        }
 
         RequestBody requestBody = RequestBody.create(GSON_INSTANCE.toJson(json), MEDIA_TYPE_JSON);
 
@@ -467,27 +470,77 @@ public class AppService {
                 String responseBody = HttpClientUtil.readResponseBodySafely(response);
 
                 if (!response.isSuccessful()) {
-                    try {
-                        JsonObject json = GSON_INSTANCE.fromJson(responseBody, JsonObject.class);
-                        String message;
-                        if (json != null && json.has(ERROR)) {
-                            message = json.get(ERROR).getAsString();
-                        } else {
-                            message = "Debug resume failed on server.";
-                        }
-                        onError.accept(message);
-                    } catch (Exception e) {
-                        onError.accept("Failed to parse server response: " + e.getMessage());
-                    }
+                    onError.accept(readErrorMessage(responseBody, "Debug resume failed on server."));
                     return;
                 }
 
-                DebugDTO result = GSON_INSTANCE.fromJson(responseBody, DebugDTO.class);
-                onSuccess.accept(result);
+                try {
+                    JsonObject json = GSON_INSTANCE.fromJson(responseBody, JsonObject.class);
+                    pollResumeStatus(json.get(JOB_ID_QUERY_PARAM).getAsString(), onSuccess, onError);
+                } catch (Exception e) {
+                    onError.accept("Failed to parse server response: " + e.getMessage());
+                }
             }
         });
     }
 
+    private void pollResumeStatus(String jobId,
+                                  Consumer<DebugDTO> onSuccess,
+                                  Consumer<String> onError) {
+
+        String url = Objects.requireNonNull(HttpUrl.parse(RESUME_STATUS_PATH))
+                .newBuilder()
+                .addQueryParameter(JOB_ID_QUERY_PARAM, jobId)
+                .build()
+                .toString();
+
+        HttpClientUtil.runAsync(url, null, new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                onError.accept("Network Error: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                String responseBody = HttpClientUtil.readResponseBodySafely(response);
+
+                if (!response.isSuccessful()) {
+                    onError.accept(readErrorMessage(responseBody, "Fetching debug resume status failed."));
+                    return;
+                }
+
+                try {
+                    JsonObject json = GSON_INSTANCE.fromJson(responseBody, JsonObject.class);
+                    String state = json.get(STATE).getAsString();
+
+                    switch (state) {
+                        case "DONE" -> onSuccess.accept(GSON_INSTANCE.fromJson(json.get(DEBUG_DTO), DebugDTO.class));
+                        case "PENDING", "RUNNING" -> CompletableFuture
+                                .delayedExecutor(RESUME_STATUS_POLL_MILLIS, TimeUnit.MILLISECONDS)
+                                .execute(() -> pollResumeStatus(jobId, onSuccess, onError));
+                        default -> onError.accept(json.has(ERROR)       // FAILED, CANCELLED, TIMED_OUT
+                                ? json.get(ERROR).getAsString()
+                                : "Debug resume " + state);
+                    }
+                } catch (Exception e) {
+                    onError.accept("Failed to parse server response: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static String readErrorMessage(String responseBody, String defaultMessage) {
+        try {
+            JsonObject json = GSON_INSTANCE.fromJson(responseBody, JsonObject.class);
+            if (json != null && json.has(ERROR)) {
+                return json.get(ERROR).getAsString();
+            }
+            return defaultMessage;
+        } catch (Exception e) {
+            return "Failed to parse server response: " + e.getMessage();
+        }
+    }
+
     public void debugStepBackAsync(String finalUrl,
                                    Consumer<DebugDTO> onSuccess,
                                    Consumer<String> onError) {
@@ -34,6 +34,11 @@ public class Constants {
     public static final String CHOSEN_ARCHITECTURE_STR_QUERY_PARAM = "architecture";
     public static final String INPUTS_VALUES_QUERY_PARAM = "inputsValues";
     public static final String RUN_ID_QUERY_PARAM = "runId";
+    public static final String CURSOR_QUERY_PARAM = "cursor";
+    public static final String LIMIT_QUERY_PARAM = "limit";
+    public static final String BREAK_POINTS_QUERY_PARAM = "breakPoints";
+    public static final String JOB_ID_QUERY_PARAM = "jobId";
+    public static final String DEBUG_DTO = "debugDTO";
 
     // Server resources locations
     private final static String BASE_DOMAIN = "localhost";
@@ -98,6 +103,10 @@ public class Constants {
     // Step Over:
     public final static String RESUME_DEBUGGER_PATH = FULL_SERVER_PATH + "/resume";
 
+    // Resume job status (polled until the resume finishes):
+    public final static String RESUME_STATUS_PATH = FULL_SERVER_PATH + "/resume-status";
+    public static final long RESUME_STATUS_POLL_MILLIS = 200;
+
     // Step Back:
     public final static String STEP_BACK_DEBUGGER_PATH = FULL_SERVER_PATH + "/step-back";
 
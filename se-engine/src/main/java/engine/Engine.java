@@ -6,11 +6,22 @@ import dto.v2.ProgramDTO;
 import dto.v2.ProgramExecutorDTO;
 import dto.v3.*;
 import engine.logic.exceptions.EngineLoadException;
+import engine.logic.execution.ExecutionHistoryPage;
+import engine.logic.execution.ExecutionRecord;
+import engine.logic.execution.batchMode.BatchRowResult;
+import engine.logic.execution.batchMode.BatchRunSummary;
+import engine.logic.execution.compiledMode.CycleCostEstimate;
+import engine.logic.execution.compiledMode.ExecutionBackend;
+import engine.logic.execution.compiledMode.ExecutionTiers;
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public interface Engine {
 
@@ -28,6 +39,7 @@ public interface Engine {
     ProgramDTO getProgramDTOByName(String programName);
     ProgramDTO getProgramDTOByUserString(String userString);
     ProgramDTO getExpandedProgramDTO(String programName, int degree);
+    ProgramStatsDTO getProgramStatsDTO(String programName);
     int getMaxDegree(String programName);
 
     // V2:
@@ -38,11 +50,12 @@ public interface Engine {
     // V3:
     ProgramExecutorDTO getProgramAfterRunV3(String username);
     List<HistoryRowV3DTO> getHistoryV3PerProgram(String username);           // Version 3
+    ExecutionHistoryPage getHistoryPage(String username, int cursor, int limit, Predicate<ExecutionRecord> filter);
     List<MainProgramDTO> getAvailableMainProgramsDTOsList();
     List<FunctionDTO> getAvailableFunctionsDTOsList();
 
     // Expansion:
-    void calculateExpansionForAllLoadedPrograms(String mainProgramName);
+    void calculateExpansionForNewPrograms(String mainProgramName, List<String> newFunctionNames);
 
     // Load
     String loadProgramFromStream(InputStream xmlStream, String sourceName, String uploaderName) throws EngineLoadException;
@@ -50,14 +63,34 @@ public interface Engine {
 
     // Run
     void runProgram(String programName, String architectureTypeRepresentation, int degree, String uploaderName, Long... inputs);
+    void runProgram(String programName, String architectureTypeRepresentation, int degree, String uploaderName,
+                    ExecutionBackend backend, Long... inputs);      // Same run, on the chosen backend (null - by the program's tier)
+    BatchRunSummary runProgramBatch(String programName, String architectureTypeRepresentation, int degree, String uploaderName,
+                                    Iterator<Long[]> inputs, Consumer<BatchRowResult> onRow,
+                                    Executor rowExecutor, int rowParallelism);      // The rows run on 'rowExecutor', 'rowParallelism' at most at once
 
-    // Debug
+    // Cost estimate (static - without running the program)
+    CycleCostEstimate getCycleCostEstimate(String programName, int degree);
+    long getMinimumRunCredits(String programName, String architectureTypeRepresentation, int degree, Long... inputs);   // A run on these inputs costs at least this
+
+    // Debug (the calls on a session throw DebugSessionExpiredException after the session expired)
     void initializeDebugger(String programName, String architectureTypeRepresentation, int degree, List<Long> inputs, String uploaderName);
+    void initializeDebugger(String programName, String architectureTypeRepresentation, int degree, List<Long> inputs, String uploaderName,
+                            long resumeStepBudget);     // Every resume of the session pauses after 'resumeStepBudget' instructions
     DebugDTO getProgramAfterStepOver(String uploaderName);
-    DebugDTO getProgramAfterResume(List<Boolean> breakPoints, String uploaderName) throws InterruptedException;
+    DebugDTO getProgramAfterResume(List<Boolean> breakPoints, String uploaderName) throws InterruptedException;   // null breakPoints - the session's last ones
+    boolean isDebugPausedOnStepBudget(String uploaderName);     // The last resume paused because of the step budget
     DebugDTO getProgramAfterStepBack(String uploaderName);
     void stopDebugPress(String uploaderName);
 
+    // Debug sessions metrics
+    int getDebugSessionsCount();
+    long getExpiredDebugSessionsCount();        // Removed after the idle TTL
+    long getEvictedDebugSessionsCount();        // Removed before the idle TTL, because there were too many sessions
+
+    // Execution tiers metrics (runs, promotions and build times per tier)
+    ExecutionTiers getExecutionTiers();
+
     InstructionDTO createOriginalInstruction();
     void exportToXml(File file, String programName, List<InstructionDTO> instructions);
 
@@ -4,36 +4,66 @@ import dto.v2.*;
 import dto.v3.*;
 import engine.logic.execution.debugMode.Debug;
 import engine.logic.execution.debugMode.DebugImpl;
+import engine.logic.execution.debugMode.DebugSessionRegistry;
+import engine.logic.execution.compiledMode.CompiledProgram;
+import engine.logic.execution.ExecutionHistoryPage;
+import engine.logic.execution.ExecutionRecord;
+import engine.logic.execution.batchMode.BatchRowResult;
+import engine.logic.execution.batchMode.BatchRunSummary;
+import engine.logic.execution.batchMode.BatchRunner;
+import engine.logic.execution.compiledMode.CompiledProgramExecutor;
+import engine.logic.execution.compiledMode.ExecutionBackend;
+import engine.logic.execution.compiledMode.ExecutionTiers;
+import engine.logic.execution.compiledMode.CycleCostEstimate;
+import engine.logic.execution.compiledMode.ProgramCompiler;
+import engine.logic.exceptions.DebugSessionExpiredException;
 import engine.logic.exceptions.EngineLoadException;
-import engine.logic.execution.runMode.ProgramExecutorImpl;
 import engine.logic.execution.runMode.ProgramExecutor;
+import engine.logic.execution.runMode.ProgramExecutorImpl;
 import engine.logic.programData.architecture.ArchitectureType;
 import engine.logic.programData.instruction.InstructionData;
 import engine.logic.saveToXml.XmlProgramSaver;
+import engine.logic.programData.program.ExpansionCache;
+import engine.logic.programData.program.ExpansionDepthAnalyzer;
+import engine.logic.programData.program.FunctionDependencyGraph;
+import engine.logic.programData.program.ProgramDTOCache;
 import engine.logic.programData.program.ProgramsHolder;
 import engine.logic.programData.program.Program;
 import engine.logic.loadFromXml.XmlProgramLoader;
 import engine.logic.programData.variable.Variable;
+import engine.user.CreditReservation;
 import engine.user.UserLogic;
 
 import java.io.*;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class EngineImpl implements Engine, Serializable {
+
+    // Runs use the optimized compiled program (PeepholeOptimizer) unless set to false (e.g. in CATALINA_OPTS)
+    public static final String OPTIMIZE_RUNS_PROPERTY = "se.execution.optimize";
+
+    public static final int HISTORY_PAGE_SCAN_FACTOR = 16;      // A history page scans at most this many records per record asked for
+
     private final ProgramsHolder programsHolder = new ProgramsHolder();
+    private final boolean optimizeRuns = Boolean.parseBoolean(System.getProperty(OPTIMIZE_RUNS_PROPERTY, "true"));
 
-    private final Map<String, Map<Integer, Program>> nameAndDegreeToProgram = new HashMap<>();      // Program name : ( Degree : Program )
-    private final Map<String, Debug> usernameToDebug = new HashMap<>();                             // Username : Debug
-    private final Map<String, UserDTO> usernameToUserDTO = new HashMap<>();                         // Username : UserDTO
-    private final Map<String, List<ProgramExecutor>> programToExecutionHistory = new ConcurrentHashMap<>();   // Program name : Execution history
-    private final Map<String, List<ProgramExecutor>> usernameToExecutionHistory = new ConcurrentHashMap<>();  // Username : Execution history
+    private static final ProgramDTOCache programDTOCache = new ProgramDTOCache(EngineImpl::buildProgramDTO);      // Program : ProgramDTO (shared by all engines, the programs are the keys)
 
-    private final ReadWriteLock programExpansionLock = new ReentrantReadWriteLock(); // For 'nameAndDegreeToProgram'
+    private final ExpansionCache expansionCache = new ExpansionCache(ExpansionCache.DEFAULT_MAX_CACHED_INSTRUCTIONS, this::removeCompiledProgram);   // (Program name, Degree) : Program
+    private final Map<String, Integer> nameToMaxDegree = new ConcurrentHashMap<>();                 // Program name : Max degree
+    private final FunctionDependencyGraph functionDependencyGraph = new FunctionDependencyGraph();
+    private final Map<String, Map<Integer, CompiledProgram>> nameAndDegreeToCompiledProgram = new ConcurrentHashMap<>();   // Program name : ( Degree : Compiled program )
+    private final ExecutionTiers executionTiers = ExecutionTiers.fromSystemProperties();                     // (Program name, Degree) : Tier of the runs
+    private final DebugSessionRegistry debugSessionRegistry = DebugSessionRegistry.fromSystemProperties();    // Username : Debug
+    private final Map<String, UserDTO> usernameToUserDTO = new HashMap<>();                         // Username : UserDTO
+    private final Map<String, List<ExecutionRecord>> programToExecutionHistory = new ConcurrentHashMap<>();   // Program name : Execution history
+    private final Map<String, List<ExecutionRecord>> usernameToExecutionHistory = new ConcurrentHashMap<>();  // Username : Execution history
 
     public EngineImpl() {
         // Create default user with empty name (For version 2)
@@ -129,7 +159,14 @@ public class EngineImpl implements Engine, Serializable {
 
         UserLogic.incrementMainPrograms(userDTO);
 
-        calculateExpansionForAllLoadedPrograms(program.getName());
+        functionDependencyGraph.addProgram(program);
+        List<String> newFunctionNames = new ArrayList<>();
+        for (Program function : functionsInProgram) {
+            functionDependencyGraph.addProgram(function);
+            newFunctionNames.add(function.getName());
+        }
+
+        calculateExpansionForNewPrograms(program.getName(), newFunctionNames);
     }
 
     private void addFunctionsToProgramHolder(List<Program> functionsInProgram) {
@@ -166,10 +203,15 @@ public class EngineImpl implements Engine, Serializable {
 
     @Override
     public void runProgram(String programName, String architectureTypeRepresentation, int degree, String uploaderName, Long... inputs) {
+        runProgram(programName, architectureTypeRepresentation, degree, uploaderName, null, inputs);
+    }
+
+    @Override
+    public void runProgram(String programName, String architectureTypeRepresentation, int degree, String uploaderName,
+                           ExecutionBackend backend, Long... inputs) {
 
-        Program workingProgram = getExpandedProgram(programName, degree);  // Get the relevant program from the map
         ArchitectureType architectureTypeSelected = ArchitectureType.fromRepresentation(architectureTypeRepresentation);
-        ProgramExecutor programExecutor = new ProgramExecutorImpl(workingProgram, architectureTypeSelected);
+        ProgramExecutor programExecutor = createRunExecutor(programName, degree, architectureTypeSelected, backend);
         UserDTO userDTO = getUserDTO(uploaderName);
 
         // User calculation
@@ -184,22 +226,98 @@ public class EngineImpl implements Engine, Serializable {
         originalProgram.incrementExecutionsCount();
         originalProgram.addCreditCost(programExecutor.getTotalCycles());
 
-        // For Version 2: the key in map is the program name
-        List<ProgramExecutor> executionV2History = programToExecutionHistory.computeIfAbsent(programName, k -> Collections.synchronizedList(new ArrayList<>()));  // Get the history list per program (if not exist create empty list) and add it to the list
-        executionV2History.add(programExecutor);
+        addToExecutionHistory(programName, uploaderName, ExecutionRecord.of(programExecutor));
+    }
 
-        // For Version 3: the key in map is the username
-        List<ProgramExecutor> executionV3History = usernameToExecutionHistory.computeIfAbsent(uploaderName, k -> Collections.synchronizedList(new ArrayList<>()));
-        executionV3History.add(programExecutor);
+    // Without a chosen backend the tier of (program, degree) decides - it's compiled once it's run enough (ExecutionTiers).
+    // With one it's compiled now (once per (program, degree))
+    private ProgramExecutor createRunExecutor(String programName, int degree, ArchitectureType architectureTypeSelected,
+                                              ExecutionBackend backend) {
+        if (backend != null) {
+            return new CompiledProgramExecutor(getRunnableProgram(programName, degree), architectureTypeSelected, backend);
+        }
+
+        Program expandedProgram = getExpandedProgram(programName, degree);
+        ExecutionTiers.Selection selection = executionTiers.startRun(expandedProgram.getName(), degree,
+                () -> compileForTier(programName, degree));
+
+        return switch (selection.tier()) {
+            case INTERPRETED -> new ProgramExecutorImpl(expandedProgram, architectureTypeSelected);
+            case COMPILED -> new CompiledProgramExecutor(selection.compiledProgram(), architectureTypeSelected);
+            case BYTECODE -> new CompiledProgramExecutor(selection.compiledProgram(), architectureTypeSelected, ExecutionBackend.BYTECODE);
+        };
     }
 
-    private Program getProgramByName(String programName) {
+    // Found once per compiled program (program, degree) - it's compiled for it if it wasn't yet
+    @Override
+    public CycleCostEstimate getCycleCostEstimate(String programName, int degree) {
+        return getCompiledProgram(programName, degree).getCycleCostEstimate();
+    }
 
-        if (programsHolder.getMainProgramByName(programName) != null) {   // If program is main program
-            return programsHolder.getMainProgramByName(programName);
+    // The architecture cost and one credit per cycle (function calls are charged more, so it's a lower bound).
+    // Called before runs (admission, the credit check), so it doesn't compile: the cycles are counted only once
+    // (program, degree) is compiled - by its tier or a run on a chosen backend. Until then it's the architecture cost
+    @Override
+    public long getMinimumRunCredits(String programName, String architectureTypeRepresentation, int degree, Long... inputs) {
+        long architectureCost = getArchitectureCost(architectureTypeRepresentation);
+        Program program = findExpandableProgramByName(programName);
+        Map<Integer, CompiledProgram> degreeToCompiledProgram = (program != null) ? nameAndDegreeToCompiledProgram.get(program.getName()) : null;
+        CompiledProgram compiledProgram = (degreeToCompiledProgram != null) ? degreeToCompiledProgram.get(degree) : null;
+
+        if (compiledProgram == null) {
+            return architectureCost;
         }
 
-        Program resProgram = programsHolder.getFunctionByName(programName);    // else - program is a function
+        long minCycles = compiledProgram.getCycleCostEstimate().getMinCycles(inputs);
+        return (minCycles == CycleCostEstimate.UNBOUNDED) ? CycleCostEstimate.UNBOUNDED : architectureCost + minCycles;
+    }
+
+    // All the rows run on the same compiled program (expanded and compiled once). Each completed row is added to the
+    // history and the program stats like a single run. The rows are charged to one CreditReservation as they complete
+    // (blocks taken from the user, like a run), and the executions are counted once for the whole batch
+    @Override
+    public BatchRunSummary runProgramBatch(String programName, String architectureTypeRepresentation, int degree, String uploaderName,
+                                           Iterator<Long[]> inputs, Consumer<BatchRowResult> onRow,
+                                           Executor rowExecutor, int rowParallelism) {
+
+        CompiledProgram compiledProgram = getRunnableProgram(programName, degree);
+        ArchitectureType architectureTypeSelected = ArchitectureType.fromRepresentation(architectureTypeRepresentation);
+        UserDTO userDTO = getUserDTO(uploaderName);
+        Program originalProgram = getProgramByName(programName);
+
+        BatchRunner batchRunner = new BatchRunner(compiledProgram, architectureTypeSelected, degree, rowExecutor, rowParallelism);
+        CreditReservation credits = new CreditReservation(userDTO);
+        int[] completedRows = {0};
+
+        try {
+            return batchRunner.run(inputs, credits, rowResult -> {
+                if (rowResult.isCompleted()) {
+                    originalProgram.incrementExecutionsCount();
+                    originalProgram.addCreditCost(rowResult.cycles());
+                    addToExecutionHistory(programName, uploaderName, ExecutionRecord.of(rowResult.programExecutor()));
+                    completedRows[0]++;
+                }
+                onRow.accept(rowResult);
+            });
+        } finally {
+            // Also when the batch was stopped in the middle (e.g. the client went away) - the rows are already charged
+            credits.settle();
+            UserLogic.incrementExecutions(userDTO, completedRows[0]);
+        }
+    }
+
+    private void addToExecutionHistory(String programName, String username, ExecutionRecord executionRecord) {
+        // For Version 2: the key in map is the program name
+        List<ExecutionRecord> executionV2History = programToExecutionHistory.computeIfAbsent(programName, k -> Collections.synchronizedList(new ArrayList<>()));  // Get the history list per program (if not exist create empty list) and add it to the list
+        executionV2History.add(executionRecord);
+
+        // For Version 3: the key in map is the username
+        List<ExecutionRecord> executionV3History = usernameToExecutionHistory.computeIfAbsent(username, k -> Collections.synchronizedList(new ArrayList<>()));
+        executionV3History.add(executionRecord);
+    }
+
+    private Program getProgramByName(String programName) {
+        Program resProgram = findProgramByName(programName);
 
         if (resProgram == null) {
             throw new IllegalStateException("Program " + programName + " does not exist");
@@ -208,9 +326,22 @@ public class EngineImpl implements Engine, Serializable {
         return resProgram;
     }
 
+    // Expansions are kept by name: a function shadows a main program with the same name
+    private Program findExpandableProgramByName(String programName) {
+        Program function = programsHolder.getFunctionByName(programName);
+
+        return (function != null) ? function : programsHolder.getMainProgramByName(programName);
+    }
+
+    private Program findProgramByName(String programName) {
+        Program mainProgram = programsHolder.getMainProgramByName(programName);     // If program is main program
+
+        return (mainProgram != null) ? mainProgram : programsHolder.getFunctionByName(programName);     // else - program is a function
+    }
+
     @Override
     public ProgramDTO getProgramDTOByName(String programName) {
-        return  buildProgramDTO(getProgramByName(programName));
+        return getProgramDTO(getProgramByName(programName));
     }
 
     @Override
@@ -226,45 +357,24 @@ public class EngineImpl implements Engine, Serializable {
 
     @Override
     public ProgramExecutorDTO getProgramAfterRunV2(String programName) {
-        ProgramExecutor programExecutor = getLastProgramExecutor(programName);
-        ProgramDTO programDTO = buildProgramDTO(programExecutor.getProgram());
-
-        return new ProgramExecutorDTO(programDTO,
-                programExecutor.getVariablesToValuesSorted(),
-                programExecutor.getVariableValue(Variable.RESULT),
-                programExecutor.getTotalCycles(),
-                programExecutor.getRunDegree(),
-                programExecutor.getInputsValuesOfUser(),
-                programExecutor.getArchitectureTypeSelected().getRepresentation()
-        );
+        return buildProgramExecutorDTO(getLastProgramExecutionRecord(programName));
     }
 
     @Override
     public ProgramExecutorDTO getProgramAfterRunV3(String username) {
-        ProgramExecutor programExecutor = getLastUserExecutor(username);
-        ProgramDTO programDTO = buildProgramDTO(programExecutor.getProgram());
-
-        return new ProgramExecutorDTO(
-                programDTO,
-                programExecutor.getVariablesToValuesSorted(),
-                programExecutor.getVariableValue(Variable.RESULT),
-                programExecutor.getTotalCycles(),
-                programExecutor.getRunDegree(),
-                programExecutor.getInputsValuesOfUser(),
-                programExecutor.getArchitectureTypeSelected().getRepresentation()
-        );
+        return buildProgramExecutorDTO(getLastUserExecutionRecord(username));
     }
 
     @Override
     public List<ProgramExecutorDTO> getHistoryV2PerProgram(String programName) {
-        List<ProgramExecutor> programExecutors = programToExecutionHistory.get(programName);
-        if (programExecutors == null || programExecutors.isEmpty()) {
+        List<ExecutionRecord> executionRecords = programToExecutionHistory.get(programName);
+        if (executionRecords == null || executionRecords.isEmpty()) {
             return List.of();
         }
 
-        List<ProgramExecutor> safeCopy;
-        synchronized (programExecutors) {
-            safeCopy = new ArrayList<>(programExecutors);
+        List<ExecutionRecord> safeCopy;
+        synchronized (executionRecords) {
+            safeCopy = new ArrayList<>(executionRecords);
         }
 
         return buildExecutorDTOList(safeCopy);
@@ -272,55 +382,73 @@ public class EngineImpl implements Engine, Serializable {
 
     @Override
     public List<HistoryRowV3DTO> getHistoryV3PerProgram(String username) {
-        List<ProgramExecutor> programExecutors = usernameToExecutionHistory.get(username);
-        if (programExecutors == null || programExecutors.isEmpty()) {
+        List<ExecutionRecord> executionRecords = usernameToExecutionHistory.get(username);
+        if (executionRecords == null || executionRecords.isEmpty()) {
             return List.of();
         }
 
-        List<ProgramExecutor> safeCopy;
-        synchronized (programExecutors) {
-            safeCopy = new ArrayList<>(programExecutors);
+        List<ExecutionRecord> safeCopy;
+        synchronized (executionRecords) {
+            safeCopy = new ArrayList<>(executionRecords);
         }
 
-        List<ProgramExecutorDTO> programExecutorDTOList = buildExecutorDTOList(safeCopy);
-        return buildHistoryRowsFromExecutors(programExecutorDTOList);
+        return buildHistoryRows(safeCopy);
     }
 
-    private List<ProgramExecutorDTO> buildExecutorDTOList(List<ProgramExecutor> programExecutors) {
-        if (programExecutors == null || programExecutors.isEmpty()) {
-            return List.of();
+    // Scans the history from 'cursor' until 'limit' records match the filter, without copying the history.
+    // The history is locked while it's scanned (the user's runs wait to add their records), so a page scans at most
+    // HISTORY_PAGE_SCAN_FACTOR * limit records: with a selective filter the page may have fewer records, and the next
+    // page goes on from where this one stopped
+    @Override
+    public ExecutionHistoryPage getHistoryPage(String username, int cursor, int limit, Predicate<ExecutionRecord> filter) {
+        List<ExecutionRecord> executionRecords = usernameToExecutionHistory.get(username);
+        if (executionRecords == null) {
+            return new ExecutionHistoryPage(List.of(), 0, false);
         }
 
-        List<ProgramExecutorDTO> result = new ArrayList<>();
-        for (ProgramExecutor executorItem : programExecutors) {
-            // Build ProgramDTO per executor to avoid mismatches across different programs
-            ProgramDTO programDTO = buildProgramDTO(executorItem.getProgram());
-            ProgramExecutorDTO dto = buildProgramExecutorDTO(programDTO, executorItem);
-            result.add(dto);
+        List<ExecutionRecord> pageRecords = new ArrayList<>(Math.min(limit, 256));
+        synchronized (executionRecords) {
+            int index = Math.max(cursor, 0);
+            long scanEnd = Math.min((long) index + (long) limit * HISTORY_PAGE_SCAN_FACTOR, executionRecords.size());
+
+            while (index < scanEnd && pageRecords.size() < limit) {
+                ExecutionRecord executionRecord = executionRecords.get(index++);
+                if (filter.test(executionRecord)) {
+                    pageRecords.add(executionRecord);
+                }
+            }
+
+            return new ExecutionHistoryPage(pageRecords, index, index < executionRecords.size());
         }
-        return result;
     }
 
-    private List<HistoryRowV3DTO> buildHistoryRowsFromExecutors(List<ProgramExecutorDTO> executors) {
-        if (executors == null || executors.isEmpty()) {
+    private List<ProgramExecutorDTO> buildExecutorDTOList(List<ExecutionRecord> executionRecords) {
+        if (executionRecords == null || executionRecords.isEmpty()) {
             return List.of();
         }
 
-        List<HistoryRowV3DTO> historyRows = new ArrayList<>();
+        List<ProgramExecutorDTO> result = new ArrayList<>();
+        for (ExecutionRecord executionRecord : executionRecords) {
+            result.add(buildProgramExecutorDTO(executionRecord));
+        }
+        return result;
+    }
 
-        for (ProgramExecutorDTO programExecutorDTO : executors) {
-            ProgramDTO programDTO = programExecutorDTO.getProgramDTO();
+    // The rows need only the name, user string and type of the program - no ProgramDTO is built
+    private List<HistoryRowV3DTO> buildHistoryRows(List<ExecutionRecord> executionRecords) {
+        List<HistoryRowV3DTO> historyRows = new ArrayList<>();
 
+        for (ExecutionRecord executionRecord : executionRecords) {
             HistoryRowV3DTO row = new HistoryRowV3DTO(
-                    programDTO.getProgramType(),
-                    programDTO.getProgramName(),
-                    programDTO.getProgramUserString(),
-                    programExecutorDTO.getArchitectureTypeSelected(),
-                    programExecutorDTO.getDegree(),
-                    programExecutorDTO.getResult(),
-                    programExecutorDTO.getTotalCycles(),
-                    programExecutorDTO.getVariablesToValuesSorted(),
-                    programExecutorDTO.getInputsValuesOfUser()
+                    executionRecord.getProgramType(),
+                    executionRecord.getProgramName(),
+                    executionRecord.getProgramUserString(),
+                    executionRecord.getArchitectureType().getRepresentation(),
+                    executionRecord.getDegree(),
+                    executionRecord.getResult(),
+                    executionRecord.getTotalCycles(),
+                    executionRecord.getVariablesToValuesSorted(),
+                    executionRecord.getInputsValues()
             );
 
             historyRows.add(row);
@@ -334,11 +462,11 @@ public class EngineImpl implements Engine, Serializable {
         List<ProgramDTO> result = new ArrayList<>();
 
         for (Program mainProgram : programsHolder.getMainPrograms()) {
-            result.add(buildProgramDTO(mainProgram));   // Add all the main programs
+            result.add(getProgramDTO(mainProgram));     // Add all the main programs
         }
 
         for(Program function : programsHolder.getFunctions()) {
-            result.add(buildProgramDTO(function));      // Add all the functions
+            result.add(getProgramDTO(function));        // Add all the functions
         }
 
         return result;
@@ -368,87 +496,143 @@ public class EngineImpl implements Engine, Serializable {
 
     @Override
     public int getMaxDegree(String programName) {
-        programExpansionLock.readLock().lock();
-        try {
-            Map<Integer, Program> degreeMap = nameAndDegreeToProgram.get(programName);
+        Program program = findExpandableProgramByName(programName);
 
-            // If programName not found in the map, return default and log it
-            if (degreeMap == null) {
-                return 0;
-            }
-
-            // Normal case: return size minus 1
-            return degreeMap.size() - 1;
-
-        } finally {
-            programExpansionLock.readLock().unlock();
+        // If programName not found, return default
+        if (program == null) {
+            return 0;
         }
+
+        // Static analysis of the synthetic instructions nesting (no expansion needed)
+        return nameToMaxDegree.computeIfAbsent(program.getName(), k -> ExpansionDepthAnalyzer.calculateMaxDegree(program, nameToMaxDegree::get));
     }
 
     @Override
     public ProgramDTO getExpandedProgramDTO(String programName, int degree) {
-        return buildProgramDTO(getExpandedProgram(programName, degree));
+        return getProgramDTO(getExpandedProgram(programName, degree));
     }
 
+    // Degrees are expanded on first request, starting from the highest cached lower degree
     private Program getExpandedProgram(String programName, int degree) {
-        programExpansionLock.readLock().lock();
-        try {
-            Map<Integer, Program> degreeMap = this.nameAndDegreeToProgram.get(programName);
-            if (degreeMap == null) {
-                throw new IllegalArgumentException("Program not found: " + programName);
-            }
+        Program program = findExpandableProgramByName(programName);
+        if (program == null) {
+            throw new IllegalArgumentException("Program not found: " + programName);
+        }
 
-            Program expandedProgram = degreeMap.get(degree);
-            if (expandedProgram == null) {
-                throw new IllegalArgumentException("Degree " + degree + " not found for program: " + programName);
-            }
+        String name = program.getName();
+        if (degree < 0 || degree > getMaxDegree(name)) {
+            throw new IllegalArgumentException("Degree " + degree + " not found for program: " + programName);
+        }
 
+        Program expandedProgram = expansionCache.get(name, degree);
+        if (expandedProgram != null) {
             return expandedProgram;
-        } finally {
-            programExpansionLock.readLock().unlock();
         }
+
+        int currentDegree = expansionCache.getHighestCachedDegreeBelow(name, degree);
+        if (currentDegree < 0) {
+            currentDegree = 0;
+            expandedProgram = program.copy();
+            expandedProgram.getJumpTable();
+            expandedProgram = expansionCache.put(name, currentDegree, expandedProgram);
+        } else {
+            expandedProgram = expansionCache.get(name, currentDegree);
+        }
+
+        while (currentDegree < degree) {
+            expandedProgram = expandedProgram.expandToNextDegree();
+            currentDegree++;
+            expandedProgram = expansionCache.put(name, currentDegree, expandedProgram);
+        }
+
+        return expandedProgram;
+    }
+
+    // Kept by the program's own name, like the expansions (the requested name may differ, e.g. in case)
+    private CompiledProgram getCompiledProgram(String programName, int degree) {
+        Program expandedProgram = getExpandedProgram(programName, degree);
+
+        return nameAndDegreeToCompiledProgram
+                .computeIfAbsent(findExpandableProgramByName(programName).getName(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(degree, k -> ProgramCompiler.compile(expandedProgram));
+    }
+
+    // What a full run executes - the shown (and debugged) instructions are still the expanded program's
+    private CompiledProgram getRunnableProgram(String programName, int degree) {
+        CompiledProgram compiledProgram = getCompiledProgram(programName, degree);
+        return optimizeRuns ? compiledProgram.getOptimizedProgram() : compiledProgram;
     }
 
+    // Built in the background (ExecutionTiers), with the cycle estimate - so the credit checks don't find it on a request
+    private CompiledProgram compileForTier(String programName, int degree) {
+        getCompiledProgram(programName, degree).getCycleCostEstimate();
+        return getRunnableProgram(programName, degree);
+    }
+
+    private void removeCompiledProgram(String programName, int degree) {
+        Map<Integer, CompiledProgram> degreeToCompiledProgram = nameAndDegreeToCompiledProgram.get(programName);
+
+        if (degreeToCompiledProgram != null) {
+            degreeToCompiledProgram.remove(degree);
+        }
+        executionTiers.remove(programName, degree);
+    }
+
+    // Expansion is lazy: only the max degrees of the uploaded programs are calculated here (it also rejects recursive functions).
+    // Existing functions can't change, so only programs that now resolve to a new function are dropped from the caches
     @Override
-    public void calculateExpansionForAllLoadedPrograms(String mainProgramName) {
-        programExpansionLock.writeLock().lock();
-        try {
-            Program mainProgram = programsHolder.getMainProgramByName(mainProgramName);
+    public void calculateExpansionForNewPrograms(String mainProgramName, List<String> newFunctionNames) {
+        for (String affectedProgramName : functionDependencyGraph.getAffectedPrograms(newFunctionNames)) {
+            invalidateExpansions(programsHolder.getMainProgramByName(affectedProgramName));
+            invalidateExpansions(programsHolder.getFunctionByName(affectedProgramName));
+        }
 
-            this.nameAndDegreeToProgram.put(
-                    mainProgramName,
-                    mainProgram.calculateDegreeToProgram()
-            );
+        getMaxDegree(mainProgramName);
 
-            List<Program> functions = programsHolder.getFunctions().stream().toList();
-            for (Program function : functions) {
-                this.nameAndDegreeToProgram.put(
-                        function.getName(),
-                        function.calculateDegreeToProgram()
-                );
-            }
-        } finally {
-            programExpansionLock.writeLock().unlock();
+        for (String functionName : newFunctionNames) {
+            getMaxDegree(functionName);
+        }
+    }
+
+    private void invalidateExpansions(Program program) {
+        if (program != null) {
+            nameToMaxDegree.remove(program.getName());
+            expansionCache.invalidate(program.getName());
         }
     }
 
+    // Built once per program (and degree), then shared by every caller - so it must not be changed
+    public static ProgramDTO getProgramDTO(Program program) {
+        return programDTOCache.get(program);
+    }
+
     public static ProgramDTO buildProgramDTO(Program program) {
-        InstructionsDTO instructionsDTO = new InstructionsDTO(program.getInstructionDtoList());
+        InstructionsDTO instructionsDTO = new InstructionsDTO(Collections.unmodifiableList(program.getInstructionDtoList()));
 
         return new ProgramDTO(
                 program.getName(),
                 program.getUserString(),
                 program.getProgramType().getType(),
-                program.getOrderedLabelsExitLastStr(),
-                program.getInputVariablesSortedStr(),
-                program.getWorkVariablesSortedStr(),
+                Collections.unmodifiableList(program.getOrderedLabelsExitLastStr()),
+                Collections.unmodifiableList(program.getInputVariablesSortedStr()),
+                Collections.unmodifiableList(program.getWorkVariablesSortedStr()),
                 instructionsDTO,
-                program.getExpandedProgram(),
-                program.getAverageCreditCost(),
+                Collections.unmodifiableList(program.getExpandedProgram()),
                 program.getMinimumRankArchitectureRequired()
         );
     }
 
+    @Override
+    public ProgramStatsDTO getProgramStatsDTO(String programName) {
+        Program program = getProgramByName(programName);
+
+        return new ProgramStatsDTO(
+                program.getName(),
+                program.getExecutionsCount(),
+                program.getAverageCreditCost()
+        );
+    }
+
     public static ProgramExecutorDTO buildProgramExecutorDTO(ProgramDTO programDTO, ProgramExecutor programExecutor) {
         return new ProgramExecutorDTO(
                 programDTO,
@@ -461,6 +645,21 @@ public class EngineImpl implements Engine, Serializable {
         );
     }
 
+    // The program of the record is expanded again (usually found in the expansion cache), since the record doesn't keep it
+    private ProgramExecutorDTO buildProgramExecutorDTO(ExecutionRecord executionRecord) {
+        ProgramDTO programDTO = getProgramDTO(getExpandedProgram(executionRecord.getProgramName(), executionRecord.getDegree()));
+
+        return new ProgramExecutorDTO(
+                programDTO,
+                executionRecord.getVariablesToValuesSorted(),
+                executionRecord.getResult(),
+                executionRecord.getTotalCycles(),
+                executionRecord.getDegree(),
+                executionRecord.getInputsValues(),
+                executionRecord.getArchitectureType().getRepresentation()
+        );
+    }
+
     public MainProgramDTO buildAvailableProgramDTO(Program program) {
         return new MainProgramDTO(
                 program.getName(),
@@ -485,75 +684,148 @@ public class EngineImpl implements Engine, Serializable {
 
     @Override
     public void initializeDebugger(String programName, String architectureTypeRepresentation, int degree, List<Long> inputs, String uploaderName) {
-        Program workingProgram = getExpandedProgram(programName, degree);
+        initializeDebugger(programName, architectureTypeRepresentation, degree, inputs, uploaderName, Long.MAX_VALUE);
+    }
+
+    @Override
+    public void initializeDebugger(String programName, String architectureTypeRepresentation, int degree, List<Long> inputs, String uploaderName,
+                                   long resumeStepBudget) {
+        CompiledProgram workingProgram = getCompiledProgram(programName, degree);   // Resume runs it compiled
         UserDTO userDTO = getUserDTO(uploaderName);
 
         ArchitectureType architectureTypeSelected = ArchitectureType.fromRepresentation(architectureTypeRepresentation);
+        Debug newDebug = new DebugImpl(workingProgram, architectureTypeSelected, degree, inputs, userDTO);
+        newDebug.setResumeStepBudget(resumeStepBudget);     // Before charging - throws if the budget isn't valid
+
         UserLogic.subtractCredits(userDTO, architectureTypeSelected.getCreditsCost());
 
         // ALWAYS -> OVERWRITE the previous value
-        Debug newDebug = new DebugImpl(workingProgram, architectureTypeSelected, degree, inputs, userDTO);
-        usernameToDebug.put(uploaderName, newDebug);
+        debugSessionRegistry.put(uploaderName, newDebug);
     }
 
+    // Throws DebugSessionExpiredException if the user's session was removed by the registry
     private Debug getDebugSystemByUsername(String username) {
-        Debug debug = usernameToDebug.get(username);
+        return requireDebugSession(username, debugSessionRegistry.get(username));
+    }
+
+    private Debug requireDebugSession(String username, Debug debug) {
         if (debug == null) {
+            if (debugSessionRegistry.isExpired(username)) {
+                throw new DebugSessionExpiredException(username);
+            }
             throw new IllegalArgumentException("In EngineImpl, when try getting Debug system from map: username not found: '" + username + "'");
         }
         return debug;
     }
 
+    // A Debug isn't thread safe - the requests of one session (e.g. a double click) run one after the other, under the
+    // session's lock
     @Override
     public DebugDTO getProgramAfterStepOver(String uploaderName) {
         Debug debug = getDebugSystemByUsername(uploaderName);
 
-        DebugDTO debugDTO = debug.stepOver();    // Step Over
+        debug.getLock().lock();
+        try {
+            DebugDTO debugDTO = debug.stepOver();    // Step Over
 
-        if (!debugDTO.hasMoreInstructions()) {  // Add debug program executor to history map
-            addDebugResultToHistoryMap(debugDTO, uploaderName);
-        }
+            if (!debugDTO.hasMoreInstructions()) {  // Add debug program executor to history map
+                addDebugResultToHistoryMap(debug, debugDTO, uploaderName);
+            }
 
-        return debugDTO;
+            return debugDTO;
+        } finally {
+            debug.getLock().unlock();
+        }
     }
 
+    // The session isn't removed by the registry while the resume runs
     @Override
     public DebugDTO getProgramAfterResume(List<Boolean> breakPoints, String uploaderName) throws InterruptedException {
-        Debug debug = getDebugSystemByUsername(uploaderName);
+        Debug debug = requireDebugSession(uploaderName, debugSessionRegistry.startResume(uploaderName));
 
-        DebugDTO debugDTO = debug.resume(breakPoints);  // Resume
+        try {
+            debug.getLock().lock();
+            try {
+                DebugDTO debugDTO = (breakPoints != null) ? debug.resume(breakPoints) : debug.resume();  // Resume
+
+                if (!debugDTO.hasMoreInstructions()) {      // Add to history
+                    addDebugResultToHistoryMap(debug, debugDTO, uploaderName);
+                }
 
-        if (!debugDTO.hasMoreInstructions()) {      // Add to history
-            addDebugResultToHistoryMap(debugDTO, uploaderName);
+                return debugDTO;
+            } finally {
+                debug.getLock().unlock();
+            }
+        } finally {
+            debugSessionRegistry.endResume(uploaderName, debug);
         }
+    }
+
+    @Override
+    public boolean isDebugPausedOnStepBudget(String uploaderName) {
+        Debug debug = getDebugSystemByUsername(uploaderName);
 
-        return debugDTO;
+        debug.getLock().lock();
+        try {
+            return debug.isPausedOnStepBudget();
+        } finally {
+            debug.getLock().unlock();
+        }
     }
 
     @Override
     public DebugDTO getProgramAfterStepBack(String uploaderName) {
         Debug debug = getDebugSystemByUsername(uploaderName);
-        return debug.stepBack();
+
+        debug.getLock().lock();
+        try {
+            return debug.stepBack();
+        } finally {
+            debug.getLock().unlock();
+        }
     }
 
     @Override
     public void stopDebugPress(String uploaderName) {
         Debug debug = getDebugSystemByUsername(uploaderName);
-        DebugDTO debugDTO = debug.stop();
-        addDebugResultToHistoryMap(debugDTO, uploaderName);
+
+        debug.getLock().lock();
+        try {
+            DebugDTO debugDTO = debug.stop();
+            addDebugResultToHistoryMap(debug, debugDTO, uploaderName);
+        } finally {
+            debug.getLock().unlock();
+        }
     }
 
-    private void addDebugResultToHistoryMap(DebugDTO debugDTO, String uploaderName) {
-        Debug debug = getDebugSystemByUsername(uploaderName);
-        String programName = debugDTO.getProgramName();
+    public DebugSessionRegistry getDebugSessionRegistry() {
+        return debugSessionRegistry;
+    }
 
-        // For Version 2: the key in map is the program name
-        List<ProgramExecutor> executionHistory = programToExecutionHistory.computeIfAbsent(programName, k -> Collections.synchronizedList(new ArrayList<>()));    // Get the history list per program (if not exist create empty list
-        executionHistory.add(debug.getDebugProgramExecutor());
+    @Override
+    public int getDebugSessionsCount() {
+        return debugSessionRegistry.getSize();
+    }
 
-        // For Version 3: the key in map is the username
-        List<ProgramExecutor> userExecutionHistory = usernameToExecutionHistory.computeIfAbsent(uploaderName, k -> Collections.synchronizedList(new ArrayList<>()));
-        userExecutionHistory.add(debug.getDebugProgramExecutor());
+    @Override
+    public long getExpiredDebugSessionsCount() {
+        return debugSessionRegistry.getExpiredCount();
+    }
+
+    @Override
+    public long getEvictedDebugSessionsCount() {
+        return debugSessionRegistry.getEvictedCount();
+    }
+
+    @Override
+    public ExecutionTiers getExecutionTiers() {
+        return executionTiers;
+    }
+
+    private void addDebugResultToHistoryMap(Debug debug, DebugDTO debugDTO, String uploaderName) {
+        String programName = debugDTO.getProgramName();
+
+        addToExecutionHistory(programName, uploaderName, ExecutionRecord.of(debug.getDebugProgramExecutor()));
 
         // Update user: increase the execution
         UserDTO userDTO = this.usernameToUserDTO.get(uploaderName);
@@ -605,12 +877,12 @@ public class EngineImpl implements Engine, Serializable {
     @Override
     public ProgramDTO getMainProgramToConsoleModule() {
         Program mainProgram = this.programsHolder.getMainProgramForConsoleModuleOnly();
-        return buildProgramDTO(mainProgram);
+        return getProgramDTO(mainProgram);
     }
 
-    // For V2. Always return the last executor for a program, or throw a clear exception
-    private ProgramExecutor getLastProgramExecutor(String programName) {
-        List<ProgramExecutor> list = programToExecutionHistory.get(programName);
+    // For V2. Always return the last execution of a program, or throw a clear exception
+    private ExecutionRecord getLastProgramExecutionRecord(String programName) {
+        List<ExecutionRecord> list = programToExecutionHistory.get(programName);
         if (list == null || list.isEmpty()) {
             throw new IllegalStateException("No executions found for program '" + programName + "'");
         }
@@ -620,9 +892,9 @@ public class EngineImpl implements Engine, Serializable {
         }
     }
 
-    // For V3. Always return the last executor for a user, or throw a clear exception
-    private ProgramExecutor getLastUserExecutor(String username) {
-        List<ProgramExecutor> list = usernameToExecutionHistory.get(username);
+    // For V3. Always return the last execution of a user, or throw a clear exception
+    private ExecutionRecord getLastUserExecutionRecord(String username) {
+        List<ExecutionRecord> list = usernameToExecutionHistory.get(username);
         if (list == null || list.isEmpty()) {
             throw new IllegalStateException("No executions found for user '" + username + "'");
         }
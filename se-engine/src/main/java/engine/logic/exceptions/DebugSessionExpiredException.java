@@ -0,0 +1,9 @@
+package engine.logic.exceptions;
+
+// The user's debug session was removed (idle for too long, or the server had too many sessions).
+// The user has to initialize the debugger again
+public class DebugSessionExpiredException extends RuntimeException {
+    public DebugSessionExpiredException(String username) {
+        super("The debug session of user '" + username + "' expired. Initialize the debugger again");
+    }
+}
@@ -0,0 +1,8 @@
+package engine.logic.exceptions;
+
+// Thrown when the thread of a running program is interrupted (the run was cancelled or ran out of time)
+public class ExecutionInterruptedException extends RuntimeException {
+    public ExecutionInterruptedException(String message) {
+        super(message);
+    }
+}
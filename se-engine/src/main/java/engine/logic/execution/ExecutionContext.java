@@ -7,4 +7,9 @@ public interface ExecutionContext {
     void initializeVariables(Program program, Long... inputs);
     long getVariableValue(Variable variable);
     void updateVariable(Variable variable, long value);
+
+    // The cycles of the last function call instruction executed on this context (its function's run included). Kept
+    // here and not on the instruction: the instructions are shared by all the runs of the program
+    void setLastCallCycles(int cycles);
+    int getLastCallCycles();
 }
@@ -13,6 +13,7 @@ import java.util.stream.Collectors;
 public class ExecutionContextImpl implements ExecutionContext, Serializable {
 
     private final Map<Variable, Long> variableToValue;
+    private int lastCallCycles = 0;
 
     public ExecutionContextImpl() {
         this.variableToValue = new HashMap<>();
@@ -20,8 +21,6 @@ public class ExecutionContextImpl implements ExecutionContext, Serializable {
 
     @Override
     public void initializeVariables(Program program, Long... inputs) {
-        program.sortVariableSetByNumber(program.getInputVariables());
-
         initializeInputVariableFromUserInput(program, inputs);
         initializeWorkVariable(program);
 
@@ -39,9 +38,8 @@ public class ExecutionContextImpl implements ExecutionContext, Serializable {
         for (int i = 1; i <= inputs.length; i++) {
             Variable variableSerialI = serialNumberToVariable.get(i);
 
-            if (variableSerialI == null) {
+            if (variableSerialI == null) {      // Input that the program doesn't use (the program itself isn't changed - it's shared by all runs)
                 variableSerialI = new VariableImpl(VariableType.INPUT, i);
-                program.addInputVariable(variableSerialI);   // add to the set of inputs
                 serialNumberToVariable.put(i, variableSerialI);
             }
 
@@ -80,4 +78,14 @@ public class ExecutionContextImpl implements ExecutionContext, Serializable {
 
         variableToValue.put(variable, value);
     }
+
+    @Override
+    public void setLastCallCycles(int cycles) {
+        this.lastCallCycles = cycles;
+    }
+
+    @Override
+    public int getLastCallCycles() {
+        return lastCallCycles;
+    }
 }
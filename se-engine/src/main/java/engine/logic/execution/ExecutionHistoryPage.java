@@ -0,0 +1,10 @@
+package engine.logic.execution;
+
+import java.util.List;
+
+// A page of a user's execution history.
+// The cursor is an index in the user's history (the history only grows, so it stays valid): the next page starts
+// scanning at 'nextCursor'. Records that don't match the filter are skipped, so a page may cover more than 'limit' runs,
+// and a page that stopped scanning (EngineImpl.HISTORY_PAGE_SCAN_FACTOR) may have fewer than 'limit' records - with hasMore
+public record ExecutionHistoryPage(List<ExecutionRecord> executionRecords, int nextCursor, boolean hasMore) {
+}
@@ -0,0 +1,123 @@
+package engine.logic.execution;
+
+import engine.logic.execution.runMode.ProgramExecutor;
+import engine.logic.programData.architecture.ArchitectureType;
+import engine.logic.programData.program.Program;
+import engine.logic.programData.variable.Variable;
+
+import java.io.Serializable;
+import java.util.*;
+
+// An entry of the execution history: what a finished run needs to be shown again, and nothing more.
+// Unlike the ProgramExecutor it's built from, it doesn't keep the expanded program or the execution context alive -
+// the program is kept by name and degree (its DTO is rebuilt when asked for), and the values in primitive arrays
+public final class ExecutionRecord implements Serializable {
+
+    private final String programName;
+    private final String programUserString;
+    private final String programType;
+    private final int degree;
+    private final ArchitectureType architectureType;
+    private final long[] inputs;
+    private final String[] variableNames;       // Sorted like ProgramExecutor.getVariablesToValuesSorted
+    private final long[] variableValues;
+    private final long result;
+    private final int totalCycles;
+
+    private ExecutionRecord(ProgramExecutor programExecutor) {
+        Program program = programExecutor.getProgram();
+        this.programName = program.getName();
+        this.programUserString = program.getUserString();
+        this.programType = program.getProgramType().getType();
+        this.degree = programExecutor.getRunDegree();
+        this.architectureType = programExecutor.getArchitectureTypeSelected();
+        this.result = programExecutor.getVariableValue(Variable.RESULT);
+        this.totalCycles = programExecutor.getTotalCycles();
+
+        List<Long> inputsValues = programExecutor.getInputsValuesOfUser();
+        this.inputs = new long[inputsValues.size()];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = inputsValues.get(i);
+        }
+
+        Map<String, Long> variablesToValues = programExecutor.getVariablesToValuesSorted();
+        this.variableNames = new String[variablesToValues.size()];
+        this.variableValues = new long[variablesToValues.size()];
+        int index = 0;
+        for (Map.Entry<String, Long> entry : variablesToValues.entrySet()) {
+            variableNames[index] = entry.getKey();
+            variableValues[index] = entry.getValue();
+            index++;
+        }
+    }
+
+    // Call after the run finished
+    public static ExecutionRecord of(ProgramExecutor programExecutor) {
+        return new ExecutionRecord(programExecutor);
+    }
+
+    public String getProgramName() {
+        return programName;
+    }
+
+    public String getProgramUserString() {
+        return programUserString;
+    }
+
+    public String getProgramType() {
+        return programType;
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    public ArchitectureType getArchitectureType() {
+        return architectureType;
+    }
+
+    public long getResult() {
+        return result;
+    }
+
+    public int getTotalCycles() {
+        return totalCycles;
+    }
+
+    public int getInputsCount() {
+        return inputs.length;
+    }
+
+    public long getInput(int index) {
+        return inputs[index];
+    }
+
+    public int getVariablesCount() {
+        return variableNames.length;
+    }
+
+    public String getVariableName(int index) {
+        return variableNames[index];
+    }
+
+    public long getVariableValue(int index) {
+        return variableValues[index];
+    }
+
+    // New collections on every call (for the DTOs)
+    public List<Long> getInputsValues() {
+        List<Long> inputsValues = new ArrayList<>(inputs.length);
+        for (long input : inputs) {
+            inputsValues.add(input);
+        }
+        return inputsValues;
+    }
+
+    public Map<String, Long> getVariablesToValuesSorted() {
+        Map<String, Long> variablesToValues = new LinkedHashMap<>();
+        for (int i = 0; i < variableNames.length; i++) {
+            variablesToValues.put(variableNames[i], variableValues[i]);
+        }
+        return variablesToValues;
+    }
+}
@@ -0,0 +1,128 @@
+package engine.logic.execution;
+
+import dto.v3.UserDTO;
+import engine.logic.exceptions.CreditsException;
+import engine.logic.programData.instruction.synthetic.functionInstructionsUtils.FunctionExecutionResult;
+import engine.user.UserLogic;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Memo of function calls by (function name, input values) -> (result, cycles, credits).
+// S-language functions are pure over their inputs, so a call with the same inputs always has the same result and cycles.
+// Credits are charged like a real run: a cached call is charged its recorded credits at once (UserLogic.tryChargeCredits
+// - like a run, it waits for the user's other runs to give back the credits they hold), and when the user can't afford
+// all of them the call is run for real on the user (so it stops at the same instruction as before)
+public class FunctionCallCache implements Serializable {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    @FunctionalInterface
+    public interface FunctionRun {
+        FunctionExecutionResult run(UserDTO userDTO);
+    }
+
+    private record Key(String functionName, long[] inputs) implements Serializable {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key other
+                    && functionName.equals(other.functionName)
+                    && Arrays.equals(inputs, other.inputs);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * functionName.hashCode() + Arrays.hashCode(inputs);
+        }
+    }
+
+    private record Entry(FunctionExecutionResult result, long credits) implements Serializable { }
+
+    private final int maxEntries;
+    private final Map<Key, Entry> keyToEntry;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public FunctionCallCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public FunctionCallCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.keyToEntry = new LinkedHashMap<>(16, 0.75f, true) {     // Access order (least recently used first)
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                boolean toRemove = size() > FunctionCallCache.this.maxEntries;
+                if (toRemove) {
+                    evictions++;
+                }
+                return toRemove;
+            }
+        };
+    }
+
+    // 'functionRun' runs the function for real and charges the given user per instruction
+    public FunctionExecutionResult call(String functionName, long[] inputs, UserDTO userDTO, FunctionRun functionRun) {
+        Key key = new Key(functionName, inputs);
+        Entry entry = getEntry(key);
+
+        if (entry != null) {
+            return UserLogic.tryChargeCredits(userDTO, entry.credits()) ? entry.result() : functionRun.run(userDTO);
+        }
+
+        // Run once on a meter user, to record the credits the call costs. It has the credits the user's runs could have
+        // (theirs and the ones they hold), so a call that doesn't fit in them isn't run twice
+        UserDTO meterUser = new UserDTO(userDTO.getUserName());
+        meterUser.setCurrentCredits(UserLogic.getCreditsWithReserved(userDTO));
+
+        FunctionExecutionResult result;
+        try {
+            result = functionRun.run(meterUser);
+        } catch (CreditsException e) {
+            return functionRun.run(userDTO);
+        }
+
+        Entry newEntry = new Entry(result, meterUser.getUsedCredits());
+        putEntry(key, newEntry);
+        return UserLogic.tryChargeCredits(userDTO, newEntry.credits()) ? result : functionRun.run(userDTO);
+    }
+
+    private synchronized Entry getEntry(Key key) {
+        Entry entry = keyToEntry.get(key);
+
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        return entry;
+    }
+
+    private synchronized void putEntry(Key key, Entry entry) {
+        keyToEntry.put(key, entry);
+    }
+
+    public synchronized void clear() {
+        keyToEntry.clear();
+    }
+
+    public synchronized int getSize() {
+        return keyToEntry.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,13 @@
+package engine.logic.execution.batchMode;
+
+import engine.logic.execution.runMode.ProgramExecutor;
+
+// One run of a batch. 'credits' includes the architecture cost.
+// A row that didn't fit in the user's credits has an error and no executor (the batch stops at it)
+public record BatchRowResult(int index, Long[] inputs, long result, int cycles, long credits,
+                             ProgramExecutor programExecutor, String error) {
+
+    public boolean isCompleted() {
+        return error == null;
+    }
+}
@@ -0,0 +1,6 @@
+package engine.logic.execution.batchMode;
+
+// Totals of the completed rows of a batch (what the user is charged for).
+// 'stoppedEarly' - the batch stopped at a row that didn't fit in the user's credits
+public record BatchRunSummary(int completedRows, long totalCycles, long totalCredits, boolean stoppedEarly) {
+}
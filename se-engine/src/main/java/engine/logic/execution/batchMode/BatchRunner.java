@@ -0,0 +1,165 @@
+package engine.logic.execution.batchMode;
+
+import dto.v3.UserDTO;
+import engine.logic.exceptions.CreditsException;
+import engine.logic.exceptions.ExecutionInterruptedException;
+import engine.logic.execution.compiledMode.CompiledProgram;
+import engine.logic.execution.compiledMode.CompiledProgramExecutor;
+import engine.logic.execution.runMode.ProgramExecutor;
+import engine.logic.programData.architecture.ArchitectureType;
+import engine.logic.programData.variable.Variable;
+import engine.user.CreditReservation;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+// Runs one compiled program over many input vectors in parallel, and reports the rows in input order. The rows run on
+// the executor the batch is given (the caller's scheduling - e.g. ProgramExecutionManager gives a batch the threads of
+// its user's free run permits), at most 'parallelism' at once. The rows don't touch the user: each row runs on its own
+// meter user, and the rows are charged in order to the batch's CreditReservation - like running them one after the
+// other. The batch stops at the first row that doesn't fit.
+// A batch is stopped by interrupting its thread: the rows in flight are interrupted too (they check it like any run)
+public class BatchRunner {
+
+    private static final int ROWS_IN_FLIGHT_PER_THREAD = 4;     // Rows queued ahead of the next reported row (bounds the memory)
+
+    private final CompiledProgram compiledProgram;      // Shared by all the rows (compiled programs are immutable)
+    private final ArchitectureType architectureType;
+    private final int degree;
+    private final Executor rowExecutor;                 // Starts every row at once - 'rowPermits' bounds the running rows
+    private final int parallelism;
+    private final Semaphore rowPermits;                 // Fair: the rows run in input order
+
+    public BatchRunner(CompiledProgram compiledProgram, ArchitectureType architectureType, int degree,
+                       Executor rowExecutor, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("In BatchRunner: the parallelism must be positive, got " + parallelism);
+        }
+        this.compiledProgram = compiledProgram;
+        this.architectureType = architectureType;
+        this.degree = degree;
+        this.rowExecutor = rowExecutor;
+        this.parallelism = parallelism;
+        this.rowPermits = new Semaphore(parallelism, true);
+    }
+
+    // 'inputs' is read lazily (it may be a stream), on the calling thread. 'onRow' is called on the calling thread too.
+    // Throws ExecutionInterruptedException if the calling thread is interrupted
+    public BatchRunSummary run(Iterator<Long[]> inputs, CreditReservation credits, Consumer<BatchRowResult> onRow) {
+        int maxRowsInFlight = parallelism * ROWS_IN_FLIGHT_PER_THREAD;
+        Deque<Future<BatchRowResult>> rowsInFlight = new ArrayDeque<>();
+        int nextIndex = 0;
+        int completedRows = 0;
+        long totalCycles = 0;
+        long totalCredits = 0;
+
+        try {
+            while (true) {
+                while (rowsInFlight.size() < maxRowsInFlight && inputs.hasNext()) {
+                    int index = nextIndex++;
+                    Long[] rowInputs = inputs.next();
+                    long rowAvailableCredits = credits.getChargeableCredits();     // At least what is left when it's charged
+                    FutureTask<BatchRowResult> row = new FutureTask<>(() -> runRowInTurn(index, rowInputs, rowAvailableCredits));
+                    rowsInFlight.addLast(row);
+                    rowExecutor.execute(row);
+                }
+
+                if (rowsInFlight.isEmpty()) {
+                    return new BatchRunSummary(completedRows, totalCycles, totalCredits, false);
+                }
+
+                BatchRowResult rowResult = awaitRow(rowsInFlight.peekFirst());     // Still in flight - cancelled if this throws
+                rowsInFlight.removeFirst();
+
+                if (!rowResult.isCompleted() || !charge(credits, rowResult.credits())) {
+                    onRow.accept(notEnoughCredits(rowResult.index(), rowResult.inputs(), credits.getChargeableCredits()));
+                    return new BatchRunSummary(completedRows, totalCycles, totalCredits, true);
+                }
+
+                completedRows++;
+                totalCycles += rowResult.cycles();
+                totalCredits += rowResult.credits();
+                onRow.accept(rowResult);
+            }
+        } finally {
+            for (Future<BatchRowResult> rowInFlight : rowsInFlight) {
+                rowInFlight.cancel(true);       // Interrupts the row's thread
+            }
+        }
+    }
+
+    private static BatchRowResult awaitRow(Future<BatchRowResult> row) {
+        try {
+            return row.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionInterruptedException("Batch run was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Batch row failed", e.getCause());
+        }
+    }
+
+    // Charges a completed row. False if the user doesn't have its credits (it's left with 0, like a run that runs out)
+    private static boolean charge(CreditReservation credits, long rowCredits) {
+        try {
+            credits.consume(rowCredits);
+            return true;
+        } catch (CreditsException e) {
+            return false;
+        }
+    }
+
+    private BatchRowResult runRowInTurn(int index, Long[] inputs, long availableCredits) {
+        try {
+            rowPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionInterruptedException("Batch row was interrupted");
+        }
+
+        try {
+            return runRow(index, inputs, availableCredits);
+        } finally {
+            rowPermits.release();
+        }
+    }
+
+    private BatchRowResult runRow(int index, Long[] inputs, long availableCredits) {
+        long architectureCost = architectureType.getCreditsCost();
+        if (availableCredits < architectureCost) {
+            return notEnoughCredits(index, inputs, availableCredits);
+        }
+
+        UserDTO meterUser = new UserDTO(UserDTO.DEFAULT_NAME);
+        meterUser.setCurrentCredits(availableCredits - architectureCost);
+        ProgramExecutor programExecutor = new CompiledProgramExecutor(compiledProgram, architectureType);
+
+        try {
+            programExecutor.run(meterUser, degree, inputs);
+        } catch (CreditsException e) {
+            return notEnoughCredits(index, inputs, availableCredits);
+        }
+
+        return new BatchRowResult(index, inputs,
+                programExecutor.getVariableValue(Variable.RESULT),
+                programExecutor.getTotalCycles(),
+                architectureCost + meterUser.getUsedCredits(),
+                programExecutor,
+                null);
+    }
+
+    private static BatchRowResult notEnoughCredits(int index, Long[] inputs, long creditsLeft) {
+        return new BatchRowResult(index, inputs, 0, 0, 0, null,
+                "Not enough credits for this run. Credits left for the batch: " + Math.max(creditsLeft, 0));
+    }
+}
@@ -0,0 +1,827 @@
+package engine.logic.execution.compiledMode;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static engine.logic.execution.compiledMode.CompiledProgram.*;
+import static engine.logic.execution.runMode.ProgramExecutor.INTERRUPT_CHECK_INTERVAL;
+
+// Generates a JVM class for a compiled program, defined as a hidden class of this package, so HotSpot JIT-compiles the
+// S program itself. The class implements BytecodeRoutine with one method that runs the whole program:
+// - every variable slot is a long local (loaded from the slots at the start, written back at the end and when anything
+//   throws; the arguments of a function call before the call), every instruction is a label and its jumps are branches to the target labels
+// - cycles, pending credits and credits left are int locals, updated per instruction exactly like
+//   CompiledProgramExecutor.runInstructions; charging a batch, function calls and loops run at once (LOOP) are calls to
+//   BytecodeRun, so they are charged the same
+// - the interrupt flag is checked every INTERRUPT_CHECK_INTERVAL jumps back (a run can only be long by jumping back)
+// The locals never change type after the start, so one stack map frame (all the locals, empty stack) fits every label.
+// Programs whose code would be longer than MAX_CODE_LENGTH aren't compiled (see compile)
+final class BytecodeCompiler {
+
+    // HotSpot doesn't JIT-compile longer methods (DontCompileHugeMethods), and the interpreter beats interpreted
+    // bytecode. Also keeps every branch within the 16 bit offsets
+    static final int MAX_CODE_LENGTH = 8000;
+
+    private static final String CLASS_NAME = "engine/logic/execution/compiledMode/BytecodeRoutine$Program";
+    private static final String RUN_CLASS_NAME = "engine/logic/execution/compiledMode/BytecodeRun";
+    private static final String RUN_DESCRIPTOR = "([JL" + RUN_CLASS_NAME + ";)V";
+    private static final int CLASS_FILE_VERSION = 61;
+    private static final int MAX_STACK = 16;
+
+    // JVM opcodes
+    private static final int ICONST_0 = 0x03;
+    private static final int LCONST_0 = 0x09;
+    private static final int LCONST_1 = 0x0a;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ILOAD = 0x15;
+    private static final int LLOAD = 0x16;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int LALOAD = 0x2f;
+    private static final int ISTORE = 0x36;
+    private static final int LSTORE = 0x37;
+    private static final int ASTORE = 0x3a;
+    private static final int LASTORE = 0x50;
+    private static final int IADD = 0x60;
+    private static final int LADD = 0x61;
+    private static final int LSUB = 0x65;
+    private static final int LMUL = 0x69;
+    private static final int IAND = 0x7e;
+    private static final int IINC = 0x84;
+    private static final int L2I = 0x88;
+    private static final int LCMP = 0x94;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int IF_ICMPLE = 0xa4;
+    private static final int GOTO = 0xa7;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int ATHROW = 0xbf;
+    private static final int WIDE = 0xc4;
+
+    // Stack map frame types
+    private static final int FULL_FRAME = 255;
+    private static final int ITEM_INTEGER = 1;
+    private static final int ITEM_LONG = 4;
+    private static final int ITEM_OBJECT = 7;
+
+    // Locals of the run method: this, slots, run, then the variables (2 each) and the run state
+    private static final int SLOTS_LOCAL = 1;
+    private static final int RUN_LOCAL = 2;
+    private static final int FIRST_VARIABLE_LOCAL = 3;
+
+    private final CompiledProgram compiledProgram;
+    private final ConstantPool constantPool = new ConstantPool();
+    private final CodeBuffer code = new CodeBuffer();
+    private final List<Integer> labelOffsets = new ArrayList<>();
+    private final List<int[]> branches = new ArrayList<>();         // {branch offset, label}
+    private final int[] instructionLabels;                          // Of every instruction and the end of the program
+    private final int cyclesLocal;
+    private final int pendingLocal;
+    private final int creditsLeftLocal;
+    private final int backJumpsLocal;
+    private final int instructionCyclesLocal;
+    private final int iterationsLocal;
+    private final int valueLocal;
+    private final int exceptionLocal;
+    private int protectedStart;                                     // The program code: from the first instruction
+    private int protectedEnd;                                       // to the end of the program
+    private int handlerStart;
+
+    private BytecodeCompiler(CompiledProgram compiledProgram) {
+        this.compiledProgram = compiledProgram;
+        this.instructionLabels = new int[compiledProgram.getInstructionsCount() + 1];
+
+        int nextLocal = FIRST_VARIABLE_LOCAL + 2 * compiledProgram.slotsCount;
+        cyclesLocal = nextLocal++;
+        pendingLocal = nextLocal++;
+        creditsLeftLocal = nextLocal++;
+        backJumpsLocal = nextLocal++;
+        instructionCyclesLocal = nextLocal++;
+        iterationsLocal = nextLocal;
+        nextLocal += 2;
+        valueLocal = nextLocal;
+        nextLocal += 2;
+        exceptionLocal = nextLocal;
+    }
+
+    // The routine of the program, or null if it can't be generated (too long, or rejected by the JVM)
+    static BytecodeRoutine compile(CompiledProgram compiledProgram) {
+        try {
+            byte[] classBytes = new BytecodeCompiler(compiledProgram).generateClass();
+            if (classBytes == null) {
+                return null;
+            }
+
+            // Not kept alive by the class loader: unloaded with the compiled program
+            Class<?> routineClass = MethodHandles.lookup().defineHiddenClass(classBytes, true).lookupClass();
+            return (BytecodeRoutine) routineClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private byte[] generateClass() {
+        int thisClass = constantPool.classInfo(CLASS_NAME);
+        int objectClass = constantPool.classInfo("java/lang/Object");
+        int routineInterface = constantPool.classInfo("engine/logic/execution/compiledMode/BytecodeRoutine");
+        int codeName = constantPool.utf8("Code");
+
+        byte[] runCode = generateRunCode();
+        if (runCode == null) {
+            return null;
+        }
+        byte[] stackMapTable = generateStackMapTable(thisClass);
+        int stackMapTableName = constantPool.utf8("StackMapTable");
+        int constructorName = constantPool.utf8("<init>");
+        int constructorDescriptor = constantPool.utf8("()V");
+        int objectConstructor = constantPool.methodRef("java/lang/Object", "<init>", "()V");
+        int runName = constantPool.utf8("run");
+        int runDescriptor = constantPool.utf8(RUN_DESCRIPTOR);
+
+        CodeBuffer classFile = new CodeBuffer();
+        classFile.u4(0xCAFEBABE);
+        classFile.u2(0);
+        classFile.u2(CLASS_FILE_VERSION);
+        constantPool.writeTo(classFile);
+        classFile.u2(0x0010 | 0x0020);                 // ACC_FINAL | ACC_SUPER
+        classFile.u2(thisClass);
+        classFile.u2(objectClass);
+        classFile.u2(1);
+        classFile.u2(routineInterface);
+        classFile.u2(0);                                // Fields
+        classFile.u2(2);                                // Methods
+
+        // public <init>() { super(); }
+        classFile.u2(0x0001);
+        classFile.u2(constructorName);
+        classFile.u2(constructorDescriptor);
+        classFile.u2(1);
+        classFile.u2(codeName);
+        classFile.u4(12 + 5);
+        classFile.u2(1);                                // Max stack
+        classFile.u2(1);                                // Max locals
+        classFile.u4(5);
+        classFile.u1(ALOAD_0);
+        classFile.u1(INVOKESPECIAL);
+        classFile.u2(objectConstructor);
+        classFile.u1(RETURN);
+        classFile.u2(0);                                // Exception table
+        classFile.u2(0);                                // Attributes
+
+        // public void run(long[] slots, BytecodeRun run)
+        classFile.u2(0x0001);
+        classFile.u2(runName);
+        classFile.u2(runDescriptor);
+        classFile.u2(1);
+        classFile.u2(codeName);
+        classFile.u4(12 + runCode.length + 8 + 6 + stackMapTable.length);
+        classFile.u2(MAX_STACK);
+        classFile.u2(exceptionLocal + 1);
+        classFile.u4(runCode.length);
+        classFile.bytes(runCode);
+        classFile.u2(1);                                // Exception table: anything thrown in the program code
+        classFile.u2(protectedStart);
+        classFile.u2(protectedEnd);
+        classFile.u2(handlerStart);
+        classFile.u2(0);
+        classFile.u2(1);                                // Attributes
+        classFile.u2(stackMapTableName);
+        classFile.u4(stackMapTable.length);
+        classFile.bytes(stackMapTable);
+
+        classFile.u2(0);                                // Class attributes
+        return classFile.toByteArray();
+    }
+
+    private byte[] generateRunCode() {
+        int instructionsCount = compiledProgram.getInstructionsCount();
+        for (int i = 0; i <= instructionsCount; i++) {
+            instructionLabels[i] = newLabel();
+        }
+
+        // Every local is set before the first label, so they all have their type at every label
+        for (int slot = 0; slot < compiledProgram.slotsCount; slot++) {
+            local(ALOAD, SLOTS_LOCAL);
+            pushInt(slot);
+            code.u1(LALOAD);
+            local(LSTORE, variableLocal(slot));
+        }
+        for (int intLocal : new int[] {cyclesLocal, pendingLocal, creditsLeftLocal, backJumpsLocal, instructionCyclesLocal}) {
+            code.u1(ICONST_0);
+            local(ISTORE, intLocal);
+        }
+        code.u1(LCONST_0);
+        local(LSTORE, iterationsLocal);
+        code.u1(LCONST_0);
+        local(LSTORE, valueLocal);
+
+        protectedStart = code.length();
+        for (int pc = 0; pc < instructionsCount; pc++) {
+            bindLabel(instructionLabels[pc]);
+            generateInstruction(pc);
+            if (code.length() > MAX_CODE_LENGTH) {
+                return null;
+            }
+        }
+
+        // End of the program
+        bindLabel(instructionLabels[instructionsCount]);
+        protectedEnd = code.length();
+        generateFinish();
+        code.u1(RETURN);
+
+        // Anything thrown: the slots and the run get the state up to the instruction that threw, then it's rethrown
+        handlerStart = code.length();
+        local(ASTORE, exceptionLocal);
+        generateFinish();
+        local(ALOAD, exceptionLocal);
+        code.u1(ATHROW);
+
+        for (int[] branch : branches) {
+            int branchOffset = branch[0];
+            code.putU2At(branchOffset + 1, labelOffsets.get(branch[1]) - branchOffset);
+        }
+        return (code.length() > MAX_CODE_LENGTH) ? null : code.toByteArray();
+    }
+
+    private void generateInstruction(int pc) {
+        int[] opcodes = compiledProgram.opcodes;
+        int target = compiledProgram.targetSlots[pc];
+        int jumpTarget = compiledProgram.jumpTargets[pc];
+        int staticCycles = compiledProgram.cycles[pc];
+
+        switch (opcodes[pc]) {
+            case NO_OP -> chargeStatic(pc, staticCycles);
+            case INCREASE -> {
+                increase(target);
+                chargeStatic(pc, staticCycles);
+            }
+            case DECREASE -> {
+                decrease(target);
+                chargeStatic(pc, staticCycles);
+            }
+            case JUMP_NOT_ZERO -> {
+                chargeStatic(pc, staticCycles);
+                checkJumpBack(pc, jumpTarget);
+                local(LLOAD, variableLocal(target));
+                code.u1(LCONST_0);
+                code.u1(LCMP);
+                branch(IFNE, instructionLabels[jumpTarget]);
+            }
+            case ZERO_VARIABLE -> {
+                code.u1(LCONST_0);
+                local(LSTORE, variableLocal(target));
+                chargeStatic(pc, staticCycles);
+            }
+            case CONSTANT_ASSIGNMENT -> {
+                pushLong(compiledProgram.constants[pc]);
+                local(LSTORE, variableLocal(target));
+                chargeStatic(pc, staticCycles);
+            }
+            case GOTO_LABEL -> {
+                chargeStatic(pc, staticCycles);
+                checkJumpBack(pc, jumpTarget);
+                branch(GOTO, instructionLabels[jumpTarget]);
+            }
+            case ASSIGNMENT -> {
+                local(LLOAD, variableLocal(compiledProgram.sourceSlots[pc]));
+                local(LSTORE, variableLocal(target));
+                chargeStatic(pc, staticCycles);
+            }
+            case JUMP_ZERO -> {
+                chargeStatic(pc, staticCycles);
+                checkJumpBack(pc, jumpTarget);
+                local(LLOAD, variableLocal(target));
+                code.u1(LCONST_0);
+                code.u1(LCMP);
+                branch(IFEQ, instructionLabels[jumpTarget]);
+            }
+            case JUMP_EQUAL_CONSTANT -> {
+                chargeStatic(pc, staticCycles);
+                checkJumpBack(pc, jumpTarget);
+                local(LLOAD, variableLocal(target));
+                pushLong(compiledProgram.constants[pc]);
+                code.u1(LCMP);
+                branch(IFEQ, instructionLabels[jumpTarget]);
+            }
+            case JUMP_EQUAL_VARIABLE -> {
+                chargeStatic(pc, staticCycles);
+                checkJumpBack(pc, jumpTarget);
+                local(LLOAD, variableLocal(target));
+                local(LLOAD, variableLocal(compiledProgram.sourceSlots[pc]));
+                code.u1(LCMP);
+                branch(IFEQ, instructionLabels[jumpTarget]);
+            }
+            case QUOTE -> {
+                generateCall(pc);
+                local(LSTORE, variableLocal(target));
+                chargeWithCall(pc, staticCycles);
+            }
+            case JUMP_EQUAL_FUNCTION -> {
+                generateCall(pc);
+                local(LSTORE, valueLocal);
+                chargeWithCall(pc, staticCycles);
+                checkJumpBack(pc, jumpTarget);
+                local(LLOAD, variableLocal(target));       // The call doesn't change the caller's variables
+                local(LLOAD, valueLocal);
+                code.u1(LCMP);
+                branch(IFEQ, instructionLabels[jumpTarget]);
+            }
+            case LOOP -> generateLoop(pc, staticCycles);
+            default -> throw new IllegalStateException("In BytecodeCompiler: Unknown opcode: " + opcodes[pc]);
+        }
+    }
+
+    // Like runInstructions: all the iterations at once when BytecodeRun.loopCycles allows it, otherwise only the first
+    // instruction of the loop
+    private void generateLoop(int pc, int staticCycles) {
+        LoopIdiom loop = compiledProgram.loops[pc];
+        int counterLocal = variableLocal(loop.counterSlot);
+        int stepLabel = newLabel();
+
+        // iterations = max(counter, 1)
+        local(LLOAD, counterLocal);
+        code.u1(LCONST_1);
+        invokeStatic("java/lang/Math", "max", "(JJ)J");
+        local(LSTORE, iterationsLocal);
+
+        // value = run.loopCycles(pc, iterations, cycles, pending, creditsLeft); creditsLeft = run.creditsLeft
+        local(ALOAD, RUN_LOCAL);
+        pushInt(pc);
+        local(LLOAD, iterationsLocal);
+        local(ILOAD, cyclesLocal);
+        local(ILOAD, pendingLocal);
+        local(ILOAD, creditsLeftLocal);
+        invokeRun("loopCycles", "(IJIII)J");
+        local(LSTORE, valueLocal);
+        getRunField("creditsLeft");
+        local(ISTORE, creditsLeftLocal);
+
+        local(LLOAD, valueLocal);
+        code.u1(LCONST_0);
+        code.u1(LCMP);
+        branch(IFEQ, stepLabel);
+
+        // All at once (LoopIdiom.run): the credits fit in what's left, so they're only added
+        for (int i = 0; i < loop.changedSlots.length; i++) {
+            int slotLocal = variableLocal(loop.changedSlots[i]);
+            int changePerIteration = loop.changesPerIteration[i];
+
+            local(LLOAD, slotLocal);
+            pushLong(changePerIteration);
+            local(LLOAD, iterationsLocal);
+            code.u1(LMUL);
+            code.u1(LADD);
+            if (changePerIteration < 0) {
+                code.u1(LCONST_0);
+                invokeStatic("java/lang/Math", "max", "(JJ)J");
+            }
+            local(LSTORE, slotLocal);
+        }
+        code.u1(LCONST_0);
+        local(LSTORE, counterLocal);
+        for (int stateLocal : new int[] {cyclesLocal, pendingLocal}) {
+            local(ILOAD, stateLocal);
+            local(LLOAD, valueLocal);
+            code.u1(L2I);
+            code.u1(IADD);
+            local(ISTORE, stateLocal);
+        }
+        branch(GOTO, instructionLabels[loop.exitIndex]);
+
+        // Only the first instruction
+        bindLabel(stepLabel);
+        int target = compiledProgram.targetSlots[pc];
+        switch (loop.firstOpcode) {
+            case INCREASE -> increase(target);
+            case DECREASE -> decrease(target);
+            default -> { }
+        }
+        chargeStatic(pc, staticCycles);
+    }
+
+    // value = run.call(pc, pending, slots), with pending = 0 and creditsLeft = 0 (settled before the call)
+    private void generateCall(int pc) {
+        storeArguments(compiledProgram.calls[pc]);
+        local(ALOAD, RUN_LOCAL);
+        pushInt(pc);
+        local(ILOAD, pendingLocal);
+        code.u1(ICONST_0);
+        local(ISTORE, pendingLocal);
+        code.u1(ICONST_0);
+        local(ISTORE, creditsLeftLocal);
+        local(ALOAD, SLOTS_LOCAL);
+        invokeRun("call", "(II[J)J");
+    }
+
+    private void chargeWithCall(int pc, int staticCycles) {
+        getRunField("callCycles");
+        pushInt(staticCycles);
+        code.u1(IADD);
+        local(ISTORE, instructionCyclesLocal);
+        charge(pc, () -> local(ILOAD, instructionCyclesLocal));
+    }
+
+    private void chargeStatic(int pc, int staticCycles) {
+        charge(pc, () -> pushInt(staticCycles));
+    }
+
+    // cycles += instructionCycles; pending += instructionCycles;
+    // if (pending > creditsLeft) { creditsLeft = run.charge(pc, pending, instructionCycles, creditsLeft); pending = run.pendingCredits; }
+    // (pending is 0 while run.charge runs, like in runInstructions - it may throw)
+    private void charge(int pc, Runnable pushInstructionCycles) {
+        int chargedLabel = newLabel();
+
+        for (int stateLocal : new int[] {cyclesLocal, pendingLocal}) {
+            local(ILOAD, stateLocal);
+            pushInstructionCycles.run();
+            code.u1(IADD);
+            local(ISTORE, stateLocal);
+        }
+
+        local(ILOAD, pendingLocal);
+        local(ILOAD, creditsLeftLocal);
+        branch(IF_ICMPLE, chargedLabel);
+
+        local(ALOAD, RUN_LOCAL);
+        pushInt(pc);
+        local(ILOAD, pendingLocal);
+        pushInstructionCycles.run();
+        local(ILOAD, creditsLeftLocal);
+        code.u1(ICONST_0);
+        local(ISTORE, pendingLocal);
+        invokeRun("charge", "(IIII)I");
+        local(ISTORE, creditsLeftLocal);
+        getRunField("pendingCredits");
+        local(ISTORE, pendingLocal);
+
+        bindLabel(chargedLabel);
+    }
+
+    // A jump back counts towards the interrupt check (whether it's taken or not)
+    private void checkJumpBack(int pc, int jumpTarget) {
+        if (jumpTarget > pc) {
+            return;
+        }
+
+        int checkedLabel = newLabel();
+        code.iinc(backJumpsLocal);
+        local(ILOAD, backJumpsLocal);
+        pushInt(INTERRUPT_CHECK_INTERVAL - 1);
+        code.u1(IAND);
+        branch(IFNE, checkedLabel);
+        local(ALOAD, RUN_LOCAL);
+        invokeRun("checkInterrupted", "()V");
+        bindLabel(checkedLabel);
+    }
+
+    private void increase(int slot) {
+        local(LLOAD, variableLocal(slot));
+        code.u1(LCONST_1);
+        code.u1(LADD);
+        local(LSTORE, variableLocal(slot));
+    }
+
+    // v = max(v - 1, 0)
+    private void decrease(int slot) {
+        local(LLOAD, variableLocal(slot));
+        code.u1(LCONST_1);
+        code.u1(LSUB);
+        code.u1(LCONST_0);
+        invokeStatic("java/lang/Math", "max", "(JJ)J");
+        local(LSTORE, variableLocal(slot));
+    }
+
+    private void generateFinish() {
+        storeVariables();
+        local(ALOAD, RUN_LOCAL);
+        local(ILOAD, cyclesLocal);
+        local(ILOAD, pendingLocal);
+        invokeRun("finish", "(II)V");
+    }
+
+    private void storeVariables() {
+        for (int slot = 0; slot < compiledProgram.slotsCount; slot++) {
+            storeVariable(slot);
+        }
+    }
+
+    // The slots the call reads (its arguments, and the arguments of its function arguments)
+    private void storeArguments(CompiledCall call) {
+        for (CompiledArgument argument : call.arguments) {
+            if (argument.call == null) {
+                storeVariable(argument.slot);
+            } else {
+                storeArguments(argument.call);
+            }
+        }
+    }
+
+    private void storeVariable(int slot) {
+        local(ALOAD, SLOTS_LOCAL);
+        pushInt(slot);
+        local(LLOAD, variableLocal(slot));
+        code.u1(LASTORE);
+    }
+
+    private int variableLocal(int slot) {
+        return FIRST_VARIABLE_LOCAL + 2 * slot;
+    }
+
+    // One full frame per label offset (the same locals everywhere), and the handler's (with the exception on the stack)
+    private byte[] generateStackMapTable(int thisClass) {
+        SortedSet<Integer> frameOffsets = new TreeSet<>(labelOffsets);
+        frameOffsets.removeIf(offset -> offset >= protectedEnd);
+        frameOffsets.add(protectedEnd);
+
+        int slotsArrayClass = constantPool.classInfo("[J");
+        int runClass = constantPool.classInfo(RUN_CLASS_NAME);
+        int throwableClass = constantPool.classInfo("java/lang/Throwable");
+
+        CodeBuffer locals = new CodeBuffer();
+        int localsCount = 0;
+        for (int objectClass : new int[] {thisClass, slotsArrayClass, runClass}) {
+            locals.u1(ITEM_OBJECT);
+            locals.u2(objectClass);
+            localsCount++;
+        }
+        for (int slot = 0; slot < compiledProgram.slotsCount; slot++) {
+            locals.u1(ITEM_LONG);
+            localsCount++;
+        }
+        for (int i = 0; i < 5; i++) {       // cycles, pending, creditsLeft, backJumps, instructionCycles
+            locals.u1(ITEM_INTEGER);
+            localsCount++;
+        }
+        locals.u1(ITEM_LONG);               // iterations
+        locals.u1(ITEM_LONG);               // value
+        localsCount += 2;
+        byte[] localsBytes = locals.toByteArray();
+
+        CodeBuffer stackMapTable = new CodeBuffer();
+        stackMapTable.u2(frameOffsets.size() + 1);
+        int previousOffset = -1;
+        for (int offset : frameOffsets) {
+            stackMapTable.u1(FULL_FRAME);
+            stackMapTable.u2(offset - previousOffset - 1);
+            stackMapTable.u2(localsCount);
+            stackMapTable.bytes(localsBytes);
+            stackMapTable.u2(0);
+            previousOffset = offset;
+        }
+
+        stackMapTable.u1(FULL_FRAME);
+        stackMapTable.u2(handlerStart - previousOffset - 1);
+        stackMapTable.u2(localsCount);
+        stackMapTable.bytes(localsBytes);
+        stackMapTable.u2(1);
+        stackMapTable.u1(ITEM_OBJECT);
+        stackMapTable.u2(throwableClass);
+        return stackMapTable.toByteArray();
+    }
+
+    private int newLabel() {
+        labelOffsets.add(-1);
+        return labelOffsets.size() - 1;
+    }
+
+    private void bindLabel(int label) {
+        labelOffsets.set(label, code.length());
+    }
+
+    private void branch(int branchOpcode, int label) {
+        branches.add(new int[] {code.length(), label});
+        code.u1(branchOpcode);
+        code.u2(0);                         // Set when all the labels are bound
+    }
+
+    private void local(int opcode, int index) {
+        if (index > 0xFF) {
+            code.u1(WIDE);
+            code.u1(opcode);
+            code.u2(index);
+        } else {
+            code.u1(opcode);
+            code.u1(index);
+        }
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            code.u1(ICONST_0 + value);
+        } else if (value == (byte) value) {
+            code.u1(BIPUSH);
+            code.u1(value);
+        } else if (value == (short) value) {
+            code.u1(SIPUSH);
+            code.u2(value);
+        } else {
+            code.u1(LDC_W);
+            code.u2(constantPool.integer(value));
+        }
+    }
+
+    private void pushLong(long value) {
+        if (value == 0 || value == 1) {
+            code.u1(LCONST_0 + (int) value);
+        } else {
+            code.u1(LDC2_W);
+            code.u2(constantPool.longValue(value));
+        }
+    }
+
+    private void invokeStatic(String owner, String name, String descriptor) {
+        code.u1(INVOKESTATIC);
+        code.u2(constantPool.methodRef(owner, name, descriptor));
+    }
+
+    private void invokeRun(String name, String descriptor) {
+        code.u1(INVOKEVIRTUAL);
+        code.u2(constantPool.methodRef(RUN_CLASS_NAME, name, descriptor));
+    }
+
+    private void getRunField(String name) {
+        local(ALOAD, RUN_LOCAL);
+        code.u1(GETFIELD);
+        code.u2(constantPool.fieldRef(RUN_CLASS_NAME, name, "I"));
+    }
+
+    // Big-endian bytes of a class file
+    private static final class CodeBuffer {
+
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+
+        int length() {
+            return length;
+        }
+
+        void u1(int value) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * length);
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void u2(int value) {
+            u1(value >>> 8);
+            u1(value);
+        }
+
+        void u4(int value) {
+            u2(value >>> 16);
+            u2(value);
+        }
+
+        void bytes(byte[] values) {
+            for (byte value : values) {
+                u1(value);
+            }
+        }
+
+        void putU2At(int offset, int value) {
+            bytes[offset] = (byte) (value >>> 8);
+            bytes[offset + 1] = (byte) value;
+        }
+
+        // iinc local, 1
+        void iinc(int index) {
+            if (index > 0xFF) {
+                u1(WIDE);
+                u1(IINC);
+                u2(index);
+                u2(1);
+            } else {
+                u1(IINC);
+                u1(index);
+                u1(1);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    // Entries are added once (by their content)
+    private static final class ConstantPool {
+
+        private static final int UTF8 = 1;
+        private static final int INTEGER = 3;
+        private static final int LONG = 5;
+        private static final int CLASS = 7;
+        private static final int FIELD_REF = 9;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final CodeBuffer entries = new CodeBuffer();
+        private final Map<String, Integer> keyToIndex = new HashMap<>();
+        private int nextIndex = 1;
+
+        int utf8(String value) {
+            Integer index = keyToIndex.get("U" + value);
+            if (index != null) {
+                return index;
+            }
+
+            byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);     // Only ASCII names here
+            entries.u1(UTF8);
+            entries.u2(valueBytes.length);
+            entries.bytes(valueBytes);
+            return add("U" + value, 1);
+        }
+
+        int integer(int value) {
+            Integer index = keyToIndex.get("I" + value);
+            if (index != null) {
+                return index;
+            }
+
+            entries.u1(INTEGER);
+            entries.u4(value);
+            return add("I" + value, 1);
+        }
+
+        int longValue(long value) {
+            Integer index = keyToIndex.get("J" + value);
+            if (index != null) {
+                return index;
+            }
+
+            entries.u1(LONG);
+            entries.u4((int) (value >>> 32));
+            entries.u4((int) value);
+            return add("J" + value, 2);         // A long takes two entries
+        }
+
+        int classInfo(String internalName) {
+            Integer index = keyToIndex.get("C" + internalName);
+            if (index != null) {
+                return index;
+            }
+
+            int name = utf8(internalName);
+            entries.u1(CLASS);
+            entries.u2(name);
+            return add("C" + internalName, 1);
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            return memberRef(METHOD_REF, owner, name, descriptor);
+        }
+
+        int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(FIELD_REF, owner, name, descriptor);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            String key = tag + owner + "." + name + descriptor;
+            Integer index = keyToIndex.get(key);
+            if (index != null) {
+                return index;
+            }
+
+            int ownerClass = classInfo(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            entries.u1(tag);
+            entries.u2(ownerClass);
+            entries.u2(nameAndType);
+            return add(key, 1);
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            String key = "N" + name + descriptor;
+            Integer index = keyToIndex.get(key);
+            if (index != null) {
+                return index;
+            }
+
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            entries.u1(NAME_AND_TYPE);
+            entries.u2(nameIndex);
+            entries.u2(descriptorIndex);
+            return add(key, 1);
+        }
+
+        private int add(String key, int size) {
+            int index = nextIndex;
+            keyToIndex.put(key, index);
+            nextIndex += size;
+            return index;
+        }
+
+        void writeTo(CodeBuffer classFile) {
+            classFile.u2(nextIndex);
+            classFile.bytes(entries.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package engine.logic.execution.compiledMode;
+
+// A compiled program as JVM code: implemented by the hidden classes that BytecodeCompiler generates
+interface BytecodeRoutine {
+
+    // Runs the program from its first instruction on 'slots' (written back when it returns or throws)
+    void run(long[] slots, BytecodeRun run);
+}
@@ -0,0 +1,113 @@
+package engine.logic.execution.compiledMode;
+
+import dto.v3.UserDTO;
+import engine.logic.execution.runMode.ProgramExecutor;
+import engine.logic.programData.instruction.synthetic.functionInstructionsUtils.FunctionExecutionResult;
+import engine.user.CreditReservation;
+
+// What the code of a BytecodeRoutine calls during a run: the rare paths of CompiledProgramExecutor.runInstructions
+// (charging a batch of credits, function calls, loops run at once, interrupt checks), so they are charged the same.
+// The generated code keeps the cycles, the pending credits and the credits left in its locals, and passes them here
+final class BytecodeRun {
+
+    private final CompiledProgram compiledProgram;
+    private final ExecutionBackend backend;     // Of the function calls
+    private final UserDTO user;
+    private final CreditReservation credits;
+    private boolean loopsAtOnce = true;
+
+    // Set by the calls below, read by the generated code
+    int pendingCredits = 0;
+    int creditsLeft = 0;
+    int callCycles = 0;
+    int uncountedCycles = 0;        // Of the parts after the one a charge threw on (the generated code counted them)
+
+    // Set when the routine returns or throws
+    int totalCycles = 0;
+
+    BytecodeRun(CompiledProgram compiledProgram, ExecutionBackend backend, UserDTO user) {
+        this.compiledProgram = compiledProgram;
+        this.backend = backend;
+        this.user = user;
+        this.credits = new CreditReservation(user);
+    }
+
+    // The pending credits are more than the credits left: charges them like runInstructions (an optimized instruction
+    // part by part). Returns the credits left, the pending credits that weren't charged are in pendingCredits
+    int charge(int pc, int pending, int instructionCycles, int creditsLeft) {
+        int[] cyclePartsStart = compiledProgram.cyclePartsStart;
+        pendingCredits = 0;
+
+        if (cyclePartsStart != null && cyclePartsStart[pc + 1] - cyclePartsStart[pc] > 1) {
+            int[] cycleParts = compiledProgram.cycleParts;
+            int partsPending = pending - instructionCycles;
+            int partsLeftCycles = instructionCycles;
+            for (int part = cyclePartsStart[pc]; part < cyclePartsStart[pc + 1]; part++) {
+                partsPending += cycleParts[part];
+                partsLeftCycles -= cycleParts[part];
+                if (partsPending > creditsLeft) {
+                    uncountedCycles = partsLeftCycles;
+                    credits.consume(partsPending);
+                    partsPending = 0;
+                    creditsLeft = (int) Math.min(credits.getAvailableCredits(), Integer.MAX_VALUE);
+                }
+            }
+            uncountedCycles = 0;
+            pendingCredits = partsPending;
+        } else {
+            credits.consume(pending);           // Throws if the user ran out of credits
+            creditsLeft = (int) Math.min(credits.getAvailableCredits(), Integer.MAX_VALUE);
+        }
+        return creditsLeft;
+    }
+
+    // A QUOTE / JEF call on the caller's slots: settles the pending credits first (the function charges the user too).
+    // Returns the function result, its cycles are in callCycles
+    long call(int pc, int pending, long[] slots) {
+        credits.consume(pending);
+        credits.settle();
+        FunctionExecutionResult callResult = CompiledProgramExecutor.call(compiledProgram.calls[pc], slots, user, backend);
+        callCycles = callResult.cycles();
+        return callResult.resultValue();
+    }
+
+    // The cycles of the loop of 'pc' when it can run at once, 0 when it runs instruction by instruction - like
+    // runInstructions. Updates creditsLeft (to the given one when nothing was reserved)
+    long loopCycles(int pc, long iterations, int cycles, int pending, int creditsLeft) {
+        LoopIdiom loop = compiledProgram.loops[pc];
+        this.creditsLeft = creditsLeft;
+
+        if (!loopsAtOnce || iterations > (Integer.MAX_VALUE - (long) cycles) / loop.iterationCycles) {
+            return 0;
+        }
+
+        long loopCycles = iterations * loop.iterationCycles;
+        long loopCredits = pending + loopCycles;
+        if (loopCredits > Integer.MAX_VALUE) {
+            return 0;
+        }
+        if (loopCredits > creditsLeft) {
+            if (!credits.tryReserve(loopCredits)) {
+                loopsAtOnce = false;
+                return 0;
+            }
+            this.creditsLeft = (int) Math.min(credits.getAvailableCredits(), Integer.MAX_VALUE);
+        }
+        return loopCycles;
+    }
+
+    void checkInterrupted() {
+        ProgramExecutor.throwIfInterrupted(compiledProgram.getProgram());
+    }
+
+    void finish(int cycles, int pending) {
+        totalCycles = cycles - uncountedCycles;
+        pendingCredits = pending;
+    }
+
+    // After the routine returned or threw
+    void settle() {
+        credits.consume(pendingCredits);            // Not more than the reservation has (checked per instruction)
+        credits.settle();
+    }
+}
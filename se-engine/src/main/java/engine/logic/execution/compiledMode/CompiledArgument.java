@@ -0,0 +1,21 @@
+package engine.logic.execution.compiledMode;
+
+// Argument of a call site: either a slot of the caller or a nested function call
+final class CompiledArgument {
+
+    final int slot;             // -1 for a function argument
+    final CompiledCall call;    // null for a variable argument
+
+    private CompiledArgument(int slot, CompiledCall call) {
+        this.slot = slot;
+        this.call = call;
+    }
+
+    static CompiledArgument ofSlot(int slot) {
+        return new CompiledArgument(slot, null);
+    }
+
+    static CompiledArgument ofCall(CompiledCall call) {
+        return new CompiledArgument(-1, call);
+    }
+}
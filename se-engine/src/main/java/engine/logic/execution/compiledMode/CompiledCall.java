@@ -0,0 +1,18 @@
+package engine.logic.execution.compiledMode;
+
+import engine.logic.programData.program.Program;
+
+// A function call site (QUOTE / JEF instruction, or a function inside the arguments of one)
+final class CompiledCall {
+
+    final String functionName;
+    final Program function;
+    final CompiledArgument[] arguments;
+    CompiledProgram compiledFunction;   // Linked after all the reachable functions are compiled (allows recursion)
+
+    CompiledCall(String functionName, Program function, CompiledArgument[] arguments) {
+        this.functionName = functionName;
+        this.function = function;
+        this.arguments = arguments;
+    }
+}
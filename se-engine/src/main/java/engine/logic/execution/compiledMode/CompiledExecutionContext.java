@@ -0,0 +1,96 @@
+package engine.logic.execution.compiledMode;
+
+import engine.logic.execution.ExecutionContext;
+import engine.logic.programData.program.Program;
+import engine.logic.programData.variable.Variable;
+import engine.logic.programData.variable.VariableType;
+
+import java.util.Arrays;
+
+// An ExecutionContext on the slots of a CompiledProgram, so the same state can be run both by Instruction.execute
+// (one step at a time) and by CompiledProgramExecutor.runInstructions (the debugger's resume)
+public class CompiledExecutionContext implements ExecutionContext {
+
+    private final CompiledProgram compiledProgram;
+    private final long[] slots;
+    private long[] inputs = new long[0];        // Also the inputs that the program doesn't use (they are shown too)
+    private int lastCallCycles = 0;
+
+    public CompiledExecutionContext(CompiledProgram compiledProgram) {
+        this.compiledProgram = compiledProgram;
+        this.slots = new long[compiledProgram.slotsCount];
+    }
+
+    // The program is the compiled one
+    @Override
+    public void initializeVariables(Program program, Long... inputs) {
+        this.inputs = new long[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            this.inputs[i] = (inputs[i] != null) ? inputs[i] : 0L;
+        }
+
+        Arrays.fill(slots, 0L);
+        int[] inputNumberToSlot = compiledProgram.inputNumberToSlot;
+        for (int i = 0; i < this.inputs.length && i < inputNumberToSlot.length; i++) {
+            if (inputNumberToSlot[i] >= 0) {
+                slots[inputNumberToSlot[i]] = this.inputs[i];
+            }
+        }
+    }
+
+    @Override
+    public long getVariableValue(Variable variable) {
+        int slot = slotOf(variable);
+        if (slot >= 0) {
+            return slots[slot];
+        }
+
+        // Input that the program doesn't use
+        if (variable.type() == VariableType.INPUT && variable.number() <= inputs.length) {
+            return inputs[variable.number() - 1];
+        }
+
+        return 0L;
+    }
+
+    @Override
+    public void updateVariable(Variable variable, long value) {
+        int slot = slotOf(variable);
+        if (slot < 0) {
+            throw new IllegalArgumentException("In CompiledExecutionContext: variable " + variable.getRepresentation()
+                    + " isn't a variable of program " + compiledProgram.getProgram().getName());
+        }
+
+        slots[slot] = value;
+    }
+
+    @Override
+    public void setLastCallCycles(int cycles) {
+        this.lastCallCycles = cycles;
+    }
+
+    @Override
+    public int getLastCallCycles() {
+        return lastCallCycles;
+    }
+
+    public CompiledProgram getCompiledProgram() {
+        return compiledProgram;
+    }
+
+    // The live slots (CompiledProgramExecutor.runInstructions runs on them)
+    public long[] getSlots() {
+        return slots;
+    }
+
+    long[] getInputs() {
+        return inputs;
+    }
+
+    private int slotOf(Variable variable) {
+        if (variable.type() == VariableType.RESULT) {
+            return CompiledProgram.RESULT_SLOT;
+        }
+        return compiledProgram.getSlotOfVariable(variable);
+    }
+}
@@ -0,0 +1,156 @@
+package engine.logic.execution.compiledMode;
+
+import engine.logic.programData.program.Program;
+import engine.logic.programData.variable.Variable;
+
+import java.util.List;
+import java.util.Map;
+
+// Flat, slot-indexed form of an expanded program. Built once by ProgramCompiler and shared by all runs
+public final class CompiledProgram {
+
+    // Opcodes
+    static final int NO_OP = 0;
+    static final int INCREASE = 1;
+    static final int DECREASE = 2;
+    static final int JUMP_NOT_ZERO = 3;
+    static final int ZERO_VARIABLE = 4;
+    static final int CONSTANT_ASSIGNMENT = 5;
+    static final int GOTO_LABEL = 6;
+    static final int ASSIGNMENT = 7;
+    static final int JUMP_ZERO = 8;
+    static final int JUMP_EQUAL_CONSTANT = 9;
+    static final int JUMP_EQUAL_VARIABLE = 10;
+    static final int QUOTE = 11;
+    static final int JUMP_EQUAL_FUNCTION = 12;
+    static final int LOOP = 13;                 // Only in an optimized program: the first instruction of a LoopIdiom
+
+    static final int RESULT_SLOT = 0;
+
+    private final Program program;
+
+    // Per instruction (index = position in the instructions list)
+    final int[] opcodes;
+    final int[] targetSlots;
+    final int[] sourceSlots;
+    final long[] constants;
+    final int[] jumpTargets;        // Index of the next instruction when jumping (instructions count = EXIT)
+    final int[] cycles;             // Static cycles (QUOTE / JEF add the function cycles at run time)
+    final CompiledCall[] calls;     // Only for QUOTE / JEF
+
+    // Only in an optimized program (PeepholeOptimizer), null otherwise: the cycles of the original instructions that an
+    // instruction stands for, in order - instruction i has parts cyclePartsStart[i] .. cyclePartsStart[i + 1] - 1
+    final int[] cyclePartsStart;
+    final int[] cycleParts;
+    final LoopIdiom[] loops;        // Of the LOOP instructions (null if there are none)
+
+    // Variables layout
+    final int slotsCount;
+    final int[] inputNumberToSlot;  // index = input serial number - 1, -1 if the program doesn't use this input
+    private final Map<Variable, Integer> variableToSlot;
+    private final List<Variable> inputAndWorkVariablesSorted;   // Same order as Program.getInputAndWorkVariablesSortedBySerial()
+
+    volatile CycleCostEstimate cycleCostEstimate;     // Found on the first call to getCycleCostEstimate
+    private volatile CompiledProgram optimizedProgram;  // Made on the first call to getOptimizedProgram
+    private volatile BytecodeRoutine bytecodeRoutine;   // Made on the first call to getBytecodeRoutine
+    private volatile boolean bytecodeFailed;
+
+    CompiledProgram(Program program,
+                    int[] opcodes, int[] targetSlots, int[] sourceSlots, long[] constants,
+                    int[] jumpTargets, int[] cycles, CompiledCall[] calls,
+                    int slotsCount, int[] inputNumberToSlot,
+                    Map<Variable, Integer> variableToSlot, List<Variable> inputAndWorkVariablesSorted) {
+        this.program = program;
+        this.opcodes = opcodes;
+        this.targetSlots = targetSlots;
+        this.sourceSlots = sourceSlots;
+        this.constants = constants;
+        this.jumpTargets = jumpTargets;
+        this.cycles = cycles;
+        this.calls = calls;
+        this.slotsCount = slotsCount;
+        this.inputNumberToSlot = inputNumberToSlot;
+        this.variableToSlot = variableToSlot;
+        this.inputAndWorkVariablesSorted = inputAndWorkVariablesSorted;
+        this.cyclePartsStart = null;
+        this.cycleParts = null;
+        this.loops = null;
+    }
+
+    // An optimized program: other instructions on the same variables layout as the original
+    CompiledProgram(CompiledProgram original,
+                    int[] opcodes, int[] targetSlots, int[] sourceSlots, long[] constants,
+                    int[] jumpTargets, int[] cycles, CompiledCall[] calls,
+                    int[] cyclePartsStart, int[] cycleParts, LoopIdiom[] loops) {
+        this.program = original.program;
+        this.opcodes = opcodes;
+        this.targetSlots = targetSlots;
+        this.sourceSlots = sourceSlots;
+        this.constants = constants;
+        this.jumpTargets = jumpTargets;
+        this.cycles = cycles;
+        this.calls = calls;
+        this.slotsCount = original.slotsCount;
+        this.inputNumberToSlot = original.inputNumberToSlot;
+        this.variableToSlot = original.variableToSlot;
+        this.inputAndWorkVariablesSorted = original.inputAndWorkVariablesSorted;
+        this.cyclePartsStart = cyclePartsStart;
+        this.cycleParts = cycleParts;
+        this.loops = loops;
+        this.optimizedProgram = this;
+    }
+
+    public Program getProgram() {
+        return program;
+    }
+
+    public int getInstructionsCount() {
+        return opcodes.length;
+    }
+
+    public List<Variable> getInputAndWorkVariablesSorted() {
+        return inputAndWorkVariablesSorted;
+    }
+
+    // Found once (the same estimate may be found twice by concurrent first calls)
+    public CycleCostEstimate getCycleCostEstimate() {
+        CycleCostEstimate estimate = cycleCostEstimate;
+        return (estimate != null) ? estimate : CycleCostEstimator.estimate(this);
+    }
+
+    // The same program with fewer instructions to run (see PeepholeOptimizer), and its counting loops run at once
+    // (LoopIdiom): a run of it ends with the same variables and cycles, and charges the same credits. Its instruction
+    // indexes aren't the program's, so it's only for full runs (the debugger runs the original). Made once
+    public CompiledProgram getOptimizedProgram() {
+        CompiledProgram optimized = optimizedProgram;
+        if (optimized == null) {
+            optimized = PeepholeOptimizer.optimize(this);
+            optimizedProgram = optimized;
+        }
+        return optimized;
+    }
+
+    // The program as a generated JVM class (BytecodeCompiler), or null if it can't be generated - its runs fall back to
+    // the interpreter. Made once (the same class may be made twice by concurrent first calls)
+    BytecodeRoutine getBytecodeRoutine() {
+        BytecodeRoutine routine = bytecodeRoutine;
+        if (routine == null && !bytecodeFailed) {
+            routine = BytecodeCompiler.compile(this);
+            if (routine != null) {
+                bytecodeRoutine = routine;
+            } else {
+                bytecodeFailed = true;
+            }
+        }
+        return routine;
+    }
+
+    public boolean isOptimized() {
+        return cycleParts != null;
+    }
+
+    // Returns -1 if the variable isn't used by the program
+    public int getSlotOfVariable(Variable variable) {
+        return variableToSlot.getOrDefault(variable, -1);
+    }
+}
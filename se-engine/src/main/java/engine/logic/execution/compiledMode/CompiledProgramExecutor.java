@@ -0,0 +1,428 @@
+package engine.logic.execution.compiledMode;
+
+import dto.v3.UserDTO;
+import engine.logic.execution.ExecutionContext;
+import engine.logic.execution.FunctionCallCache;
+import engine.logic.execution.runMode.ProgramExecutor;
+import engine.logic.programData.architecture.ArchitectureType;
+import engine.logic.programData.instruction.synthetic.functionInstructionsUtils.FunctionExecutionResult;
+import engine.logic.programData.program.Program;
+import engine.logic.programData.variable.Variable;
+import engine.logic.programData.variable.VariableImpl;
+import engine.logic.programData.variable.VariableType;
+import engine.user.CreditReservation;
+
+import java.util.*;
+
+import static engine.logic.execution.compiledMode.CompiledProgram.*;
+
+// Runs a CompiledProgram on a long[] of slots instead of a Map<Variable, Long> context.
+// Cycles and credits are charged exactly like ProgramExecutorImpl: the credits are charged in batches from a
+// CreditReservation, a batch is charged as soon as it's more than the reservation has left (which takes another block),
+// and the reservation is settled before every function call - so the run stops on the same instruction, with the same
+// credits, as when charging per instruction. An optimized program (CompiledProgram.getOptimizedProgram) is charged the
+// same way, per original instruction, and runs its counting loops (LoopIdiom) at once when the user has the credits of
+// the whole loop - otherwise it runs them instruction by instruction, so it stops where the original run would.
+// With ExecutionBackend.BYTECODE a full run runs the generated class of the program (BytecodeCompiler) instead,
+// charged the same way (and the functions it calls too); the interpreter when the class can't be generated
+public class CompiledProgramExecutor implements ProgramExecutor {
+
+    private final CompiledProgram compiledProgram;
+    private final ArchitectureType architectureTypeSelected;
+    private final ExecutionBackend backend;
+    private long[] slots;
+    private long[] inputs = new long[0];
+    private List<Long> inputsValues;
+    private int runDegree = 0;
+    private int totalCycles = 0;
+    private int lastExecutedIndex = -1;
+    private int stoppedAtIndex = 0;
+    private long executedInstructionsCount = 0;
+
+    public CompiledProgramExecutor(CompiledProgram compiledProgram, ArchitectureType architectureTypeSelected) {
+        this(compiledProgram, architectureTypeSelected, ExecutionBackend.INTERPRETER);
+    }
+
+    public CompiledProgramExecutor(CompiledProgram compiledProgram, ArchitectureType architectureTypeSelected, ExecutionBackend backend) {
+        this.compiledProgram = compiledProgram;
+        this.architectureTypeSelected = architectureTypeSelected;
+        this.backend = backend;
+        this.slots = new long[compiledProgram.slotsCount];
+        this.inputsValues = new ArrayList<>();
+    }
+
+    @Override
+    public void run(UserDTO userDTO, int runDegree, Long... inputs) {
+        long[] inputValues = new long[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            inputValues[i] = (inputs[i] != null) ? inputs[i] : 0L;
+        }
+
+        this.inputsValues = List.of(inputs);
+        this.runDegree = runDegree;
+        execute(userDTO, inputValues);
+    }
+
+    private void execute(UserDTO userDTO, long[] inputValues) {
+        CompiledProgram compiled = this.compiledProgram;
+        long[] slots = new long[compiled.slotsCount];
+        int[] inputNumberToSlot = compiled.inputNumberToSlot;
+        for (int i = 0; i < inputValues.length && i < inputNumberToSlot.length; i++) {
+            if (inputNumberToSlot[i] >= 0) {
+                slots[inputNumberToSlot[i]] = inputValues[i];
+            }
+        }
+
+        this.inputs = inputValues;
+        this.slots = slots;
+        this.totalCycles = 0;
+
+        BytecodeRoutine routine = (backend == ExecutionBackend.BYTECODE) ? compiled.getBytecodeRoutine() : null;
+        if (routine != null) {
+            runRoutine(routine, slots, userDTO);
+        } else {
+            runInstructions(slots, 0, null, userDTO);
+        }
+
+        if (architectureTypeSelected != null) {     // Inner function calls (no architecture) are charged to their caller only
+            compiledProgram.getProgram().addCreditCost(totalCycles);
+        }
+    }
+
+    // A full run of the generated class (getExecutedInstructionsCount isn't counted)
+    private void runRoutine(BytecodeRoutine routine, long[] slots, UserDTO userDTO) {
+        BytecodeRun run = new BytecodeRun(compiledProgram, backend, userDTO);
+        try {
+            routine.run(slots, run);
+        } finally {
+            this.totalCycles = run.totalCycles;
+            run.settle();
+        }
+    }
+
+    // Runs the instructions on 'slots' from 'pc' until the end of the program, or until an instruction in 'stopAt'
+    // (that isn't executed; null - no stops). Used by the debugger too, on the slots of its CompiledExecutionContext.
+    // The cycles are added to the total cycles. After it returns (or throws): getStoppedAtIndex - the instruction to run
+    // next (the instructions count at the end), getLastExecutedIndex - the last instruction this call ran (-1: none)
+    public void runInstructions(long[] slots, int pc, BitSet stopAt, UserDTO userDTO) {
+        runInstructions(slots, pc, stopAt, Long.MAX_VALUE, userDTO);
+    }
+
+    // Like runInstructions, but also stops after 'maxInstructions' instructions (the debugger's step budget).
+    // getExecutedInstructionsCount - how many instructions this call ran
+    public void runInstructions(long[] slots, int pc, BitSet stopAt, long maxInstructions, UserDTO userDTO) {
+        CompiledProgram compiled = this.compiledProgram;
+        int[] opcodes = compiled.opcodes;
+        int[] targetSlots = compiled.targetSlots;
+        int[] sourceSlots = compiled.sourceSlots;
+        long[] constants = compiled.constants;
+        int[] jumpTargets = compiled.jumpTargets;
+        int[] staticCycles = compiled.cycles;
+        int[] cyclePartsStart = compiled.cyclePartsStart;
+        int[] cycleParts = compiled.cycleParts;
+        LoopIdiom[] loops = compiled.loops;
+        int instructionsCount = opcodes.length;
+
+        int cycles = totalCycles;
+        CreditReservation credits = new CreditReservation(userDTO);
+        int creditsLeft = 0;            // In the reservation, before the pending credits (at most a block)
+        int pendingCredits = 0;
+        long executedInstructions = 0;
+        int lastExecuted = -1;
+        boolean loopsAtOnce = true;     // Until the user doesn't have the credits of a whole loop
+
+        try {
+            while (pc < instructionsCount && (stopAt == null || !stopAt.get(pc)) && executedInstructions < maxInstructions) {
+                if ((++executedInstructions & (INTERRUPT_CHECK_INTERVAL - 1)) == 0) {
+                    ProgramExecutor.throwIfInterrupted(compiled.getProgram());
+                }
+
+                int target = targetSlots[pc];
+                int instructionCycles = staticCycles[pc];
+                int nextPc = pc + 1;
+
+                switch (opcodes[pc]) {
+                    case NO_OP -> { }
+                    case INCREASE -> slots[target]++;
+                    case DECREASE -> slots[target] = Math.max(slots[target] - 1, 0);
+                    case JUMP_NOT_ZERO -> {
+                        if (slots[target] != 0) nextPc = jumpTargets[pc];
+                    }
+                    case ZERO_VARIABLE -> slots[target] = 0;
+                    case CONSTANT_ASSIGNMENT -> slots[target] = constants[pc];
+                    case GOTO_LABEL -> nextPc = jumpTargets[pc];
+                    case ASSIGNMENT -> slots[target] = slots[sourceSlots[pc]];
+                    case JUMP_ZERO -> {
+                        if (slots[target] == 0) nextPc = jumpTargets[pc];
+                    }
+                    case JUMP_EQUAL_CONSTANT -> {
+                        if (slots[target] == constants[pc]) nextPc = jumpTargets[pc];
+                    }
+                    case JUMP_EQUAL_VARIABLE -> {
+                        if (slots[target] == slots[sourceSlots[pc]]) nextPc = jumpTargets[pc];
+                    }
+                    case QUOTE -> {
+                        int pending = pendingCredits;       // The function charges the user too - settle what was before it
+                        pendingCredits = 0;
+                        creditsLeft = 0;
+                        credits.consume(pending);
+                        credits.settle();
+                        FunctionExecutionResult callResult = call(compiled.calls[pc], slots, userDTO, backend);
+                        slots[target] = callResult.resultValue();
+                        instructionCycles += callResult.cycles();
+                    }
+                    case JUMP_EQUAL_FUNCTION -> {
+                        int pending = pendingCredits;
+                        pendingCredits = 0;
+                        creditsLeft = 0;
+                        credits.consume(pending);
+                        credits.settle();
+                        long targetValue = slots[target];
+                        FunctionExecutionResult callResult = call(compiled.calls[pc], slots, userDTO, backend);
+                        instructionCycles += callResult.cycles();
+                        if (targetValue == callResult.resultValue()) nextPc = jumpTargets[pc];
+                    }
+                    case LOOP -> {
+                        LoopIdiom loop = loops[pc];
+                        long iterations = loop.getIterations(slots);
+                        long loopCycles = 0;
+
+                        if (loopsAtOnce && iterations <= (Integer.MAX_VALUE - (long) cycles) / loop.iterationCycles) {
+                            loopCycles = iterations * loop.iterationCycles;
+                            long loopCredits = pendingCredits + loopCycles;
+
+                            // Charged below with the cycles, in one batch - only if the reservation has all of them
+                            if (loopCredits > Integer.MAX_VALUE) {
+                                loopCycles = 0;
+                            } else if (loopCredits > creditsLeft) {
+                                if (credits.tryReserve(loopCredits)) {
+                                    creditsLeft = (int) Math.min(credits.getAvailableCredits(), Integer.MAX_VALUE);
+                                } else {
+                                    loopsAtOnce = false;
+                                    loopCycles = 0;
+                                }
+                            }
+                        }
+
+                        if (loopCycles > 0) {
+                            loop.run(slots, iterations);
+                            instructionCycles = (int) loopCycles;
+                            nextPc = loop.exitIndex;
+                            executedInstructions += iterations * loop.iterationInstructions - 1;
+                        } else {
+                            // Only the first instruction of the loop, like the original
+                            switch (loop.firstOpcode) {
+                                case INCREASE -> slots[target]++;
+                                case DECREASE -> slots[target] = Math.max(slots[target] - 1, 0);
+                                default -> { }
+                            }
+                        }
+                    }
+                    default -> throw new IllegalStateException("In CompiledProgramExecutor: Unknown opcode: " + opcodes[pc]);
+                }
+
+                // Cycles update:
+                cycles += instructionCycles;
+                pendingCredits += instructionCycles;
+                if (pendingCredits > creditsLeft) {
+                    if (cyclePartsStart != null && cyclePartsStart[pc + 1] - cyclePartsStart[pc] > 1) {
+                        // An optimized instruction: charge its original instructions one by one, like the original run
+                        // (a run that stops on a part has the cycles up to it)
+                        int pending = pendingCredits - instructionCycles;
+                        cycles -= instructionCycles;
+                        for (int part = cyclePartsStart[pc]; part < cyclePartsStart[pc + 1]; part++) {
+                            pending += cycleParts[part];
+                            cycles += cycleParts[part];
+                            if (pending > creditsLeft) {
+                                pendingCredits = 0;
+                                credits.consume(pending);
+                                pending = 0;
+                                creditsLeft = (int) Math.min(credits.getAvailableCredits(), Integer.MAX_VALUE);
+                            }
+                        }
+                        pendingCredits = pending;
+                    } else {
+                        int pending = pendingCredits;
+                        pendingCredits = 0;
+                        credits.consume(pending);           // Throws if the user ran out of credits
+                        creditsLeft = (int) Math.min(credits.getAvailableCredits(), Integer.MAX_VALUE);
+                    }
+                }
+
+                lastExecuted = pc;
+                pc = nextPc;
+            }
+        } finally {
+            this.totalCycles = cycles;
+            this.lastExecutedIndex = lastExecuted;
+            this.stoppedAtIndex = pc;
+            this.executedInstructionsCount = executedInstructions;
+            credits.consume(pendingCredits);            // Not more than the reservation has (checked per instruction)
+            credits.settle();
+        }
+    }
+
+    public int getLastExecutedIndex() {
+        return lastExecutedIndex;
+    }
+
+    public int getStoppedAtIndex() {
+        return stoppedAtIndex;
+    }
+
+    public long getExecutedInstructionsCount() {
+        return executedInstructionsCount;
+    }
+
+    // Returns the function result and its cycles: function run + direct function arguments runs
+    // (like FunctionInstructionUtils - the cycles of the arguments of a function argument aren't counted)
+    static FunctionExecutionResult call(CompiledCall call, long[] callerSlots, UserDTO userDTO, ExecutionBackend backend) {
+        return invoke(call, callerSlots, userDTO, backend, true);
+    }
+
+    private static FunctionExecutionResult invoke(CompiledCall call, long[] callerSlots, UserDTO userDTO, ExecutionBackend backend,
+                                                  boolean countArgumentsCycles) {
+        CompiledArgument[] arguments = call.arguments;
+        long[] argumentValues = new long[arguments.length];
+        int argumentsCycles = 0;
+
+        for (int i = 0; i < arguments.length; i++) {
+            CompiledArgument argument = arguments[i];
+
+            if (argument.call == null) {
+                argumentValues[i] = callerSlots[argument.slot];
+            } else {
+                FunctionExecutionResult argumentResult = invoke(argument.call, callerSlots, userDTO, backend, false);
+                argumentValues[i] = argumentResult.resultValue();
+                argumentsCycles += argumentResult.cycles();
+            }
+        }
+
+        FunctionCallCache functionCallCache = call.function.getProgramsHolder().getFunctionCallCache();
+        FunctionExecutionResult functionResult = functionCallCache.call(call.function.getName(), argumentValues, userDTO, user -> {
+            CompiledProgramExecutor functionExecutor = new CompiledProgramExecutor(call.compiledFunction, null, backend);
+            functionExecutor.execute(user, argumentValues);
+            return new FunctionExecutionResult(functionExecutor.slots[RESULT_SLOT], functionExecutor.totalCycles);
+        });
+
+        int cycles = functionResult.cycles() + (countArgumentsCycles ? argumentsCycles : 0);
+        return new FunctionExecutionResult(functionResult.resultValue(), cycles);
+    }
+
+    @Override
+    public Program getProgram() {
+        return compiledProgram.getProgram();
+    }
+
+    @Override
+    public long getVariableValue(Variable variable) {
+        if (variable.type() == VariableType.RESULT) {
+            return slots[RESULT_SLOT];
+        }
+
+        int slot = compiledProgram.getSlotOfVariable(variable);
+        if (slot >= 0) {
+            return slots[slot];
+        }
+
+        // Input that the program doesn't use
+        if (variable.type() == VariableType.INPUT && variable.number() <= inputs.length) {
+            return inputs[variable.number() - 1];
+        }
+
+        return 0L;
+    }
+
+    @Override
+    public int getRunDegree() {
+        return runDegree;
+    }
+
+    @Override
+    public List<Long> getInputsValuesOfUser() {
+        return inputsValues;
+    }
+
+    @Override
+    public int getTotalCycles() {
+        return totalCycles;
+    }
+
+    @Override
+    public Map<String, Long> getVariablesToValuesSorted() {
+        Map<String, Long> variablesToValuesSorted = new LinkedHashMap<>();
+        variablesToValuesSorted.put(VariableType.RESULT.getVariableRepresentation(0), slots[RESULT_SLOT]);
+
+        // Inputs given by the user but not used by the program are shown too (like ProgramExecutorImpl)
+        List<Variable> inputVariables = new ArrayList<>();
+        List<Variable> workVariables = new ArrayList<>();
+        for (Variable variable : compiledProgram.getInputAndWorkVariablesSorted()) {
+            (variable.type() == VariableType.INPUT ? inputVariables : workVariables).add(variable);
+        }
+
+        Set<Integer> knownInputNumbers = new HashSet<>();
+        inputVariables.forEach(variable -> knownInputNumbers.add(variable.number()));
+        for (int i = 1; i <= inputs.length; i++) {
+            if (!knownInputNumbers.contains(i)) {
+                inputVariables.add(new VariableImpl(VariableType.INPUT, i));
+            }
+        }
+        inputVariables.sort(Comparator.comparingInt(Variable::number));
+
+        for (Variable variable : inputVariables) {
+            variablesToValuesSorted.put(variable.getRepresentation(), getVariableValue(variable));
+        }
+
+        for (Variable variable : workVariables) {
+            variablesToValuesSorted.put(variable.getRepresentation(), getVariableValue(variable));
+        }
+
+        return variablesToValuesSorted;
+    }
+
+    @Override
+    public ArchitectureType getArchitectureTypeSelected() {
+        return architectureTypeSelected;
+    }
+
+    @Override
+    public void setRunDegree(int runDegree) {
+        this.runDegree = runDegree;
+    }
+
+    @Override
+    public void setTotalCycles(int totalCycles) {
+        this.totalCycles = totalCycles;
+    }
+
+    // The variables are taken from the context: the slots of a CompiledExecutionContext of this program are shared (like
+    // ProgramExecutorImpl shares the context), the values of the program's variables in any other context are copied
+    @Override
+    public void setExecutionContext(ExecutionContext executionContext) {
+        if (executionContext instanceof CompiledExecutionContext compiledContext
+                && compiledContext.getCompiledProgram() == compiledProgram) {
+            this.slots = compiledContext.getSlots();
+            this.inputs = compiledContext.getInputs();
+            return;
+        }
+
+        long[] slots = new long[compiledProgram.slotsCount];
+        slots[RESULT_SLOT] = executionContext.getVariableValue(Variable.RESULT);
+        for (Variable variable : compiledProgram.getInputAndWorkVariablesSorted()) {
+            slots[compiledProgram.getSlotOfVariable(variable)] = executionContext.getVariableValue(variable);
+        }
+
+        int[] inputNumberToSlot = compiledProgram.inputNumberToSlot;
+        long[] inputs = new long[inputNumberToSlot.length];       // The program's inputs only
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = (inputNumberToSlot[i] >= 0) ? slots[inputNumberToSlot[i]] : 0L;
+        }
+        this.slots = slots;
+        this.inputs = inputs;
+    }
+
+    @Override
+    public void setInputsValues(List<Long> inputsValues) {
+        this.inputsValues = inputsValues;
+    }
+}
@@ -0,0 +1,114 @@
+package engine.logic.execution.compiledMode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// What a run of a compiled program costs, found without running it (CycleCostEstimator):
+// - minCycles / maxCycles: over all the paths from the first instruction to the end. When the program has no loops
+//   (functions included) maxCycles is finite, and the run costs exactly minCycles when they are equal
+// - loopBounds: loops that run at least once per unit of an input (e.g. "x1 <- x1 - 1 ... IF x1 != 0 GOTO"),
+//   so the lower bound grows with the inputs: getMinCycles(inputs)
+// The bounds are of the total cycles of the run. Every cycle is charged as a credit, so they are credit bounds too
+// (without the architecture cost)
+public final class CycleCostEstimate {
+
+    public static final long UNBOUNDED = Long.MAX_VALUE;     // Of maxCycles with loops, and of minCycles when the run can't end
+
+    // A loop (loopNumber) that runs 'cyclesPerIteration' per unit of the input, and 'lastIterationCycles' on the last one:
+    // at least (x - 1) * cyclesPerIteration + lastIterationCycles cycles for an input x > 0. Bounds of different loops
+    // add up (a run spends them on different instructions), bounds of the same loop don't (the greater one holds)
+    public record LoopBound(int loopNumber, int inputNumber, long cyclesPerIteration, long lastIterationCycles) {
+
+        long getMinCycles(long inputValue) {
+            if (inputValue <= 0) {
+                return 0;
+            }
+            return saturatedAdd(saturatedMultiply(inputValue - 1, cyclesPerIteration), lastIterationCycles);
+        }
+    }
+
+    private final long minCycles;
+    private final long maxCycles;
+    private final List<LoopBound> loopBounds;
+
+    CycleCostEstimate(long minCycles, long maxCycles, List<LoopBound> loopBounds) {
+        this.minCycles = minCycles;
+        this.maxCycles = maxCycles;
+        this.loopBounds = List.copyOf(loopBounds);
+    }
+
+    // Whatever the inputs are
+    public long getMinCycles() {
+        return minCycles;
+    }
+
+    public long getMaxCycles() {
+        return maxCycles;
+    }
+
+    public boolean isExact() {
+        return minCycles == maxCycles;
+    }
+
+    public List<LoopBound> getLoopBounds() {
+        return loopBounds;
+    }
+
+    // A lower bound of the cycles of a run on these inputs (null inputs are 0, like in a run)
+    public long getMinCycles(Long... inputs) {
+        Map<Integer, Long> loopNumberToMinCycles = new HashMap<>();
+        for (LoopBound loopBound : loopBounds) {
+            int inputIndex = loopBound.inputNumber() - 1;
+            long inputValue = (inputIndex < inputs.length && inputs[inputIndex] != null) ? inputs[inputIndex] : 0L;
+            loopNumberToMinCycles.merge(loopBound.loopNumber(), loopBound.getMinCycles(inputValue), Math::max);
+        }
+
+        long loopsMinCycles = 0;
+        for (long loopMinCycles : loopNumberToMinCycles.values()) {
+            loopsMinCycles = saturatedAdd(loopsMinCycles, loopMinCycles);
+        }
+
+        return Math.max(minCycles, loopsMinCycles);
+    }
+
+    // E.g. "cycles >= max(12, 4*(x1-1)+1)" or "cycles = 7"
+    @Override
+    public String toString() {
+        if (isExact()) {
+            return "cycles = " + minCycles;
+        }
+
+        StringBuilder description = new StringBuilder("cycles >= ");
+        if (loopBounds.isEmpty()) {
+            description.append(minCycles == UNBOUNDED ? "unbounded" : minCycles);
+        } else {
+            description.append("max(").append(minCycles).append(", ");
+            for (int i = 0; i < loopBounds.size(); i++) {
+                LoopBound loopBound = loopBounds.get(i);
+                if (i > 0) {
+                    description.append(loopBound.loopNumber() == loopBounds.get(i - 1).loopNumber() ? " | " : " + ");
+                }
+                description.append(loopBound.cyclesPerIteration()).append("*(x").append(loopBound.inputNumber())
+                        .append("-1)+").append(loopBound.lastIterationCycles());
+            }
+            description.append(')');
+        }
+
+        if (maxCycles != UNBOUNDED) {
+            description.append(", <= ").append(maxCycles);
+        }
+        return description.toString();
+    }
+
+    static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return (((a ^ sum) & (b ^ sum)) < 0) ? UNBOUNDED : sum;    // Only non-negative values are added
+    }
+
+    static long saturatedMultiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long product = a * b;
+        return (high != 0 || product < 0) ? UNBOUNDED : product;
+    }
+}
@@ -0,0 +1,554 @@
+package engine.logic.execution.compiledMode;
+
+import java.util.*;
+
+import static engine.logic.execution.compiledMode.CompiledProgram.*;
+import static engine.logic.execution.compiledMode.CycleCostEstimate.*;
+
+// Finds the CycleCostEstimate of a compiled program on its control flow graph: the instructions are the nodes (a node
+// costs its cycles, a function call also the bounds of the function), and node 'instructions count' is the end.
+// - minCycles is the cheapest path to the end (Dijkstra), maxCycles the most expensive one (only when there are no loops)
+// - The loops are the strongly connected components (Tarjan). A loop is counted by input x when a variable v of it:
+//   1. Is only decreased inside the loop (by 'v <- v - 1'), and the loop is only left on a "v = 0" edge
+//   2. Holds x on every edge into the loop (a forward analysis of which input each variable holds)
+//   3. The end can't be reached without passing the loop, other than on a "v = 0" edge while v still holds x
+//   Then a run with x > 0 decreases v x times in the loop, and between two decreases it goes around the loop - at least
+//   the cheapest path from a decrease to a decrease (the cycles per iteration)
+final class CycleCostEstimator {
+
+    private static final CycleCostEstimate RECURSIVE_CALL = new CycleCostEstimate(0, UNBOUNDED, List.of());
+    private static final int NO_JUMP = -1;
+
+    private final Set<CompiledProgram> programsInProgress = new HashSet<>();
+
+    private CycleCostEstimator() {
+    }
+
+    // Also estimates (and keeps in their CompiledProgram) the functions the program calls
+    static CycleCostEstimate estimate(CompiledProgram compiledProgram) {
+        return new CycleCostEstimator().estimateOf(compiledProgram);
+    }
+
+    private CycleCostEstimate estimateOf(CompiledProgram compiledProgram) {
+        CycleCostEstimate estimate = compiledProgram.cycleCostEstimate;
+        if (estimate != null) {
+            return estimate;
+        }
+
+        if (!programsInProgress.add(compiledProgram)) {
+            return RECURSIVE_CALL;      // Not expected (recursive functions are rejected on load), but can't loop here
+        }
+
+        try {
+            estimate = new ProgramAnalysis(compiledProgram).estimate();
+            compiledProgram.cycleCostEstimate = estimate;
+            return estimate;
+        } finally {
+            programsInProgress.remove(compiledProgram);
+        }
+    }
+
+    // Cycles of a call: the function run + the direct function arguments runs (like CompiledProgramExecutor.call)
+    private long callCycles(CompiledCall call, boolean max) {
+        long cycles = cyclesOf(call.compiledFunction, max);
+        for (CompiledArgument argument : call.arguments) {
+            if (argument.call != null) {
+                cycles = saturatedAdd(cycles, cyclesOf(argument.call.compiledFunction, max));
+            }
+        }
+        return cycles;
+    }
+
+    private long cyclesOf(CompiledProgram function, boolean max) {
+        CycleCostEstimate functionEstimate = estimateOf(function);
+        return max ? functionEstimate.getMaxCycles() : functionEstimate.getMinCycles();
+    }
+
+    private final class ProgramAnalysis {
+
+        private final CompiledProgram compiled;
+        private final int end;                  // The instructions count
+        private final int[][] successors;       // May include 'end'
+        private final int[] jumps;              // The jump successor of a conditional jump (NO_JUMP if it's also the next one)
+        private final long[] minCosts;
+        private final long[] maxCosts;
+        private final boolean[] reachable;
+
+        // Loops (Tarjan):
+        private final int[] componentOf;        // -1 for unreachable instructions
+        private final boolean[] isLoopComponent;
+
+        ProgramAnalysis(CompiledProgram compiled) {
+            this.compiled = compiled;
+            this.end = compiled.getInstructionsCount();
+            this.successors = new int[end][];
+            this.jumps = new int[end];
+            this.minCosts = new long[end];
+            this.maxCosts = new long[end];
+
+            for (int i = 0; i < end; i++) {
+                int jumpTarget = compiled.jumpTargets[i];
+                jumps[i] = NO_JUMP;
+
+                switch (compiled.opcodes[i]) {
+                    case GOTO_LABEL -> successors[i] = new int[] {jumpTarget};
+                    case JUMP_NOT_ZERO, JUMP_ZERO, JUMP_EQUAL_CONSTANT, JUMP_EQUAL_VARIABLE, JUMP_EQUAL_FUNCTION -> {
+                        if (jumpTarget == i + 1) {
+                            successors[i] = new int[] {i + 1};
+                        } else {
+                            successors[i] = new int[] {i + 1, jumpTarget};
+                            jumps[i] = jumpTarget;
+                        }
+                    }
+                    default -> successors[i] = new int[] {i + 1};
+                }
+
+                minCosts[i] = compiled.cycles[i];
+                maxCosts[i] = compiled.cycles[i];
+                if (compiled.calls[i] != null) {
+                    minCosts[i] = saturatedAdd(minCosts[i], callCycles(compiled.calls[i], false));
+                    maxCosts[i] = saturatedAdd(maxCosts[i], callCycles(compiled.calls[i], true));
+                }
+            }
+
+            this.reachable = findReachable(-1, -1, 0, null);
+            this.componentOf = new int[end];
+            Arrays.fill(componentOf, -1);
+            this.isLoopComponent = findComponents();
+        }
+
+        CycleCostEstimate estimate() {
+            long minCycles = findCheapestPathToEnd();
+            long maxCycles = hasLoops() ? UNBOUNDED : findMostExpensivePathToEnd();
+
+            List<LoopBound> loopBounds = new ArrayList<>();
+            if (hasLoops() && minCycles != UNBOUNDED) {
+                findLoopBounds(loopBounds);
+            }
+
+            return new CycleCostEstimate(minCycles, maxCycles, loopBounds);
+        }
+
+        private boolean hasLoops() {
+            for (boolean isLoop : isLoopComponent) {
+                if (isLoop) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Node weights are the costs of the instructions left (the end costs nothing)
+        private long findCheapestPathToEnd() {
+            long[] distances = new long[end + 1];
+            Arrays.fill(distances, UNBOUNDED);
+            distances[0] = 0;
+
+            PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[0]));
+            queue.add(new long[] {0, 0});
+
+            while (!queue.isEmpty()) {
+                long[] entry = queue.poll();
+                int node = (int) entry[1];
+                if (entry[0] > distances[node]) {
+                    continue;
+                }
+                if (node == end) {
+                    return entry[0];
+                }
+
+                for (int successor : successors[node]) {
+                    long distance = saturatedAdd(entry[0], minCosts[node]);
+                    if (distance < distances[successor]) {
+                        distances[successor] = distance;
+                        queue.add(new long[] {distance, successor});
+                    }
+                }
+            }
+
+            return UNBOUNDED;       // The end can't be reached - the run never ends
+        }
+
+        // Without loops every component is one instruction, and Tarjan finds them successors first
+        private long findMostExpensivePathToEnd() {
+            long[] mostExpensiveToEnd = new long[end + 1];
+            for (int node : instructionsInComponentOrder()) {
+                long mostExpensiveSuccessor = 0;
+                for (int successor : successors[node]) {
+                    mostExpensiveSuccessor = Math.max(mostExpensiveSuccessor, mostExpensiveToEnd[successor]);
+                }
+                mostExpensiveToEnd[node] = saturatedAdd(maxCosts[node], mostExpensiveSuccessor);
+            }
+
+            return mostExpensiveToEnd[0];
+        }
+
+        private int[] instructionsInComponentOrder() {
+            int reachableCount = 0;
+            for (int component : componentOf) {
+                reachableCount += (component >= 0) ? 1 : 0;
+            }
+
+            int[] order = new int[reachableCount];
+            for (int node = 0; node < end; node++) {
+                if (componentOf[node] >= 0) {
+                    order[componentOf[node]] = node;
+                }
+            }
+            return order;
+        }
+
+        // Iterative Tarjan from the first instruction. Returns per component whether it's a loop
+        private boolean[] findComponents() {
+            if (end == 0) {
+                return new boolean[0];
+            }
+
+            int[] indexes = new int[end];
+            int[] lowLinks = new int[end];
+            int[] nextSuccessor = new int[end];
+            boolean[] onStack = new boolean[end];
+            int[] stack = new int[end];
+            int[] callStack = new int[end];
+            Arrays.fill(indexes, -1);
+
+            List<Boolean> isLoop = new ArrayList<>();
+            int stackSize = 0;
+            int callDepth = 0;
+            int nextIndex = 0;
+
+            indexes[0] = lowLinks[0] = nextIndex++;
+            stack[stackSize++] = 0;
+            onStack[0] = true;
+            callStack[callDepth++] = 0;
+
+            while (callDepth > 0) {
+                int node = callStack[callDepth - 1];
+
+                if (nextSuccessor[node] < successors[node].length) {
+                    int successor = successors[node][nextSuccessor[node]++];
+                    if (successor == end) {
+                        continue;
+                    }
+
+                    if (indexes[successor] < 0) {
+                        indexes[successor] = lowLinks[successor] = nextIndex++;
+                        stack[stackSize++] = successor;
+                        onStack[successor] = true;
+                        callStack[callDepth++] = successor;
+                    } else if (onStack[successor]) {
+                        lowLinks[node] = Math.min(lowLinks[node], indexes[successor]);
+                    }
+                    continue;
+                }
+
+                callDepth--;
+                if (callDepth > 0) {
+                    int parent = callStack[callDepth - 1];
+                    lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[node]);
+                }
+
+                if (lowLinks[node] == indexes[node]) {
+                    int component = isLoop.size();
+                    int member;
+                    int size = 0;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        componentOf[member] = component;
+                        size++;
+                    } while (member != node);
+
+                    boolean selfLoop = false;
+                    for (int successor : successors[node]) {
+                        selfLoop |= (successor == node);
+                    }
+                    isLoop.add(size > 1 || selfLoop);
+                }
+            }
+
+            boolean[] isLoopComponent = new boolean[isLoop.size()];
+            for (int component = 0; component < isLoopComponent.length; component++) {
+                isLoopComponent[component] = isLoop.get(component);
+            }
+            return isLoopComponent;
+        }
+
+        private void findLoopBounds(List<LoopBound> loopBounds) {
+            // Candidate counters: the decreased variables of each loop
+            Map<Integer, Set<Integer>> componentToCounterSlots = new TreeMap<>();
+            Set<Integer> trackedSlots = new HashSet<>();
+            for (int node = 0; node < end; node++) {
+                int component = componentOf[node];
+                if (component >= 0 && isLoopComponent[component] && compiled.opcodes[node] == DECREASE) {
+                    componentToCounterSlots.computeIfAbsent(component, k -> new TreeSet<>()).add(compiled.targetSlots[node]);
+                    trackedSlots.add(compiled.targetSlots[node]);
+                }
+            }
+            if (componentToCounterSlots.isEmpty()) {
+                return;
+            }
+
+            for (int inputSlot : compiled.inputNumberToSlot) {
+                if (inputSlot >= 0) {
+                    trackedSlots.add(inputSlot);        // A counter may be a copy of an input
+                }
+            }
+
+            InputsHeld inputsHeld = new InputsHeld(trackedSlots);
+
+            for (Map.Entry<Integer, Set<Integer>> entry : componentToCounterSlots.entrySet()) {
+                int component = entry.getKey();
+                for (int counterSlot : entry.getValue()) {
+                    LoopBound loopBound = findLoopBound(component, counterSlot, inputsHeld);
+                    if (loopBound != null) {
+                        loopBounds.add(loopBound);
+                    }
+                }
+            }
+        }
+
+        // Null if the loop isn't counted by this variable
+        private LoopBound findLoopBound(int component, int counterSlot, InputsHeld inputsHeld) {
+            int inputNumber = -1;
+            if (componentOf[0] == component) {
+                inputNumber = inputsHeld.getEntryInput(counterSlot);
+                if (inputNumber <= 0) {
+                    return null;
+                }
+            }
+
+            for (int node = 0; node < end; node++) {
+                if (componentOf[node] == component) {
+                    if (writes(node, counterSlot) && compiled.opcodes[node] != DECREASE) {
+                        return null;
+                    }
+                    for (int successor : successors[node]) {
+                        if ((successor == end || componentOf[successor] != component) && !isZeroEdge(node, successor, counterSlot)) {
+                            return null;        // Can leave the loop while the counter isn't 0
+                        }
+                    }
+                } else if (reachable[node]) {
+                    for (int successor : successors[node]) {
+                        if (successor != end && componentOf[successor] == component) {
+                            int enteringInput = inputsHeld.getInputAfter(node, counterSlot);
+                            if (enteringInput <= 0 || (inputNumber > 0 && enteringInput != inputNumber)) {
+                                return null;
+                            }
+                            inputNumber = enteringInput;
+                        }
+                    }
+                }
+            }
+
+            if (inputNumber <= 0 || findReachable(component, counterSlot, inputNumber, inputsHeld)[end]) {
+                return null;
+            }
+
+            return new LoopBound(component, inputNumber, findCyclesPerIteration(component, counterSlot),
+                    findLastIterationCycles(component, counterSlot));
+        }
+
+        // The cheapest path in the loop from a decrease of the counter to a decrease of it (multi-source Dijkstra)
+        private long findCyclesPerIteration(int component, int counterSlot) {
+            long[] distances = new long[end];
+            Arrays.fill(distances, UNBOUNDED);
+            PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[0]));
+
+            for (int node = 0; node < end; node++) {
+                if (isCounterDecrease(node, component, counterSlot)) {
+                    for (int successor : successors[node]) {
+                        if (successor != end && componentOf[successor] == component && minCosts[node] < distances[successor]) {
+                            distances[successor] = minCosts[node];
+                            queue.add(new long[] {minCosts[node], successor});
+                        }
+                    }
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                long[] entry = queue.poll();
+                int node = (int) entry[1];
+                if (entry[0] > distances[node]) {
+                    continue;
+                }
+                if (isCounterDecrease(node, component, counterSlot)) {
+                    return entry[0];
+                }
+
+                for (int successor : successors[node]) {
+                    long distance = saturatedAdd(entry[0], minCosts[node]);
+                    if (successor != end && componentOf[successor] == component && distance < distances[successor]) {
+                        distances[successor] = distance;
+                        queue.add(new long[] {distance, successor});
+                    }
+                }
+            }
+
+            return 0;       // Not expected - the loop is strongly connected
+        }
+
+        private long findLastIterationCycles(int component, int counterSlot) {
+            long lastIterationCycles = UNBOUNDED;
+            for (int node = 0; node < end; node++) {
+                if (isCounterDecrease(node, component, counterSlot)) {
+                    lastIterationCycles = Math.min(lastIterationCycles, minCosts[node]);
+                }
+            }
+            return lastIterationCycles;
+        }
+
+        private boolean isCounterDecrease(int node, int component, int counterSlot) {
+            return componentOf[node] == component && compiled.opcodes[node] == DECREASE && compiled.targetSlots[node] == counterSlot;
+        }
+
+        // From the first instruction. With a component: without passing it, and without the "counter = 0" edges taken
+        // while the counter still holds the input (the run only takes them when the input is 0)
+        private boolean[] findReachable(int avoidedComponent, int counterSlot, int inputNumber, InputsHeld inputsHeld) {
+            boolean[] reached = new boolean[end + 1];
+            if (end > 0 && avoidedComponent >= 0 && componentOf[0] == avoidedComponent) {
+                return reached;
+            }
+
+            Deque<Integer> toVisit = new ArrayDeque<>();
+            reached[0] = true;
+            toVisit.add(0);
+
+            while (!toVisit.isEmpty()) {
+                int node = toVisit.poll();
+                if (node == end) {
+                    continue;
+                }
+
+                for (int successor : successors[node]) {
+                    if (reached[successor]) {
+                        continue;
+                    }
+                    if (avoidedComponent >= 0) {
+                        if (successor != end && componentOf[successor] == avoidedComponent) {
+                            continue;
+                        }
+                        if (isZeroEdge(node, successor, counterSlot) && inputsHeld.getInputBefore(node, counterSlot) == inputNumber) {
+                            continue;
+                        }
+                    }
+                    reached[successor] = true;
+                    toVisit.add(successor);
+                }
+            }
+
+            return reached;
+        }
+
+        // True if the run takes this edge only when the variable is 0
+        private boolean isZeroEdge(int node, int successor, int slot) {
+            if (compiled.targetSlots[node] != slot) {
+                return false;
+            }
+
+            return switch (compiled.opcodes[node]) {
+                case JUMP_NOT_ZERO -> jumps[node] != NO_JUMP && successor == node + 1;
+                case JUMP_ZERO -> jumps[node] != NO_JUMP && successor == jumps[node];
+                case JUMP_EQUAL_CONSTANT -> compiled.constants[node] == 0 && jumps[node] != NO_JUMP && successor == jumps[node];
+                default -> false;
+            };
+        }
+
+        private boolean writes(int node, int slot) {
+            return switch (compiled.opcodes[node]) {
+                case INCREASE, DECREASE, ZERO_VARIABLE, CONSTANT_ASSIGNMENT, ASSIGNMENT, QUOTE -> compiled.targetSlots[node] == slot;
+                default -> false;
+            };
+        }
+
+        // Which input each tracked variable holds before every instruction (0 - unknown), a forward analysis to a fixed point
+        private final class InputsHeld {
+
+            private final int[] slotToTracked;      // -1 for untracked slots
+            private final int[] entryInputs;
+            private final int[][] inputsBefore;     // null for instructions not reached yet
+
+            InputsHeld(Set<Integer> trackedSlots) {
+                slotToTracked = new int[compiled.slotsCount];
+                Arrays.fill(slotToTracked, -1);
+                int trackedCount = 0;
+                for (int slot : trackedSlots) {
+                    slotToTracked[slot] = trackedCount++;
+                }
+
+                entryInputs = new int[trackedCount];
+                for (int inputIndex = 0; inputIndex < compiled.inputNumberToSlot.length; inputIndex++) {
+                    int inputSlot = compiled.inputNumberToSlot[inputIndex];
+                    if (inputSlot >= 0) {
+                        entryInputs[slotToTracked[inputSlot]] = inputIndex + 1;
+                    }
+                }
+
+                inputsBefore = new int[end + 1][];
+                inputsBefore[0] = entryInputs.clone();
+                Deque<Integer> toVisit = new ArrayDeque<>();
+                toVisit.add(0);
+
+                while (!toVisit.isEmpty()) {
+                    int node = toVisit.poll();
+                    if (node == end) {
+                        continue;
+                    }
+
+                    int[] after = transfer(node, inputsBefore[node]);
+                    for (int successor : successors[node]) {
+                        if (meetInto(successor, after)) {
+                            toVisit.add(successor);
+                        }
+                    }
+                }
+            }
+
+            int getEntryInput(int slot) {
+                return entryInputs[slotToTracked[slot]];
+            }
+
+            int getInputBefore(int node, int slot) {
+                return (inputsBefore[node] != null) ? inputsBefore[node][slotToTracked[slot]] : 0;
+            }
+
+            int getInputAfter(int node, int slot) {
+                return (inputsBefore[node] != null) ? transfer(node, inputsBefore[node])[slotToTracked[slot]] : 0;
+            }
+
+            private int[] transfer(int node, int[] before) {
+                int tracked = slotToTracked[compiled.targetSlots[node]];
+                if (tracked < 0 || !writes(node, compiled.targetSlots[node])) {
+                    return before;
+                }
+
+                int[] after = before.clone();
+                if (compiled.opcodes[node] == ASSIGNMENT) {
+                    int sourceTracked = slotToTracked[compiled.sourceSlots[node]];
+                    after[tracked] = (sourceTracked >= 0) ? before[sourceTracked] : 0;
+                } else {
+                    after[tracked] = 0;
+                }
+                return after;
+            }
+
+            // Returns true if the successor's inputs changed
+            private boolean meetInto(int successor, int[] inputs) {
+                int[] current = inputsBefore[successor];
+                if (current == null) {
+                    inputsBefore[successor] = inputs.clone();
+                    return true;
+                }
+
+                boolean changed = false;
+                for (int tracked = 0; tracked < current.length; tracked++) {
+                    if (current[tracked] != 0 && current[tracked] != inputs[tracked]) {
+                        current[tracked] = 0;
+                        changed = true;
+                    }
+                }
+                return changed;
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package engine.logic.execution.compiledMode;
+
+// How CompiledProgramExecutor runs a compiled program (chosen per run, same results and charges either way)
+public enum ExecutionBackend {
+    INTERPRETER,    // Instruction by instruction over the slots
+    BYTECODE        // As a JVM class generated from the program (BytecodeCompiler); the interpreter when it can't be generated
+}
@@ -0,0 +1,174 @@
+package engine.logic.execution.compiledMode;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Which form the full runs of a (program, degree) run on. A program that runs once isn't worth compiling, so:
+// - INTERPRETED: ProgramExecutorImpl on the expanded program, the first runs
+// - COMPILED: the compiled program (CompiledProgramExecutor), once 'compileThreshold' runs of it started
+// - BYTECODE: its generated class (ExecutionBackend.BYTECODE), once 'bytecodeThreshold' runs of it started
+// The next form is built in the background by the run that passes the threshold; until it's ready the runs go on in the
+// current tier, then it's swapped in at once (one volatile write) for the runs that start later. A form that can't be
+// built (no generated class) leaves the program in its tier. Every tier runs with the same results and charges.
+// Thresholds can be overridden by system properties (e.g. in CATALINA_OPTS)
+public class ExecutionTiers {
+
+    public enum Tier { INTERPRETED, COMPILED, BYTECODE }
+
+    // What a run that starts now runs on (compiledProgram: null when INTERPRETED)
+    public record Selection(Tier tier, CompiledProgram compiledProgram) { }
+
+    public static final int DEFAULT_COMPILE_THRESHOLD = 3;
+    public static final int DEFAULT_BYTECODE_THRESHOLD = 100;
+
+    public static final String COMPILE_THRESHOLD_PROPERTY = "se.execution.compileThreshold";
+    public static final String BYTECODE_THRESHOLD_PROPERTY = "se.execution.bytecodeThreshold";
+
+    private static final class TieredProgram {
+        private final AtomicLong startedRunsCount = new AtomicLong();
+        private final AtomicBoolean building = new AtomicBoolean();        // The next tier (one build at a time)
+        private volatile Selection selection = new Selection(Tier.INTERPRETED, null);
+    }
+
+    private final int compileThreshold;
+    private final int bytecodeThreshold;
+    private final Map<String, Map<Integer, TieredProgram>> nameAndDegreeToTieredProgram = new ConcurrentHashMap<>();
+    private final ExecutorService builder;
+
+    // Metrics:
+    private final Map<Tier, AtomicLong> tierToRunsCount = new EnumMap<>(Tier.class);           // Runs started on the tier
+    private final Map<Tier, AtomicLong> tierToPromotionsCount = new EnumMap<>(Tier.class);     // Programs moved up to the tier
+    private final Map<Tier, AtomicLong> tierToBuildNanos = new EnumMap<>(Tier.class);          // Total time building the tier's forms
+    private final AtomicLong failedBuildsCount = new AtomicLong();
+
+    public ExecutionTiers(int compileThreshold, int bytecodeThreshold) {
+        if (compileThreshold < 0 || bytecodeThreshold < compileThreshold) {
+            throw new IllegalArgumentException("Execution tier thresholds must be 0 <= compile threshold <= bytecode threshold");
+        }
+
+        this.compileThreshold = compileThreshold;
+        this.bytecodeThreshold = bytecodeThreshold;
+        for (Tier tier : Tier.values()) {
+            tierToRunsCount.put(tier, new AtomicLong());
+            tierToPromotionsCount.put(tier, new AtomicLong());
+            tierToBuildNanos.put(tier, new AtomicLong());
+        }
+
+        this.builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "execution-tier-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static ExecutionTiers fromSystemProperties() {
+        return new ExecutionTiers(
+                Integer.getInteger(COMPILE_THRESHOLD_PROPERTY, DEFAULT_COMPILE_THRESHOLD),
+                Integer.getInteger(BYTECODE_THRESHOLD_PROPERTY, DEFAULT_BYTECODE_THRESHOLD));
+    }
+
+    // Counts a run of (program, degree) and returns its form. 'compiler' builds the compiled program (in the background)
+    public Selection startRun(String programName, int degree, Supplier<CompiledProgram> compiler) {
+        TieredProgram tieredProgram = nameAndDegreeToTieredProgram
+                .computeIfAbsent(programName, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(degree, k -> new TieredProgram());
+
+        long startedRunsCount = tieredProgram.startedRunsCount.incrementAndGet();
+        Selection selection = tieredProgram.selection;
+        scheduleBuild(tieredProgram, selection.tier(), startedRunsCount, compiler);
+
+        tierToRunsCount.get(selection.tier()).incrementAndGet();
+        return selection;
+    }
+
+    // Starts building the next tier if this many runs passed its threshold (unless it's being built already)
+    private void scheduleBuild(TieredProgram tieredProgram, Tier tier, long startedRunsCount, Supplier<CompiledProgram> compiler) {
+        Tier nextTier = switch (tier) {
+            case INTERPRETED -> (startedRunsCount >= compileThreshold) ? Tier.COMPILED : null;
+            case COMPILED -> (startedRunsCount >= bytecodeThreshold) ? Tier.BYTECODE : null;
+            case BYTECODE -> null;
+        };
+
+        if (nextTier != null && tieredProgram.building.compareAndSet(false, true)) {
+            builder.execute(() -> build(tieredProgram, nextTier, compiler));
+        }
+    }
+
+    private void build(TieredProgram tieredProgram, Tier tier, Supplier<CompiledProgram> compiler) {
+        long startNanos = System.nanoTime();
+        Selection built = null;
+
+        try {
+            if (tier == Tier.COMPILED) {
+                built = new Selection(tier, compiler.get());
+            } else {
+                CompiledProgram compiledProgram = tieredProgram.selection.compiledProgram();
+                built = (compiledProgram.getBytecodeRoutine() != null) ? new Selection(tier, compiledProgram) : null;
+            }
+        } catch (RuntimeException e) {
+            // Stays in its tier (e.g. the program was removed meanwhile)
+        } finally {
+            tierToBuildNanos.get(tier).addAndGet(System.nanoTime() - startNanos);
+        }
+
+        if (built == null) {
+            failedBuildsCount.incrementAndGet();
+            tieredProgram.building.set(tier == Tier.BYTECODE);     // A program without a generated class stays COMPILED
+            return;
+        }
+
+        tieredProgram.selection = built;
+        tierToPromotionsCount.get(tier).incrementAndGet();
+        tieredProgram.building.set(false);
+
+        // Runs may have passed the next threshold while this tier was built
+        scheduleBuild(tieredProgram, tier, tieredProgram.startedRunsCount.get(), compiler);
+    }
+
+    // The program's expansion (or the program) changed: its runs start over, interpreted
+    public void remove(String programName, int degree) {
+        Map<Integer, TieredProgram> degreeToTieredProgram = nameAndDegreeToTieredProgram.get(programName);
+
+        if (degreeToTieredProgram != null) {
+            degreeToTieredProgram.remove(degree);
+        }
+    }
+
+    public Tier getTier(String programName, int degree) {
+        Map<Integer, TieredProgram> degreeToTieredProgram = nameAndDegreeToTieredProgram.get(programName);
+        TieredProgram tieredProgram = (degreeToTieredProgram != null) ? degreeToTieredProgram.get(degree) : null;
+
+        return (tieredProgram != null) ? tieredProgram.selection.tier() : Tier.INTERPRETED;
+    }
+
+    public int getCompileThreshold() {
+        return compileThreshold;
+    }
+
+    public int getBytecodeThreshold() {
+        return bytecodeThreshold;
+    }
+
+    public long getRunsCount(Tier tier) {
+        return tierToRunsCount.get(tier).get();
+    }
+
+    public long getPromotionsCount(Tier tier) {
+        return tierToPromotionsCount.get(tier).get();
+    }
+
+    public long getBuildMillis(Tier tier) {
+        return TimeUnit.NANOSECONDS.toMillis(tierToBuildNanos.get(tier).get());
+    }
+
+    public long getFailedBuildsCount() {
+        return failedBuildsCount.get();
+    }
+}
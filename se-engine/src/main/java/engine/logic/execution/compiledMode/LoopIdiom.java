@@ -0,0 +1,135 @@
+package engine.logic.execution.compiledMode;
+
+import java.util.*;
+
+import static engine.logic.execution.compiledMode.CompiledProgram.*;
+
+// A counting loop of an optimized program that CompiledProgramExecutor runs at once (opcode LOOP on its first instruction):
+//     L: <'v <- v + 1' / 'v <- v - 1' / NO_OP instructions>
+//        IF c != 0 GOTO L
+// where the counter c is decreased once per iteration and never increased, and every other variable is either only
+// increased or only decreased. These are the zeroing, transfer and copy loops of the expansions (ZERO_VARIABLE,
+// ASSIGNMENT, ...). From L it runs max(c, 1) iterations, and then c is 0, an increased variable grew by its increases
+// per iteration times the iterations, and a decreased one went down by that much but not below 0
+final class LoopIdiom {
+
+    final int firstOpcode;              // Of the first instruction, run as usual when the loop isn't run at once
+    final int counterSlot;
+    final int exitIndex;                // The instruction after the loop jump
+    final long iterationCycles;         // Of all the instructions of the loop
+    final int iterationInstructions;
+    final int[] changedSlots;           // Besides the counter
+    final int[] changesPerIteration;    // Positive: increases, negative: decreases
+
+    private LoopIdiom(int firstOpcode, int counterSlot, int exitIndex, long iterationCycles, int iterationInstructions,
+                      int[] changedSlots, int[] changesPerIteration) {
+        this.firstOpcode = firstOpcode;
+        this.counterSlot = counterSlot;
+        this.exitIndex = exitIndex;
+        this.iterationCycles = iterationCycles;
+        this.iterationInstructions = iterationInstructions;
+        this.changedSlots = changedSlots;
+        this.changesPerIteration = changesPerIteration;
+    }
+
+    long getIterations(long[] slots) {
+        return Math.max(slots[counterSlot], 1);
+    }
+
+    // All the iterations at once (their cycles are charged by the caller)
+    void run(long[] slots, long iterations) {
+        for (int i = 0; i < changedSlots.length; i++) {
+            int slot = changedSlots[i];
+            long change = changesPerIteration[i] * iterations;
+
+            if (change > 0) {
+                slots[slot] += change;                          // Wraps like 'change' increases would
+            } else {
+                slots[slot] = Math.max(slots[slot] + change, 0);
+            }
+        }
+        slots[counterSlot] = 0;
+    }
+
+    // Finds the loops in the instructions, and puts opcode LOOP on the first instruction of each one.
+    // Returns the loop of every first instruction (null for other instructions), or null if there are none
+    static LoopIdiom[] recognize(int[] opcodes, int[] targetSlots, int[] jumpTargets, int[] cycles) {
+        LoopIdiom[] loops = null;
+
+        for (int start = 0; start < opcodes.length; start++) {
+            LoopIdiom loop = recognizeAt(start, opcodes, targetSlots, jumpTargets, cycles);
+            if (loop != null) {
+                if (loops == null) {
+                    loops = new LoopIdiom[opcodes.length];
+                }
+                loops[start] = loop;
+            }
+        }
+
+        if (loops != null) {
+            for (int start = 0; start < loops.length; start++) {
+                if (loops[start] != null) {
+                    opcodes[start] = LOOP;
+                }
+            }
+        }
+        return loops;
+    }
+
+    private static LoopIdiom recognizeAt(int start, int[] opcodes, int[] targetSlots, int[] jumpTargets, int[] cycles) {
+        int loopJump = start;
+        while (loopJump < opcodes.length && isCountingStep(opcodes[loopJump])) {
+            loopJump++;
+        }
+
+        if (loopJump == start || loopJump == opcodes.length
+                || opcodes[loopJump] != JUMP_NOT_ZERO || jumpTargets[loopJump] != start) {
+            return null;
+        }
+
+        int counterSlot = targetSlots[loopJump];
+        Map<Integer, Integer> slotToChanges = new LinkedHashMap<>();
+        Set<Integer> increasedSlots = new HashSet<>();
+        Set<Integer> decreasedSlots = new HashSet<>();
+        long iterationCycles = cycles[loopJump];
+
+        for (int i = start; i < loopJump; i++) {
+            iterationCycles += cycles[i];
+            if (opcodes[i] == NO_OP) {
+                continue;
+            }
+
+            int slot = targetSlots[i];
+            boolean increase = (opcodes[i] == INCREASE);
+            (increase ? increasedSlots : decreasedSlots).add(slot);
+            slotToChanges.merge(slot, increase ? 1 : -1, Integer::sum);
+        }
+
+        // The counter is decreased exactly once, and no variable is both increased and decreased (the order would matter)
+        if (increasedSlots.contains(counterSlot) || slotToChanges.getOrDefault(counterSlot, 0) != -1) {
+            return null;
+        }
+        for (int slot : increasedSlots) {
+            if (decreasedSlots.contains(slot)) {
+                return null;
+            }
+        }
+
+        slotToChanges.remove(counterSlot);
+        int[] changedSlots = new int[slotToChanges.size()];
+        int[] changesPerIteration = new int[slotToChanges.size()];
+        int index = 0;
+        for (Map.Entry<Integer, Integer> entry : slotToChanges.entrySet()) {
+            changedSlots[index] = entry.getKey();
+            changesPerIteration[index] = entry.getValue();
+            index++;
+        }
+
+        return new LoopIdiom(opcodes[start], counterSlot, loopJump + 1, iterationCycles, loopJump - start + 1,
+                changedSlots, changesPerIteration);
+    }
+
+    private static boolean isCountingStep(int opcode) {
+        return opcode == INCREASE || opcode == DECREASE || opcode == NO_OP;
+    }
+}
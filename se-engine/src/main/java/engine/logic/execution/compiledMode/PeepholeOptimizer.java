@@ -0,0 +1,526 @@
+package engine.logic.execution.compiledMode;
+
+import java.util.*;
+
+import static engine.logic.execution.compiledMode.CompiledProgram.*;
+
+// Rewrites a CompiledProgram into one with fewer instructions to run, for CompiledProgram.getOptimizedProgram.
+// Only instructions that never change a variable are removed:
+// - NO_OP, GOTO to the next instruction, and unreachable instructions
+// - Writes of a value the variable already holds (a second 'z1 <- 0', 'x1 <- z1' right after 'z1 <- x1', 'z1 <- z1 - 1'
+//   on 0), known from the instructions before it in the same straight-line block: constants and copies. At the start
+//   all the variables but the inputs are 0, and after 'IF v != 0 GOTO' falls through v is 0
+// - Jumps that are never taken (e.g. 'IF z1 != 0 GOTO L' when z1 is 0), and always taken ones become GOTO. A loop that
+//   only jumps back to its own start is checked on the values it's entered with - when it never jumps back, it's a block
+// The cycles of a removed instruction are added to the instruction before it that always runs just before it (or the
+// one after it that always runs just after it, if that one doesn't change a variable), and kept in order as cycle parts:
+// CompiledProgramExecutor charges the parts one by one when the user runs out of credits on such an instruction, so the
+// run stops like the original - with the same variables and cycles.
+// Passes run until nothing changes. The variables, result and cycles of a run end the same as in the original program
+final class PeepholeOptimizer {
+
+    private static final int MAX_PASSES = 16;
+    private static final int NOT_FOLDED = -1;
+
+    private final Map<CompiledProgram, CompiledProgram> originalToOptimized = new HashMap<>();
+    private final Deque<CompiledCall> unlinkedCalls = new ArrayDeque<>();
+
+    // The instructions of a pass. parts[i] - the original cycles of instruction i, in the order they ran
+    private int[] opcodes;
+    private int[] targetSlots;
+    private int[] sourceSlots;
+    private long[] constants;
+    private int[] jumpTargets;
+    private CompiledCall[] calls;
+    private int[][] parts;
+
+    private PeepholeOptimizer() {
+    }
+
+    // Also optimizes the functions the program calls (the optimized program calls the optimized functions)
+    static CompiledProgram optimize(CompiledProgram compiledProgram) {
+        PeepholeOptimizer optimizer = new PeepholeOptimizer();
+        CompiledProgram optimizedProgram = optimizer.optimizeSingleProgram(compiledProgram);
+        optimizer.linkCalls();
+
+        return optimizedProgram;
+    }
+
+    private void linkCalls() {
+        while (!unlinkedCalls.isEmpty()) {
+            CompiledCall call = unlinkedCalls.poll();
+            CompiledProgram original = call.compiledFunction;
+            CompiledProgram optimizedFunction = originalToOptimized.get(original);
+
+            if (optimizedFunction == null) {
+                optimizedFunction = optimizeSingleProgram(original);      // May add more unlinked calls
+            }
+
+            call.compiledFunction = optimizedFunction;
+        }
+    }
+
+    private CompiledProgram optimizeSingleProgram(CompiledProgram original) {
+        int instructionsCount = original.getInstructionsCount();
+        opcodes = original.opcodes.clone();
+        targetSlots = original.targetSlots.clone();
+        sourceSlots = original.sourceSlots.clone();
+        constants = original.constants.clone();
+        jumpTargets = original.jumpTargets.clone();
+        calls = original.calls.clone();
+        parts = new int[instructionsCount][];
+        for (int i = 0; i < instructionsCount; i++) {
+            parts[i] = new int[] {original.cycles[i]};
+        }
+
+        for (int pass = 0; pass < MAX_PASSES && runPass(original); pass++) {
+            // Until nothing changes
+        }
+
+        int[] cycles = new int[opcodes.length];
+        int[] cyclePartsStart = new int[opcodes.length + 1];
+        int partsCount = 0;
+        for (int i = 0; i < opcodes.length; i++) {
+            partsCount += parts[i].length;
+        }
+
+        int[] cycleParts = new int[partsCount];
+        int nextPart = 0;
+        for (int i = 0; i < opcodes.length; i++) {
+            cyclePartsStart[i] = nextPart;
+            for (int part : parts[i]) {
+                cycles[i] += part;
+                cycleParts[nextPart++] = part;
+            }
+        }
+        cyclePartsStart[opcodes.length] = nextPart;
+
+        CompiledCall[] optimizedCalls = new CompiledCall[calls.length];
+        for (int i = 0; i < calls.length; i++) {
+            if (calls[i] != null) {
+                optimizedCalls[i] = copyCall(calls[i]);
+            }
+        }
+
+        LoopIdiom[] loops = LoopIdiom.recognize(opcodes, targetSlots, jumpTargets, cycles);
+        CompiledProgram optimized = new CompiledProgram(original, opcodes, targetSlots, sourceSlots, constants, jumpTargets,
+                cycles, optimizedCalls, cyclePartsStart, cycleParts, loops);
+        originalToOptimized.put(original, optimized);
+        return optimized;
+    }
+
+    // A copy that will be linked to the optimized function
+    private CompiledCall copyCall(CompiledCall call) {
+        CompiledArgument[] arguments = new CompiledArgument[call.arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            CompiledArgument argument = call.arguments[i];
+            arguments[i] = (argument.call == null) ? argument : CompiledArgument.ofCall(copyCall(argument.call));
+        }
+
+        CompiledCall copy = new CompiledCall(call.functionName, call.function, arguments);
+        copy.compiledFunction = call.compiledFunction;      // The original until linked
+        unlinkedCalls.add(copy);
+        return copy;
+    }
+
+    // Returns true if anything changed
+    private boolean runPass(CompiledProgram original) {
+        int end = opcodes.length;
+        if (end == 0) {
+            return false;
+        }
+
+        boolean[] reachable = findReachable();
+        int[] jumpSourcesCount = new int[end + 1];
+        for (int i = 0; i < end; i++) {
+            if (reachable[i] && isJump(opcodes[i])) {
+                jumpSourcesCount[jumpTargets[i]]++;
+            }
+        }
+
+        boolean changed = false;
+        boolean[] removed = new boolean[end];
+        int[] foldedInto = new int[end];            // For a removed instruction that jumps may go to: where they go now
+        Arrays.fill(foldedInto, NOT_FOLDED);
+        boolean[] foldedBack = new boolean[end];    // Removed, its cycles were added to the kept instruction before it
+        boolean[] locked = new boolean[end];        // Took the cycles of the instruction before it (not removed this pass)
+        KnownValues knownValues = new KnownValues(original.slotsCount);
+        knownValues.setProgramStart(original.inputNumberToSlot);
+
+        for (int i = 0; i < end; i++) {
+            if (!reachable[i]) {
+                removed[i] = true;
+                changed = true;
+                continue;
+            }
+
+            int ownLoopEnd = findOwnLoopEnd(i, jumpSourcesCount, reachable);
+            boolean enteredInOrder = (i == 0) || (reachable[i - 1] && fallsThrough(i - 1));
+
+            if (!enteredInOrder || (jumpSourcesCount[i] > 0 && !isLoopNeverRepeated(i, ownLoopEnd, knownValues))) {
+                knownValues.clear();
+            }
+
+            if (!locked[i] && isRemovable(i, knownValues)) {
+                int previous = findPrevious(i, removed);
+                boolean onlyJumpsFromItself = (jumpSourcesCount[i] == 0) || (ownLoopEnd == i && isJump(opcodes[i]));
+
+                if (previous >= 0 && onlyJumpsFromItself && alwaysFallsInto(previous) && isFoldedBack(previous, i, foldedBack)) {
+                    parts[previous] = concat(parts[previous], parts[i]);
+                    removed[i] = true;
+                    foldedBack[i] = true;
+                    changed = true;
+                } else if (i + 1 < end && reachable[i + 1] && jumpSourcesCount[i + 1] == 0 && canTakeCyclesBefore(i + 1)) {
+                    parts[i + 1] = concat(parts[i], parts[i + 1]);
+                    removed[i] = true;
+                    foldedInto[i] = i + 1;
+                    locked[i + 1] = true;
+                    jumpSourcesCount[i + 1] += jumpSourcesCount[i];
+                    changed = true;
+                }
+            } else if (!locked[i] && isAlwaysTaken(i, knownValues) && opcodes[i] != GOTO_LABEL) {
+                opcodes[i] = GOTO_LABEL;
+                changed = true;
+            }
+
+            knownValues.apply(i);
+            if (!removed[i] && opcodes[i] == JUMP_NOT_ZERO && jumpTargets[i] != i + 1) {
+                knownValues.afterNotZeroFallThrough(targetSlots[i]);
+            }
+        }
+
+        if (changed) {
+            compact(removed, foldedInto);
+        }
+        return changed;
+    }
+
+    // Keeps the instructions that weren't removed, and moves the jumps to their new indexes
+    private void compact(boolean[] removed, int[] foldedInto) {
+        int end = opcodes.length;
+        int[] newIndexes = new int[end + 1];
+        int keptCount = 0;
+        for (int i = 0; i < end; i++) {
+            newIndexes[i] = removed[i] ? -1 : keptCount++;
+        }
+        newIndexes[end] = keptCount;
+
+        for (int i = end - 1; i >= 0; i--) {
+            if (removed[i] && foldedInto[i] != NOT_FOLDED) {
+                newIndexes[i] = newIndexes[foldedInto[i]];
+            }
+        }
+
+        int[] keptOpcodes = new int[keptCount];
+        int[] keptTargetSlots = new int[keptCount];
+        int[] keptSourceSlots = new int[keptCount];
+        long[] keptConstants = new long[keptCount];
+        int[] keptJumpTargets = new int[keptCount];
+        CompiledCall[] keptCalls = new CompiledCall[keptCount];
+        int[][] keptParts = new int[keptCount][];
+
+        for (int i = 0; i < end; i++) {
+            if (removed[i]) {
+                continue;
+            }
+
+            int newIndex = newIndexes[i];
+            keptOpcodes[newIndex] = opcodes[i];
+            keptTargetSlots[newIndex] = targetSlots[i];
+            keptSourceSlots[newIndex] = sourceSlots[i];
+            keptConstants[newIndex] = constants[i];
+            keptCalls[newIndex] = calls[i];
+            keptParts[newIndex] = parts[i];
+
+            if (isJump(opcodes[i])) {
+                keptJumpTargets[newIndex] = newIndexes[jumpTargets[i]];
+                if (keptJumpTargets[newIndex] < 0) {
+                    throw new IllegalStateException("In PeepholeOptimizer: a jump to removed instruction " + jumpTargets[i]);
+                }
+            } else {
+                keptJumpTargets[newIndex] = newIndex + 1;
+            }
+        }
+
+        opcodes = keptOpcodes;
+        targetSlots = keptTargetSlots;
+        sourceSlots = keptSourceSlots;
+        constants = keptConstants;
+        jumpTargets = keptJumpTargets;
+        calls = keptCalls;
+        parts = keptParts;
+    }
+
+    private boolean[] findReachable() {
+        int end = opcodes.length;
+        boolean[] reachable = new boolean[end + 1];
+        Deque<Integer> toVisit = new ArrayDeque<>();
+        reachable[0] = true;
+        toVisit.add(0);
+
+        while (!toVisit.isEmpty()) {
+            int i = toVisit.poll();
+            if (i == end) {
+                continue;
+            }
+
+            if (opcodes[i] != GOTO_LABEL && !reachable[i + 1]) {
+                reachable[i + 1] = true;
+                toVisit.add(i + 1);
+            }
+            if (isJump(opcodes[i]) && !reachable[jumpTargets[i]]) {
+                reachable[jumpTargets[i]] = true;
+                toVisit.add(jumpTargets[i]);
+            }
+        }
+
+        return reachable;
+    }
+
+    // For an instruction that only jumps come back to from one conditional jump after it, with a straight block between
+    // them: that jump. Otherwise -1
+    private int findOwnLoopEnd(int start, int[] jumpSourcesCount, boolean[] reachable) {
+        if (jumpSourcesCount[start] != 1) {
+            return -1;
+        }
+
+        for (int i = start; i < opcodes.length && reachable[i]; i++) {
+            if (i > start && jumpSourcesCount[i] > 0) {
+                return -1;
+            }
+            if (isJump(opcodes[i])) {
+                return (isConditionalJump(opcodes[i]) && opcodes[i] != JUMP_EQUAL_FUNCTION && jumpTargets[i] == start) ? i : -1;
+            }
+        }
+        return -1;
+    }
+
+    // True if, entered with these values, the block from 'start' falls out of its loop jump the first time - then it
+    // never jumps back, and the values hold at its start
+    private boolean isLoopNeverRepeated(int start, int loopEnd, KnownValues knownValues) {
+        if (loopEnd < 0) {
+            return false;
+        }
+
+        KnownValues valuesInLoop = knownValues.copy();
+        for (int i = start; i < loopEnd; i++) {
+            valuesInLoop.apply(i);
+        }
+        return isNeverTaken(loopEnd, valuesInLoop);
+    }
+
+    // Doesn't change any variable (for a jump: never jumps, or jumps to the next instruction)
+    private boolean isRemovable(int i, KnownValues knownValues) {
+        int target = targetSlots[i];
+
+        return switch (opcodes[i]) {
+            case NO_OP -> true;
+            case GOTO_LABEL -> jumpTargets[i] == i + 1;
+            case ZERO_VARIABLE -> knownValues.isConstant(target, 0);
+            case CONSTANT_ASSIGNMENT -> knownValues.isConstant(target, constants[i]);
+            case DECREASE -> knownValues.isConstant(target, 0);
+            case ASSIGNMENT -> knownValues.areEqual(target, sourceSlots[i]);
+            case JUMP_NOT_ZERO, JUMP_ZERO, JUMP_EQUAL_CONSTANT, JUMP_EQUAL_VARIABLE -> jumpTargets[i] == i + 1 || isNeverTaken(i, knownValues);
+            default -> false;
+        };
+    }
+
+    private boolean isNeverTaken(int i, KnownValues knownValues) {
+        int target = targetSlots[i];
+
+        return switch (opcodes[i]) {
+            case JUMP_NOT_ZERO -> knownValues.isConstant(target, 0);
+            case JUMP_ZERO -> knownValues.isKnown(target) && !knownValues.isConstant(target, 0);
+            case JUMP_EQUAL_CONSTANT -> knownValues.isKnown(target) && !knownValues.isConstant(target, constants[i]);
+            case JUMP_EQUAL_VARIABLE -> knownValues.isKnown(target) && knownValues.isKnown(sourceSlots[i])
+                    && knownValues.getConstant(target) != knownValues.getConstant(sourceSlots[i]);
+            default -> false;
+        };
+    }
+
+    private boolean isAlwaysTaken(int i, KnownValues knownValues) {
+        int target = targetSlots[i];
+
+        return switch (opcodes[i]) {
+            case JUMP_NOT_ZERO -> knownValues.isKnown(target) && !knownValues.isConstant(target, 0);
+            case JUMP_ZERO -> knownValues.isConstant(target, 0);
+            case JUMP_EQUAL_CONSTANT -> knownValues.isConstant(target, constants[i]);
+            case JUMP_EQUAL_VARIABLE -> knownValues.areEqual(target, sourceSlots[i]);
+            default -> false;
+        };
+    }
+
+    private int findPrevious(int i, boolean[] removed) {
+        for (int previous = i - 1; previous >= 0; previous--) {
+            if (!removed[previous]) {
+                return previous;
+            }
+        }
+        return -1;
+    }
+
+    // True if every instruction between them was removed into 'previous' (so 'previous' always runs just before 'i')
+    private static boolean isFoldedBack(int previous, int i, boolean[] foldedBack) {
+        for (int between = previous + 1; between < i; between++) {
+            if (!foldedBack[between]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The next instruction may run right after it
+    private boolean fallsThrough(int i) {
+        return opcodes[i] != GOTO_LABEL || jumpTargets[i] == i + 1;
+    }
+
+    // The next instruction always runs right after it, and it can take the cycles of the next one
+    private boolean alwaysFallsInto(int i) {
+        return !isJump(opcodes[i]) && canTakeCyclesOf(i);
+    }
+
+    // The cycles of a function call are charged after the call, the ones of another instruction can't move there
+    private boolean canTakeCyclesOf(int i) {
+        return opcodes[i] != QUOTE && opcodes[i] != JUMP_EQUAL_FUNCTION;
+    }
+
+    // The parts are charged after the instruction runs: the ones of an instruction before it can only move to an
+    // instruction that doesn't change a variable (a run that stops on them must not have its change)
+    private boolean canTakeCyclesBefore(int i) {
+        return (opcodes[i] == NO_OP || isJump(opcodes[i])) && canTakeCyclesOf(i);
+    }
+
+    private static boolean isJump(int opcode) {
+        return opcode == GOTO_LABEL || isConditionalJump(opcode);
+    }
+
+    private static boolean isConditionalJump(int opcode) {
+        return switch (opcode) {
+            case JUMP_NOT_ZERO, JUMP_ZERO, JUMP_EQUAL_CONSTANT, JUMP_EQUAL_VARIABLE, JUMP_EQUAL_FUNCTION -> true;
+            default -> false;
+        };
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    // What is known about the slots at some point of a straight-line block: constant values, and slots that hold the
+    // same value as another slot (the slot it was copied from)
+    private final class KnownValues {
+
+        private final boolean[] known;
+        private final long[] values;
+        private final int[] copyOf;         // -1: not known to equal another slot
+
+        KnownValues(int slotsCount) {
+            known = new boolean[slotsCount];
+            values = new long[slotsCount];
+            copyOf = new int[slotsCount];
+            Arrays.fill(copyOf, -1);
+        }
+
+        // All the slots are 0 but the inputs
+        void setProgramStart(int[] inputNumberToSlot) {
+            Arrays.fill(known, true);
+            Arrays.fill(values, 0L);
+            for (int inputSlot : inputNumberToSlot) {
+                if (inputSlot >= 0) {
+                    known[inputSlot] = false;
+                }
+            }
+        }
+
+        void clear() {
+            Arrays.fill(known, false);
+            Arrays.fill(copyOf, -1);
+        }
+
+        KnownValues copy() {
+            KnownValues copy = new KnownValues(known.length);
+            System.arraycopy(known, 0, copy.known, 0, known.length);
+            System.arraycopy(values, 0, copy.values, 0, values.length);
+            System.arraycopy(copyOf, 0, copy.copyOf, 0, copyOf.length);
+            return copy;
+        }
+
+        boolean isKnown(int slot) {
+            return known[slot];
+        }
+
+        long getConstant(int slot) {
+            return values[slot];
+        }
+
+        boolean isConstant(int slot, long value) {
+            return known[slot] && values[slot] == value;
+        }
+
+        boolean areEqual(int slot, int otherSlot) {
+            if (slot == otherSlot || copyOf[slot] == otherSlot || copyOf[otherSlot] == slot) {
+                return true;
+            }
+            if (copyOf[slot] >= 0 && copyOf[slot] == copyOf[otherSlot]) {
+                return true;
+            }
+            return known[slot] && known[otherSlot] && values[slot] == values[otherSlot];
+        }
+
+        // After the instruction ran
+        void apply(int i) {
+            int target = targetSlots[i];
+
+            switch (opcodes[i]) {
+                case INCREASE -> setUnlessUnknown(target, values[target] + 1);
+                case DECREASE -> setUnlessUnknown(target, Math.max(values[target] - 1, 0));
+                case ZERO_VARIABLE -> set(target, 0);
+                case CONSTANT_ASSIGNMENT -> set(target, constants[i]);
+                case ASSIGNMENT -> {
+                    int source = sourceSlots[i];
+                    if (target != source) {
+                        boolean sourceKnown = known[source];
+                        long sourceValue = values[source];
+                        forget(target);
+                        known[target] = sourceKnown;
+                        values[target] = sourceValue;
+                        copyOf[target] = (copyOf[source] >= 0) ? copyOf[source] : source;
+                    }
+                }
+                case QUOTE -> forget(target);
+                default -> { }          // Jumps don't write
+            }
+        }
+
+        // 'IF v != 0 GOTO' fell through
+        void afterNotZeroFallThrough(int slot) {
+            forget(slot);
+            set(slot, 0);
+        }
+
+        private void set(int slot, long value) {
+            forget(slot);
+            known[slot] = true;
+            values[slot] = value;
+        }
+
+        private void setUnlessUnknown(int slot, long value) {
+            if (known[slot]) {
+                set(slot, value);
+            } else {
+                forget(slot);
+            }
+        }
+
+        private void forget(int slot) {
+            known[slot] = false;
+            copyOf[slot] = -1;
+            for (int other = 0; other < copyOf.length; other++) {
+                if (copyOf[other] == slot) {
+                    copyOf[other] = -1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package engine.logic.execution.compiledMode;
+
+import engine.logic.programData.instruction.Instruction;
+import engine.logic.programData.instruction.InstructionData;
+import engine.logic.programData.instruction.basic.DecreaseInstruction;
+import engine.logic.programData.instruction.basic.IncreaseInstruction;
+import engine.logic.programData.instruction.basic.JumpNotZeroInstruction;
+import engine.logic.programData.instruction.basic.NoOpInstruction;
+import engine.logic.programData.instruction.synthetic.*;
+import engine.logic.programData.instruction.synthetic.quoteArguments.FunctionArgument;
+import engine.logic.programData.instruction.synthetic.quoteArguments.QuoteArgument;
+import engine.logic.programData.instruction.synthetic.quoteArguments.VariableArgument;
+import engine.logic.programData.program.JumpTable;
+import engine.logic.programData.program.Program;
+import engine.logic.programData.variable.Variable;
+import engine.logic.programData.variable.VariableType;
+
+import java.util.*;
+
+import static engine.logic.execution.compiledMode.CompiledProgram.*;
+
+public class ProgramCompiler {
+
+    private final Map<String, CompiledProgram> nameToCompiledFunction = new HashMap<>();
+    private final Deque<CompiledCall> unlinkedCalls = new ArrayDeque<>();
+
+    private ProgramCompiler() {
+    }
+
+    // Compiles the program and every function reachable from it
+    public static CompiledProgram compile(Program program) {
+        ProgramCompiler compiler = new ProgramCompiler();
+        CompiledProgram compiledProgram = compiler.compileSingleProgram(program);
+        compiler.linkCalls();
+
+        return compiledProgram;
+    }
+
+    private void linkCalls() {
+        while (!unlinkedCalls.isEmpty()) {
+            CompiledCall call = unlinkedCalls.poll();
+            CompiledProgram compiledFunction = nameToCompiledFunction.get(call.functionName);
+
+            if (compiledFunction == null) {
+                compiledFunction = compileSingleProgram(call.function);     // May add more unlinked calls
+                nameToCompiledFunction.put(call.functionName, compiledFunction);
+            }
+
+            call.compiledFunction = compiledFunction;
+        }
+    }
+
+    private CompiledProgram compileSingleProgram(Program program) {
+        List<Instruction> instructions = program.getInstructionsList();
+        int instructionsCount = instructions.size();
+
+        int[] opcodes = new int[instructionsCount];
+        int[] targetSlots = new int[instructionsCount];
+        int[] sourceSlots = new int[instructionsCount];
+        long[] constants = new long[instructionsCount];
+        int[] jumpTargets = new int[instructionsCount];
+        int[] cycles = new int[instructionsCount];
+        CompiledCall[] calls = new CompiledCall[instructionsCount];
+
+        // Variables layout: y, inputs (by serial), works (by serial), then variables that appear only in instructions
+        List<Variable> inputAndWorkVariablesSorted = List.copyOf(program.getInputAndWorkVariablesSortedBySerial());
+        Map<Variable, Integer> variableToSlot = new HashMap<>();
+        variableToSlot.put(Variable.RESULT, RESULT_SLOT);
+        for (Variable variable : inputAndWorkVariablesSorted) {
+            variableToSlot.putIfAbsent(variable, variableToSlot.size());
+        }
+
+        JumpTable jumpTable = program.getJumpTable();
+
+        for (int i = 0; i < instructionsCount; i++) {
+            Instruction instruction = instructions.get(i);
+            cycles[i] = instruction.getCycleOfInstruction();
+            targetSlots[i] = slotOf(instruction.getTargetVariable(), variableToSlot);
+
+            switch (instruction) {
+                case NoOpInstruction ignored -> opcodes[i] = NO_OP;
+                case IncreaseInstruction ignored -> opcodes[i] = INCREASE;
+                case DecreaseInstruction ignored -> opcodes[i] = DECREASE;
+                case JumpNotZeroInstruction ignored -> opcodes[i] = JUMP_NOT_ZERO;
+                case ZeroVariableInstruction ignored -> opcodes[i] = ZERO_VARIABLE;
+                case ConstantAssignmentInstruction constantAssignment -> {
+                    opcodes[i] = CONSTANT_ASSIGNMENT;
+                    constants[i] = constantAssignment.getConstantValue();
+                }
+                case GotoLabelInstruction ignored -> opcodes[i] = GOTO_LABEL;
+                case AssignmentInstruction assignment -> {
+                    opcodes[i] = ASSIGNMENT;
+                    sourceSlots[i] = slotOf(assignment.getSourceVariable(), variableToSlot);
+                }
+                case JumpZeroInstruction ignored -> opcodes[i] = JUMP_ZERO;
+                case JumpEqualConstantInstruction jumpEqualConstant -> {
+                    opcodes[i] = JUMP_EQUAL_CONSTANT;
+                    constants[i] = jumpEqualConstant.getConstantValue();
+                }
+                case JumpEqualVariableInstruction jumpEqualVariable -> {
+                    opcodes[i] = JUMP_EQUAL_VARIABLE;
+                    sourceSlots[i] = slotOf(jumpEqualVariable.getSourceVariable(), variableToSlot);
+                }
+                case QuoteInstruction quote -> {
+                    opcodes[i] = QUOTE;
+                    cycles[i] = InstructionData.QUOTATION.getCycles();
+                    calls[i] = compileCall(program, quote.getQuoteFunctionName(), quote.getQuoteArguments(), variableToSlot);
+                }
+                case JumpEqualFunctionInstruction jumpEqualFunction -> {
+                    opcodes[i] = JUMP_EQUAL_FUNCTION;
+                    cycles[i] = InstructionData.JUMP_EQUAL_FUNCTION.getCycles();
+                    calls[i] = compileCall(program, jumpEqualFunction.getReferenceFunctionName(), jumpEqualFunction.getQuoteArguments(), variableToSlot);
+                }
+                default -> throw new IllegalStateException(
+                        "In ProgramCompiler: Unsupported instruction type: " + instruction.getClass().getSimpleName()
+                );
+            }
+
+            jumpTargets[i] = jumpTable.getJumpTargetIndex(i);   // Only read by jump opcodes
+        }
+
+        int maxInputNumber = 0;
+        for (Variable variable : variableToSlot.keySet()) {
+            if (variable.type() == VariableType.INPUT) {
+                maxInputNumber = Math.max(maxInputNumber, variable.number());
+            }
+        }
+
+        int[] inputNumberToSlot = new int[maxInputNumber];
+        Arrays.fill(inputNumberToSlot, -1);
+        for (Map.Entry<Variable, Integer> entry : variableToSlot.entrySet()) {
+            if (entry.getKey().type() == VariableType.INPUT) {
+                inputNumberToSlot[entry.getKey().number() - 1] = entry.getValue();
+            }
+        }
+
+        return new CompiledProgram(program, opcodes, targetSlots, sourceSlots, constants, jumpTargets, cycles, calls,
+                variableToSlot.size(), inputNumberToSlot, variableToSlot, inputAndWorkVariablesSorted);
+    }
+
+    private CompiledCall compileCall(Program program, String functionName, List<QuoteArgument> quoteArguments, Map<Variable, Integer> variableToSlot) {
+        Program function = program.getFunctionByName(functionName);
+        if (function == null) {
+            throw new IllegalStateException("In ProgramCompiler: Function not found: " + functionName);
+        }
+
+        CompiledArgument[] arguments = new CompiledArgument[quoteArguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = switch (quoteArguments.get(i)) {
+                case VariableArgument variableArgument ->
+                        CompiledArgument.ofSlot(slotOf(variableArgument.getVariable(), variableToSlot));
+                case FunctionArgument functionArgument ->
+                        CompiledArgument.ofCall(compileCall(program, functionArgument.getFunctionName(), functionArgument.getArguments(), variableToSlot));
+                default -> throw new IllegalStateException(
+                        "In ProgramCompiler: Unsupported QuoteArgument type: " + quoteArguments.get(i).getClass()
+                );
+            };
+        }
+
+        CompiledCall call = new CompiledCall(functionName, function, arguments);
+        unlinkedCalls.add(call);
+        return call;
+    }
+
+    private static int slotOf(Variable variable, Map<Variable, Integer> variableToSlot) {
+        if (variable == null) {
+            return RESULT_SLOT;     // Instructions without a variable (e.g. GOTO) never touch their target slot
+        }
+
+        if (variable.type() == VariableType.RESULT) {
+            return RESULT_SLOT;
+        }
+
+        return variableToSlot.computeIfAbsent(variable, k -> variableToSlot.size());
+    }
+}
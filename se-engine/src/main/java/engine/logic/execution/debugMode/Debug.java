@@ -5,11 +5,17 @@ import dto.v2.ProgramExecutorDTO;
 import engine.logic.execution.runMode.ProgramExecutor;
 import engine.logic.programData.architecture.ArchitectureType;
 
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 
 public interface Debug {
-    DebugDTO resume(List<Boolean> breakPoints) throws InterruptedException;
+    void setBreakPoints(BitSet breakPoints);       // Kept for the next resumes
+    void setResumeStepBudget(long resumeStepBudget);    // A resume pauses after this many instructions (default: no limit)
+    boolean isPausedOnStepBudget();                     // The last resume paused because of the step budget
+    DebugDTO resume() throws InterruptedException;
+    DebugDTO resume(List<Boolean> breakPoints) throws InterruptedException;     // Sets the breakpoints and resumes
     DebugDTO stepOver();
     DebugDTO stepBack();
     DebugDTO stop();
@@ -20,4 +26,8 @@ public interface Debug {
     ProgramExecutor getDebugProgramExecutor();
     int getCurrentInstructionIndex();
     int getNextInstructionIndex();
+
+    // Not thread safe: the requests of a session run one after the other under its lock (a Lock, not the object's
+    // monitor - a resume holds it for long, and a virtual thread in a synchronized block can't yield its carrier)
+    Lock getLock();
 }
@@ -5,86 +5,109 @@ import dto.v2.ProgramDTO;
 import dto.v2.ProgramExecutorDTO;
 import dto.v3.UserDTO;
 import engine.EngineImpl;
-import engine.logic.execution.ExecutionContext;
-import engine.logic.execution.ExecutionContextImpl;
+import engine.logic.exceptions.ExecutionInterruptedException;
+import engine.logic.execution.compiledMode.CompiledExecutionContext;
+import engine.logic.execution.compiledMode.CompiledProgram;
+import engine.logic.execution.compiledMode.CompiledProgramExecutor;
+import engine.logic.execution.compiledMode.ProgramCompiler;
 import engine.logic.execution.runMode.ProgramExecutor;
 import engine.logic.execution.runMode.ProgramExecutorImpl;
 import engine.logic.programData.architecture.ArchitectureType;
 import engine.logic.programData.instruction.Instruction;
 import engine.logic.programData.label.FixedLabel;
 import engine.logic.programData.label.Label;
+import engine.logic.programData.program.JumpTable;
 import engine.logic.programData.program.Program;
+import engine.logic.programData.variable.Variable;
+import engine.logic.programData.variable.VariableType;
 import engine.user.UserLogic;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
 
-import static engine.EngineImpl.buildProgramDTO;
+import static engine.EngineImpl.getProgramDTO;
 
 public class DebugImpl implements Debug {
 
     private final UserDTO userDTO;
     private final ProgramExecutor programExecutor;
-    private final ProgramExecutor initializeProgramExecutor;
     private final Program program;
 
-    private final ExecutionContext context = new ExecutionContextImpl();
+    private final CompiledExecutionContext context;         // Stepped by the instructions, resumed by the compiled program
+    private final CompiledProgramExecutor resumeExecutor;
     private final List<Instruction> instructions;
+    private final JumpTable jumpTable;
 
-    private String targetVariable;
+    // Kept for the session (the client sends them only when they change)
+    private final Lock lock = new ReentrantLock();
+    private final BitSet breakPoints = new BitSet();
+    private final BitSet exitLabeledInstructions = new BitSet();
+    private final BitSet stopInstructions = new BitSet();     // Resume stops before these: breakpoints and EXIT labeled instructions
+
+    private int lastExecutedInstructionIndex = -1;      // Its target variable is the one shown (-1: nothing executed yet)
 
     private int currentInstructionIndex = 0;
     private int nextInstructionIndex = 0;
     private int currentCycles = 0;
-    private final List<DebugDTO> stepsHistory = new ArrayList<>();
+    private final String[] variableNames;               // The shown variables (result first), in the order of the history slots
+    private final DebugStepsHistory stepsHistory;       // The snapshots as deltas - a DebugDTO is built only when returned
     private int historyPointer = -1;
     private boolean justStoppedOnBreakpoint = false;
+    private long resumeStepBudget = Long.MAX_VALUE;     // A resume pauses after this many instructions
+    private boolean pausedOnStepBudget = false;         // The last resume paused because of the step budget
 
     public DebugImpl(Program program, ArchitectureType architectureTypeSelected, int degree, List<Long> inputs, UserDTO userDTO) {
-        this.program = program;
+        this(ProgramCompiler.compile(program), architectureTypeSelected, degree, inputs, userDTO);
+    }
+
+    public DebugImpl(CompiledProgram compiledProgram, ArchitectureType architectureTypeSelected, int degree, List<Long> inputs, UserDTO userDTO) {
+        this.program = compiledProgram.getProgram();
         this.userDTO = userDTO;
         this.instructions = program.getInstructionsList();
+        this.jumpTable = program.getJumpTable();
+        this.context = new CompiledExecutionContext(compiledProgram);
+        this.resumeExecutor = new CompiledProgramExecutor(compiledProgram, architectureTypeSelected);
         context.initializeVariables(program, inputs.toArray(new Long[0]));
-        ExecutionContext initializeContext = new ExecutionContextImpl();
-        initializeContext.initializeVariables(program, inputs.toArray(new Long[0]));
-
-        this.programExecutor = new ProgramExecutorImpl(program, architectureTypeSelected);
-        this.programExecutor.setInputsValues(inputs);
-        this.programExecutor.setRunDegree(degree);
-
-        this.initializeProgramExecutor = new ProgramExecutorImpl(program, architectureTypeSelected);
-        this.initializeProgramExecutor.setInputsValues(inputs);
-        this.initializeProgramExecutor.setRunDegree(degree);
-        this.initializeProgramExecutor.setExecutionContext(initializeContext);
-        this.initializeProgramExecutor.setTotalCycles(currentCycles);
-    }
 
-    private boolean checkAndStopAtBreakpoint(List<Boolean> breakPoints) {
-        if (currentInstructionIndex < breakPoints.size() && breakPoints.get(currentInstructionIndex)) {
-            DebugDTO snapshot;
+        for (int i = 0; i < instructions.size(); i++) {
+            if (instructions.get(i).getLabel().equals(FixedLabel.EXIT)) {
+                exitLabeledInstructions.set(i);
+            }
+        }
+        stopInstructions.or(exitLabeledInstructions);
+
+        ProgramExecutorImpl debugProgramExecutor = new ProgramExecutorImpl(program, architectureTypeSelected);
+        debugProgramExecutor.setInputsValues(inputs);
+        debugProgramExecutor.setRunDegree(degree);
+        this.programExecutor = debugProgramExecutor;
+
+        List<Variable> variablesSorted = debugProgramExecutor.getVariablesSorted();
+        Variable[] variables = new Variable[variablesSorted.size() + 1];
+        this.variableNames = new String[variables.length];
+        variables[0] = Variable.RESULT;
+        variableNames[0] = VariableType.RESULT.getVariableRepresentation(0);
+        for (int slot = 1; slot < variables.length; slot++) {
+            variables[slot] = variablesSorted.get(slot - 1);
+            variableNames[slot] = variables[slot].getRepresentation();
+        }
 
+        this.stepsHistory = new DebugStepsHistory(variables, context);
+    }
+
+    private boolean checkAndStopAtBreakpoint() {
+        if (breakPoints.get(currentInstructionIndex)) {
             // Case: very first instruction, before any step was executed
             if (currentInstructionIndex == 0 && historyPointer < 0) {
-                ProgramExecutorDTO initializedExecutorDTO = buildProgramExecutorDTO(initializeProgramExecutor);
-
-                snapshot = new DebugDTO(
-                        this.programExecutor.getProgram().getName(),
-                        this.programExecutor.getArchitectureTypeSelected().getRepresentation(),
-                        0, // current instruction index
-                        0, // next instruction index (still at start)
-                        hasMoreInstructions(),
-                        null, // no target variable yet
-                        initializedExecutorDTO.getDegree(),
-                        initializedExecutorDTO.getResult(),
-                        initializedExecutorDTO.getTotalCycles(),
-                        initializedExecutorDTO.getVariablesToValuesSorted()
-                );
+                stepsHistory.addInitialState(0);
             } else {
                 // Normal case, after at least one step
-                snapshot = buildDebugDTO();
+                addSnapshotToHistory();
             }
 
-            stepsHistory.add(snapshot);
             historyPointer = stepsHistory.size() - 1;
             justStoppedOnBreakpoint = true;
             return true;
@@ -93,19 +116,60 @@ public class DebugImpl implements Debug {
     }
 
 
+    @Override
+    public void setBreakPoints(BitSet breakPoints) {
+        this.breakPoints.clear();
+        this.breakPoints.or(breakPoints);
+
+        stopInstructions.clear();
+        stopInstructions.or(breakPoints);
+        stopInstructions.or(exitLabeledInstructions);
+    }
+
     @Override
     public DebugDTO resume(List<Boolean> breakPoints) throws InterruptedException {
+        BitSet breakPointsBits = new BitSet(breakPoints.size());
+        for (int i = 0; i < breakPoints.size(); i++) {
+            if (Boolean.TRUE.equals(breakPoints.get(i))) {
+                breakPointsBits.set(i);
+            }
+        }
+
+        setBreakPoints(breakPointsBits);
+        return resume();
+    }
+
+    @Override
+    public void setResumeStepBudget(long resumeStepBudget) {
+        if (resumeStepBudget <= 0) {
+            throw new IllegalArgumentException("In DebugImpl: the resume step budget must be positive, got " + resumeStepBudget);
+        }
+        this.resumeStepBudget = resumeStepBudget;
+    }
+
+    @Override
+    public boolean isPausedOnStepBudget() {
+        return pausedOnStepBudget;
+    }
+
+    @Override
+    public DebugDTO resume() throws InterruptedException {
+        pausedOnStepBudget = false;
+        long stepsLeft = resumeStepBudget;
+
         // If resume is called before any step has been executed
         if (historyPointer < 0 && hasMoreInstructions()) {
-            if (checkAndStopAtBreakpoint(breakPoints)) {
-                return stepsHistory.get(historyPointer);
+            if (checkAndStopAtBreakpoint()) {
+                return buildDebugDTO(historyPointer);
             }
             stepOver();   // create the first snapshot
+            stepsLeft--;
         }
 
         if (justStoppedOnBreakpoint) {
             justStoppedOnBreakpoint = false;
             stepOver();
+            stepsLeft--;
         }
 
         while (hasMoreInstructions()) {
@@ -114,50 +178,55 @@ public class DebugImpl implements Debug {
                 throw new InterruptedException("In DebugImpl - resume(): currentThread cancelled by user");
             }
 
-            if (checkAndStopAtBreakpoint(breakPoints)) {
-                return stepsHistory.get(historyPointer);
+            if (checkAndStopAtBreakpoint()) {
+                return buildDebugDTO(historyPointer);
             }
 
-            stepOverWithoutSavingHistory();
+            if (stepsLeft <= 0) {       // Pause here, like on a breakpoint (the next resume continues from here)
+                addSnapshotToHistory();
+                historyPointer = stepsHistory.size() - 1;
+                pausedOnStepBudget = true;
+                return buildDebugDTO(historyPointer);
+            }
+
+            stepsLeft -= runToNextStop(stepsLeft);
         }
 
         // finished program (no more instructions)
-        DebugDTO finalSnapshot = buildDebugDTO();
-        stepsHistory.add(finalSnapshot);
+        addSnapshotToHistory();
         historyPointer = stepsHistory.size() - 1;
 
-        return finalSnapshot;
+        return buildDebugDTO(historyPointer);
     }
 
 
-    // Note: ** NOT touch history here **
-    private void stepOverWithoutSavingHistory() {
-        if (currentInstructionIndex >= instructions.size()) {
-            return; // already out of range
-        }
+    // Runs the compiled program from the current instruction until a breakpoint, an EXIT labeled instruction, the end,
+    // or 'maxInstructions' instructions. Returns how many instructions ran.
+    // Note: ** NOT touch history here ** (and no DTOs - the credits are charged in batches, the cycles added once)
+    private long runToNextStop(long maxInstructions) throws InterruptedException {
+        int cyclesBefore = currentCycles;
+        resumeExecutor.setTotalCycles(currentCycles);
 
-        Instruction currentInstruction = instructions.get(currentInstructionIndex);
-
-        // Execute the instruction on the current context
-        Label nextInstructionLabel = currentInstruction.execute(context, userDTO);
-
-        // Update cycles and credits
-        updateCyclesAndCredits(currentInstruction);
+        try {
+            resumeExecutor.runInstructions(context.getSlots(), currentInstructionIndex, stopInstructions, maxInstructions, userDTO);
+        } catch (ExecutionInterruptedException e) {
+            updateProgramExecutorData();        // Interrupted between instructions
+            throw new InterruptedException("In DebugImpl - resume(): currentThread cancelled by user");
+        } finally {
+            // Out of credits: like a step that ran out of credits - the cycles are counted, the index isn't advanced
+            currentCycles = resumeExecutor.getTotalCycles();
+            programExecutor.getProgram().addCreditCost(currentCycles - cyclesBefore);
+
+            if (resumeExecutor.getLastExecutedIndex() >= 0) {
+                lastExecutedInstructionIndex = resumeExecutor.getLastExecutedIndex();   // Its target variable is shown
+            }
 
-        // Update target variable if exists
-        if (currentInstruction.getTargetVariable() != null) {
-            targetVariable = currentInstruction.getTargetVariable().getRepresentation();
-        } else {
-            targetVariable = null;
+            nextInstructionIndex = resumeExecutor.getStoppedAtIndex();
+            currentInstructionIndex = nextInstructionIndex;
         }
 
-        // Update programExecutor (context + cycles)
         updateProgramExecutorData();
-
-        // Update index of the next instruction
-        updateNextInstructionIndexToNextIndex(nextInstructionLabel);
-        currentInstructionIndex = nextInstructionIndex;
-
+        return resumeExecutor.getExecutedInstructionsCount();
     }
 
     @Override
@@ -170,87 +239,69 @@ public class DebugImpl implements Debug {
             else if(historyPointer == stepsHistory.size() - 1) {
                 Instruction currentInstruction = instructions.get(currentInstructionIndex);
                 Label nextInstructionLabel = currentInstruction.execute(context, userDTO);
-                targetVariable = currentInstruction.getTargetVariable().getRepresentation();
+                lastExecutedInstructionIndex = currentInstructionIndex;
 
                 updateCyclesAndCredits(currentInstruction);
                 updateProgramExecutorData();
                 updateNextInstructionIndexToNextIndex(nextInstructionLabel);
 
                 currentInstructionIndex = nextInstructionIndex;
-                stepsHistory.add(buildDebugDTO());
+                addSnapshotToHistory();
                 ++historyPointer;
             }
             else {    // When historyPointer is less than the list size
                 historyPointer++;
                 updateCreditsOnly();
-                DebugDTO dto = stepsHistory.get(historyPointer);
-                currentInstructionIndex = dto.getCurrentInstructionNumber();
-                nextInstructionIndex = dto.getNextInstructionNumber();
+                currentInstructionIndex = stepsHistory.getCurrentInstructionIndex(historyPointer);
+                nextInstructionIndex = stepsHistory.getNextInstructionIndex(historyPointer);
             }
         }
 
-        return stepsHistory.get(historyPointer);
+        return buildDebugDTO(historyPointer);
     }
 
     private void updateNextInstructionIndexToNextIndex(Label nextInstructionLabel) {
-        if (nextInstructionLabel.equals(FixedLabel.EMPTY)) {
-            nextInstructionIndex++;  // Step Over
-        } else if (nextInstructionLabel.equals(FixedLabel.EXIT)) {
-            nextInstructionIndex = instructions.size(); // Finish
-        } else {
-            nextInstructionIndex = program.getLabelToInstruction().get(nextInstructionLabel).getInstructionNumber() - 1; // Jump to instruction by label   // Instructions start counting from 1
-        }
+        nextInstructionIndex = jumpTable.getNextIndex(nextInstructionIndex, nextInstructionLabel);  // Step over / jump / finish (exit index = instructions size)
     }
 
     @Override
     public DebugDTO stepBack() {
         historyPointer--;
 
+        if (stepsHistory.getFirstSnapshot() > 0 && historyPointer < stepsHistory.getFirstSnapshot()) {     // The oldest snapshots were dropped - stay at the oldest kept one
+            historyPointer = stepsHistory.getFirstSnapshot();
+            currentInstructionIndex = stepsHistory.getCurrentInstructionIndex(historyPointer);
+            nextInstructionIndex = stepsHistory.getNextInstructionIndex(historyPointer);
+            return buildDebugDTO(historyPointer);
+        }
+
         if (historyPointer < 0) {    // Before start
             // Charge for stepping back over the very first step (totalCycles at step 0 minus first step)
             if (!stepsHistory.isEmpty()) {
-                int firstStepCycles = stepsHistory.getFirst().getTotalCycles();
+                int firstStepCycles = stepsHistory.getTotalCycles(0);
                 UserLogic.subtractCredits(userDTO, firstStepCycles); // consume credits for the action
             }
 
             currentInstructionIndex = 0;
             nextInstructionIndex = 0;
 
-            ProgramExecutorDTO initializedProgramExecutor = buildProgramExecutorDTO(initializeProgramExecutor);
-
-            return new DebugDTO(
-                    this.programExecutor.getProgram().getName(),
-                    this.programExecutor.getArchitectureTypeSelected().getRepresentation(),
-                    getCurrentInstructionIndex(),
-                    getNextInstructionIndex(),
-                    hasMoreInstructions(),
-                    null,
-                    initializedProgramExecutor.getDegree(),
-                    initializedProgramExecutor.getResult(),
-                    initializedProgramExecutor.getTotalCycles(),
-                    initializedProgramExecutor.getVariablesToValuesSorted()
-            );
+            return buildInitialDebugDTO();
         }
 
         // Case: historyPointer is still inside the valid range
         if (historyPointer < stepsHistory.size()) {
             // We already have a snapshot for this step
             updateCreditsOnly();
-            DebugDTO dto = stepsHistory.get(historyPointer);
-            currentInstructionIndex = dto.getCurrentInstructionNumber();
-            nextInstructionIndex = dto.getNextInstructionNumber();
-            return dto;
         } else {
             // We got here after a resume run that skipped saving some states
-            DebugDTO snapshot = buildDebugDTO();
-            stepsHistory.add(snapshot);
+            addSnapshotToHistory();
             historyPointer = stepsHistory.size() - 1;
-
             updateCreditsOnly();
-            currentInstructionIndex = snapshot.getCurrentInstructionNumber();
-            nextInstructionIndex = snapshot.getNextInstructionNumber();
-            return snapshot;
         }
+
+        currentInstructionIndex = stepsHistory.getCurrentInstructionIndex(historyPointer);
+        nextInstructionIndex = stepsHistory.getNextInstructionIndex(historyPointer);
+        return buildDebugDTO(historyPointer);
     }
 
     @Override
@@ -258,39 +309,30 @@ public class DebugImpl implements Debug {
         // Case 1: no steps were executed yet
         if (historyPointer < 0 || stepsHistory.isEmpty()) {
             // Return initialized program state (before first step)
-            ProgramExecutorDTO initializedExecutorDTO = buildProgramExecutorDTO(initializeProgramExecutor);
-
-            return new DebugDTO(
-                    program.getName(),
-                    programExecutor.getArchitectureTypeSelected().getRepresentation(),
-                    0, // current instruction
-                    0, // next instruction
-                    hasMoreInstructions(),
-                    null, // no target variable
-                    initializedExecutorDTO.getDegree(),
-                    initializedExecutorDTO.getResult(),
-                    initializedExecutorDTO.getTotalCycles(),
-                    initializedExecutorDTO.getVariablesToValuesSorted()
-            );
+            return buildInitialDebugDTO();
         }
 
         // Case 2: normal stop after some execution
-        return stepsHistory.get(historyPointer);
+        return buildDebugDTO(historyPointer);
     }
 
     @Override
     public boolean hasMoreInstructions() {
-        if (currentInstructionIndex >= instructions.size()) {
+        return hasMoreInstructionsAt(currentInstructionIndex);
+    }
+
+    private boolean hasMoreInstructionsAt(int instructionIndex) {
+        if (instructionIndex >= instructions.size()) {
             return false;
         }
 
-        return !instructions.get(currentInstructionIndex).getLabel().equals(FixedLabel.EXIT);   // If label is not 'EXIT' than true
+        return !instructions.get(instructionIndex).getLabel().equals(FixedLabel.EXIT);   // If label is not 'EXIT' than true
     }
 
     @Override
     public ProgramExecutorDTO buildProgramExecutorDTO(ProgramExecutor programExecutor) {
         try {
-            ProgramDTO programDTO = buildProgramDTO(this.program);
+            ProgramDTO programDTO = getProgramDTO(this.program);
             return EngineImpl.buildProgramExecutorDTO(programDTO, programExecutor);
         } catch (Exception ev) {
             throw new IllegalArgumentException("In DebugImpl: Instruction number: "
@@ -313,30 +355,66 @@ public class DebugImpl implements Debug {
         return nextInstructionIndex; // Return the index after the update
     }
 
-    private DebugDTO buildDebugDTO() {
-        ProgramExecutorDTO executorDTO = buildProgramExecutorDTO(this.programExecutor);
+    @Override
+    public Lock getLock() {
+        return lock;
+    }
+
+    // A snapshot of the current state (the values are read from the context)
+    private void addSnapshotToHistory() {
+        stepsHistory.add(currentInstructionIndex, nextInstructionIndex, lastExecutedInstructionIndex, programExecutor.getTotalCycles(), context);
+    }
+
+    private DebugDTO buildDebugDTO(int snapshot) {
+        int snapshotInstructionIndex = stepsHistory.getCurrentInstructionIndex(snapshot);
+        long[] values = stepsHistory.getValues(snapshot);
+
+        return new DebugDTO(
+                program.getName(),
+                programExecutor.getArchitectureTypeSelected().getRepresentation(),
+                snapshotInstructionIndex,
+                stepsHistory.getNextInstructionIndex(snapshot),
+                hasMoreInstructionsAt(snapshotInstructionIndex),
+                getTargetVariableOfInstruction(stepsHistory.getLastExecutedInstructionIndex(snapshot)),
+                programExecutor.getRunDegree(),
+                values[0],
+                stepsHistory.getTotalCycles(snapshot),
+                buildVariablesToValues(values)
+        );
+    }
+
+    private DebugDTO buildInitialDebugDTO() {
+        long[] initialValues = stepsHistory.getInitialValues();
 
         return new DebugDTO(
-                this.programExecutor.getProgram().getName(),
-                this.programExecutor.getArchitectureTypeSelected().getRepresentation(),
-                getCurrentInstructionIndex(),
-                getNextInstructionIndex(),
+                program.getName(),
+                programExecutor.getArchitectureTypeSelected().getRepresentation(),
+                0, // current instruction
+                0, // next instruction
                 hasMoreInstructions(),
-                getTargetVariableOfCurrentInstruction(),
-                executorDTO.getDegree(),
-                executorDTO.getResult(),
-                executorDTO.getTotalCycles(),
-                executorDTO.getVariablesToValuesSorted()
+                null, // no target variable
+                programExecutor.getRunDegree(),
+                initialValues[0],
+                0,
+                buildVariablesToValues(initialValues)
         );
     }
 
+    private Map<String, Long> buildVariablesToValues(long[] values) {
+        Map<String, Long> variablesToValues = new LinkedHashMap<>();
+        for (int slot = 0; slot < variableNames.length; slot++) {
+            variablesToValues.put(variableNames[slot], values[slot]);
+        }
+        return variablesToValues;
+    }
+
     private void updateCreditsOnly() {
         if (historyPointer <= 0) {
             return; // No previous level to compare to
         }
 
-        int totalCyclesInCurrentInstruction = stepsHistory.get(historyPointer).getTotalCycles();
-        int totalCyclesInPreviousInstruction = stepsHistory.get(historyPointer - 1).getTotalCycles();
+        int totalCyclesInCurrentInstruction = stepsHistory.getTotalCycles(historyPointer);
+        int totalCyclesInPreviousInstruction = stepsHistory.getTotalCycles(historyPointer - 1);
         int currentInstructionCycles = totalCyclesInCurrentInstruction - totalCyclesInPreviousInstruction;
 
         UserLogic.subtractCredits(userDTO, currentInstructionCycles);
@@ -344,7 +422,7 @@ public class DebugImpl implements Debug {
     }
 
     private void updateCyclesAndCredits(Instruction currentInstruction) {
-        int currentInstructionCycles = currentInstruction.getCycleOfInstruction();
+        int currentInstructionCycles = currentInstruction.getCycleOfExecution(context);
         currentCycles += currentInstructionCycles;
 
         UserLogic.subtractCredits(userDTO, currentInstructionCycles);
@@ -356,7 +434,10 @@ public class DebugImpl implements Debug {
         this.programExecutor.setTotalCycles(currentCycles);
     }
 
-    private String getTargetVariableOfCurrentInstruction() {    // If: don't have target variable -> return null
-        return targetVariable;
+    private String getTargetVariableOfInstruction(int instructionIndex) {    // If: don't have target variable -> return null
+        if (instructionIndex < 0 || instructions.get(instructionIndex).getTargetVariable() == null) {
+            return null;
+        }
+        return instructions.get(instructionIndex).getTargetVariable().getRepresentation();
     }
 }
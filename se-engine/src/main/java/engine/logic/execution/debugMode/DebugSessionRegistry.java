@@ -0,0 +1,208 @@
+package engine.logic.execution.debugMode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Holds the debug session of every user (at most one per user), and forgets sessions that aren't used:
+// - A session expires 'idleTtlMillis' after it was last used
+// - Above 'maxSessions' sessions, the least recently used ones are removed early
+// A session isn't removed while a resume runs on it (startResume / endResume) - its idle time starts when the resume ends.
+// The engine has no lifecycle (no place to stop a thread), so there is no background sweeper: the expired sessions are
+// removed by the registry calls themselves, at most once per sweep interval.
+// The usernames of removed sessions are remembered (a bounded number of them, until the user starts a new session),
+// so a request on a removed session can be told it expired instead of "no debug session"
+public class DebugSessionRegistry {
+
+    public static final long DEFAULT_IDLE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    public static final int DEFAULT_MAX_SESSIONS = 1_000;
+
+    // Can be overridden by system properties (e.g. in CATALINA_OPTS)
+    public static final String IDLE_TTL_SECONDS_PROPERTY = "se.debugSession.idleTtlSeconds";
+    public static final String MAX_SESSIONS_PROPERTY = "se.debugSession.maxSessions";
+
+    private static final int MAX_EXPIRED_USERNAMES = 100_000;
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final class Session {
+        private final Debug debug;
+        private volatile long lastAccessMillis;
+        private int resumesCount = 0;       // Running resumes (guarded by the session)
+
+        private Session(Debug debug, long lastAccessMillis) {
+            this.debug = debug;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+
+    private final long idleTtlMillis;
+    private final int maxSessions;
+    private final long sweepIntervalMillis;
+    private final Map<String, Session> usernameToSession = new ConcurrentHashMap<>();
+    private final Set<String> expiredUsernames;                                     // Oldest username is dropped first
+    private final AtomicLong nextSweepAtMillis = new AtomicLong();
+
+    // Metrics:
+    private final AtomicLong expiredCount = new AtomicLong();       // Removed after the idle TTL
+    private final AtomicLong evictedCount = new AtomicLong();       // Removed before the idle TTL, because the registry was full
+
+    public DebugSessionRegistry(long idleTtlMillis, int maxSessions) {
+        if (idleTtlMillis <= 0 || maxSessions <= 0) {
+            throw new IllegalArgumentException("Debug session idle TTL and max sessions must be positive");
+        }
+
+        this.idleTtlMillis = idleTtlMillis;
+        this.maxSessions = maxSessions;
+        this.sweepIntervalMillis = Math.max(1, Math.min(idleTtlMillis / 2, MAX_SWEEP_INTERVAL_MILLIS));
+        this.nextSweepAtMillis.set(System.currentTimeMillis() + sweepIntervalMillis);
+        this.expiredUsernames = Collections.newSetFromMap(Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_EXPIRED_USERNAMES;
+            }
+        }));
+    }
+
+    public static DebugSessionRegistry fromSystemProperties() {
+        return new DebugSessionRegistry(
+                TimeUnit.SECONDS.toMillis(Long.getLong(IDLE_TTL_SECONDS_PROPERTY, TimeUnit.MILLISECONDS.toSeconds(DEFAULT_IDLE_TTL_MILLIS))),
+                Integer.getInteger(MAX_SESSIONS_PROPERTY, DEFAULT_MAX_SESSIONS));
+    }
+
+    // Replaces the user's previous session (if any)
+    public void put(String username, Debug debug) {
+        long now = System.currentTimeMillis();
+        sweepIfDue(now);
+
+        usernameToSession.put(username, new Session(debug, now));
+        expiredUsernames.remove(username);
+
+        if (usernameToSession.size() > maxSessions) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    // Null if the user has no session, or it was removed (see isExpired). Counts as a use of the session
+    public Debug get(String username) {
+        Session session = getSession(username);
+        return (session != null) ? session.debug : null;
+    }
+
+    // Like get, and the session isn't removed until endResume is called (a resume may run longer than the idle TTL)
+    public Debug startResume(String username) {
+        Session session = getSession(username);
+        if (session == null) {
+            return null;
+        }
+
+        synchronized (session) {
+            if (usernameToSession.get(username) != session) {      // Removed (or replaced) meanwhile
+                return null;
+            }
+            session.resumesCount++;
+        }
+        return session.debug;
+    }
+
+    // After the resume of startResume ended (also when it threw)
+    public void endResume(String username, Debug debug) {
+        Session session = usernameToSession.get(username);
+        if (session == null || session.debug != debug) {
+            return;
+        }
+
+        synchronized (session) {
+            session.resumesCount--;
+            session.lastAccessMillis = System.currentTimeMillis();
+        }
+    }
+
+    private Session getSession(String username) {
+        long now = System.currentTimeMillis();
+        sweepIfDue(now);
+
+        Session session = usernameToSession.get(username);
+        if (session == null) {
+            return null;
+        }
+
+        if (now - session.lastAccessMillis >= idleTtlMillis && remove(username, session)) {   // Expired since the last sweep
+            expiredCount.incrementAndGet();
+            return null;
+        }
+
+        session.lastAccessMillis = now;
+        return session;
+    }
+
+    public boolean isExpired(String username) {
+        return !usernameToSession.containsKey(username) && expiredUsernames.contains(username);
+    }
+
+    private void sweepIfDue(long now) {
+        long nextSweepAt = nextSweepAtMillis.get();
+        if (now >= nextSweepAt && nextSweepAtMillis.compareAndSet(nextSweepAt, now + sweepIntervalMillis)) {
+            removeExpired(now);
+        }
+    }
+
+    void removeExpired(long now) {
+        for (Map.Entry<String, Session> entry : usernameToSession.entrySet()) {
+            if (now - entry.getValue().lastAccessMillis >= idleTtlMillis && remove(entry.getKey(), entry.getValue())) {
+                expiredCount.incrementAndGet();
+            }
+        }
+    }
+
+    // Removes the least recently used sessions, down to 90% of the max (so it doesn't run again on the next put).
+    // Sessions with a running resume are skipped
+    private synchronized void evictLeastRecentlyUsed() {
+        int toEvict = usernameToSession.size() - (maxSessions - maxSessions / 10);
+        if (toEvict <= 0) {
+            return;
+        }
+
+        List<Map.Entry<String, Session>> sessions = new ArrayList<>(usernameToSession.entrySet());
+        sessions.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccessMillis));
+
+        int evicted = 0;
+        for (int i = 0; evicted < toEvict && i < sessions.size(); i++) {
+            if (remove(sessions.get(i).getKey(), sessions.get(i).getValue())) {
+                evictedCount.incrementAndGet();
+                evicted++;
+            }
+        }
+    }
+
+    // Only if it's still that session (the user may have started a new one meanwhile), and no resume runs on it
+    private boolean remove(String username, Session session) {
+        synchronized (session) {
+            if (session.resumesCount > 0) {
+                return false;
+            }
+
+            expiredUsernames.add(username);         // Before removing, so the user is never both without a session and not expired
+            if (usernameToSession.remove(username, session)) {
+                return true;
+            }
+        }
+
+        if (usernameToSession.containsKey(username)) {
+            expiredUsernames.remove(username);
+        }
+        return false;
+    }
+
+    public int getSize() {
+        return usernameToSession.size();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+}
@@ -0,0 +1,230 @@
+package engine.logic.execution.debugMode;
+
+import engine.logic.execution.ExecutionContext;
+import engine.logic.programData.variable.Variable;
+
+import java.util.Arrays;
+
+// The snapshots of a debug session, kept as deltas: per snapshot only the instruction indexes, the total cycles and the
+// variables that changed since the previous snapshot (slot, old value, new value), in primitive arrays.
+// Every CHECKPOINT_INTERVAL snapshots all the values are kept too, so any snapshot is rebuilt from the nearest checkpoint.
+// Moving to the next / previous snapshot applies / undoes one delta on the 'view' values, so stepping is O(1) amortized.
+// At MAX_SNAPSHOTS the older half is dropped (the session can't step back before it anymore).
+// Snapshots are numbered from the start of the session (like DebugImpl.historyPointer), also after dropping
+class DebugStepsHistory {
+
+    static final int CHECKPOINT_INTERVAL = 64;
+    static final int MAX_SNAPSHOTS = 1 << 16;
+    private static final int INITIAL_CAPACITY = CHECKPOINT_INTERVAL;
+    private static final int NO_SNAPSHOT = Integer.MIN_VALUE;
+
+    private final Variable[] variables;     // The slots, in the order they are shown
+    private final long[] initialValues;     // Before the first step
+    private final long[] tipValues;         // At the last snapshot
+    private final long[] viewValues;        // At 'viewSnapshot'
+    private int viewSnapshot = NO_SNAPSHOT;
+
+    private int firstSnapshot = 0;          // Number of the oldest kept snapshot
+    private int snapshotsCount = 0;         // Kept snapshots
+    private int cyclesBeforeFirstSnapshot = 0;
+
+    // Per snapshot (position = number - firstSnapshot)
+    private int[] currentInstructionIndexes = new int[INITIAL_CAPACITY];
+    private int[] nextInstructionIndexes = new int[INITIAL_CAPACITY];
+    private int[] lastExecutedInstructionIndexes = new int[INITIAL_CAPACITY];     // -1: no instruction executed yet
+    private int[] totalCycles = new int[INITIAL_CAPACITY];
+    private int[] changesEnd = new int[INITIAL_CAPACITY];         // The changes of a snapshot end here (and start at the previous end)
+    private long[][] checkpoints = new long[1][];                 // Per CHECKPOINT_INTERVAL positions: the values at its first snapshot
+
+    // All the changes, in order
+    private int[] changedSlots = new int[INITIAL_CAPACITY];
+    private long[] oldValues = new long[INITIAL_CAPACITY];
+    private long[] newValues = new long[INITIAL_CAPACITY];
+    private int changesCount = 0;
+
+    DebugStepsHistory(Variable[] variables, ExecutionContext initialContext) {
+        this.variables = variables;
+        this.initialValues = new long[variables.length];
+        for (int slot = 0; slot < variables.length; slot++) {
+            initialValues[slot] = initialContext.getVariableValue(variables[slot]);
+        }
+
+        this.tipValues = initialValues.clone();
+        this.viewValues = new long[variables.length];
+    }
+
+    int size() {
+        return firstSnapshot + snapshotsCount;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int getFirstSnapshot() {
+        return firstSnapshot;
+    }
+
+    // Adds a snapshot of the values in the context (only the slots that changed since the last snapshot are kept)
+    void add(int currentInstructionIndex, int nextInstructionIndex, int lastExecutedInstructionIndex, int cycles, ExecutionContext context) {
+        int position = startSnapshot(currentInstructionIndex, nextInstructionIndex, lastExecutedInstructionIndex, cycles);
+        for (int slot = 0; slot < variables.length; slot++) {
+            addChange(slot, context.getVariableValue(variables[slot]));
+        }
+        endSnapshot(position);
+    }
+
+    // Adds a snapshot of the values before the first step
+    void addInitialState(int cycles) {
+        int position = startSnapshot(0, 0, -1, cycles);
+        for (int slot = 0; slot < variables.length; slot++) {
+            addChange(slot, initialValues[slot]);
+        }
+        endSnapshot(position);
+    }
+
+    int getCurrentInstructionIndex(int snapshot) {
+        return currentInstructionIndexes[positionOf(snapshot)];
+    }
+
+    int getNextInstructionIndex(int snapshot) {
+        return nextInstructionIndexes[positionOf(snapshot)];
+    }
+
+    int getLastExecutedInstructionIndex(int snapshot) {
+        return lastExecutedInstructionIndexes[positionOf(snapshot)];
+    }
+
+    // Also for the snapshot before the first kept one (what it cost is still known)
+    int getTotalCycles(int snapshot) {
+        if (snapshot == firstSnapshot - 1) {
+            return cyclesBeforeFirstSnapshot;
+        }
+        return totalCycles[positionOf(snapshot)];
+    }
+
+    // The returned array is reused by the next call - don't keep or change it
+    long[] getValues(int snapshot) {
+        int position = positionOf(snapshot);
+
+        if (viewSnapshot == NO_SNAPSHOT || Math.abs(snapshot - viewSnapshot) > CHECKPOINT_INTERVAL) {
+            int checkpointPosition = position - position % CHECKPOINT_INTERVAL;
+            System.arraycopy(checkpoints[checkpointPosition / CHECKPOINT_INTERVAL], 0, viewValues, 0, viewValues.length);
+            viewSnapshot = firstSnapshot + checkpointPosition;
+        }
+
+        while (viewSnapshot < snapshot) {      // Redo the changes of the next snapshots
+            viewSnapshot++;
+            int viewPosition = positionOf(viewSnapshot);
+            for (int change = changesStart(viewPosition); change < changesEnd[viewPosition]; change++) {
+                viewValues[changedSlots[change]] = newValues[change];
+            }
+        }
+
+        while (viewSnapshot > snapshot) {      // Undo the changes of the view snapshot
+            int viewPosition = positionOf(viewSnapshot);
+            for (int change = changesEnd[viewPosition] - 1; change >= changesStart(viewPosition); change--) {
+                viewValues[changedSlots[change]] = oldValues[change];
+            }
+            viewSnapshot--;
+        }
+
+        return viewValues;
+    }
+
+    long[] getInitialValues() {
+        return initialValues;
+    }
+
+    private int startSnapshot(int currentInstructionIndex, int nextInstructionIndex, int lastExecutedInstructionIndex, int cycles) {
+        if (snapshotsCount == MAX_SNAPSHOTS) {
+            dropOlderHalf();
+        }
+        if (snapshotsCount == currentInstructionIndexes.length) {
+            int newCapacity = Math.min(snapshotsCount * 2, MAX_SNAPSHOTS);
+            currentInstructionIndexes = Arrays.copyOf(currentInstructionIndexes, newCapacity);
+            nextInstructionIndexes = Arrays.copyOf(nextInstructionIndexes, newCapacity);
+            lastExecutedInstructionIndexes = Arrays.copyOf(lastExecutedInstructionIndexes, newCapacity);
+            totalCycles = Arrays.copyOf(totalCycles, newCapacity);
+            changesEnd = Arrays.copyOf(changesEnd, newCapacity);
+            checkpoints = Arrays.copyOf(checkpoints, newCapacity / CHECKPOINT_INTERVAL);
+        }
+
+        int position = snapshotsCount;
+        currentInstructionIndexes[position] = currentInstructionIndex;
+        nextInstructionIndexes[position] = nextInstructionIndex;
+        lastExecutedInstructionIndexes[position] = lastExecutedInstructionIndex;
+        totalCycles[position] = cycles;
+        return position;
+    }
+
+    private void addChange(int slot, long value) {
+        if (tipValues[slot] == value) {
+            return;
+        }
+
+        if (changesCount == changedSlots.length) {
+            int newCapacity = changesCount * 2;
+            changedSlots = Arrays.copyOf(changedSlots, newCapacity);
+            oldValues = Arrays.copyOf(oldValues, newCapacity);
+            newValues = Arrays.copyOf(newValues, newCapacity);
+        }
+
+        changedSlots[changesCount] = slot;
+        oldValues[changesCount] = tipValues[slot];
+        newValues[changesCount] = value;
+        changesCount++;
+        tipValues[slot] = value;
+    }
+
+    private void endSnapshot(int position) {
+        changesEnd[position] = changesCount;
+        if (position % CHECKPOINT_INTERVAL == 0) {
+            checkpoints[position / CHECKPOINT_INTERVAL] = tipValues.clone();
+        }
+        snapshotsCount++;
+    }
+
+    // Keeps the newer half. The new first snapshot is at a checkpoint, so the kept snapshots can still be rebuilt
+    private void dropOlderHalf() {
+        int droppedCount = snapshotsCount / 2;          // A multiple of CHECKPOINT_INTERVAL
+        int droppedChanges = changesEnd[droppedCount - 1];
+        int keptCount = snapshotsCount - droppedCount;
+
+        cyclesBeforeFirstSnapshot = totalCycles[droppedCount - 1];
+
+        System.arraycopy(currentInstructionIndexes, droppedCount, currentInstructionIndexes, 0, keptCount);
+        System.arraycopy(nextInstructionIndexes, droppedCount, nextInstructionIndexes, 0, keptCount);
+        System.arraycopy(lastExecutedInstructionIndexes, droppedCount, lastExecutedInstructionIndexes, 0, keptCount);
+        System.arraycopy(totalCycles, droppedCount, totalCycles, 0, keptCount);
+        for (int position = 0; position < keptCount; position++) {
+            changesEnd[position] = changesEnd[position + droppedCount] - droppedChanges;
+        }
+
+        int droppedCheckpoints = droppedCount / CHECKPOINT_INTERVAL;
+        System.arraycopy(checkpoints, droppedCheckpoints, checkpoints, 0, checkpoints.length - droppedCheckpoints);
+        Arrays.fill(checkpoints, checkpoints.length - droppedCheckpoints, checkpoints.length, null);
+
+        changesCount -= droppedChanges;
+        System.arraycopy(changedSlots, droppedChanges, changedSlots, 0, changesCount);
+        System.arraycopy(oldValues, droppedChanges, oldValues, 0, changesCount);
+        System.arraycopy(newValues, droppedChanges, newValues, 0, changesCount);
+
+        firstSnapshot += droppedCount;
+        snapshotsCount = keptCount;
+        viewSnapshot = NO_SNAPSHOT;
+    }
+
+    private int changesStart(int position) {
+        return (position == 0) ? 0 : changesEnd[position - 1];
+    }
+
+    private int positionOf(int snapshot) {
+        int position = snapshot - firstSnapshot;
+        if (position < 0 || position >= snapshotsCount) {
+            throw new IllegalArgumentException("In DebugStepsHistory: snapshot " + snapshot + " is not kept (kept: "
+                    + firstSnapshot + ".." + (size() - 1) + ")");
+        }
+        return position;
+    }
+}
@@ -1,6 +1,7 @@
 package engine.logic.execution.runMode;
 
 import dto.v3.UserDTO;
+import engine.logic.exceptions.ExecutionInterruptedException;
 import engine.logic.execution.ExecutionContext;
 import engine.logic.programData.architecture.ArchitectureType;
 import engine.logic.programData.program.Program;
@@ -11,6 +12,25 @@ import java.util.Map;
 
 public interface ProgramExecutor {
 
+    int INTERRUPT_CHECK_INTERVAL = 1024;    // Instructions between checks of the thread interrupt flag (a power of 2)
+
+    // A run is cancelled (or timed out) by interrupting its thread.
+    // Inside runYielding the run also yields its thread here
+    static void throwIfInterrupted(Program program) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ExecutionInterruptedException("Execution of " + program.getName() + " was interrupted");
+        }
+
+        YieldingRuns.yieldThread();
+    }
+
+    // Runs 'runs' with a Thread.yield at every interrupt check of the runs on this thread - for a caller that runs many
+    // runs on virtual threads: a run never blocks, so otherwise it holds its carrier thread until it ends and the runs
+    // waiting for a carrier don't start
+    static void runYielding(Runnable runs) {
+        YieldingRuns.run(runs);
+    }
+
     void run(UserDTO userDTO, int runDegree, Long... inputs);
     Program getProgram();
     long getVariableValue(Variable variable);
@@ -5,12 +5,15 @@ import engine.logic.execution.ExecutionContext;
 import engine.logic.execution.ExecutionContextImpl;
 import engine.logic.programData.architecture.ArchitectureType;
 import engine.logic.programData.instruction.Instruction;
-import engine.logic.programData.label.FixedLabel;
+import engine.logic.programData.instruction.synthetic.JumpEqualFunctionInstruction;
+import engine.logic.programData.instruction.synthetic.QuoteInstruction;
 import engine.logic.programData.label.Label;
+import engine.logic.programData.program.JumpTable;
 import engine.logic.programData.program.Program;
 import engine.logic.programData.variable.Variable;
+import engine.logic.programData.variable.VariableImpl;
 import engine.logic.programData.variable.VariableType;
-import engine.user.UserLogic;
+import engine.user.CreditReservation;
 
 import java.io.Serializable;
 import java.util.*;
@@ -33,40 +36,43 @@ public class ProgramExecutorImpl implements ProgramExecutor, Serializable {
 
     @Override
     public void run(UserDTO userDTO, int runDegree, Long... inputs) {
-        Instruction currentInstruction = program.getInstructionsList().getFirst();
-        Instruction nextInstruction = null;
-        Label nextLabel;
+        List<Instruction> instructions = program.getInstructionsList();
+        JumpTable jumpTable = program.getJumpTable();
+        int exitIndex = jumpTable.getExitIndex();
+        int currentIndex = 0;
+        int executedInstructions = 0;
 
         inputsValues = List.of(inputs);
         context.initializeVariables(program, inputs);
         this.runDegree = runDegree;
 
-        do {
-            nextLabel = currentInstruction.execute(context, userDTO);
-
-            // Cycles update:
-            int currentInstructionCycles  = currentInstruction.getCycleOfInstruction();
-            totalCycles += currentInstructionCycles ;
-            UserLogic.subtractCredits(userDTO, currentInstructionCycles);
-
-            if (nextLabel == FixedLabel.EMPTY) {
-                int indexOfNextInstruction = program.getInstructionsList().indexOf(currentInstruction) + 1;
-
-                // If there is more instructions, else Exit
-                if (indexOfNextInstruction < program.getInstructionsList().size()) {
-                    nextInstruction = program.getInstructionsList().get(indexOfNextInstruction);
-                } else {
-                    nextLabel = FixedLabel.EXIT;
+        CreditReservation credits = new CreditReservation(userDTO);     // Charged per instruction, taken from the user in blocks
+        try {
+            while (currentIndex < exitIndex) {
+                if ((++executedInstructions & (INTERRUPT_CHECK_INTERVAL - 1)) == 0) {
+                    ProgramExecutor.throwIfInterrupted(program);
                 }
-                } else if (nextLabel != FixedLabel.EXIT) {
-                        nextInstruction = program.getInstructionByLabel(nextLabel);
+
+                Instruction currentInstruction = instructions.get(currentIndex);
+                if (currentInstruction instanceof QuoteInstruction || currentInstruction instanceof JumpEqualFunctionInstruction) {
+                    credits.settle();       // The function charges the user itself
                 }
+                Label nextLabel = currentInstruction.execute(context, userDTO);
 
-                currentInstruction = nextInstruction;
+                // Cycles update:
+                int currentInstructionCycles  = currentInstruction.getCycleOfExecution(context);
+                totalCycles += currentInstructionCycles ;
+                credits.consume(currentInstructionCycles);
 
-        } while(nextLabel != FixedLabel.EXIT);
+                currentIndex = jumpTable.getNextIndex(currentIndex, nextLabel);
+            }
+        } finally {
+            credits.settle();
+        }
 
-        this.program.addCreditCost(totalCycles);
+        if (architectureTypeSelected != null) {     // Inner function calls (no architecture) are charged to their caller only
+            this.program.addCreditCost(totalCycles);
+        }
         context.getVariableValue(Variable.RESULT);
     }
 
@@ -110,21 +116,41 @@ public class ProgramExecutorImpl implements ProgramExecutor, Serializable {
 
     @Override
     public Map<String, Long> getVariablesToValuesSorted() {
-        // Create a local copy of variables (to avoid concurrent modification)
-        List<Variable> safeVariables = new ArrayList<>(program.getInputAndWorkVariablesSortedBySerial());
-
         Map<String, Long> variablesToValuesSorted = new LinkedHashMap<>();
         variablesToValuesSorted.put(VariableType.RESULT.getVariableRepresentation(0),
                 context.getVariableValue(Variable.RESULT));
 
-        for (Variable v : safeVariables) {
-            if (v == null) continue; // avoid null variables
+        for (Variable v : getVariablesSorted()) {
             variablesToValuesSorted.put(v.getRepresentation(), context.getVariableValue(v));
         }
 
         return variablesToValuesSorted;
     }
 
+    // The input and work variables in the order they are shown (after the result): inputs first, by serial number
+    public List<Variable> getVariablesSorted() {
+        // Create a local copy of variables (to avoid concurrent modification)
+        List<Variable> safeVariables = new ArrayList<>(program.getInputAndWorkVariablesSortedBySerial());
+        safeVariables.removeIf(Objects::isNull);    // avoid null variables
+
+        // Inputs given by the user but not used by the program are shown too
+        Set<Integer> programInputNumbers = new HashSet<>();
+        for (Variable v : safeVariables) {
+            if (v.type() == VariableType.INPUT) {
+                programInputNumbers.add(v.number());
+            }
+        }
+
+        for (int i = 1; i <= inputsValues.size(); i++) {
+            if (!programInputNumbers.contains(i)) {
+                safeVariables.add(new VariableImpl(VariableType.INPUT, i));
+            }
+        }
+
+        safeVariables.sort(Comparator.comparing((Variable v) -> v.type() != VariableType.INPUT).thenComparingInt(Variable::number));
+        return safeVariables;
+    }
+
     @Override
     public ArchitectureType getArchitectureTypeSelected() {
         return architectureTypeSelected;
@@ -0,0 +1,47 @@
+package engine.logic.execution.runMode;
+
+import java.util.concurrent.locks.LockSupport;
+
+// The threads inside ProgramExecutor.runYielding.
+// Thread.yield puts a virtual thread back in its carrier's own queue while that queue has tasks (e.g. other yielding
+// runs), ahead of the threads submitted from outside (a new run, a resume) - so every YIELDS_PER_PARK yields the thread
+// parks for a moment instead: it's woken through the scheduler's shared queue, behind them
+final class YieldingRuns {
+
+    private static final int YIELDS_PER_PARK = 256;
+    private static final long PARK_NANOS = 1;
+
+    private static final ThreadLocal<int[]> yieldsCount = new ThreadLocal<>();     // Null outside runYielding
+
+    private YieldingRuns() {
+    }
+
+    // Does nothing outside runYielding
+    static void yieldThread() {
+        int[] count = yieldsCount.get();
+        if (count == null) {
+            return;
+        }
+
+        if (++count[0] % YIELDS_PER_PARK == 0) {
+            LockSupport.parkNanos(PARK_NANOS);
+        } else {
+            Thread.yield();
+        }
+    }
+
+    static void run(Runnable runs) {
+        boolean wasYielding = yieldsCount.get() != null;
+        if (!wasYielding) {
+            yieldsCount.set(new int[1]);
+        }
+
+        try {
+            runs.run();
+        } finally {
+            if (!wasYielding) {
+                yieldsCount.remove();
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package engine.logic.programData.instruction;
 
 import dto.v2.InstructionDTO;
+import engine.logic.execution.ExecutionContext;
 import engine.logic.programData.architecture.ArchitectureType;
 import engine.logic.programData.label.Label;
 import engine.logic.programData.label.FixedLabel;
@@ -21,7 +22,7 @@ public abstract class AbstractInstruction implements Instruction, Serializable {
     private final Variable targetVariable;
     private final Instruction origin;
     private final Program programOfThisInstruction;
-    private Program mainProgram;
+    private final Program mainProgram;
 
 
     protected AbstractInstruction(Program mainProgram, Program programOfThisInstruction, InstructionData instructionData, InstructionType instructionType, Variable targetVariable, Instruction origin, int instructionNumber) {
@@ -81,6 +82,11 @@ public abstract class AbstractInstruction implements Instruction, Serializable {
         return instructionData.getCycles();
     }
 
+    @Override
+    public int getCycleOfExecution(ExecutionContext context) {
+        return getCycleOfInstruction();
+    }
+
     @Override
     public List<Instruction> getExtendedInstruction() {
 
@@ -157,11 +163,6 @@ public abstract class AbstractInstruction implements Instruction, Serializable {
         return chain;
     }
 
-    @Override
-    public void setMainProgram(Program mainProgram) {
-        this.mainProgram = mainProgram;
-    }
-
     @Override
     public ArchitectureType getArchitectureType() {
         return instructionData.getArchitectureType();
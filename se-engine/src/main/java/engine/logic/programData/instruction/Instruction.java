@@ -27,15 +27,16 @@ public interface Instruction extends Serializable {
     String getCommand();
     List<Instruction> getExtendedInstruction();
     int getCycleOfInstruction();
+    int getCycleOfExecution(ExecutionContext context);      // Of its execution that just ran on the context
     Instruction getOriginalInstruction();
     InstructionDTO getInstructionDTO();
     List<InstructionDTO> getInstructionExtendedList();
 
     Label execute(ExecutionContext context, UserDTO userDTO);
     Instruction createInstructionWithInstructionNumber(int instructionNumber);
+    Instruction createInstructionWithMainProgram(Program mainProgram);
 
     Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram);
-    void setMainProgram(Program mainProgram);
 
     ArchitectureType getArchitectureType();
 }
@@ -35,6 +35,11 @@ public class OriginOfAllInstruction extends AbstractInstruction {
         return new OriginOfAllInstruction();
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new OriginOfAllInstruction(mainProgram, getProgramOfThisInstruction());
+    }
+
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram) {
         return null;
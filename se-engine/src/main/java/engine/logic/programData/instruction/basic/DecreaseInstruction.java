@@ -28,6 +28,11 @@ public class DecreaseInstruction extends AbstractInstruction {
         return new DecreaseInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), getOriginalInstruction(), instructionNumber);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new DecreaseInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), getOriginalInstruction(), getInstructionNumber());
+    }
+
     @Override
     public Label execute(ExecutionContext context, UserDTO userDTO) {
 
@@ -53,10 +58,9 @@ public class DecreaseInstruction extends AbstractInstruction {
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram) {
-        setMainProgram(mainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
 
-        return new DecreaseInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, origin, newInstructionNumber);
+        return new DecreaseInstruction(mainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, origin, newInstructionNumber);
     }
 }
@@ -37,6 +37,11 @@ public class IncreaseInstruction extends AbstractInstruction {
         return new IncreaseInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), getOriginalInstruction(), instructionNumber);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new IncreaseInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), getOriginalInstruction(), getInstructionNumber());
+    }
+
     @Override
     public String getCommand() {
         String variableRepresentation = getTargetVariable().getRepresentation();
@@ -51,10 +56,9 @@ public class IncreaseInstruction extends AbstractInstruction {
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram) {
-        setMainProgram(mainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
 
-        return new IncreaseInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, origin, newInstructionNumber);
+        return new IncreaseInstruction(mainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, origin, newInstructionNumber);
     }
 }
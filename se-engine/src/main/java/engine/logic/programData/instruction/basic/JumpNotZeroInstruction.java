@@ -28,6 +28,11 @@ public class JumpNotZeroInstruction extends AbstractInstruction implements Label
         return new JumpNotZeroInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), referencesLabel, getOriginalInstruction(), instructionNumber);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new JumpNotZeroInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), referencesLabel, getOriginalInstruction(), getInstructionNumber());
+    }
+
     @Override
     public Label execute(ExecutionContext context, UserDTO userDTO) {
         long variableValue = context.getVariableValue(this.getTargetVariable());
@@ -54,11 +59,10 @@ public class JumpNotZeroInstruction extends AbstractInstruction implements Label
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram) {
-        setMainProgram(mainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
         Label newReferenceLabel = labelMap.getOrDefault(this.getReferenceLabel(), this.getReferenceLabel());
 
-        return new JumpNotZeroInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, newReferenceLabel, origin, newInstructionNumber);
+        return new JumpNotZeroInstruction(mainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, newReferenceLabel, origin, newInstructionNumber);
     }
 }
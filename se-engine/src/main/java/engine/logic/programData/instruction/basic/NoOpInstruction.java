@@ -28,6 +28,11 @@ public class NoOpInstruction extends AbstractInstruction {
         return new NoOpInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), getOriginalInstruction(), instructionNumber);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new NoOpInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), getOriginalInstruction(), getInstructionNumber());
+    }
+
     @Override
     public Label execute(ExecutionContext context, UserDTO userDTO) {
         return FixedLabel.EMPTY;
@@ -46,10 +51,9 @@ public class NoOpInstruction extends AbstractInstruction {
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram) {
-        setMainProgram(mainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
 
-        return new NoOpInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, origin, newInstructionNumber);
+        return new NoOpInstruction(mainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, origin, newInstructionNumber);
     }
 }
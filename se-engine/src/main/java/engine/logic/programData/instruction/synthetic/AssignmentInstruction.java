@@ -35,6 +35,11 @@ public class AssignmentInstruction extends AbstractInstruction implements Synthe
         return new AssignmentInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), sourceVariable, getOriginalInstruction(), instructionNumber);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new AssignmentInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), sourceVariable, getOriginalInstruction(), getInstructionNumber());
+    }
+
     @Override
     public Label execute(ExecutionContext context, UserDTO userDTO) {
         long sourceVariableValue = context.getVariableValue(sourceVariable);
@@ -93,11 +98,10 @@ public class AssignmentInstruction extends AbstractInstruction implements Synthe
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram) {
-        setMainProgram(mainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Variable newSourceVariable = variableMap.getOrDefault(this.getSourceVariable(), this.getSourceVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
 
-        return new AssignmentInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, newSourceVariable, origin, newInstructionNumber);
+        return new AssignmentInstruction(mainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, newSourceVariable, origin, newInstructionNumber);
     }
 }
@@ -38,6 +38,11 @@ public class ConstantAssignmentInstruction extends AbstractInstruction implement
         return new ConstantAssignmentInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), constantValue, getOriginalInstruction(), instructionNumber);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new ConstantAssignmentInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), constantValue, getOriginalInstruction(), getInstructionNumber());
+    }
+
     @Override
     public Label execute(ExecutionContext context, UserDTO userDTO) {
         context.updateVariable(getTargetVariable(), constantValue);
@@ -77,10 +82,9 @@ public class ConstantAssignmentInstruction extends AbstractInstruction implement
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram) {
-        setMainProgram(mainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
 
-        return new ConstantAssignmentInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, this.constantValue, origin, newInstructionNumber);
+        return new ConstantAssignmentInstruction(mainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, this.constantValue, origin, newInstructionNumber);
     }
 }
@@ -43,6 +43,11 @@ public class JumpEqualConstantInstruction extends AbstractInstruction implements
         return new JumpEqualConstantInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), constantValue, referencelabel, getOriginalInstruction(), instructionNumber);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new JumpEqualConstantInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), constantValue, referencelabel, getOriginalInstruction(), getInstructionNumber());
+    }
+
     @Override
     public Label execute(ExecutionContext context, UserDTO userDTO) {
         long variableValue = context.getVariableValue(getTargetVariable());
@@ -97,11 +102,10 @@ public class JumpEqualConstantInstruction extends AbstractInstruction implements
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram) {
-        setMainProgram(mainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
         Label newReferenceLabel = labelMap.getOrDefault(this.getReferenceLabel(), this.getReferenceLabel());
 
-        return new JumpEqualConstantInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, this.constantValue, newReferenceLabel, origin, newInstructionNumber);
+        return new JumpEqualConstantInstruction(mainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, this.constantValue, newReferenceLabel, origin, newInstructionNumber);
     }
 }
@@ -2,8 +2,6 @@ package engine.logic.programData.instruction.synthetic;
 
 import dto.v3.UserDTO;
 import engine.logic.execution.ExecutionContext;
-import engine.logic.execution.runMode.ProgramExecutor;
-import engine.logic.execution.runMode.ProgramExecutorImpl;
 import engine.logic.programData.instruction.*;
 import engine.logic.programData.instruction.synthetic.functionInstructionsUtils.FunctionExecutionResult;
 import engine.logic.programData.instruction.synthetic.quoteArguments.QuoteArgument;
@@ -19,13 +17,13 @@ import static engine.logic.programData.instruction.synthetic.functionInstruction
 import static engine.logic.programData.instruction.synthetic.functionInstructionsUtils.FunctionExecutionResult.extractInputValues;
 import static engine.logic.programData.instruction.synthetic.functionInstructionsUtils.FunctionInstructionUtils.buildCommandArguments;
 import static engine.logic.programData.instruction.synthetic.functionInstructionsUtils.FunctionInstructionUtils.getInputs;
+import static engine.logic.programData.instruction.synthetic.functionInstructionsUtils.FunctionInstructionUtils.runFunction;
 
 public class JumpEqualFunctionInstruction extends AbstractInstruction implements SyntheticInstruction {
     private final String referenceFunctionName;
     private final List<QuoteArgument> quoteArguments =  new ArrayList<>();
     private final Label referenceLabel;
 
-    private int currentCyclesNumber;
     private final List<Instruction> innerInstructions = new ArrayList<>();
 
     public JumpEqualFunctionInstruction(Program mainProgram, Program programOfThisInstruction, Variable targetVariable, Label label, Label referenceLabel, Instruction origin, int instructionNumber, String referenceFunctionName, List<QuoteArgument> quoteArguments) {
@@ -40,24 +38,24 @@ public class JumpEqualFunctionInstruction extends AbstractInstruction implements
         return new JumpEqualFunctionInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), referenceLabel, getOriginalInstruction(), instructionNumber, this.referenceFunctionName, this.quoteArguments);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new JumpEqualFunctionInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), referenceLabel, getOriginalInstruction(), getInstructionNumber(), this.referenceFunctionName, this.quoteArguments);
+    }
+
     @Override
     public Label execute(ExecutionContext context, UserDTO userDTO) {
         long targetVariableValue = context.getVariableValue(getTargetVariable());
 
-        ProgramExecutor functionExecutor = new ProgramExecutorImpl(this.getFunctionOfThisInstruction(), null);
         List<FunctionExecutionResult> functionExecutionResultList = getInputs(quoteArguments, context, getMainProgram(), userDTO);
 
         // Run
-        functionExecutor.run(userDTO, 0, extractInputValues(functionExecutionResultList));  // architectureTypeSelected - not needed here (it's an inner call)
-
-        // Update value in parent program
-        Variable resultVariable = this.getFunctionOfThisInstruction().getResultVariable();
-        long functionResult = functionExecutor.getVariableValue(resultVariable);
+        FunctionExecutionResult functionResult = runFunction(this.getFunctionOfThisInstruction(), extractInputValues(functionExecutionResultList), userDTO);
 
-        // Update cycles number
-        currentCyclesNumber = InstructionData.JUMP_EQUAL_FUNCTION.getCycles() + functionExecutor.getTotalCycles() + addFunctionArgumentCycles(functionExecutionResultList);
+        // Update cycles number (in the context - this instruction is shared by concurrent runs)
+        context.setLastCallCycles(InstructionData.JUMP_EQUAL_FUNCTION.getCycles() + functionResult.cycles() + addFunctionArgumentCycles(functionExecutionResultList));
 
-        return (targetVariableValue == functionResult) ? referenceLabel : FixedLabel.EMPTY;
+        return (targetVariableValue == functionResult.resultValue()) ? referenceLabel : FixedLabel.EMPTY;
     }
 
     @Override
@@ -93,7 +91,12 @@ public class JumpEqualFunctionInstruction extends AbstractInstruction implements
 
     @Override
     public int getCycleOfInstruction() {
-        return (this.currentCyclesNumber == 0) ? InstructionData.JUMP_EQUAL_FUNCTION.getCycles() : this.currentCyclesNumber;
+        return InstructionData.JUMP_EQUAL_FUNCTION.getCycles();
+    }
+
+    @Override
+    public int getCycleOfExecution(ExecutionContext context) {
+        return context.getLastCallCycles();
     }
 
     @Override
@@ -110,15 +113,26 @@ public class JumpEqualFunctionInstruction extends AbstractInstruction implements
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction newOrigin, Program newMainProgram) {
-        setMainProgram(newMainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
 
-        return new JumpEqualFunctionInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, referenceLabel, newOrigin, newInstructionNumber, referenceFunctionName, quoteArguments);
+        return new JumpEqualFunctionInstruction(newMainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, referenceLabel, newOrigin, newInstructionNumber, referenceFunctionName, quoteArguments);
     }
 
     public Program getFunctionOfThisInstruction() {
         return super.getMainProgram().getFunctionByName(this.referenceFunctionName);
     }
+
+    public String getReferenceFunctionName() {
+        return this.referenceFunctionName;
+    }
+
+    public List<QuoteArgument> getQuoteArguments() {
+        return this.quoteArguments;
+    }
+
+    public Label getJumpLabel() {
+        return this.referenceLabel;
+    }
 }
 
@@ -37,6 +37,11 @@ public class JumpEqualVariableInstruction extends AbstractInstruction implements
         return new JumpEqualVariableInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), sourceVariable, referencesLabel, getOriginalInstruction(), instructionNumber);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new JumpEqualVariableInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), sourceVariable, referencesLabel, getOriginalInstruction(), getInstructionNumber());
+    }
+
     @Override
     public Label execute(ExecutionContext context, UserDTO userDTO) {
         long targetVariableValue = context.getVariableValue(getTargetVariable());
@@ -101,12 +106,11 @@ public class JumpEqualVariableInstruction extends AbstractInstruction implements
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction origin, Program mainProgram) {
-        setMainProgram(mainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Variable newSourceVariable = variableMap.getOrDefault(this.getSourceVariable(), this.getSourceVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
         Label newReferenceLabel = labelMap.getOrDefault(this.getReferenceLabel(), this.getReferenceLabel());
 
-        return new JumpEqualVariableInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, newSourceVariable, newReferenceLabel, origin, newInstructionNumber);
+        return new JumpEqualVariableInstruction(mainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, newSourceVariable, newReferenceLabel, origin, newInstructionNumber);
     }
 }
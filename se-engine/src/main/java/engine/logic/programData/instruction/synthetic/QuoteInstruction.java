@@ -2,8 +2,6 @@ package engine.logic.programData.instruction.synthetic;
 
 import dto.v3.UserDTO;
 import engine.logic.execution.ExecutionContext;
-import engine.logic.execution.runMode.ProgramExecutor;
-import engine.logic.execution.runMode.ProgramExecutorImpl;
 import engine.logic.programData.instruction.*;
 import engine.logic.programData.instruction.synthetic.functionInstructionsUtils.FunctionExecutionResult;
 import engine.logic.programData.instruction.synthetic.quoteArguments.FunctionArgument;
@@ -27,7 +25,6 @@ public class QuoteInstruction extends AbstractInstruction implements SyntheticIn
     private final List<Instruction> innerInstructions = new ArrayList<>();
     private final Map<Variable, Variable> variableMapping = new LinkedHashMap<>();
     private final Map<Label, Label> mapFunctionToProgramLabel = new HashMap<>();
-    private int currentCyclesNumber;
 
     public QuoteInstruction(Program mainProgram, Program programOfThisInstruction, Variable targetVariable, Label label, Instruction origin, int instructionNumber, String functionName, List<QuoteArgument> quoteArguments) {
         super(mainProgram, programOfThisInstruction, InstructionData.QUOTATION, InstructionType.SYNTHETIC ,targetVariable, label, origin, instructionNumber);
@@ -40,21 +37,23 @@ public class QuoteInstruction extends AbstractInstruction implements SyntheticIn
         return new QuoteInstruction(getMainProgram(), getProgramOfThisInstruction(), getTargetVariable(), getLabel(), getOriginalInstruction(), instructionNumber, this.functionName, this.quoteArguments);
     }
 
+    @Override
+    public Instruction createInstructionWithMainProgram(Program mainProgram) {
+        return new QuoteInstruction(mainProgram, getProgramOfThisInstruction(), getTargetVariable(), getLabel(), getOriginalInstruction(), getInstructionNumber(), this.functionName, this.quoteArguments);
+    }
+
     @Override
     public Label execute(ExecutionContext context, UserDTO userDTO) {
-        ProgramExecutor functionExecutor = new ProgramExecutorImpl(this.getFunctionOfThisInstruction(), null);
         List<FunctionExecutionResult> functionExecutionResultList = getInputs(quoteArguments, context, getMainProgram(), userDTO);
 
         // Run
-        functionExecutor.run(userDTO, 0, extractInputValues(functionExecutionResultList));  // architectureTypeSelected - not needed here (it's an inner call)
+        FunctionExecutionResult functionResult = runFunction(this.getFunctionOfThisInstruction(), extractInputValues(functionExecutionResultList), userDTO);
 
         // Update value in parent program
-        Variable resultVariable = this.getFunctionOfThisInstruction().getResultVariable();
-        long quoteFunctionResult = functionExecutor.getVariableValue(resultVariable);
-        context.updateVariable(getTargetVariable(), quoteFunctionResult);
+        context.updateVariable(getTargetVariable(), functionResult.resultValue());
 
-        // Update cycles number
-        currentCyclesNumber = InstructionData.QUOTATION.getCycles() + functionExecutor.getTotalCycles() + addFunctionArgumentCycles(functionExecutionResultList);
+        // Update cycles number (in the context - this instruction is shared by concurrent runs)
+        context.setLastCallCycles(InstructionData.QUOTATION.getCycles() + functionResult.cycles() + addFunctionArgumentCycles(functionExecutionResultList));
 
         return FixedLabel.EMPTY;
     }
@@ -96,13 +95,22 @@ public class QuoteInstruction extends AbstractInstruction implements SyntheticIn
 
     @Override
     public int getCycleOfInstruction() {
-        return (this.currentCyclesNumber == 0) ? InstructionData.QUOTATION.getCycles() : this.currentCyclesNumber;
+        return InstructionData.QUOTATION.getCycles();
+    }
+
+    @Override
+    public int getCycleOfExecution(ExecutionContext context) {
+        return context.getLastCallCycles();
     }
 
     public String getQuoteFunctionName() {
         return this.functionName;
     }
 
+    public List<QuoteArgument> getQuoteArguments() {
+        return this.quoteArguments;
+    }
+
     public Program getFunctionOfThisInstruction() {
         return getMainProgram().getFunctionByName(this.functionName);
     }
@@ -210,12 +218,11 @@ public class QuoteInstruction extends AbstractInstruction implements SyntheticIn
 
     @Override
     public Instruction remapAndClone(int newInstructionNumber, Map<Variable, Variable> variableMap, Map<Label, Label> labelMap, Instruction newOrigin, Program newMainProgram) {
-        setMainProgram(newMainProgram);
         Variable newTargetVariable = variableMap.getOrDefault(this.getTargetVariable(), this.getTargetVariable());
         Label newLabel = labelMap.getOrDefault(this.getLabel(), this.getLabel());
         List<QuoteArgument> mappedQuoteArguments = mapFunctionArgumentsToNewList(quoteArguments, variableMap, true);
 
-        return new QuoteInstruction(getMainProgram(), getProgramOfThisInstruction(), newTargetVariable, newLabel, newOrigin, newInstructionNumber, this.functionName, mappedQuoteArguments);
+        return new QuoteInstruction(newMainProgram, getProgramOfThisInstruction(), newTargetVariable, newLabel, newOrigin, newInstructionNumber, this.functionName, mappedQuoteArguments);
     }
 
     // Assign function result back to the target of this Quote
@@ -2,6 +2,7 @@ package engine.logic.programData.instruction.synthetic.functionInstructionsUtils
 
 import dto.v3.UserDTO;
 import engine.logic.execution.ExecutionContext;
+import engine.logic.execution.FunctionCallCache;
 import engine.logic.execution.runMode.ProgramExecutor;
 import engine.logic.execution.runMode.ProgramExecutorImpl;
 import engine.logic.programData.instruction.synthetic.quoteArguments.FunctionArgument;
@@ -55,18 +56,26 @@ public class FunctionInstructionUtils {
 
         String innerFunctionName = innerFunctionArgument.getFunctionName();
         Program innerFunction = mainProgram.getFunctionByName(innerFunctionName);
-
-        ProgramExecutor functionExecutor = new ProgramExecutorImpl(innerFunction, null);
         List<FunctionExecutionResult> functionExecutionResultList = getInputs(innerFunctionArgument.getArguments(), context, mainProgram, userDTO);
 
-        // Run
-        functionExecutor.run(userDTO, 0, extractInputValues(functionExecutionResultList));    // architectureTypeSelected - not needed here (it's an inner call)
+        return runFunction(innerFunction, extractInputValues(functionExecutionResultList), userDTO);
+    }
+
+    // Runs the function on the inputs (through the function call cache); returns its result and its run cycles
+    public static FunctionExecutionResult runFunction(Program function, Long[] inputs, UserDTO userDTO) {
+        long[] inputValues = new long[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            inputValues[i] = (inputs[i] != null) ? inputs[i] : 0L;
+        }
+
+        FunctionCallCache functionCallCache = function.getProgramsHolder().getFunctionCallCache();
+        return functionCallCache.call(function.getName(), inputValues, userDTO, user -> {
+            ProgramExecutor functionExecutor = new ProgramExecutorImpl(function, null);
+            functionExecutor.run(user, 0, inputs);     // architectureTypeSelected - not needed here (it's an inner call)
 
-        // Return function result
-        Variable resultVariable = innerFunction.getResultVariable();
-        long resultValue = functionExecutor.getVariableValue(resultVariable);
-        int cycles = functionExecutor.getTotalCycles();
-        return new FunctionExecutionResult(resultValue, cycles);
+            Variable resultVariable = function.getResultVariable();
+            return new FunctionExecutionResult(functionExecutor.getVariableValue(resultVariable), functionExecutor.getTotalCycles());
+        });
     }
 
     public static String buildCommandArguments(ProgramsHolder programsHolder, List<QuoteArgument> arguments, Map<Variable, Variable> variableMapping) {
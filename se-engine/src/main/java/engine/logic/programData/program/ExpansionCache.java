@@ -0,0 +1,116 @@
+package engine.logic.programData.program;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+// Expanded programs by (program name, degree), least recently used first out.
+// The size is bounded by the total number of cached instructions (a degree can be thousands of instructions)
+public class ExpansionCache {
+
+    public static final long DEFAULT_MAX_CACHED_INSTRUCTIONS = 500_000;
+
+    private record Key(String programName, int degree) { }
+
+    private final long maxCachedInstructions;
+    private final BiConsumer<String, Integer> onEviction;                                       // (program name, degree)
+    private final Map<Key, Program> keyToProgram = new LinkedHashMap<>(16, 0.75f, true);     // Access order
+    private long cachedInstructions = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public ExpansionCache(long maxCachedInstructions, BiConsumer<String, Integer> onEviction) {
+        this.maxCachedInstructions = maxCachedInstructions;
+        this.onEviction = onEviction;
+    }
+
+    public synchronized Program get(String programName, int degree) {
+        Program program = keyToProgram.get(new Key(programName, degree));
+
+        if (program == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        return program;
+    }
+
+    // The highest cached degree that is lower than 'degree', -1 if there is none
+    public synchronized int getHighestCachedDegreeBelow(String programName, int degree) {
+        for (int lowerDegree = degree - 1; lowerDegree >= 0; lowerDegree--) {
+            if (keyToProgram.containsKey(new Key(programName, lowerDegree))) {
+                return lowerDegree;
+            }
+        }
+
+        return -1;
+    }
+
+    // Returns the cached program (if another thread already added this degree, its program is kept)
+    public synchronized Program put(String programName, int degree, Program program) {
+        Key key = new Key(programName, degree);
+        Program existingProgram = keyToProgram.get(key);
+        if (existingProgram != null) {
+            return existingProgram;
+        }
+
+        keyToProgram.put(key, program);
+        cachedInstructions += program.getInstructionsList().size();
+        evictToMaxSize(key);
+
+        return program;
+    }
+
+    private void evictToMaxSize(Key keepKey) {
+        Iterator<Map.Entry<Key, Program>> iterator = keyToProgram.entrySet().iterator();
+
+        while (cachedInstructions > maxCachedInstructions && iterator.hasNext()) {
+            Map.Entry<Key, Program> eldest = iterator.next();
+            if (eldest.getKey().equals(keepKey)) {
+                continue;   // Never evict the program that was just asked for
+            }
+
+            cachedInstructions -= eldest.getValue().getInstructionsList().size();
+            iterator.remove();
+            evictions++;
+            onEviction.accept(eldest.getKey().programName(), eldest.getKey().degree());
+        }
+    }
+
+    // Drops every cached degree of the program
+    public synchronized void invalidate(String programName) {
+        Iterator<Map.Entry<Key, Program>> iterator = keyToProgram.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Program> entry = iterator.next();
+            if (entry.getKey().programName().equals(programName)) {
+                cachedInstructions -= entry.getValue().getInstructionsList().size();
+                iterator.remove();
+                onEviction.accept(programName, entry.getKey().degree());
+            }
+        }
+    }
+
+    public synchronized int getCachedProgramsCount() {
+        return keyToProgram.size();
+    }
+
+    public synchronized long getCachedInstructionsCount() {
+        return cachedInstructions;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,109 @@
+package engine.logic.programData.program;
+
+import engine.logic.programData.instruction.Instruction;
+import engine.logic.programData.instruction.synthetic.*;
+import engine.logic.programData.instruction.synthetic.quoteArguments.FunctionArgument;
+import engine.logic.programData.instruction.synthetic.quoteArguments.QuoteArgument;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Max degree of a program without expanding it: the nesting depth of its synthetic instructions.
+// Every depth below mirrors what the matching 'expandInstruction' creates
+public class ExpansionDepthAnalyzer {
+
+    private static final int ZERO_VARIABLE_DEPTH = 1;                                                   // DECREASE, JNZ
+    private static final int GOTO_LABEL_DEPTH = 1;                                                      // INCREASE, JNZ
+    private static final int CONSTANT_ASSIGNMENT_DEPTH = 1 + ZERO_VARIABLE_DEPTH;                       // ZERO_VARIABLE, INCREASE
+    private static final int ASSIGNMENT_DEPTH = 1 + Math.max(ZERO_VARIABLE_DEPTH, GOTO_LABEL_DEPTH);    // ZERO_VARIABLE, GOTO_LABEL, basics
+    private static final int JUMP_ZERO_DEPTH = 1 + GOTO_LABEL_DEPTH;                                    // JNZ, GOTO_LABEL, NO_OP
+    private static final int JUMP_EQUAL_CONSTANT_DEPTH = 1 + Math.max(ASSIGNMENT_DEPTH, JUMP_ZERO_DEPTH);
+    private static final int JUMP_EQUAL_VARIABLE_DEPTH = 1 + Math.max(ASSIGNMENT_DEPTH, JUMP_ZERO_DEPTH);
+
+    private final Function<String, Integer> knownMaxDegrees;                // Function name : Max degree (null if unknown)
+    private final Map<String, Integer> functionNameToMaxDegree = new HashMap<>();
+    private final Set<String> functionsInProgress = new HashSet<>();
+
+    private ExpansionDepthAnalyzer(Function<String, Integer> knownMaxDegrees) {
+        this.knownMaxDegrees = knownMaxDegrees;
+    }
+
+    public static int calculateMaxDegree(Program program) {
+        return calculateMaxDegree(program, functionName -> null);
+    }
+
+    // Functions never change once loaded, so max degrees that were already calculated aren't walked again
+    public static int calculateMaxDegree(Program program, Function<String, Integer> knownMaxDegrees) {
+        return new ExpansionDepthAnalyzer(knownMaxDegrees).maxDegreeOf(program);
+    }
+
+    private int maxDegreeOf(Program program) {
+        int maxDegree = 0;
+
+        for (Instruction instruction : program.getInstructionsList()) {
+            maxDegree = Math.max(maxDegree, depthOf(program, instruction));
+        }
+
+        return maxDegree;
+    }
+
+    private int depthOf(Program program, Instruction instruction) {
+        return switch (instruction) {
+            case ZeroVariableInstruction ignored -> ZERO_VARIABLE_DEPTH;
+            case GotoLabelInstruction ignored -> GOTO_LABEL_DEPTH;
+            case ConstantAssignmentInstruction ignored -> CONSTANT_ASSIGNMENT_DEPTH;
+            case AssignmentInstruction ignored -> ASSIGNMENT_DEPTH;
+            case JumpZeroInstruction ignored -> JUMP_ZERO_DEPTH;
+            case JumpEqualConstantInstruction ignored -> JUMP_EQUAL_CONSTANT_DEPTH;
+            case JumpEqualVariableInstruction ignored -> JUMP_EQUAL_VARIABLE_DEPTH;
+            case QuoteInstruction quote ->
+                    quoteDepth(program, quote.getQuoteFunctionName(), quote.getQuoteArguments());
+            case JumpEqualFunctionInstruction jumpEqualFunction ->      // QUOTE, JUMP_EQUAL_VARIABLE
+                    1 + Math.max(quoteDepth(program, jumpEqualFunction.getReferenceFunctionName(), jumpEqualFunction.getQuoteArguments()), JUMP_EQUAL_VARIABLE_DEPTH);
+            default -> 0;   // Basic instruction
+        };
+    }
+
+    // QUOTE expands to: ASSIGNMENT (or QUOTE for a function argument) per function input, the function instructions, ASSIGNMENT of the result
+    private int quoteDepth(Program program, String functionName, List<QuoteArgument> quoteArguments) {
+        Program function = program.getFunctionByName(functionName);
+        if (function == null) {
+            throw new IllegalStateException("In ExpansionDepthAnalyzer: Function not found: " + functionName);
+        }
+
+        int innerDepth = Math.max(ASSIGNMENT_DEPTH, functionMaxDegree(function));
+        int usedArgumentsCount = Math.min(quoteArguments.size(), function.getInputVariables().size());
+
+        for (int i = 0; i < usedArgumentsCount; i++) {
+            if (quoteArguments.get(i) instanceof FunctionArgument functionArgument) {
+                innerDepth = Math.max(innerDepth, quoteDepth(program, functionArgument.getFunctionName(), functionArgument.getArguments()));
+            }
+        }
+
+        return 1 + innerDepth;
+    }
+
+    private int functionMaxDegree(Program function) {
+        String functionName = function.getName();
+        Integer maxDegree = knownMaxDegrees.apply(functionName);
+        if (maxDegree == null) {
+            maxDegree = functionNameToMaxDegree.get(functionName);
+        }
+
+        if (maxDegree == null) {
+            if (!functionsInProgress.add(functionName)) {
+                throw new IllegalStateException("In ExpansionDepthAnalyzer: Recursive function can't be expanded: " + functionName);
+            }
+
+            maxDegree = maxDegreeOf(function);
+            functionsInProgress.remove(functionName);
+            functionNameToMaxDegree.put(functionName, maxDegree);
+        }
+
+        return maxDegree;
+    }
+}
@@ -0,0 +1,51 @@
+package engine.logic.programData.program;
+
+import java.util.*;
+
+// Which loaded programs call which functions (from Program.getCalledFunctionNames).
+// Loaded functions never change, so an upload can only affect the programs that call the functions it adds
+public class FunctionDependencyGraph {
+
+    private final Map<String, Set<String>> programToCalledFunctions = new HashMap<>();     // Program name : Called function names
+    private final Map<String, Set<String>> functionToCallers = new HashMap<>();            // Function name : Caller program names
+
+    // A main program and a function with the same name share one node (like the name resolution of the engine)
+    public synchronized void addProgram(Program program) {
+        String programName = toKey(program.getName());
+        Set<String> calledFunctions = programToCalledFunctions.computeIfAbsent(programName, k -> new HashSet<>());
+
+        for (String functionName : program.getCalledFunctionNames()) {
+            String functionKey = toKey(functionName);
+            calledFunctions.add(functionKey);
+            functionToCallers.computeIfAbsent(functionKey, k -> new HashSet<>()).add(programName);
+        }
+    }
+
+    public synchronized Set<String> getCalledFunctions(String programName) {
+        return Set.copyOf(programToCalledFunctions.getOrDefault(toKey(programName), Set.of()));
+    }
+
+    public synchronized Set<String> getCallers(String functionName) {
+        return Set.copyOf(functionToCallers.getOrDefault(toKey(functionName), Set.of()));
+    }
+
+    // The given functions and every program that calls them, directly or through other functions
+    public synchronized Set<String> getAffectedPrograms(Collection<String> functionNames) {
+        Set<String> affectedPrograms = new HashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>();
+        functionNames.forEach(functionName -> toVisit.add(toKey(functionName)));
+
+        while (!toVisit.isEmpty()) {
+            String programName = toVisit.poll();
+            if (affectedPrograms.add(programName)) {
+                toVisit.addAll(functionToCallers.getOrDefault(programName, Set.of()));
+            }
+        }
+
+        return affectedPrograms;
+    }
+
+    private static String toKey(String programName) {
+        return programName.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,76 @@
+package engine.logic.programData.program;
+
+import engine.logic.programData.instruction.Instruction;
+import engine.logic.programData.instruction.synthetic.JumpEqualFunctionInstruction;
+import engine.logic.programData.label.FixedLabel;
+import engine.logic.programData.label.Label;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pre-resolved successors of a program: jump labels are resolved to instruction indexes once,
+// so the executors step by an int program counter instead of indexOf / label lookups
+public final class JumpTable {
+
+    private final int[] jumpTargetIndexes;          // Index of the instruction each instruction jumps to (exitIndex = EXIT)
+    private final Map<Label, Integer> labelToIndex;
+    private final int exitIndex;
+
+    private JumpTable(int[] jumpTargetIndexes, Map<Label, Integer> labelToIndex, int exitIndex) {
+        this.jumpTargetIndexes = jumpTargetIndexes;
+        this.labelToIndex = labelToIndex;
+        this.exitIndex = exitIndex;
+    }
+
+    public static JumpTable build(List<Instruction> instructions) {
+        int instructionsCount = instructions.size();
+        Map<Label, Integer> labelToIndex = new HashMap<>();
+
+        for (int i = 0; i < instructionsCount; i++) {
+            Label label = instructions.get(i).getLabel();
+            if (label != null && label != FixedLabel.EMPTY) {
+                labelToIndex.putIfAbsent(label, i);
+            }
+        }
+
+        int[] jumpTargetIndexes = new int[instructionsCount];
+        for (int i = 0; i < instructionsCount; i++) {
+            Instruction instruction = instructions.get(i);
+            Label jumpLabel = (instruction instanceof JumpEqualFunctionInstruction jumpEqualFunctionInstruction)
+                    ? jumpEqualFunctionInstruction.getJumpLabel()
+                    : instruction.getReferenceLabel();
+
+            jumpTargetIndexes[i] = (jumpLabel == null)
+                    ? instructionsCount
+                    : labelToIndex.getOrDefault(jumpLabel, instructionsCount);  // EXIT (or unknown label) -> out of the program
+        }
+
+        return new JumpTable(jumpTargetIndexes, labelToIndex, instructionsCount);
+    }
+
+    // Index of the instruction to run after 'currentIndex' returned 'nextLabel' (exitIndex = finished)
+    public int getNextIndex(int currentIndex, Label nextLabel) {
+        if (nextLabel == FixedLabel.EMPTY) {
+            return currentIndex + 1;
+        }
+
+        if (nextLabel == FixedLabel.EXIT) {
+            return exitIndex;
+        }
+
+        return jumpTargetIndexes[currentIndex];
+    }
+
+    public int getJumpTargetIndex(int instructionIndex) {
+        return jumpTargetIndexes[instructionIndex];
+    }
+
+    public int getIndexOfLabel(Label label) {
+        return labelToIndex.getOrDefault(label, exitIndex);
+    }
+
+    public int getExitIndex() {
+        return exitIndex;
+    }
+}
@@ -27,6 +27,7 @@ public interface Program extends Serializable {
 
     List<Instruction> getInstructionsList();
     Instruction getInstructionByLabel(Label label);
+    JumpTable getJumpTable();
     Set<Variable> getInputVariables();
     Set<Variable> getWorkVariables();
     List<Variable> getInputAndWorkVariablesSortedBySerial();
@@ -42,6 +43,7 @@ public interface Program extends Serializable {
 
     void initialize();
     Program deepClone();
+    Program copy();
     void updateVariableAndLabel(Instruction instruction);
     void bucketVariableByFunctionInstruction(Set<Variable> variablesList);
     void addInstruction(Instruction instruction);
@@ -51,10 +53,9 @@ public interface Program extends Serializable {
 
     Label generateUniqueLabel();
     Variable generateUniqueVariable();
-    void sortVariableSetByNumber(Set<Variable> variables);
-    void addInputVariable(Variable variable);
 
     Map<Integer, Program> calculateDegreeToProgram();
+    Program expandToNextDegree();
 
     void addCreditCost(int creditCost);
     void incrementExecutionsCount();
@@ -0,0 +1,54 @@
+package engine.logic.programData.program;
+
+import dto.v2.ProgramDTO;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// The ProgramDTO of each program, built once.
+// A program doesn't change after it's loaded - every degree is its own Program object (from the expansion cache), and
+// re-expanding a degree (after an eviction or an invalidation) creates a new one. So the Program object is the
+// (program, degree) key and its version together: a changed program is a new key, and the old entry goes away
+// with the old program (weak keys), so the cache never keeps a program alive.
+// Only the immutable parts of a program are in its DTO - stats (executions, average credits) are in ProgramStatsDTO
+public class ProgramDTOCache {
+
+    private final Map<Program, ProgramDTO> programToDTO = Collections.synchronizedMap(new WeakHashMap<>());    // Identity keys (Program has no equals)
+    private final Function<Program, ProgramDTO> programDTOBuilder;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ProgramDTOCache(Function<Program, ProgramDTO> programDTOBuilder) {
+        this.programDTOBuilder = programDTOBuilder;
+    }
+
+    public ProgramDTO get(Program program) {
+        ProgramDTO programDTO = programToDTO.get(program);
+
+        if (programDTO != null) {
+            hits.incrementAndGet();
+            return programDTO;
+        }
+
+        misses.incrementAndGet();
+        programDTO = programDTOBuilder.apply(program);     // Outside the lock - building a large program takes a while
+        ProgramDTO existingProgramDTO = programToDTO.putIfAbsent(program, programDTO);
+
+        return (existingProgramDTO != null) ? existingProgramDTO : programDTO;
+    }
+
+    public int getSize() {
+        return programToDTO.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -45,6 +45,8 @@ public class ProgramImpl implements Program, Serializable {
     private int nextLabelNumber = 1;
     private int nextWorkVariableNumber = 1;
 
+    private transient volatile JumpTable jumpTable;    // Built on first use (not serialized - every clone builds its own)
+
     public ProgramImpl(String name, String userString, ProgramType programType, ProgramsHolder programsHolder, String uploaderName, String mainProgramOfThisProgramName) {
         this.programName = name;
         this.userString = userString;
@@ -66,54 +68,74 @@ public class ProgramImpl implements Program, Serializable {
     @Override
     public  Map<Integer, Program> calculateDegreeToProgram() {
         Map<Integer, Program>  degreeToProgram = new HashMap<>();
-        ArchitectureType currentInstructionArchitecture;
         boolean canExpandMore;
         int degree = 0;
 
-        Program workingProgram = this.deepClone();  // deep clone here -Important
+        ProgramImpl workingProgram = this.copy();   // copy here - Important (the expansion changes the working program)
 
         do {
-            degreeToProgram.put(degree, workingProgram.deepClone());  // deep clone here - Important
-
-            ArchitectureType maxArchitectureRequired = ArchitectureType.A_0; // the lowest
-            int nextInstructionNumber = 1;
-            canExpandMore = false;
-
-            for (ListIterator<Instruction> iterator = workingProgram.getInstructionsList().listIterator(); iterator.hasNext(); ) {  // Run on working program
-                Instruction instruction = iterator.next();
-                Label originalLabel = instruction.getLabel();
-                List<Instruction> newInstructionsList = new ArrayList<>();
-
-                if (instruction instanceof SyntheticInstruction syntheticInstruction) {
-                    nextInstructionNumber = syntheticInstruction.expandInstruction(nextInstructionNumber);
-                    newInstructionsList = instruction.getExtendedInstruction();
-                    canExpandMore = true;
-                } else {
-                    Instruction cloneInstruction = instruction.createInstructionWithInstructionNumber(nextInstructionNumber);
-                    newInstructionsList.add(cloneInstruction);
-                    nextInstructionNumber++;
-                }
+            Program degreeProgram = workingProgram.copy();          // copy here - Important
+            degreeProgram.getJumpTable();                           // Resolve the jumps once per degree, not on every run
+            degreeToProgram.put(degree, degreeProgram);
+
+            canExpandMore = workingProgram.expandOneDegree();
+            degree++;
+        } while (canExpandMore);
 
-                iterator.remove();                               // Remove the old instruction
-                workingProgram.getLabelToInstruction().remove(originalLabel);       // Remove the label from the map because we will add it again in line 239
-                workingProgram.getLabelsInProgram().remove(originalLabel);          // Remove the label from the map because we will add it again in line 239
+        return degreeToProgram;
+    }
+
+    // The program of the next degree. 'this' isn't changed (the expansion runs on a copy)
+    @Override
+    public Program expandToNextDegree() {
+        ProgramImpl nextDegreeProgram = this.copy();
+        nextDegreeProgram.expandOneDegree();
+        nextDegreeProgram.getJumpTable();
 
-                for (Instruction extendedInstruction : newInstructionsList) {
-                    workingProgram.updateVariableAndLabel(extendedInstruction);
-                    iterator.add(extendedInstruction);          // Add the extended (inner) instruction to the list
+        return nextDegreeProgram;
+    }
 
-                    currentInstructionArchitecture = extendedInstruction.getArchitectureType();
-                    if (currentInstructionArchitecture.isHigherThan(maxArchitectureRequired)) {
-                        maxArchitectureRequired = currentInstructionArchitecture;
-                    }
+    // Expands every synthetic instruction by one level, returns false if there was nothing to expand
+    private boolean expandOneDegree() {
+        ArchitectureType currentInstructionArchitecture;
+        ArchitectureType maxArchitectureRequired = ArchitectureType.A_0; // the lowest
+        int nextInstructionNumber = 1;
+        boolean expanded = false;
+
+        for (ListIterator<Instruction> iterator = programInstructions.listIterator(); iterator.hasNext(); ) {
+            Instruction instruction = iterator.next();
+            Label originalLabel = instruction.getLabel();
+            List<Instruction> newInstructionsList = new ArrayList<>();
+
+            if (instruction instanceof SyntheticInstruction syntheticInstruction) {
+                nextInstructionNumber = syntheticInstruction.expandInstruction(nextInstructionNumber);
+                newInstructionsList = instruction.getExtendedInstruction();
+                expanded = true;
+            } else {
+                Instruction cloneInstruction = instruction.createInstructionWithInstructionNumber(nextInstructionNumber);
+                newInstructionsList.add(cloneInstruction);
+                nextInstructionNumber++;
+            }
+
+            iterator.remove();                          // Remove the old instruction
+            labelToInstruction.remove(originalLabel);   // Remove the label from the map because we will add it again in updateVariableAndLabel
+            labelsInProgram.remove(originalLabel);      // Remove the label from the map because we will add it again in updateVariableAndLabel
+
+            for (Instruction extendedInstruction : newInstructionsList) {
+                updateVariableAndLabel(extendedInstruction);
+                iterator.add(extendedInstruction);      // Add the extended (inner) instruction to the list
+
+                currentInstructionArchitecture = extendedInstruction.getArchitectureType();
+                if (currentInstructionArchitecture.isHigherThan(maxArchitectureRequired)) {
+                    maxArchitectureRequired = currentInstructionArchitecture;
                 }
             }
+        }
 
-            workingProgram.setMinimumArchitectureRequired(maxArchitectureRequired);
-            degree++;
-        } while (canExpandMore);
+        setMinimumArchitectureRequired(maxArchitectureRequired);
+        jumpTable = null;
 
-        return degreeToProgram;
+        return expanded;
     }
 
     @Override
@@ -132,6 +154,39 @@ public class ProgramImpl implements Program, Serializable {
         }
     }
 
+    // Structural copy: new instruction objects and collections, while labels, variables, quote arguments,
+    // origins and the programs holder are shared (they are immutable / engine-wide)
+    @Override
+    public ProgramImpl copy() {
+        ProgramImpl copy = new ProgramImpl(programName, userString, programType, programsHolder, uploaderName, mainProgramNameOfThisProgram);
+        copy.minimumArchitectureRequired = this.minimumArchitectureRequired;
+        copy.executionsCount = this.executionsCount;
+        copy.creditCostOfProgram = this.creditCostOfProgram;
+        copy.nextLabelNumber = this.nextLabelNumber;
+        copy.nextWorkVariableNumber = this.nextWorkVariableNumber;
+
+        Map<Instruction, Instruction> originalToCopy = new IdentityHashMap<>();
+        for (Instruction instruction : programInstructions) {
+            Instruction copiedInstruction = instruction.createInstructionWithMainProgram(copy);
+            originalToCopy.put(instruction, copiedInstruction);
+            copy.programInstructions.add(copiedInstruction);
+        }
+
+        for (Map.Entry<Label, Instruction> entry : labelToInstruction.entrySet()) {
+            Instruction copiedInstruction = originalToCopy.get(entry.getValue());
+            copy.labelToInstruction.put(entry.getKey(), (copiedInstruction != null) ? copiedInstruction : entry.getValue().createInstructionWithMainProgram(copy));
+        }
+
+        copy.inputVariables.addAll(this.inputVariables);
+        copy.workVariables.addAll(this.workVariables);
+        copy.labelsInProgram.addAll(this.labelsInProgram);
+        copy.labelsAddedAfterExtension.addAll(this.labelsAddedAfterExtension);
+        copy.referencedLabels.addAll(this.referencedLabels);
+        copy.calledFunctionNames.addAll(this.calledFunctionNames);
+
+        return copy;
+    }
+
     @Override
     public void initialize() {
         initNextLabelNumber();
@@ -167,6 +222,7 @@ public class ProgramImpl implements Program, Serializable {
     public void addInstruction(Instruction instruction) {
         updateVariableAndLabel(instruction);
         programInstructions.add(instruction);
+        jumpTable = null;
     }
 
     @Override
@@ -221,6 +277,18 @@ public class ProgramImpl implements Program, Serializable {
         return this.programInstructions;
     }
 
+    @Override
+    public JumpTable getJumpTable() {
+        JumpTable currentJumpTable = jumpTable;
+
+        if (currentJumpTable == null) {
+            currentJumpTable = JumpTable.build(programInstructions);
+            jumpTable = currentJumpTable;
+        }
+
+        return currentJumpTable;
+    }
+
     @Override
     public Instruction getInstructionByLabel(Label label) {
         return labelToInstruction.get(label);
@@ -377,21 +445,6 @@ public class ProgramImpl implements Program, Serializable {
         return v;
     }
 
-    @Override
-    public void sortVariableSetByNumber(Set<Variable> variablesSet) {
-        List<Variable> sorted = variablesSet.stream()
-                .sorted(Comparator.comparingInt(Variable::number))
-                .collect(Collectors.toList());  // Dont change
-
-        variablesSet.clear();
-        variablesSet.addAll(sorted);
-    }
-
-    @Override
-    public void addInputVariable(Variable variable) {
-        inputVariables.add(variable);
-    }
-
     @Override
     public List<Variable> getInputAndWorkVariablesSortedBySerial() {
         // Work on local copies to prevent concurrent modification
@@ -1,5 +1,7 @@
 package engine.logic.programData.program;
 
+import engine.logic.execution.FunctionCallCache;
+
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -12,6 +14,7 @@ public class ProgramsHolder implements Serializable {
     private final Map<String, Program> nameToMainProgram = new HashMap<>();
     private final Map<String, String> userStringToName = new HashMap<>();
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FunctionCallCache functionCallCache = new FunctionCallCache();     // Functions never change once loaded
 
 
     public void addMainProgram(String programName, String UserString, Program mainProgram) {
@@ -87,4 +90,8 @@ public class ProgramsHolder implements Serializable {
         } finally {
             lock.readLock().unlock();
         }    }
+
+    public FunctionCallCache getFunctionCallCache() {
+        return functionCallCache;
+    }
 }
@@ -0,0 +1,88 @@
+package engine.user;
+
+import dto.v3.UserDTO;
+
+// The credits of one run: small blocks of credits taken from the user up front, so the run charges its instructions
+// here and doesn't write to the shared UserDTO per instruction. When a block is used up it's settled and the next one is
+// taken; settle() gives the unused credits back to the user and counts the used ones (at the end of the run, and before
+// a function call - the function charges the user itself). The user's shown credits are behind by at most a block per
+// running run, and near the end of the user's credits the run takes only what it charges.
+// When the user runs out of credits while its other runs hold reserved ones, the run waits for them to settle (they
+// may give some back); CreditsException is thrown only when no run holds any - the user is left with 0 and the
+// instruction that didn't fit throws, as when charging one by one with UserLogic.subtractCredits.
+// Used by one thread (the run's); the user is touched only through UserLogic, under the user's lock
+public final class CreditReservation {
+
+    public static final long DEFAULT_BLOCK_CREDITS = 1 << 12;
+
+    private final UserDTO user;
+    private final long blockCredits;
+    private long reservedCredits = 0;       // Taken from the user, not settled yet
+    private long consumedCredits = 0;       // Charged from the reserved credits, not settled yet
+
+    public CreditReservation(UserDTO user) {
+        this(user, DEFAULT_BLOCK_CREDITS);
+    }
+
+    public CreditReservation(UserDTO user, long blockCredits) {
+        if (blockCredits <= 0) {
+            throw new IllegalArgumentException("In CreditReservation: the block size must be positive, got " + blockCredits);
+        }
+        this.user = user;
+        this.blockCredits = blockCredits;
+    }
+
+    // Credits that can be charged before another block is taken
+    public long getAvailableCredits() {
+        return reservedCredits - consumedCredits;
+    }
+
+    // Credits that can be charged now: the available ones and the user's
+    public long getChargeableCredits() {
+        return getAvailableCredits() + Math.max(user.getCurrentCredits(), 0);
+    }
+
+    // Charges the credits, taking the next block from the user as needed. If the user doesn't have enough: settles (the
+    // user is left with 0 credits) and throws CreditsException
+    public void consume(long credits) {
+        consumedCredits += credits;
+        if (consumedCredits <= reservedCredits) {
+            return;
+        }
+
+        // The block is used up: settle it first (holding nothing, this run doesn't keep the user's other runs waiting)
+        long neededCredits = consumedCredits - reservedCredits;
+        consumedCredits = reservedCredits;
+        settle();
+
+        reservedCredits = UserLogic.takeCredits(user, neededCredits, blockCredits);
+        consumedCredits = neededCredits;
+        if (reservedCredits < neededCredits) {
+            settle();
+            throw UserLogic.notEnoughCredits(user);
+        }
+    }
+
+    // Takes credits from the user until 'credits' are available, without charging them. False if the user doesn't have
+    // enough now (nothing is taken, so charging on from here ends the same as without this call)
+    public boolean tryReserve(long credits) {
+        long neededCredits = credits - getAvailableCredits();
+        if (neededCredits <= 0) {
+            return true;
+        }
+
+        long takenCredits = UserLogic.tryTakeCredits(user, neededCredits, blockCredits);
+        reservedCredits += takenCredits;
+        return takenCredits > 0;
+    }
+
+    public void settle() {
+        if (reservedCredits == 0 && consumedCredits == 0) {
+            return;
+        }
+
+        UserLogic.settleCredits(user, reservedCredits, Math.max(reservedCredits - consumedCredits, 0), consumedCredits);
+        reservedCredits = 0;
+        consumedCredits = 0;
+    }
+}
@@ -2,39 +2,147 @@ package engine.user;
 
 import dto.v3.UserDTO;
 import engine.logic.exceptions.CreditsException;
+import engine.logic.exceptions.ExecutionInterruptedException;
 
+// All the changes of a user go through here, under the user's lock (one lock per user - runs of different users
+// don't contend). Runs don't charge the user per instruction: they take blocks of credits (CreditReservation)
 public class UserLogic {
 
+    private static final long WAIT_FOR_SETTLE_MILLIS = 10;
 
     public static void incrementMainPrograms(UserDTO user) {
-        user.setMainProgramsCount(user.getMainProgramsCount() + 1);
+        synchronized (user) {
+            user.setMainProgramsCount(user.getMainProgramsCount() + 1);
+        }
     }
 
     public static void incrementSubFunctions(UserDTO user) {
-        user.setSubFunctionsCount(user.getSubFunctionsCount() + 1);
+        synchronized (user) {
+            user.setSubFunctionsCount(user.getSubFunctionsCount() + 1);
+        }
     }
 
     public static void addCredits(UserDTO user, long creditsToAdd) {
-        user.setCurrentCredits(user.getCurrentCredits() + creditsToAdd);
+        synchronized (user) {
+            user.setCurrentCredits(user.getCurrentCredits() + creditsToAdd);
+            user.notifyAll();       // Runs waiting in takeCredits
+        }
     }
 
-    public static void subtractCredits(UserDTO user, int creditsToSubtract) {
-        user.setCurrentCredits(user.getCurrentCredits() - creditsToSubtract);
-        user.setUsedCredits(user.getUsedCredits() + creditsToSubtract);
+    public static void subtractCredits(UserDTO user, long creditsToSubtract) {
+        synchronized (user) {
+            user.setCurrentCredits(user.getCurrentCredits() - creditsToSubtract);
+            user.setUsedCredits(user.getUsedCredits() + creditsToSubtract);
 
-        if (user.getCurrentCredits() < 0) {
-            user.setCurrentCredits(0);
+            if (user.getCurrentCredits() < 0) {
+                user.setCurrentCredits(0);
+                throw notEnoughCredits(user);
+            }
+        }
+    }
 
-            String errorMessage = "Execution isn't finished." + System.lineSeparator() +
-                    "You don't have enough credits." + System.lineSeparator() +
-                    "Current credits amount: " + user.getCurrentCredits();
+    // Charges all the credits at once, or nothing: false if the user doesn't have them. Like takeCredits, waits first for
+    // the user's other runs to settle while they hold reserved credits (a cached function call, see FunctionCallCache)
+    public static boolean tryChargeCredits(UserDTO user, long credits) {
+        synchronized (user) {
+            while (user.getCurrentCredits() < credits && user.getReservedCredits() > 0) {
+                waitForSettle(user);
+            }
 
-            throw new CreditsException(errorMessage);
+            if (user.getCurrentCredits() < credits) {
+                return false;
+            }
+            user.setCurrentCredits(user.getCurrentCredits() - credits);
+            user.setUsedCredits(user.getUsedCredits() + credits);
+            return true;
         }
     }
 
+    // The user's credits and the ones its runs hold now (they may give them back)
+    public static long getCreditsWithReserved(UserDTO user) {
+        synchronized (user) {
+            return Math.max(user.getCurrentCredits(), 0) + user.getReservedCredits();
+        }
+    }
+
+    // Takes credits for a CreditReservation that holds none: at least 'neededCredits', and a block ahead
+    // ('blockCredits') while the user has a block more than that - near the end of the credits only the needed ones are
+    // taken, so they aren't held away from the user's other runs. If the user doesn't have the needed credits while other
+    // runs hold reserved ones, waits for them to settle. Returns how many were taken: less than needed (all the user had)
+    // only when no run holds credits it could give back
+    static long takeCredits(UserDTO user, long neededCredits, long blockCredits) {
+        synchronized (user) {
+            while (user.getCurrentCredits() < neededCredits && user.getReservedCredits() > 0) {
+                waitForSettle(user);
+            }
+
+            long takenCredits = Math.min(creditsToTake(user, neededCredits, blockCredits), Math.max(user.getCurrentCredits(), 0));
+            reserveCredits(user, takenCredits);
+            return takenCredits;
+        }
+    }
+
+    // Like takeCredits, but takes nothing and returns 0 if the user doesn't have the needed credits now
+    static long tryTakeCredits(UserDTO user, long neededCredits, long blockCredits) {
+        synchronized (user) {
+            if (user.getCurrentCredits() < neededCredits) {
+                return 0;
+            }
+
+            long takenCredits = creditsToTake(user, neededCredits, blockCredits);
+            reserveCredits(user, takenCredits);
+            return takenCredits;
+        }
+    }
+
+    // Settles a CreditReservation: gives back the credits it didn't use, and counts the ones it used
+    static void settleCredits(UserDTO user, long reservedCredits, long unusedCredits, long usedCredits) {
+        synchronized (user) {
+            user.setReservedCredits(user.getReservedCredits() - reservedCredits);
+            user.setCurrentCredits(user.getCurrentCredits() + unusedCredits);
+            user.setUsedCredits(user.getUsedCredits() + usedCredits);     // Like charging them one by one
+            user.notifyAll();       // Runs waiting in takeCredits
+        }
+    }
+
+    private static long creditsToTake(UserDTO user, long neededCredits, long blockCredits) {
+        return (user.getCurrentCredits() >= neededCredits + blockCredits) ? Math.max(neededCredits, blockCredits) : neededCredits;
+    }
+
+    private static void reserveCredits(UserDTO user, long credits) {
+        user.setCurrentCredits(user.getCurrentCredits() - credits);
+        user.setReservedCredits(user.getReservedCredits() + credits);
+    }
+
+    // Woken by settleCredits / addCredits, and re-checks now and then anyway
+    private static void waitForSettle(UserDTO user) {
+        try {
+            user.wait(WAIT_FOR_SETTLE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionInterruptedException("Execution was interrupted while waiting for credits");
+        }
+    }
+
+    static CreditsException notEnoughCredits(UserDTO user) {
+        String errorMessage = "Execution isn't finished." + System.lineSeparator() +
+                "You don't have enough credits." + System.lineSeparator() +
+                "Current credits amount: " + user.getCurrentCredits();
+
+        return new CreditsException(errorMessage);
+    }
+
     public static void incrementExecutions(UserDTO user) {
-        user.setExecutionsCount(user.getExecutionsCount() + 1);
+        synchronized (user) {
+            user.setExecutionsCount(user.getExecutionsCount() + 1);
+        }
+    }
+
+    // Counts many executions at once (a batch run - its credits are charged by a CreditReservation)
+    public static void incrementExecutions(UserDTO user, int executionsCount) {
+        synchronized (user) {
+            user.setExecutionsCount(user.getExecutionsCount() + executionsCount);
+        }
     }
 
     public static boolean hasEnoughCredits(UserDTO user, int requiredCredits) {
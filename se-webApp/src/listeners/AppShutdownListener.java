@@ -3,6 +3,7 @@ package listeners;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
 import jakarta.servlet.annotation.WebListener;
+import service.DebugResumeManager;
 import service.ProgramExecutionManager;
 
 /**
@@ -17,5 +18,6 @@ public class AppShutdownListener implements ServletContextListener {
 
         // Safely shut down the server-side thread pool to prevent memory leaks
         ProgramExecutionManager.getInstance().shutdown();
+        DebugResumeManager.getInstance().shutdown();
     }
 }
@@ -0,0 +1,185 @@
+package service;
+
+import dto.v2.DebugDTO;
+import engine.Engine;
+import engine.logic.exceptions.DebugSessionExpiredException;
+import engine.logic.execution.runMode.ProgramExecutor;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Runs the debugger resumes in the background, each on its own virtual thread, so a resume into a long (or endless)
+// loop doesn't hold a request thread. A resume is a job: the client polls its status by jobId, and can cancel it.
+// A user has at most one resume job at a time (a debug session runs one thing at a time). A job is stopped after
+// RESUME_TIME_LIMIT_MILLIS, and every resume of a session pauses after the session's step budget of instructions.
+// Like the program runs, a resume yields its virtual thread at every interrupt check, and at most
+// MAX_CONCURRENT_RESUMES resume at once (the others wait, pending) - so the debug sessions don't hold every carrier
+// thread and the runs of ProgramExecutionManager still start
+public class DebugResumeManager {
+
+    public static final long RESUME_TIME_LIMIT_MILLIS = 60_000;   // A resume that takes longer is stopped (TIMED_OUT)
+    public static final long DEFAULT_STEP_BUDGET = 50_000_000;
+    public static final int DEFAULT_MAX_CONCURRENT_RESUMES = 4;
+
+    // Can be overridden by system properties (e.g. in CATALINA_OPTS)
+    public static final String STEP_BUDGET_PROPERTY = "se.debugResume.stepBudget";
+    public static final String JOB_STATUS_TTL_SECONDS_PROPERTY = "se.debugResume.ttlSeconds";
+    public static final String JOB_STATUS_MAX_SIZE_PROPERTY = "se.debugResume.maxSize";
+    public static final String MAX_CONCURRENT_RESUMES_PROPERTY = "se.debugResume.maxConcurrent";
+
+    private final ExecutorService resumeExecutor;  // A new virtual thread per resume
+    private final ScheduledExecutorService timeLimitScheduler;  // Stops resumes that passed the time limit
+    private final RunStatusRegistry<DebugResumeStatus> jobStatusRegistry;                   // Holds status of each resume job by jobId
+    private final Map<String, Future<?>> jobFutureMap = new ConcurrentHashMap<>();          // Holds the task of each unfinished job by jobId
+    private final Map<String, DebugResumeStatus> usernameToActiveJob = new ConcurrentHashMap<>();
+    private final long stepBudget;
+    private final Semaphore resumePermits;
+
+    private static final DebugResumeManager instance = new DebugResumeManager();
+
+
+    private DebugResumeManager() {
+        this.resumeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.timeLimitScheduler = Executors.newSingleThreadScheduledExecutor();
+        this.jobStatusRegistry = RunStatusRegistry.start(
+                TimeUnit.SECONDS.toMillis(Long.getLong(JOB_STATUS_TTL_SECONDS_PROPERTY, TimeUnit.MILLISECONDS.toSeconds(RunStatusRegistry.DEFAULT_TTL_MILLIS))),
+                Integer.getInteger(JOB_STATUS_MAX_SIZE_PROPERTY, RunStatusRegistry.DEFAULT_MAX_SIZE));
+        this.stepBudget = Long.getLong(STEP_BUDGET_PROPERTY, DEFAULT_STEP_BUDGET);
+        this.resumePermits = new Semaphore(Integer.getInteger(MAX_CONCURRENT_RESUMES_PROPERTY, DEFAULT_MAX_CONCURRENT_RESUMES));
+    }
+
+    public static DebugResumeManager getInstance() {
+        return instance;
+    }
+
+    // The step budget of the debug sessions (given to Engine.initializeDebugger)
+    public long getStepBudget() {
+        return stepBudget;
+    }
+
+    // Returns the job id. Throws IllegalStateException if the user already has a resume running
+    public String submitResume(List<Boolean> breakPoints, String username, Engine engine) {
+        DebugResumeStatus status = new DebugResumeStatus(UUID.randomUUID().toString(), username);
+
+        DebugResumeStatus activeJob = usernameToActiveJob.merge(username, status,
+                (previous, next) -> previous.state.isFinished() ? next : previous);
+        if (activeJob != status) {
+            throw new IllegalStateException("A resume of the debugger is already running (job " + activeJob.runId + ")");
+        }
+
+        jobStatusRegistry.register(status);
+
+        // Kept by jobId before it's started, so it can always be cancelled
+        FutureTask<Void> resumeTask = new FutureTask<>(() -> executeResume(status, breakPoints, engine), null);
+        jobFutureMap.put(status.runId, resumeTask);
+        resumeExecutor.execute(() -> ProgramExecutor.runYielding(resumeTask));
+
+        return status.runId;
+    }
+
+    private void executeResume(DebugResumeStatus status, List<Boolean> breakPoints, Engine engine) {
+        try {
+            resumePermits.acquire();        // Pending while MAX_CONCURRENT_RESUMES resumes run
+        } catch (InterruptedException e) {
+            status.dequeuedAtMillis = System.currentTimeMillis();
+            status.moveTo(ProgramRunState.CANCELLED, "Resume was cancelled by the user");
+            finish(status);
+            return;
+        }
+
+        try {
+            status.dequeuedAtMillis = System.currentTimeMillis();
+            resume(status, breakPoints, engine);
+        } finally {
+            resumePermits.release();
+        }
+    }
+
+    private void resume(DebugResumeStatus status, List<Boolean> breakPoints, Engine engine) {
+        if (!status.moveTo(ProgramRunState.RUNNING, null)) {       // Cancelled before it started
+            finish(status);
+            return;
+        }
+
+        ScheduledFuture<?> timeLimit = timeLimitScheduler.schedule(
+                () -> stopJob(status.runId, ProgramRunState.TIMED_OUT,
+                        "Resume stopped: it ran longer than " + RESUME_TIME_LIMIT_MILLIS / 1000 + " seconds"),
+                RESUME_TIME_LIMIT_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            DebugDTO debugDTO = engine.getProgramAfterResume(breakPoints, status.username);
+
+            status.pausedOnStepBudget = engine.isDebugPausedOnStepBudget(status.username);
+            status.debugDTO = debugDTO;         // Before DONE, so a reader never sees DONE without the result
+            status.moveTo(ProgramRunState.DONE, null);
+
+        } catch (InterruptedException e) {
+            // Usually the state was already set by whoever stopped the job (CANCELLED / TIMED_OUT)
+            status.moveTo(ProgramRunState.CANCELLED, e.getMessage());
+
+        } catch (DebugSessionExpiredException e) {
+            status.sessionExpired = true;
+            status.moveTo(ProgramRunState.FAILED, e.getMessage());
+
+        } catch (Exception e) {
+            status.moveTo(ProgramRunState.FAILED, e.getMessage());
+
+        } finally {
+            timeLimit.cancel(false);
+            finish(status);
+        }
+    }
+
+    private void finish(DebugResumeStatus status) {
+        jobFutureMap.remove(status.runId);
+        usernameToActiveJob.remove(status.username, status);
+    }
+
+    public DebugResumeStatus getStatus(String jobId) {
+        return jobStatusRegistry.get(jobId);
+    }
+
+    // True if the job finished and its status was already removed (getStatus returns null for it)
+    public boolean isJobExpired(String jobId) {
+        return jobStatusRegistry.isExpired(jobId);
+    }
+
+    public boolean hasActiveResume(String username) {
+        DebugResumeStatus activeJob = usernameToActiveJob.get(username);
+        return activeJob != null && !activeJob.state.isFinished();
+    }
+
+    // Returns false if there is no such job or it already finished
+    public boolean cancelResume(String jobId) {
+        return stopJob(jobId, ProgramRunState.CANCELLED, "Resume was cancelled by the user");
+    }
+
+    // Cancels the user's running resume (if any), before the session is stopped or replaced.
+    // The resuming thread lets go of the session as soon as it notices the interrupt
+    public void cancelActiveResume(String username) {
+        DebugResumeStatus activeJob = usernameToActiveJob.get(username);
+        if (activeJob != null) {
+            cancelResume(activeJob.runId);
+        }
+    }
+
+    private boolean stopJob(String jobId, ProgramRunState stoppedState, String error) {
+        DebugResumeStatus status = jobStatusRegistry.get(jobId);
+        if (status == null || !status.moveTo(stoppedState, error)) {
+            return false;
+        }
+
+        // Interrupts the resuming thread - the debugger checks it every few instructions
+        Future<?> resumeTask = jobFutureMap.remove(jobId);
+        if (resumeTask != null) {
+            resumeTask.cancel(true);
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        jobStatusRegistry.shutdown();
+        timeLimitScheduler.shutdownNow();
+        resumeExecutor.shutdownNow(); // Stop all running resumes immediately
+    }
+}
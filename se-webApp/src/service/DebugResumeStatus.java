@@ -0,0 +1,14 @@
+package service;
+
+import dto.v2.DebugDTO;
+
+// The status of a debugger resume job (the job id is the runId). Kept in a RunStatusRegistry like the program runs
+public class DebugResumeStatus extends ProgramRunStatus {
+    public volatile DebugDTO debugDTO;                  // The debugger state after the resume, set before DONE
+    public volatile boolean pausedOnStepBudget;         // The resume paused because of the session's step budget
+    public volatile boolean sessionExpired;             // FAILED because the debug session expired (initialize it again)
+
+    public DebugResumeStatus(String jobId, String username) {
+        super(jobId, null, username);       // The program is the one of the user's debug session
+    }
+}
@@ -1,9 +1,16 @@
 package service;
 
 import engine.Engine;
+import engine.logic.execution.batchMode.BatchRowResult;
+import engine.logic.execution.batchMode.BatchRunSummary;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
 
 public interface ExecutionService {
     String submitRun(ProgramRunRequest request, Engine engine);
+    BatchRunSummary runBatch(ProgramRunRequest request, Iterator<Long[]> inputs, Consumer<BatchRowResult> onRow, Engine engine);
     ProgramRunStatus getStatus(String runId);
+    boolean isRunExpired(String runId);
     boolean cancelRun(String runId);
 }
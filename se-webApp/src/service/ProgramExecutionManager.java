@@ -1,23 +1,63 @@
 package service;
 
+import dto.v3.UserDTO;
 import engine.Engine;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import engine.logic.execution.batchMode.BatchRowResult;
+import engine.logic.execution.batchMode.BatchRunSummary;
+import engine.logic.exceptions.CreditsException;
+import engine.logic.exceptions.ExecutionInterruptedException;
+import engine.logic.execution.compiledMode.CycleCostEstimate;
+import engine.logic.execution.runMode.ProgramExecutor;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Runs programs in the background, each run on its own virtual thread.
+// Concurrency is capped globally and per user (semaphores), and pending runs are started user by user (round-robin),
+// so a user who submits many runs doesn't delay the runs of everyone else.
+// A run that can't complete on the user's credits (by the engine's static cost estimate) fails on submit, without waiting.
+// A batch run is scheduled the same way, as one run of its user: its rows run on one thread, and on more only with the
+// user's run permits that are free when it starts (it runs as that many runs of the user). A batch has no time limit
+// of its own - it's stopped when none of its rows ended for BATCH_ROW_TIME_LIMIT_MILLIS
 public class ProgramExecutionManager implements ExecutionService {
 
-    private final ExecutorService threadPool;   // Thread pool for background executions
-    private final Map<String, ProgramRunStatus> runStatusMap = new ConcurrentHashMap<>();   // Holds status of each program run by runId
+    public static final long RUN_TIME_LIMIT_MILLIS = 60_000;   // A run that takes longer is stopped (TIMED_OUT)
+    public static final long BATCH_ROW_TIME_LIMIT_MILLIS = RUN_TIME_LIMIT_MILLIS;  // A batch row that takes longer stops the batch
+    public static final int MAX_CONCURRENT_RUNS = 20;
+    public static final int MAX_CONCURRENT_RUNS_PER_USER = 4;
+
+    // Run status registry settings, can be overridden by system properties (e.g. in CATALINA_OPTS)
+    public static final String RUN_STATUS_TTL_SECONDS_PROPERTY = "se.runStatus.ttlSeconds";
+    public static final String RUN_STATUS_MAX_SIZE_PROPERTY = "se.runStatus.maxSize";
+
+    private record PendingRun(ProgramRunStatus status, FutureTask<Void> task) { }
+
+    private final ExecutorService runExecutor;  // A new virtual thread per run
+    private final ScheduledExecutorService timeLimitScheduler;  // Stops runs that passed the time limit
+    private final RunStatusRegistry<ProgramRunStatus> runStatusRegistry;                                      // Holds status of each program run by runId
+    private final Map<String, Future<?>> runFutureMap = new ConcurrentHashMap<>();          // Holds the task of each unfinished run by runId
+
+    // Scheduling (guarded by 'this'):
+    private final Semaphore globalRunPermits = new Semaphore(MAX_CONCURRENT_RUNS);
+    private final Map<String, Semaphore> usernameToRunPermits = new HashMap<>();
+    private final Map<String, Deque<PendingRun>> usernameToPendingRuns = new HashMap<>();
+    private final Deque<String> usersTurnOrder = new ArrayDeque<>();    // Users with pending runs, next user first
+    private int pendingRunsCount = 0;
+    private final AtomicLong rejectedRunsCount = new AtomicLong();
+
     private static final ProgramExecutionManager instance = new ProgramExecutionManager();  // Singleton instance (optional, ensures one manager in the whole server)
 
 
-    // Private constructor - initialize thread pool here
+    // Private constructor - initialize the executors here
     private ProgramExecutionManager() {
-        this.threadPool = Executors.newFixedThreadPool(20);
+        this.runExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.timeLimitScheduler = Executors.newSingleThreadScheduledExecutor();
+        this.runStatusRegistry = RunStatusRegistry.start(
+                TimeUnit.SECONDS.toMillis(Long.getLong(RUN_STATUS_TTL_SECONDS_PROPERTY, TimeUnit.MILLISECONDS.toSeconds(RunStatusRegistry.DEFAULT_TTL_MILLIS))),
+                Integer.getInteger(RUN_STATUS_MAX_SIZE_PROPERTY, RunStatusRegistry.DEFAULT_MAX_SIZE));
     }
 
     public static ProgramExecutionManager getInstance() {
@@ -26,55 +66,402 @@ public class ProgramExecutionManager implements ExecutionService {
 
     @Override
     public String submitRun(ProgramRunRequest request, Engine engine) {
+        ProgramRunStatus programRunStatus = register(request);
+
+        String rejectionError = checkAdmission(request, engine);
+        if (rejectionError != null) {
+            reject(programRunStatus, rejectionError);
+            return programRunStatus.runId;
+        }
+
+        queue(programRunStatus, new FutureTask<>(() -> executeRun(programRunStatus, () -> {
+            Long[] inputArray = (request.inputValues != null) ? request.inputValues.toArray(new Long[0]) : new Long[0];
+            engine.runProgram(request.programName, request.architecture, request.degree, request.username, request.backend, inputArray);
+        }), null));
+
+        // Return run ID immediately
+        return programRunStatus.runId;
+    }
+
+    // Runs a batch like a run: admitted, queued in the user's turn and started under the same permits (see the class
+    // comment for its row threads and time limit).
+    // The calling thread waits for it (the batch reads the request and writes the response), also when the batch is
+    // stopped - until the batch thread is done with 'inputs' and 'onRow'. Throws what stopped the batch
+    @Override
+    public BatchRunSummary runBatch(ProgramRunRequest request, Iterator<Long[]> inputs, Consumer<BatchRowResult> onRow, Engine engine) {
+        ProgramRunStatus programRunStatus = register(request);
+
+        String rejectionError = checkBatchAdmission(request, engine);
+        if (rejectionError != null) {
+            reject(programRunStatus, rejectionError);
+            throw new IllegalStateException(rejectionError);
+        }
+
+        BatchRunSummary[] summary = new BatchRunSummary[1];
+        CountDownLatch batchEnded = new CountDownLatch(1);
+        BatchTimeLimit timeLimit = new BatchTimeLimit(programRunStatus.runId);
+        FutureTask<Void> batchTask = new FutureTask<>(() -> {
+            int rowPermits = acquireBatchRowPermits(request.username);
+            try {
+                executeRun(programRunStatus, () -> summary[0] = engine.runProgramBatch(
+                        request.programName, request.architecture, request.degree, request.username, inputs,
+                        rowResult -> {
+                            timeLimit.rowEnded();
+                            onRow.accept(rowResult);
+                        },
+                        row -> runExecutor.execute(() -> ProgramExecutor.runYielding(row)), 1 + rowPermits),
+                        timeLimit::start);
+            } finally {
+                releaseBatchRowPermits(request.username, rowPermits);
+                batchEnded.countDown();
+            }
+        }, null);
+        queue(programRunStatus, batchTask);
+
+        awaitBatch(programRunStatus, batchTask, batchEnded);
+
+        return switch (programRunStatus.state) {
+            case DONE -> summary[0];
+            case CANCELLED, TIMED_OUT -> throw new ExecutionInterruptedException(programRunStatus.error);
+            default -> throw new IllegalStateException(programRunStatus.error);
+        };
+    }
+
+    private ProgramRunStatus register(ProgramRunRequest request) {
         // Generate unique run ID
         String runId = UUID.randomUUID().toString();    // Universally Unique Identifier
 
-        // Create status object and put it in the map
+        // Create status object and register it
         ProgramRunStatus programRunStatus = new ProgramRunStatus(runId, request.programName, request.username);
         programRunStatus.state = ProgramRunState.PENDING;
-        runStatusMap.put(runId, programRunStatus);
+        runStatusRegistry.register(programRunStatus);
+        return programRunStatus;
+    }
+
+    private void reject(ProgramRunStatus programRunStatus, String rejectionError) {
+        programRunStatus.dequeuedAtMillis = programRunStatus.submittedAtMillis;
+        programRunStatus.moveTo(ProgramRunState.FAILED, rejectionError);
+        rejectedRunsCount.incrementAndGet();
+    }
+
+    // Queues the task (kept by runId before it's started, so it can always be cancelled)
+    private void queue(ProgramRunStatus programRunStatus, FutureTask<Void> runTask) {
+        runFutureMap.put(programRunStatus.runId, runTask);
+        enqueue(new PendingRun(programRunStatus, runTask));
+        dispatchPendingRuns();
+    }
+
+    // A stopped batch's task is cancelled at once, but its thread may still be stopping: if the batch started, waits
+    // for it to end
+    private void awaitBatch(ProgramRunStatus programRunStatus, FutureTask<Void> batchTask, CountDownLatch batchEnded) {
+        boolean interrupted = false;
 
-        // Submit background task
-        threadPool.submit(() -> {
+        try {
+            batchTask.get();
+        } catch (InterruptedException e) {
+            interrupted = true;
+            stopRun(programRunStatus.runId, ProgramRunState.CANCELLED, "Batch run was cancelled");
+        } catch (CancellationException | ExecutionException e) {
+            // Stopped (the status has the reason), or failed with an error
+        }
+
+        // Once the status finished, startedAtMillis doesn't change
+        while (programRunStatus.startedAtMillis >= 0) {
             try {
-                // Update state to RUNNING
-                programRunStatus.state = ProgramRunState.RUNNING;
-
-                List<Long> inputList = request.inputValues != null ? request.inputValues : List.of();
-                Long[] inputArray = inputList.toArray(new Long[0]);
-
-                engine.runProgram(
-                        request.programName,
-                        request.architecture,
-                        request.degree,
-                        request.username,
-                        inputArray
-                );
-
-                // Update state to DONE
-                programRunStatus.state = ProgramRunState.DONE;
-
-            } catch (Exception e) {
-                programRunStatus.state = ProgramRunState.FAILED;
-                programRunStatus.error = e.getMessage();
+                batchEnded.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns the error of a run that needs more credits than the user has, null to run it
+    private static String checkAdmission(ProgramRunRequest request, Engine engine) {
+        try {
+            UserDTO userDTO = engine.getUserDTO(request.username);
+            Long[] inputArray = (request.inputValues != null) ? request.inputValues.toArray(new Long[0]) : new Long[0];
+            long requiredCredits = engine.getMinimumRunCredits(request.programName, request.architecture, request.degree, inputArray);
+
+            if (userDTO == null || userDTO.getCurrentCredits() >= requiredCredits) {
+                return null;
+            }
+            if (requiredCredits == CycleCostEstimate.UNBOUNDED) {
+                return "Program execution rejected: the program never reaches its end";
+            }
+            return "Program execution rejected: " + new CreditsException(userDTO.getCurrentCredits(), requiredCredits).getMessage();
+
+        } catch (RuntimeException e) {
+            return null;        // The run itself reports what's wrong
+        }
+    }
+
+    // Returns the error of a batch the user can't pay a single run of (the architecture cost - the inputs may not be
+    // read yet), null to run it
+    private static String checkBatchAdmission(ProgramRunRequest request, Engine engine) {
+        try {
+            UserDTO userDTO = engine.getUserDTO(request.username);
+            long requiredCredits = engine.getArchitectureCost(request.architecture);
+
+            if (userDTO == null || userDTO.getCurrentCredits() >= requiredCredits) {
+                return null;
+            }
+            return "Batch run rejected: " + new CreditsException(userDTO.getCurrentCredits(), requiredCredits).getMessage();
+
+        } catch (RuntimeException e) {
+            return null;        // The batch itself reports what's wrong
+        }
+    }
+
+    // More permits for the rows of a batch (it holds one): the user's free ones, but not the ones the pending runs may
+    // take, up to a thread per processor. Returns how many were taken
+    private synchronized int acquireBatchRowPermits(String username) {
+        Semaphore userRunPermits = usernameToRunPermits.get(username);
+        int maxRowPermits = Math.min(MAX_CONCURRENT_RUNS_PER_USER, Runtime.getRuntime().availableProcessors()) - 1;
+        int rowPermits = 0;
+
+        while (rowPermits < maxRowPermits && globalRunPermits.availablePermits() > pendingRunsCount && userRunPermits.tryAcquire()) {
+            globalRunPermits.acquireUninterruptibly();
+            rowPermits++;
+        }
+        return rowPermits;
+    }
+
+    private void releaseBatchRowPermits(String username, int rowPermits) {
+        if (rowPermits == 0) {
+            return;
+        }
+
+        synchronized (this) {
+            releaseRunPermits(username, usernameToRunPermits.get(username), rowPermits);    // The batch's own permit keeps the entry
+        }
+        dispatchPendingRuns();
+    }
+
+    // A user with all their permits free has no active runs: their entry goes, and their next run creates a new one
+    private synchronized void releaseRunPermits(String username, Semaphore userRunPermits, int permits) {
+        userRunPermits.release(permits);
+        globalRunPermits.release(permits);
+
+        if (userRunPermits.availablePermits() == MAX_CONCURRENT_RUNS_PER_USER) {
+            usernameToRunPermits.remove(username);
+        }
+    }
+
+    private synchronized void enqueue(PendingRun pendingRun) {
+        String username = pendingRun.status().username;
+        Deque<PendingRun> userPendingRuns = usernameToPendingRuns.computeIfAbsent(username, k -> new ArrayDeque<>());
+
+        pendingRun.status().queueDepthAtSubmit = pendingRunsCount;
+        pendingRun.status().userQueueDepthAtSubmit = userPendingRuns.size();
+
+        if (userPendingRuns.isEmpty()) {
+            usersTurnOrder.addLast(username);
+        }
+        userPendingRuns.addLast(pendingRun);
+        pendingRunsCount++;
+    }
+
+    // Starts pending runs while there are free permits: one run per user in turn
+    private synchronized void dispatchPendingRuns() {
+        boolean startedRun = true;
+
+        while (startedRun && globalRunPermits.availablePermits() > 0) {
+            startedRun = false;
+            int usersInTurn = usersTurnOrder.size();
+
+            for (int i = 0; i < usersInTurn && globalRunPermits.availablePermits() > 0; i++) {
+                String username = usersTurnOrder.pollFirst();
+                Deque<PendingRun> userPendingRuns = usernameToPendingRuns.get(username);
+                Semaphore userRunPermits = usernameToRunPermits.computeIfAbsent(username, k -> new Semaphore(MAX_CONCURRENT_RUNS_PER_USER));
+
+                if (userRunPermits.tryAcquire()) {
+                    globalRunPermits.acquireUninterruptibly();      // Available - only acquired under this lock
+                    PendingRun pendingRun = userPendingRuns.pollFirst();
+                    pendingRunsCount--;
+                    pendingRun.status().dequeuedAtMillis = System.currentTimeMillis();
+                    start(pendingRun, userRunPermits);
+                    startedRun = true;
+                }
+
+                if (userPendingRuns.isEmpty()) {
+                    usernameToPendingRuns.remove(username);
+                } else {
+                    usersTurnOrder.addLast(username);
+                }
+            }
+        }
+    }
+
+    // The run yields its virtual thread at every interrupt check, so the runs started after it get a carrier thread too
+    private void start(PendingRun pendingRun, Semaphore userRunPermits) {
+        runExecutor.execute(() -> {
+            try {
+                ProgramExecutor.runYielding(pendingRun.task());      // Does nothing if the run was cancelled meanwhile
+            } finally {
+                releaseRunPermits(pendingRun.status().username, userRunPermits, 1);
+                dispatchPendingRuns();
             }
         });
+    }
 
-        // Return run ID immediately
-        return runId;
+    private void executeRun(ProgramRunStatus programRunStatus, Runnable run) {
+        executeRun(programRunStatus, run, () -> {
+            ScheduledFuture<?> timeLimit = timeLimitScheduler.schedule(
+                    () -> stopRun(programRunStatus.runId, ProgramRunState.TIMED_OUT,
+                            "Program execution stopped: it ran longer than " + RUN_TIME_LIMIT_MILLIS / 1000 + " seconds"),
+                    RUN_TIME_LIMIT_MILLIS, TimeUnit.MILLISECONDS);
+            return () -> timeLimit.cancel(false);
+        });
+    }
+
+    // 'startTimeLimit' starts the run's time limit, and returns what cancels it
+    private void executeRun(ProgramRunStatus programRunStatus, Runnable run, Supplier<Runnable> startTimeLimit) {
+        // Update state to RUNNING (unless it was cancelled while pending)
+        if (!programRunStatus.moveTo(ProgramRunState.RUNNING, null)) {
+            return;
+        }
+
+        Runnable cancelTimeLimit = startTimeLimit.get();
+
+        try {
+            run.run();
+
+            // Update state to DONE
+            programRunStatus.moveTo(ProgramRunState.DONE, null);
+
+        } catch (ExecutionInterruptedException e) {
+            // Usually the state was already set by whoever stopped the run (CANCELLED / TIMED_OUT)
+            programRunStatus.moveTo(ProgramRunState.CANCELLED, e.getMessage());
+
+        } catch (Exception e) {
+            programRunStatus.moveTo(ProgramRunState.FAILED, e.getMessage());
+
+        } finally {
+            cancelTimeLimit.run();
+            runFutureMap.remove(programRunStatus.runId);
+        }
+    }
+
+    // Stops a batch when none of its rows ended for BATCH_ROW_TIME_LIMIT_MILLIS (since it started, or since the last row
+    // ended) - a long batch isn't stopped while its rows keep ending
+    private final class BatchTimeLimit {
+        private final String runId;
+        private volatile long lastRowEndedAtMillis;
+        private volatile boolean cancelled = false;
+        private volatile ScheduledFuture<?> nextCheck;
+
+        BatchTimeLimit(String runId) {
+            this.runId = runId;
+        }
+
+        Runnable start() {
+            lastRowEndedAtMillis = System.currentTimeMillis();
+            scheduleCheck(BATCH_ROW_TIME_LIMIT_MILLIS);
+            return this::cancel;
+        }
+
+        void rowEnded() {
+            lastRowEndedAtMillis = System.currentTimeMillis();
+        }
+
+        private void scheduleCheck(long delayMillis) {
+            nextCheck = timeLimitScheduler.schedule(this::check, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void check() {
+            long sinceLastRowMillis = System.currentTimeMillis() - lastRowEndedAtMillis;
+
+            if (cancelled) {
+                return;
+            }
+            if (sinceLastRowMillis >= BATCH_ROW_TIME_LIMIT_MILLIS) {
+                stopRun(runId, ProgramRunState.TIMED_OUT,
+                        "Batch run stopped: no run of it ended in " + BATCH_ROW_TIME_LIMIT_MILLIS / 1000 + " seconds");
+            } else {
+                scheduleCheck(BATCH_ROW_TIME_LIMIT_MILLIS - sinceLastRowMillis);
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> check = nextCheck;
+            if (check != null) {
+                check.cancel(false);
+            }
+        }
     }
 
     @Override
     public ProgramRunStatus getStatus(String runId) {
-        return runStatusMap.get(runId);              // Return the current status if exists, otherwise null
+        return runStatusRegistry.get(runId);         // Return the current status if exists, otherwise null
     }
 
+    // True if the run finished and its status was already removed (getStatus returns null for it)
+    @Override
+    public boolean isRunExpired(String runId) {
+        return runStatusRegistry.isExpired(runId);
+    }
+
+    // Returns false if there is no such run or it already finished
     @Override
     public boolean cancelRun(String runId) {
-        return false;
+        return stopRun(runId, ProgramRunState.CANCELLED, "Program execution was cancelled by the user");
+    }
+
+    private boolean stopRun(String runId, ProgramRunState stoppedState, String error) {
+        ProgramRunStatus programRunStatus = runStatusRegistry.get(runId);
+        if (programRunStatus == null || !programRunStatus.moveTo(stoppedState, error)) {
+            return false;
+        }
+
+        // Interrupts the running thread - the executor checks it every few instructions
+        Future<?> runTask = runFutureMap.remove(runId);
+        if (runTask != null) {
+            runTask.cancel(true);
+        }
+
+        removePendingRun(programRunStatus);
+        return true;
+    }
+
+    private synchronized void removePendingRun(ProgramRunStatus programRunStatus) {
+        Deque<PendingRun> userPendingRuns = usernameToPendingRuns.get(programRunStatus.username);
+
+        if (userPendingRuns != null && userPendingRuns.removeIf(pendingRun -> pendingRun.status() == programRunStatus)) {
+            pendingRunsCount--;
+            programRunStatus.dequeuedAtMillis = System.currentTimeMillis();
+
+            if (userPendingRuns.isEmpty()) {
+                usernameToPendingRuns.remove(programRunStatus.username);
+                usersTurnOrder.remove(programRunStatus.username);
+            }
+        }
+    }
+
+    public synchronized int getPendingRunsCount() {
+        return pendingRunsCount;
+    }
+
+    public long getRejectedRunsCount() {
+        return rejectedRunsCount.get();
+    }
+
+    public int getRunningRunsCount() {
+        return MAX_CONCURRENT_RUNS - globalRunPermits.availablePermits();
+    }
+
+    public RunStatusRegistry<ProgramRunStatus> getRunStatusRegistry() {
+        return runStatusRegistry;
     }
 
     public void shutdown() {
-        threadPool.shutdownNow(); // Stop all running tasks immediately
+        runStatusRegistry.shutdown();
+        timeLimitScheduler.shutdownNow();
+        runExecutor.shutdownNow(); // Stop all running tasks immediately
     }
 }
@@ -1,5 +1,7 @@
 package service;
 
+import engine.logic.execution.compiledMode.ExecutionBackend;
+
 import java.util.List;
 
 public class ProgramRunRequest {
@@ -8,12 +10,15 @@ public class ProgramRunRequest {
     public final String architecture;
     public final String username;
     public final List<Long> inputValues;
+    public final ExecutionBackend backend;          // null - by the program's tier (see ExecutionTiers)
 
-    public ProgramRunRequest(String programName, int degree, String architecture, String username, List<Long> inputValues) {
+    public ProgramRunRequest(String programName, int degree, String architecture, String username, List<Long> inputValues,
+                             ExecutionBackend backend) {
         this.programName = programName;
         this.degree = degree;
         this.architecture = architecture;
         this.username = username;
         this.inputValues = inputValues;
+        this.backend = backend;
     }
 }
@@ -4,5 +4,11 @@ public enum ProgramRunState {
     PENDING,
     RUNNING,
     DONE,
-    FAILED
+    FAILED,
+    CANCELLED,      // Cancelled by the user
+    TIMED_OUT;      // Ran longer than the run time limit
+
+    public boolean isFinished() {
+        return this != PENDING && this != RUNNING;
+    }
 }
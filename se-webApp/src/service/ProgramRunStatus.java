@@ -1,5 +1,7 @@
 package service;
 
+import java.util.function.Consumer;
+
 public class ProgramRunStatus {
     public final String runId;
     public final String programName;
@@ -7,6 +9,16 @@ public class ProgramRunStatus {
     public volatile ProgramRunState state;
     public volatile String error;
 
+    // Queue stats:
+    public final long submittedAtMillis = System.currentTimeMillis();
+    public volatile int queueDepthAtSubmit;         // Runs of all users waiting ahead of this run when it was submitted
+    public volatile int userQueueDepthAtSubmit;     // Runs of the same user waiting ahead of this run when it was submitted
+    public volatile long dequeuedAtMillis = -1;     // When the run started or was removed from the queue, -1 while pending
+    public volatile long startedAtMillis = -1;      // When the run moved to RUNNING, -1 if it didn't (yet)
+    public volatile long finishedAtMillis = -1;     // -1 until the run finishes (the run status expires some time after it)
+
+    private Consumer<ProgramRunStatus> finishListener;      // Told once, when the run finishes (its RunStatusRegistry)
+
     public ProgramRunStatus(String runId, String programName, String username) {
         this.runId = runId;
         this.programName = programName;
@@ -14,4 +26,42 @@ public class ProgramRunStatus {
         this.state = ProgramRunState.PENDING;
         this.error = "";
     }
+
+    // Moves to the new state unless the run already finished (a cancelled run can't become DONE, and vice versa)
+    public synchronized boolean moveTo(ProgramRunState newState, String error) {
+        if (state.isFinished()) {
+            return false;
+        }
+
+        if (error != null) {
+            this.error = error;
+        }
+        if (newState == ProgramRunState.RUNNING) {
+            this.startedAtMillis = System.currentTimeMillis();
+        }
+        if (newState.isFinished()) {
+            this.finishedAtMillis = System.currentTimeMillis();
+        }
+        this.state = newState;      // After the error, so a reader never sees a failed state without its error
+
+        if (newState.isFinished() && finishListener != null) {
+            finishListener.accept(this);
+        }
+        return true;
+    }
+
+    // Called once, when the run finishes - right away if it already did
+    synchronized void onFinished(Consumer<ProgramRunStatus> listener) {
+        if (state.isFinished()) {
+            listener.accept(this);
+        } else {
+            finishListener = listener;
+        }
+    }
+
+    // Time spent waiting in the queue (so far, if the run hasn't started yet)
+    public long getWaitTimeMillis() {
+        long dequeuedAt = dequeuedAtMillis;
+        return ((dequeuedAt < 0) ? System.currentTimeMillis() : dequeuedAt) - submittedAtMillis;
+    }
 }
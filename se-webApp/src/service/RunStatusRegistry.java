@@ -0,0 +1,127 @@
+package service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Holds the status of every run by runId, and forgets finished runs:
+// - A finished run expires 'ttlMillis' after it finished (removed by a background sweeper)
+// - Above 'maxSize' statuses, the oldest finished runs are removed early
+// The finished runs are kept in a queue in the order they finished, so both only take from its head.
+// Unfinished runs are never removed. The ids of removed runs are remembered (a bounded number of them),
+// so a request for a removed run can be told it expired instead of "not found".
+// Also holds the debugger resume jobs (S - the status type)
+public class RunStatusRegistry<S extends ProgramRunStatus> {
+
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private static final int MAX_EXPIRED_RUN_IDS = 100_000;
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Map<String, S> runIdToStatus = new ConcurrentHashMap<>();
+    private final Queue<ProgramRunStatus> finishedRuns = new ConcurrentLinkedQueue<>();   // Oldest finished first
+    private final Set<String> expiredRunIds;                                            // Oldest id is dropped first
+    private final ScheduledExecutorService sweeper;
+
+    // Metrics:
+    private final AtomicLong expiredCount = new AtomicLong();       // Removed after the TTL
+    private final AtomicLong evictedCount = new AtomicLong();       // Removed before the TTL, because the registry was full
+
+    // Creates the registry and starts its sweeper
+    public static <S extends ProgramRunStatus> RunStatusRegistry<S> start(long ttlMillis, int maxSize) {
+        RunStatusRegistry<S> runStatusRegistry = new RunStatusRegistry<>(ttlMillis, maxSize);
+        runStatusRegistry.scheduleSweeper();
+        return runStatusRegistry;
+    }
+
+    private RunStatusRegistry(long ttlMillis, int maxSize) {
+        if (ttlMillis <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("Run status TTL and max size must be positive");
+        }
+
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.expiredRunIds = Collections.newSetFromMap(Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_EXPIRED_RUN_IDS;
+            }
+        }));
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "run-status-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void scheduleSweeper() {
+        long sweepIntervalMillis = Math.max(1, Math.min(ttlMillis / 2, MAX_SWEEP_INTERVAL_MILLIS));
+        sweeper.scheduleWithFixedDelay(this::removeExpired, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void register(S programRunStatus) {
+        runIdToStatus.put(programRunStatus.runId, programRunStatus);
+        programRunStatus.onFinished(finishedRuns::add);
+
+        if (runIdToStatus.size() > maxSize) {
+            evictOldestFinished();
+        }
+    }
+
+    // Null if there is no such run, or it was removed (see isExpired)
+    public S get(String runId) {
+        return runIdToStatus.get(runId);
+    }
+
+    public boolean isExpired(String runId) {
+        return !runIdToStatus.containsKey(runId) && expiredRunIds.contains(runId);
+    }
+
+    // Called by the sweeper
+    synchronized void removeExpired() {
+        long now = System.currentTimeMillis();
+
+        for (ProgramRunStatus oldest = finishedRuns.peek(); oldest != null && now - oldest.finishedAtMillis >= ttlMillis;
+             oldest = finishedRuns.peek()) {
+            finishedRuns.poll();
+            remove(oldest);
+            expiredCount.incrementAndGet();
+        }
+    }
+
+    // Removes the oldest finished runs, down to 90% of the max size (so it doesn't run again on the next register).
+    // When only unfinished runs are left, nothing is removed
+    private synchronized void evictOldestFinished() {
+        int toEvict = runIdToStatus.size() - (maxSize - maxSize / 10);
+
+        for (int i = 0; i < toEvict && !finishedRuns.isEmpty(); i++) {
+            remove(finishedRuns.poll());
+            evictedCount.incrementAndGet();
+        }
+    }
+
+    private void remove(ProgramRunStatus programRunStatus) {
+        expiredRunIds.add(programRunStatus.runId);      // Before removing, so the id is never both unknown and not expired
+        runIdToStatus.remove(programRunStatus.runId);
+    }
+
+    public int getSize() {
+        return runIdToStatus.size();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
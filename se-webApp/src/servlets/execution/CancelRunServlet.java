@@ -0,0 +1,65 @@
+package servlets.execution;
+
+import com.google.gson.JsonObject;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import service.ProgramExecutionManager;
+import service.ProgramRunStatus;
+import utils.SessionUtils;
+
+import java.io.IOException;
+
+import static utils.Constants.*;
+import static utils.ValidationUtils.*;
+
+/**
+ * Handles POST /cancel-run requests.
+ * Cancels a pending or running program of the logged-in user by its runId.
+ */
+
+@WebServlet(name = CANCEL_RUN_NAME, urlPatterns = CANCEL_RUN_URL)
+public class CancelRunServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+        if (!validateUserSession(request, response)) return;
+        String username = SessionUtils.getUsername(request);
+
+        response.setContentType("application/json");
+
+        try {
+            String runId = request.getParameter(RUN_ID_QUERY_PARAM);
+            if (!validateRunIdParam(runId, response)) return;
+
+            ProgramExecutionManager manager = ProgramExecutionManager.getInstance();
+            ProgramRunStatus status = manager.getStatus(runId);
+
+            if (!validateRunStatusFound(status, runId, "Run ID not found", response)) return;
+
+            if (!status.username.equals(username)) {
+                writeJsonError(response, HttpServletResponse.SC_FORBIDDEN, "Only the user who started the run can cancel it");
+                return;
+            }
+
+            if (!manager.cancelRun(runId)) {
+                writeJsonError(response, HttpServletResponse.SC_CONFLICT,
+                        "Run already finished with state " + status.state.name());
+                return;
+            }
+
+            JsonObject jsonResponse = new JsonObject();
+            jsonResponse.addProperty(STATE, status.state.name());
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().write(GSON_INSTANCE.toJson(jsonResponse));
+
+        } catch (Exception e) {
+            writeJsonError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    "Server error while cancelling program run: " + e.getMessage());
+        }
+    }
+}
@@ -35,10 +35,7 @@ public class ProgramAfterRunServlet extends HttpServlet {
             ProgramExecutionManager manager = ProgramExecutionManager.getInstance();
             ProgramRunStatus status = manager.getStatus(runId);
 
-            if (status == null) {
-                writeJsonError(response, HttpServletResponse.SC_NOT_FOUND, "Unknown runId. No matching execution found for this ID");
-                return;
-            }
+            if (!validateRunStatusFound(status, runId, "Unknown runId. No matching execution found for this ID", response)) return;
 
             if (status.state == ProgramRunState.FAILED) {
                 // Execution has completed but ended in failure
@@ -47,6 +44,12 @@ public class ProgramAfterRunServlet extends HttpServlet {
                 return;
             }
 
+            if (status.state == ProgramRunState.CANCELLED || status.state == ProgramRunState.TIMED_OUT) {
+                // Execution was stopped before it finished - there is no result
+                writeJsonError(response, HttpServletResponse.SC_CONFLICT, status.error);
+                return;
+            }
+
             if (status.state != ProgramRunState.DONE) {
                 // Execution is still running or pending
                 writeJsonError(response, HttpServletResponse.SC_CONFLICT,
@@ -1,6 +1,8 @@
 package servlets.execution;
 
 import com.google.gson.JsonObject;
+import engine.Engine;
+import engine.logic.execution.compiledMode.ExecutionTiers;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -8,6 +10,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import service.ProgramExecutionManager;
 import service.ProgramRunStatus;
+import utils.ServletUtils;
 import java.io.IOException;
 import static utils.Constants.*;
 import static utils.ValidationUtils.*;
@@ -15,6 +18,9 @@ import static utils.ValidationUtils.*;
 /**
  * Handles GET /program-status requests.
  * Returns the current status of a running program by its runId.
+ * Without a runId, returns the execution tiers metrics ("executionTiers"): the thresholds, the failed builds, and per
+ * tier ("tiers": INTERPRETED / COMPILED / BYTECODE) the runs started on it, the programs promoted to it and the time
+ * spent building its forms ("runs", "promotions", "buildMillis").
  */
 
 @WebServlet(name = PROGRAM_STATUS_NAME, urlPatterns = PROGRAM_STATUS_URL)
@@ -29,17 +35,21 @@ public class ProgramStatusServlet extends HttpServlet {
 
         try {
             String runId = request.getParameter(RUN_ID_QUERY_PARAM);
+            if (runId == null) {
+                writeExecutionTiersStatus(response);
+                return;
+            }
             if (!validateRunIdParam(runId, response)) return;
 
             ProgramRunStatus status = ProgramExecutionManager.getInstance().getStatus(runId);
 
-            if (status == null) {
-                writeJsonError(response, HttpServletResponse.SC_NOT_FOUND, "Run ID not found");
-                return;
-            }
+            if (!validateRunStatusFound(status, runId, "Run ID not found", response)) return;
 
             JsonObject jsonResponse = new JsonObject();
             jsonResponse.addProperty(STATE, status.state.name());
+            jsonResponse.addProperty(QUEUE_DEPTH, status.queueDepthAtSubmit);
+            jsonResponse.addProperty(USER_QUEUE_DEPTH, status.userQueueDepthAtSubmit);
+            jsonResponse.addProperty(WAIT_TIME_MILLIS, status.getWaitTimeMillis());
 
             if (status.error != null && !status.error.isEmpty()) {
                 jsonResponse.addProperty(ERROR, status.error);
@@ -53,4 +63,31 @@ public class ProgramStatusServlet extends HttpServlet {
                     "Server error while fetching program status: " + e.getMessage());
         }
     }
+
+    private void writeExecutionTiersStatus(HttpServletResponse response) throws IOException {
+        Engine engine = ServletUtils.getEngine(getServletContext());
+        if (!validateEngineNotNull(engine, response)) return;
+
+        ExecutionTiers executionTiers = engine.getExecutionTiers();
+        JsonObject tiersJson = new JsonObject();
+        for (ExecutionTiers.Tier tier : ExecutionTiers.Tier.values()) {
+            JsonObject tierJson = new JsonObject();
+            tierJson.addProperty(RUNS, executionTiers.getRunsCount(tier));
+            tierJson.addProperty(PROMOTIONS, executionTiers.getPromotionsCount(tier));
+            tierJson.addProperty(BUILD_MILLIS, executionTiers.getBuildMillis(tier));
+            tiersJson.add(tier.name(), tierJson);
+        }
+
+        JsonObject executionTiersJson = new JsonObject();
+        executionTiersJson.addProperty(COMPILE_THRESHOLD, executionTiers.getCompileThreshold());
+        executionTiersJson.addProperty(BYTECODE_THRESHOLD, executionTiers.getBytecodeThreshold());
+        executionTiersJson.addProperty(FAILED_BUILDS, executionTiers.getFailedBuildsCount());
+        executionTiersJson.add(TIERS, tiersJson);
+
+        JsonObject jsonResponse = new JsonObject();
+        jsonResponse.add(EXECUTION_TIERS, executionTiersJson);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.getWriter().write(GSON_INSTANCE.toJson(jsonResponse));
+    }
 }
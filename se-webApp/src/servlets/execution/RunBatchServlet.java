@@ -0,0 +1,230 @@
+package servlets.execution;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import dto.v2.ProgramDTO;
+import engine.Engine;
+import engine.logic.execution.batchMode.BatchRowResult;
+import engine.logic.execution.batchMode.BatchRunSummary;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import service.ProgramExecutionManager;
+import service.ProgramRunRequest;
+import utils.ServletUtils;
+import utils.SessionUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static utils.Constants.*;
+import static utils.ValidationUtils.*;
+
+/**
+ * Handles POST /run-batch requests: runs one program (name, architecture, degree) over many input vectors.
+ * The request is either
+ * - JSON: { "programName", "architecture", "degree", "inputsList": [[1, 2], [3, 4], ...] }
+ * - NDJSON (Content-Type application/x-ndjson): the first line is { "programName", "architecture", "degree" },
+ *   and every following line is one input vector, e.g. [1, 2]. The lines are read while the batch runs.
+ * The response is NDJSON, written while the batch runs: one line per run in input order
+ * ({ "index", "inputs", "result", "cycles", "credits" }, or { "index", "inputs", "error" } for the run the credits
+ * ran out on - the batch stops there), then a last line { "summary": { "completedRows", "totalCycles", "totalCredits", "stoppedEarly" } }.
+ * The completed runs are charged in input order, like single runs. The batch is scheduled like one run of the user
+ * (ProgramExecutionManager): it waits for the user's turn, runs its rows in parallel only on the user's free run permits,
+ * and is stopped when none of its runs ended for a run's time limit (BATCH_ROW_TIME_LIMIT_MILLIS) - a long sweep runs
+ * as long as its runs keep ending.
+ */
+@WebServlet(name = RUN_BATCH_NAME, urlPatterns = RUN_BATCH_URL)
+public class RunBatchServlet extends HttpServlet {
+
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    private static final int FLUSH_EVERY_ROWS = 64;
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+        if (!validateUserSession(request, response)) return;
+        String username = SessionUtils.getUsername(request);
+
+        Engine engine = ServletUtils.getEngine(getServletContext());
+        if (!validateEngineNotNull(engine, response)) return;
+
+        boolean ndjsonRequest = request.getContentType() != null && request.getContentType().startsWith(NDJSON_CONTENT_TYPE);
+        BufferedReader reader = request.getReader();
+        Iterator<Long[]> inputs;
+        JsonObject header;
+
+        try {
+            header = ndjsonRequest ? readFirstJsonLine(reader) : GSON_INSTANCE.fromJson(reader, JsonObject.class);
+            if (!validateJsonBody(header, response)) return;
+            if (!validateJsonStringFields(header, response,
+                    PROGRAM_NAME_QUERY_PARAM, CHOSEN_ARCHITECTURE_STR_QUERY_PARAM, DEGREE_QUERY_PARAM)) return;
+
+            if (ndjsonRequest) {
+                inputs = new NdjsonInputsIterator(reader);
+            } else {
+                if (!validateJsonStringFields(header, response, INPUTS_LIST_QUERY_PARAM)) return;
+                inputs = new JsonArrayInputsIterator(header.getAsJsonArray(INPUTS_LIST_QUERY_PARAM));
+            }
+        } catch (Exception e) {
+            writeJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid batch request: " + e.getMessage());
+            return;
+        }
+
+        String programName = header.get(PROGRAM_NAME_QUERY_PARAM).getAsString();
+        String architecture = header.get(CHOSEN_ARCHITECTURE_STR_QUERY_PARAM).getAsString();
+        int degree = header.get(DEGREE_QUERY_PARAM).getAsInt();
+
+        if (!validateProgramName(programName, response)) return;
+        if (!validateArchitecture(architecture, response)) return;
+        if (!validateDegree(degree, response)) return;
+
+        try {
+            ProgramDTO programDTO = engine.getProgramDTOByName(programName);
+            if (!validateProgramExists(programDTO, response)) return;
+        } catch (Exception e) {
+            writeJsonError(response, HttpServletResponse.SC_NOT_FOUND, "Program not found: " + e.getMessage());
+            return;
+        }
+
+        // From here the response is streamed - an error is reported as the last line
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(NDJSON_CONTENT_TYPE);
+        PrintWriter writer = response.getWriter();
+        int[] writtenRows = {0};
+
+        try {
+            ProgramRunRequest batchRequest = new ProgramRunRequest(programName, degree, architecture, username, List.of(), null);
+            BatchRunSummary summary = ProgramExecutionManager.getInstance().runBatch(batchRequest, inputs, rowResult -> {
+                writer.write(GSON_INSTANCE.toJson(buildRowJson(rowResult)));
+                writer.write('\n');
+
+                if (++writtenRows[0] % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                    if (writer.checkError()) {
+                        throw new UncheckedIOException(new IOException("The client closed the connection"));
+                    }
+                }
+            }, engine);
+
+            JsonObject summaryJson = new JsonObject();
+            summaryJson.addProperty("completedRows", summary.completedRows());
+            summaryJson.addProperty("totalCycles", summary.totalCycles());
+            summaryJson.addProperty("totalCredits", summary.totalCredits());
+            summaryJson.addProperty("stoppedEarly", summary.stoppedEarly());
+
+            JsonObject lastLine = new JsonObject();
+            lastLine.add("summary", summaryJson);
+            writer.write(GSON_INSTANCE.toJson(lastLine));
+            writer.write('\n');
+
+        } catch (Exception e) {
+            JsonObject lastLine = new JsonObject();
+            lastLine.addProperty(ERROR, "Batch stopped: " + e.getMessage());
+            writer.write(GSON_INSTANCE.toJson(lastLine));
+            writer.write('\n');
+        }
+
+        writer.flush();
+    }
+
+    private static JsonObject buildRowJson(BatchRowResult rowResult) {
+        JsonObject rowJson = new JsonObject();
+        rowJson.addProperty("index", rowResult.index());
+        rowJson.add("inputs", GSON_INSTANCE.toJsonTree(rowResult.inputs()));
+
+        if (rowResult.isCompleted()) {
+            rowJson.addProperty("result", rowResult.result());
+            rowJson.addProperty("cycles", rowResult.cycles());
+            rowJson.addProperty("credits", rowResult.credits());
+        } else {
+            rowJson.addProperty(ERROR, rowResult.error());
+        }
+
+        return rowJson;
+    }
+
+    private static JsonObject readFirstJsonLine(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                return GSON_INSTANCE.fromJson(line, JsonObject.class);
+            }
+        }
+        return null;
+    }
+
+    private static Long[] toInputs(JsonElement inputsJson) {
+        Long[] inputs = GSON_INSTANCE.fromJson(inputsJson, Long[].class);
+        return (inputs != null) ? inputs : new Long[0];
+    }
+
+    private static class JsonArrayInputsIterator implements Iterator<Long[]> {
+        private final JsonArray inputsList;
+        private int nextIndex = 0;
+
+        JsonArrayInputsIterator(JsonArray inputsList) {
+            this.inputsList = inputsList;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < inputsList.size();
+        }
+
+        @Override
+        public Long[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return toInputs(inputsList.get(nextIndex++));
+        }
+    }
+
+    // Reads the next input vector only when the batch asks for it
+    private static class NdjsonInputsIterator implements Iterator<Long[]> {
+        private final BufferedReader reader;
+        private String nextLine;
+
+        NdjsonInputsIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (nextLine == null) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (!line.isBlank()) {
+                        nextLine = line;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Long[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            String line = nextLine;
+            nextLine = null;
+            return toInputs(GSON_INSTANCE.fromJson(line, JsonElement.class));
+        }
+    }
+}
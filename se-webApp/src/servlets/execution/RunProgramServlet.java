@@ -3,6 +3,7 @@ package servlets.execution;
 import com.google.gson.JsonObject;
 import dto.v2.ProgramDTO;
 import engine.Engine;
+import engine.logic.execution.compiledMode.ExecutionBackend;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -76,10 +77,16 @@ public class RunProgramServlet extends HttpServlet {
         List<Long> inputValues = validateInputs(jsonBody, response);
         if (inputValues == null) return null;
 
+        ExecutionBackend backend = null;        // Optional: the engine picks it by the program's tier
+        if (jsonBody.has(EXECUTION_BACKEND_QUERY_PARAM) && !jsonBody.get(EXECUTION_BACKEND_QUERY_PARAM).isJsonNull()) {
+            backend = validateExecutionBackend(jsonBody.get(EXECUTION_BACKEND_QUERY_PARAM).getAsString(), response);
+            if (backend == null) return null;
+        }
+
         ProgramDTO programDTO = engine.getProgramDTOByName(programName);
         if (!validateProgramExists(programDTO, response)) return null;
 
-        return new ProgramRunRequest(programName, degree, architecture, username, inputValues);
+        return new ProgramRunRequest(programName, degree, architecture, username, inputValues, backend);
     }
 
     private void writeSuccessResponse(HttpServletResponse response, String runId) throws IOException {
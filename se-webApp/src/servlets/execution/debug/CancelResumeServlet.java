@@ -0,0 +1,59 @@
+package servlets.execution.debug;
+
+import com.google.gson.JsonObject;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import service.DebugResumeManager;
+import service.DebugResumeStatus;
+import utils.SessionUtils;
+
+import java.io.IOException;
+
+import static utils.Constants.*;
+import static utils.ValidationUtils.*;
+
+/**
+ * Handles POST /cancel-resume requests.
+ * Cancels a running debugger resume job of the logged-in user by its jobId. The debug session stays where the resume
+ * was stopped (it can be stepped, resumed or stopped).
+ */
+@WebServlet(name = CANCEL_RESUME_NAME, urlPatterns = CANCEL_RESUME_URL)
+public class CancelResumeServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+        if (!validateUserSession(request, response)) return;
+        String username = SessionUtils.getUsername(request);
+
+        response.setContentType("application/json");
+
+        try {
+            String jobId = request.getParameter(JOB_ID_QUERY_PARAM);
+            if (!validateJobIdParam(jobId, response)) return;
+
+            DebugResumeManager manager = DebugResumeManager.getInstance();
+            DebugResumeStatus status = manager.getStatus(jobId);
+            if (!validateResumeStatusFound(status, jobId, username, response)) return;
+
+            if (!manager.cancelResume(jobId)) {
+                writeJsonError(response, HttpServletResponse.SC_CONFLICT,
+                        "Resume already finished with state " + status.state.name());
+                return;
+            }
+
+            JsonObject jsonResponse = new JsonObject();
+            jsonResponse.addProperty(STATE, status.state.name());
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().write(GSON_INSTANCE.toJson(jsonResponse));
+
+        } catch (Exception e) {
+            writeJsonError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    "Server error while cancelling resume: " + e.getMessage());
+        }
+    }
+}
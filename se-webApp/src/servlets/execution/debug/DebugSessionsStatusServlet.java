@@ -0,0 +1,48 @@
+package servlets.execution.debug;
+
+import com.google.gson.JsonObject;
+import engine.Engine;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
+
+import java.io.IOException;
+
+import static utils.Constants.*;
+import static utils.ValidationUtils.*;
+
+/**
+ * Handles GET /debug-sessions-status requests.
+ * Returns the debug sessions metrics: the open sessions ("debugSessions"), the sessions removed after the idle TTL
+ * ("expiredDebugSessions") and the ones removed early because there were too many ("evictedDebugSessions").
+ */
+@WebServlet(name = DEBUG_SESSIONS_STATUS_NAME, urlPatterns = DEBUG_SESSIONS_STATUS_URL)
+public class DebugSessionsStatusServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+        if (!validateUserSession(request, response)) return;
+
+        response.setContentType("application/json");
+
+        try {
+            Engine engine = ServletUtils.getEngine(getServletContext());
+
+            JsonObject jsonResponse = new JsonObject();
+            jsonResponse.addProperty(DEBUG_SESSIONS, engine.getDebugSessionsCount());
+            jsonResponse.addProperty(EXPIRED_DEBUG_SESSIONS, engine.getExpiredDebugSessionsCount());
+            jsonResponse.addProperty(EVICTED_DEBUG_SESSIONS, engine.getEvictedDebugSessionsCount());
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().write(GSON_INSTANCE.toJson(jsonResponse));
+
+        } catch (Exception e) {
+            writeJsonError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    "Server error while fetching debug sessions status: " + e.getMessage());
+        }
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import service.DebugResumeManager;
 import utils.ServletUtils;
 import utils.SessionUtils;
 import java.io.IOException;
@@ -48,7 +49,9 @@ public class InitializeDebuggerServlet extends HttpServlet {
             List<Long> inputValues = validateInputs(jsonBody, response);
             if (inputValues == null) return;
 
-            engine.initializeDebugger(programName, architecture, degree, inputValues, username);
+            DebugResumeManager resumeManager = DebugResumeManager.getInstance();
+            resumeManager.cancelActiveResume(username);        // The new session replaces the old one
+            engine.initializeDebugger(programName, architecture, degree, inputValues, username, resumeManager.getStepBudget());
 
             response.setStatus(HttpServletResponse.SC_OK);
         } catch (Exception e) {
@@ -2,12 +2,13 @@ package servlets.execution.debug;
 
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
-import dto.v2.DebugDTO;
 import engine.Engine;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import service.DebugResumeManager;
+import service.ProgramRunState;
 import utils.ServletUtils;
 import utils.SessionUtils;
 
@@ -18,6 +19,13 @@ import java.util.List;
 import static utils.Constants.*;
 import static utils.ValidationUtils.*;
 
+/**
+ * Handles POST /resume requests: starts a resume of the user's debugger (until a breakpoint, the end of the program,
+ * or the session's step budget) as a background job, and returns its jobId right away.
+ * The client polls /resume-status?jobId=... for the result, and can cancel it with /cancel-resume?jobId=...
+ * The breakpoints are kept in the debugger session - the body has "breakPoints" only when they changed since the
+ * last resume; without it (or with no body) the session's breakpoints are used.
+ */
 @WebServlet(name = RESUME_DEBUGGER_NAME, urlPatterns = RESUME_DEBUGGER_URL)
 public class ResumeServlet extends HttpServlet {
 
@@ -33,19 +41,25 @@ public class ResumeServlet extends HttpServlet {
 
         try {
             JsonObject jsonBody = GSON_INSTANCE.fromJson(request.getReader(), JsonObject.class);
-            if (!validateJsonBody(jsonBody, response)) return;
 
-            // Parse breakpoints
-            Type listType = new TypeToken<List<Boolean>>() {}.getType();
-            List<Boolean> breakPoints = GSON_INSTANCE.fromJson(jsonBody.get("breakPoints"), listType);
+            // Parse breakpoints (null - keep the session's breakpoints)
+            List<Boolean> breakPoints = null;
+            if (jsonBody != null && jsonBody.has(BREAK_POINTS_QUERY_PARAM) && !jsonBody.get(BREAK_POINTS_QUERY_PARAM).isJsonNull()) {
+                Type listType = new TypeToken<List<Boolean>>() {}.getType();
+                breakPoints = GSON_INSTANCE.fromJson(jsonBody.get(BREAK_POINTS_QUERY_PARAM), listType);
+            }
 
-            DebugDTO result = engine.getProgramAfterResume(breakPoints, username);
+            String jobId = DebugResumeManager.getInstance().submitResume(breakPoints, username, engine);
 
-            response.setStatus(HttpServletResponse.SC_OK);
-            response.getWriter().write(GSON_INSTANCE.toJson(result));
+            JsonObject jsonResponse = new JsonObject();
+            jsonResponse.addProperty(JOB_ID_QUERY_PARAM, jobId);
+            jsonResponse.addProperty(STATE, ProgramRunState.PENDING.name());
+
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            response.getWriter().write(GSON_INSTANCE.toJson(jsonResponse));
 
         } catch (IllegalStateException e) {
-            writeJsonError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            writeJsonError(response, HttpServletResponse.SC_CONFLICT, e.getMessage());
         } catch (Exception e) {
             writeJsonError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
                     "Server error while resuming debugger: " + e.getMessage());
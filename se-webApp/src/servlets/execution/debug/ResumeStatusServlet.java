@@ -0,0 +1,65 @@
+package servlets.execution.debug;
+
+import com.google.gson.JsonObject;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import service.DebugResumeManager;
+import service.DebugResumeStatus;
+import service.ProgramRunState;
+import utils.SessionUtils;
+
+import java.io.IOException;
+
+import static utils.Constants.*;
+import static utils.ValidationUtils.*;
+
+/**
+ * Handles GET /resume-status requests.
+ * Returns the state of a debugger resume job by its jobId, and when it's DONE the debugger state after the resume
+ * ("debugDTO") and whether it paused because of the session's step budget ("pausedOnStepBudget").
+ */
+@WebServlet(name = RESUME_STATUS_NAME, urlPatterns = RESUME_STATUS_URL)
+public class ResumeStatusServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+        if (!validateUserSession(request, response)) return;
+        String username = SessionUtils.getUsername(request);
+
+        response.setContentType("application/json");
+
+        try {
+            String jobId = request.getParameter(JOB_ID_QUERY_PARAM);
+            if (!validateJobIdParam(jobId, response)) return;
+
+            DebugResumeStatus status = DebugResumeManager.getInstance().getStatus(jobId);
+            if (!validateResumeStatusFound(status, jobId, username, response)) return;
+
+            ProgramRunState state = status.state;
+            JsonObject jsonResponse = new JsonObject();
+            jsonResponse.addProperty(STATE, state.name());
+
+            if (state == ProgramRunState.DONE) {
+                jsonResponse.add(DEBUG_DTO, GSON_INSTANCE.toJsonTree(status.debugDTO));
+                jsonResponse.addProperty(PAUSED_ON_STEP_BUDGET, status.pausedOnStepBudget);
+            }
+            if (status.sessionExpired) {
+                jsonResponse.addProperty(SESSION_EXPIRED, true);
+            }
+            if (status.error != null && !status.error.isEmpty()) {
+                jsonResponse.addProperty(ERROR, status.error);
+            }
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().write(GSON_INSTANCE.toJson(jsonResponse));
+
+        } catch (Exception e) {
+            writeJsonError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    "Server error while fetching resume status: " + e.getMessage());
+        }
+    }
+}
@@ -2,10 +2,12 @@ package servlets.execution.debug;
 
 import dto.v2.DebugDTO;
 import engine.Engine;
+import engine.logic.exceptions.DebugSessionExpiredException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import service.DebugResumeManager;
 import utils.ServletUtils;
 import utils.SessionUtils;
 
@@ -28,12 +30,19 @@ public class StepBackServlet extends HttpServlet {
 
         response.setContentType("application/json");
 
+        if (DebugResumeManager.getInstance().hasActiveResume(username)) {
+            writeJsonError(response, HttpServletResponse.SC_CONFLICT, "A resume of the debugger is running - wait for it or cancel it");
+            return;
+        }
+
         try {
             DebugDTO debugDTO = engine.getProgramAfterStepBack(username);
 
             response.setStatus(HttpServletResponse.SC_OK);
             response.getWriter().write(GSON_INSTANCE.toJson(debugDTO));
 
+        } catch (DebugSessionExpiredException e) {
+            writeJsonError(response, HttpServletResponse.SC_GONE, e.getMessage());
         } catch (Exception e) {
             writeJsonError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Server error while performing step back: " + e.getMessage());
             e.printStackTrace();
@@ -2,10 +2,12 @@ package servlets.execution.debug;
 
 import dto.v2.DebugDTO;
 import engine.Engine;
+import engine.logic.exceptions.DebugSessionExpiredException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import service.DebugResumeManager;
 import utils.ServletUtils;
 import utils.SessionUtils;
 
@@ -26,11 +28,18 @@ public class StepOverServlet extends HttpServlet {
 
         response.setContentType("application/json");
 
+        if (DebugResumeManager.getInstance().hasActiveResume(username)) {
+            writeJsonError(response, HttpServletResponse.SC_CONFLICT, "A resume of the debugger is running - wait for it or cancel it");
+            return;
+        }
+
         try {
             DebugDTO debugStep = engine.getProgramAfterStepOver(username);
             response.setStatus(HttpServletResponse.SC_OK);
             response.getWriter().write(GSON_INSTANCE.toJson(debugStep));
 
+        } catch (DebugSessionExpiredException e) {
+            writeJsonError(response, HttpServletResponse.SC_GONE, e.getMessage());
         } catch (IllegalStateException e) {
             writeJsonError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
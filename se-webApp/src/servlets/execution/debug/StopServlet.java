@@ -1,10 +1,12 @@
 package servlets.execution.debug;
 
 import engine.Engine;
+import engine.logic.exceptions.DebugSessionExpiredException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import service.DebugResumeManager;
 import utils.ServletUtils;
 import utils.SessionUtils;
 import java.io.IOException;
@@ -26,9 +28,12 @@ public class StopServlet extends HttpServlet {
         response.setContentType("application/json");
 
         try {
+            DebugResumeManager.getInstance().cancelActiveResume(username);     // Stop it where it is
             engine.stopDebugPress(username);
             response.setStatus(HttpServletResponse.SC_OK);
 
+        } catch (DebugSessionExpiredException e) {
+            writeJsonError(response, HttpServletResponse.SC_GONE, e.getMessage());
         } catch (Exception e) {
             writeJsonError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
                     "Failed to stop debugger: " + e.getMessage());
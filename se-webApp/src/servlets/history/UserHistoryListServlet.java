@@ -1,7 +1,9 @@
 package servlets.history;
 
-import dto.v3.HistoryRowV3DTO;
+import com.google.gson.stream.JsonWriter;
 import engine.Engine;
+import engine.logic.execution.ExecutionHistoryPage;
+import engine.logic.execution.ExecutionRecord;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,15 +11,26 @@ import jakarta.servlet.http.HttpServletResponse;
 import utils.ServletUtils;
 import utils.SessionUtils;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.Predicate;
 
 import static utils.Constants.*;
 import static utils.ValidationUtils.*;
 
+/**
+ * Handles GET /user-history-list requests.
+ * Returns one page of a user's runs: { "rows": [...], "nextCursor": n, "hasMore": true/false }
+ * Query parameters (all optional):
+ * - username (default: the logged-in user), cursor (default 0), limit (default 100, at most 1000)
+ * - filters: programName, architecture, minDegree, maxDegree
+ * The rows have the fields of HistoryRowV3DTO and are written one by one to the response.
+ * With a filter a page may have fewer than 'limit' rows and still hasMore (a page scans a bounded part of the history).
+ */
 @WebServlet(name = USER_HISTORY_LIST_NAME, urlPatterns = {USER_HISTORY_LIST_URL})
 public class UserHistoryListServlet extends HttpServlet {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
@@ -29,18 +42,38 @@ public class UserHistoryListServlet extends HttpServlet {
         response.setContentType("application/json");
 
         try {
-
-            String username = request.getParameter("username");
+            String username = request.getParameter(USERNAME_QUERY_PARAM);
             if (username == null || username.isEmpty()) {
                 username = SessionUtils.getUsername(request);
             }
-            List<HistoryRowV3DTO> userHistory = engine.getHistoryV3PerProgram(username);
-            if (userHistory == null) {
-                userHistory = new ArrayList<>();
+
+            int cursor;
+            int limit;
+            int minDegree;
+            int maxDegree;
+            try {
+                cursor = parseIntParam(request, CURSOR_QUERY_PARAM, 0);
+                limit = parseIntParam(request, LIMIT_QUERY_PARAM, DEFAULT_PAGE_SIZE);
+                minDegree = parseIntParam(request, MIN_DEGREE_QUERY_PARAM, 0);
+                maxDegree = parseIntParam(request, MAX_DEGREE_QUERY_PARAM, Integer.MAX_VALUE);
+            } catch (NumberFormatException e) {
+                writeJsonError(response, HttpServletResponse.SC_BAD_REQUEST,
+                        "Invalid paging or degree parameter. It must be a number");
+                return;
+            }
+
+            if (cursor < 0 || limit <= 0 || limit > MAX_PAGE_SIZE) {
+                writeJsonError(response, HttpServletResponse.SC_BAD_REQUEST,
+                        "Invalid paging: cursor must be 0 or more and limit between 1 and " + MAX_PAGE_SIZE);
+                return;
             }
 
+            Predicate<ExecutionRecord> filter = buildFilter(request.getParameter(PROGRAM_NAME_QUERY_PARAM),
+                    request.getParameter(CHOSEN_ARCHITECTURE_STR_QUERY_PARAM), minDegree, maxDegree);
+            ExecutionHistoryPage historyPage = engine.getHistoryPage(username, cursor, limit, filter);
+
             response.setStatus(HttpServletResponse.SC_OK);
-            response.getWriter().write(GSON_INSTANCE.toJson(userHistory));
+            writeHistoryPage(response, historyPage);
 
         } catch (Exception e) {
             writeJsonError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
@@ -48,4 +81,56 @@ public class UserHistoryListServlet extends HttpServlet {
             e.printStackTrace();
         }
     }
+
+    private static int parseIntParam(HttpServletRequest request, String paramName, int defaultValue) {
+        String paramValue = request.getParameter(paramName);
+        return (paramValue == null || paramValue.isEmpty()) ? defaultValue : Integer.parseInt(paramValue);
+    }
+
+    private static Predicate<ExecutionRecord> buildFilter(String programName, String architecture, int minDegree, int maxDegree) {
+        return executionRecord ->
+                (programName == null || programName.isEmpty() || programName.equals(executionRecord.getProgramName()))
+                && (architecture == null || architecture.isEmpty() || architecture.equals(executionRecord.getArchitectureType().getRepresentation()))
+                && executionRecord.getDegree() >= minDegree
+                && executionRecord.getDegree() <= maxDegree;
+    }
+
+    // Same field names as HistoryRowV3DTO, so the client reads the rows as HistoryRowV3DTO
+    private static void writeHistoryPage(HttpServletResponse response, ExecutionHistoryPage historyPage) throws IOException {
+        JsonWriter jsonWriter = GSON_INSTANCE.newJsonWriter(response.getWriter());
+
+        jsonWriter.beginObject();
+        jsonWriter.name("rows").beginArray();
+
+        for (ExecutionRecord executionRecord : historyPage.executionRecords()) {
+            jsonWriter.beginObject();
+            jsonWriter.name("programType").value(executionRecord.getProgramType());
+            jsonWriter.name("programName").value(executionRecord.getProgramName());
+            jsonWriter.name("programUserString").value(executionRecord.getProgramUserString());
+            jsonWriter.name("architectureChoice").value(executionRecord.getArchitectureType().getRepresentation());
+            jsonWriter.name("degree").value(executionRecord.getDegree());
+            jsonWriter.name("result").value(executionRecord.getResult());
+            jsonWriter.name("totalCycles").value(executionRecord.getTotalCycles());
+
+            jsonWriter.name("variablesToValuesSorted").beginObject();
+            for (int i = 0; i < executionRecord.getVariablesCount(); i++) {
+                jsonWriter.name(executionRecord.getVariableName(i)).value(executionRecord.getVariableValue(i));
+            }
+            jsonWriter.endObject();
+
+            jsonWriter.name("inputsValues").beginArray();
+            for (int i = 0; i < executionRecord.getInputsCount(); i++) {
+                jsonWriter.value(executionRecord.getInput(i));
+            }
+            jsonWriter.endArray();
+
+            jsonWriter.endObject();
+        }
+
+        jsonWriter.endArray();
+        jsonWriter.name("nextCursor").value(historyPage.nextCursor());
+        jsonWriter.name("hasMore").value(historyPage.hasMore());
+        jsonWriter.endObject();
+        jsonWriter.flush();
+    }
 }
@@ -1,7 +1,7 @@
 package servlets.users;
 
 import com.google.gson.JsonObject;
-import dto.v2.ProgramDTO;
+import dto.v3.ProgramStatsDTO;
 import dto.v3.UserDTO;
 import engine.Engine;
 import jakarta.servlet.annotation.WebServlet;
@@ -12,6 +12,7 @@ import utils.ServletUtils;
 import utils.SessionUtils;
 
 import java.io.IOException;
+import java.util.List;
 
 import static utils.Constants.*;
 import static utils.ValidationUtils.*;
@@ -50,16 +51,24 @@ public class CheckCreditBeforeExecutionServlet extends HttpServlet {
             if (!validateProgramName(programName, response)) return;
             if (!validateArchitecture(chosenArchitectureStr, response)) return;
 
-            ProgramDTO programDTO = engine.getProgramDTOByName(programName);
-            if (programDTO == null) {
+            ProgramStatsDTO programStatsDTO = engine.getProgramStatsDTO(programName);
+            if (programStatsDTO == null) {
                 writeJsonError(response, HttpServletResponse.SC_NOT_FOUND,
                         "Program not found");
                 return;
             }
 
+            // Optional (older clients send only the program and the architecture): degree 0 and no inputs
+            int degree = jsonBody.has(DEGREE_QUERY_PARAM) ? jsonBody.get(DEGREE_QUERY_PARAM).getAsInt() : 0;
+            if (!validateDegree(degree, response)) return;
+
+            List<Long> inputValues = validateInputs(jsonBody, response);
+            if (inputValues == null) return;
+
+            // The static estimate of the run on these inputs - a run that needs more than the user has can't complete
+            // (only the architecture cost until the program is compiled - it isn't compiled for the check)
             long currentCredits = userDTO.getCurrentCredits();
-            long architectureCost = engine.getArchitectureCost(chosenArchitectureStr);
-            long requiredCredits = programDTO.getAverageCreditCost() + architectureCost;
+            long requiredCredits = engine.getMinimumRunCredits(programName, chosenArchitectureStr, degree, inputValues.toArray(new Long[0]));
 
             boolean hasEnough = currentCredits >= requiredCredits;
 
@@ -14,9 +14,34 @@ public class Constants {
     public static final String CHOSEN_ARCHITECTURE_STR_QUERY_PARAM = "architecture";
     public static final String INPUTS_VALUES_QUERY_PARAM = "inputsValues";
     public static final String RUN_ID_QUERY_PARAM = "runId";
+    public static final String CURSOR_QUERY_PARAM = "cursor";
+    public static final String LIMIT_QUERY_PARAM = "limit";
+    public static final String MIN_DEGREE_QUERY_PARAM = "minDegree";
+    public static final String MAX_DEGREE_QUERY_PARAM = "maxDegree";
+    public static final String INPUTS_LIST_QUERY_PARAM = "inputsList";
+    public static final String BREAK_POINTS_QUERY_PARAM = "breakPoints";
+    public static final String JOB_ID_QUERY_PARAM = "jobId";
+    public static final String EXECUTION_BACKEND_QUERY_PARAM = "executionBackend";
 
     public static final String STATE = "state";
     public static final String ERROR = "error";
+    public static final String QUEUE_DEPTH = "queueDepth";
+    public static final String USER_QUEUE_DEPTH = "userQueueDepth";
+    public static final String WAIT_TIME_MILLIS = "waitTimeMillis";
+    public static final String DEBUG_DTO = "debugDTO";
+    public static final String PAUSED_ON_STEP_BUDGET = "pausedOnStepBudget";
+    public static final String SESSION_EXPIRED = "sessionExpired";
+    public static final String DEBUG_SESSIONS = "debugSessions";
+    public static final String EXPIRED_DEBUG_SESSIONS = "expiredDebugSessions";
+    public static final String EVICTED_DEBUG_SESSIONS = "evictedDebugSessions";
+    public static final String EXECUTION_TIERS = "executionTiers";
+    public static final String COMPILE_THRESHOLD = "compileThreshold";
+    public static final String BYTECODE_THRESHOLD = "bytecodeThreshold";
+    public static final String FAILED_BUILDS = "failedBuilds";
+    public static final String TIERS = "tiers";
+    public static final String RUNS = "runs";
+    public static final String PROMOTIONS = "promotions";
+    public static final String BUILD_MILLIS = "buildMillis";
 
     // Login:
     public static final String LOGIN_SERVLET_NAME = "LoginServlet";
@@ -79,10 +104,18 @@ public class Constants {
     public final static String RUN_PROGRAM_NAME = "RunProgram";
     public final static String RUN_PROGRAM_URL = "/run-program";
 
+    // Run Program Over Many Inputs:
+    public final static String RUN_BATCH_NAME = "RunBatch";
+    public final static String RUN_BATCH_URL = "/run-batch";
+
     // Get Program Status:
     public final static String PROGRAM_STATUS_NAME = "ProgramStatus";
     public final static String PROGRAM_STATUS_URL = "/program-status";
 
+    // Cancel Program Run:
+    public final static String CANCEL_RUN_NAME = "CancelRun";
+    public final static String CANCEL_RUN_URL = "/cancel-run";
+
     // Initialize debugger:
     public final static String INITIALIZE_DEBUGGER_NAME = "InitializeDebuggerServlet";
     public final static String INITIALIZE_DEBUGGER_URL = "/initialize-debugger";
@@ -95,6 +128,14 @@ public class Constants {
     public final static String RESUME_DEBUGGER_NAME = "ResumeServlet";
     public final static String RESUME_DEBUGGER_URL = "/resume";
 
+    // Resume job status:
+    public final static String RESUME_STATUS_NAME = "ResumeStatusServlet";
+    public final static String RESUME_STATUS_URL = "/resume-status";
+
+    // Cancel resume job:
+    public final static String CANCEL_RESUME_NAME = "CancelResumeServlet";
+    public final static String CANCEL_RESUME_URL = "/cancel-resume";
+
     // Step back:
     public final static String STEP_BACK_DEBUGGER_NAME = "StepBackServlet";
     public final static String STEP_BACK_DEBUGGER_URL = "/step-back";
@@ -102,4 +143,8 @@ public class Constants {
     // Stop:
     public final static String STOP_DEBUGGER_NAME = "StopDebugServlet";
     public final static String STOP_DEBUGGER_URL = "/stop-debug";
+
+    // Debug sessions status:
+    public final static String DEBUG_SESSIONS_STATUS_NAME = "DebugSessionsStatusServlet";
+    public final static String DEBUG_SESSIONS_STATUS_URL = "/debug-sessions-status";
 }
@@ -4,11 +4,17 @@ import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import dto.v2.ProgramDTO;
 import engine.Engine;
+import engine.logic.execution.compiledMode.ExecutionBackend;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import service.DebugResumeManager;
+import service.DebugResumeStatus;
+import service.ProgramExecutionManager;
+import service.ProgramRunStatus;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -102,6 +108,18 @@ public class ValidationUtils {
         return List.of();
     }
 
+    public static ExecutionBackend validateExecutionBackend(String backend, HttpServletResponse response) throws IOException {
+        for (ExecutionBackend executionBackend : ExecutionBackend.values()) {
+            if (executionBackend.name().equalsIgnoreCase(backend)) {
+                return executionBackend;
+            }
+        }
+
+        writeError(response, HttpServletResponse.SC_BAD_REQUEST,
+                "Invalid execution backend (must be one of " + Arrays.toString(ExecutionBackend.values()) + ")");
+        return null;
+    }
+
     public static boolean validateEngineNotNull(Engine engine, HttpServletResponse response) throws IOException {
         if (engine == null) {
             writeError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Engine not initialized");
@@ -127,6 +145,51 @@ public class ValidationUtils {
         return true;
     }
 
+    // A run that isn't found is either expired (finished a while ago, its status was removed) or unknown
+    public static boolean validateRunStatusFound(ProgramRunStatus status, String runId, String notFoundMessage,
+                                                 HttpServletResponse response) throws IOException {
+        if (status != null) {
+            return true;
+        }
+
+        if (ProgramExecutionManager.getInstance().isRunExpired(runId)) {
+            writeJsonError(response, HttpServletResponse.SC_GONE,
+                    "Run ID expired. The run finished a while ago and its status is no longer kept");
+        } else {
+            writeJsonError(response, HttpServletResponse.SC_NOT_FOUND, notFoundMessage);
+        }
+        return false;
+    }
+
+    @SuppressWarnings("BooleanMethodIsAlwaysInverted")
+    public static boolean validateJobIdParam(String jobId, HttpServletResponse response) throws IOException {
+        if (jobId == null || jobId.isEmpty()) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST, "Missing jobId parameter");
+            return false;
+        }
+        return true;
+    }
+
+    // Like validateRunStatusFound, for a debugger resume job. Only the user who started the job can see it
+    public static boolean validateResumeStatusFound(DebugResumeStatus status, String jobId, String username,
+                                                    HttpServletResponse response) throws IOException {
+        if (status == null) {
+            if (DebugResumeManager.getInstance().isJobExpired(jobId)) {
+                writeJsonError(response, HttpServletResponse.SC_GONE,
+                        "Job ID expired. The resume finished a while ago and its status is no longer kept");
+            } else {
+                writeJsonError(response, HttpServletResponse.SC_NOT_FOUND, "Job ID not found");
+            }
+            return false;
+        }
+
+        if (!status.username.equals(username)) {
+            writeJsonError(response, HttpServletResponse.SC_FORBIDDEN, "Only the user who started the resume can access it");
+            return false;
+        }
+        return true;
+    }
+
     private static void writeError(HttpServletResponse response, int statusCode, String message) throws IOException {
         response.setStatus(statusCode);
         response.getWriter().write(GSON_INSTANCE.toJson(message));